@@ -27,6 +27,8 @@ import java.util.Collections;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -114,7 +116,12 @@ public class SecurityConfig {
                                     .permitAll()
                                     // Permit open API endpoints
                                     .requestMatchers(OPEN_API_WHITELIST)
-                                    .permitAll();
+                                    .permitAll()
+                                    // Permit health probes, other actuator endpoints are admin only
+                                    .requestMatchers(EndpointRequest.to(HealthEndpoint.class))
+                                    .permitAll()
+                                    .requestMatchers(EndpointRequest.toAnyEndpoint())
+                                    .hasRole("ADMIN");
                             // Permit @PublicAccess annotated endpoints with HTTP method precision
                             for (PublicAccessEndpoint endpoint : publicEndpoints) {
                                 if (endpoint.httpMethod() != null) {
@@ -0,0 +1,18 @@
+-- V19__Add_revoked_token_created_at_index.sql
+-- Index revoked_token.created_at for the incremental revocation index refresh
+
+SET @dbname = DATABASE();
+SET @preparedStatement = (SELECT IF(
+  (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+    WHERE
+      (TABLE_SCHEMA = @dbname)
+      AND (TABLE_NAME = 'revoked_token')
+      AND (INDEX_NAME = 'idx_created_at')
+  ) > 0,
+  'SELECT 1',
+  'ALTER TABLE `revoked_token` ADD KEY `idx_created_at` (`created_at`)'
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
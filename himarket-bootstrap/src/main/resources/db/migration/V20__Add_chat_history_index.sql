@@ -0,0 +1,18 @@
+-- V20__Add_chat_history_index.sql
+-- Composite index backing the bounded chat history query (latest chat per conversation)
+
+SET @dbname = DATABASE();
+SET @preparedStatement = (SELECT IF(
+  (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+    WHERE
+      (TABLE_SCHEMA = @dbname)
+      AND (TABLE_NAME = 'chat')
+      AND (INDEX_NAME = 'idx_session_product_status')
+  ) > 0,
+  'SELECT 1',
+  'ALTER TABLE `chat` ADD KEY `idx_session_product_status` (`session_id`, `product_id`, `status`, `conversation_id`)'
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
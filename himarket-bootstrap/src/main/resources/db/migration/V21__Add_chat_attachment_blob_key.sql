@@ -0,0 +1,18 @@
+-- V21__Add_chat_attachment_blob_key.sql
+-- Reference attachment content stored in an external blob store instead of the data column
+
+SET @dbname = DATABASE();
+SET @preparedStatement = (SELECT IF(
+  (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE
+      (TABLE_SCHEMA = @dbname)
+      AND (TABLE_NAME = 'chat_attachment')
+      AND (COLUMN_NAME = 'blob_key')
+  ) > 0,
+  'SELECT 1',
+  'ALTER TABLE `chat_attachment` ADD COLUMN `blob_key` varchar(64) DEFAULT NULL'
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
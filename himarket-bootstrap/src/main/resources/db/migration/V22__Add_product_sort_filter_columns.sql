@@ -0,0 +1,83 @@
+-- V22__Add_product_sort_filter_columns.sql
+-- Denormalize download count and model category out of JSON columns for DB-side sorting and filtering
+
+SET @dbname = DATABASE();
+
+-- product.download_count
+SET @preparedStatement = (SELECT IF(
+  (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE
+      (TABLE_SCHEMA = @dbname)
+      AND (TABLE_NAME = 'product')
+      AND (COLUMN_NAME = 'download_count')
+  ) > 0,
+  'SELECT 1',
+  'ALTER TABLE `product` ADD COLUMN `download_count` bigint NOT NULL DEFAULT 0'
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
+
+UPDATE `product`
+SET `download_count` = CASE
+  WHEN `type` = 'AGENT_SKILL'
+    AND JSON_TYPE(JSON_EXTRACT(`feature`, '$.skillConfig.downloadCount')) IN ('INTEGER', 'UNSIGNED INTEGER')
+    THEN CAST(JSON_EXTRACT(`feature`, '$.skillConfig.downloadCount') AS SIGNED)
+  WHEN `type` = 'WORKER'
+    AND JSON_TYPE(JSON_EXTRACT(`feature`, '$.workerConfig.downloadCount')) IN ('INTEGER', 'UNSIGNED INTEGER')
+    THEN CAST(JSON_EXTRACT(`feature`, '$.workerConfig.downloadCount') AS SIGNED)
+  ELSE 0
+END
+WHERE `feature` IS NOT NULL;
+
+SET @preparedStatement = (SELECT IF(
+  (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+    WHERE
+      (TABLE_SCHEMA = @dbname)
+      AND (TABLE_NAME = 'product')
+      AND (INDEX_NAME = 'idx_type_download_count')
+  ) > 0,
+  'SELECT 1',
+  'ALTER TABLE `product` ADD KEY `idx_type_download_count` (`type`, `download_count`)'
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
+
+-- product_ref.model_category
+SET @preparedStatement = (SELECT IF(
+  (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE
+      (TABLE_SCHEMA = @dbname)
+      AND (TABLE_NAME = 'product_ref')
+      AND (COLUMN_NAME = 'model_category')
+  ) > 0,
+  'SELECT 1',
+  'ALTER TABLE `product_ref` ADD COLUMN `model_category` varchar(64) DEFAULT NULL'
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
+
+UPDATE `product_ref`
+SET `model_category` = JSON_UNQUOTE(JSON_EXTRACT(`model_config`, '$.modelAPIConfig.modelCategory'))
+WHERE `model_config` IS NOT NULL
+  AND JSON_TYPE(JSON_EXTRACT(`model_config`, '$.modelAPIConfig.modelCategory')) = 'STRING';
+
+SET @preparedStatement = (SELECT IF(
+  (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+    WHERE
+      (TABLE_SCHEMA = @dbname)
+      AND (TABLE_NAME = 'product_ref')
+      AND (INDEX_NAME = 'idx_model_category')
+  ) > 0,
+  'SELECT 1',
+  'ALTER TABLE `product_ref` ADD KEY `idx_model_category` (`model_category`, `product_id`)'
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
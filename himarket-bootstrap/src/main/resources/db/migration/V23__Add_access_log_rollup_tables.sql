@@ -0,0 +1,81 @@
+-- Pre-aggregated access_logs rollups for the DB-backed observability dashboards.
+-- access_logs is written by the log collector, so no collation is forced here: the rollups
+-- take the database default, like access_logs, and can be UNIONed with it.
+
+CREATE TABLE IF NOT EXISTS `access_log_rollup_1m` (
+    `id` bigint NOT NULL AUTO_INCREMENT,
+    `bucket_time` datetime NOT NULL COMMENT 'Bucket start',
+    `instance_id` varchar(255) DEFAULT NULL,
+    `api` varchar(255) DEFAULT NULL,
+    `model` varchar(255) DEFAULT NULL,
+    `consumer` varchar(255) DEFAULT NULL,
+    `route_name` varchar(255) DEFAULT NULL,
+    `upstream_cluster` varchar(255) DEFAULT NULL,
+    `mcp_tool` varchar(255) DEFAULT NULL,
+    `response_type` varchar(32) DEFAULT NULL COMMENT 'ai_log.response_type',
+    `is_model` tinyint NOT NULL DEFAULT 0 COMMENT 'ai_log.model is not empty',
+    `is_mcp` tinyint NOT NULL DEFAULT 0 COMMENT 'path starts with /mcp-servers',
+    `request_count` bigint NOT NULL DEFAULT 0,
+    `success_count` bigint NOT NULL DEFAULT 0,
+    `fallback_count` bigint NOT NULL DEFAULT 0,
+    `bytes_received` bigint DEFAULT NULL,
+    `bytes_sent` bigint DEFAULT NULL,
+    `input_tokens` bigint DEFAULT NULL,
+    `output_tokens` bigint DEFAULT NULL,
+    `total_tokens` bigint DEFAULT NULL,
+    `llm_duration_count` bigint NOT NULL DEFAULT 0,
+    `llm_duration_sum` double NOT NULL DEFAULT 0,
+    `first_token_count` bigint NOT NULL DEFAULT 0,
+    `first_token_sum` double NOT NULL DEFAULT 0,
+    `duration_count` bigint NOT NULL DEFAULT 0,
+    `duration_sum` double NOT NULL DEFAULT 0,
+    `cache_hit_count` bigint NOT NULL DEFAULT 0,
+    `cache_miss_count` bigint NOT NULL DEFAULT 0,
+    `cache_skip_count` bigint NOT NULL DEFAULT 0,
+    `ratelimited_count` bigint NOT NULL DEFAULT 0,
+    PRIMARY KEY (`id`),
+    KEY `idx_bucket_time` (`bucket_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='Per-minute access_logs aggregates';
+
+CREATE TABLE IF NOT EXISTS `access_log_rollup_1h` (
+    `id` bigint NOT NULL AUTO_INCREMENT,
+    `bucket_time` datetime NOT NULL COMMENT 'Bucket start',
+    `instance_id` varchar(255) DEFAULT NULL,
+    `api` varchar(255) DEFAULT NULL,
+    `model` varchar(255) DEFAULT NULL,
+    `consumer` varchar(255) DEFAULT NULL,
+    `route_name` varchar(255) DEFAULT NULL,
+    `upstream_cluster` varchar(255) DEFAULT NULL,
+    `mcp_tool` varchar(255) DEFAULT NULL,
+    `response_type` varchar(32) DEFAULT NULL COMMENT 'ai_log.response_type',
+    `is_model` tinyint NOT NULL DEFAULT 0 COMMENT 'ai_log.model is not empty',
+    `is_mcp` tinyint NOT NULL DEFAULT 0 COMMENT 'path starts with /mcp-servers',
+    `request_count` bigint NOT NULL DEFAULT 0,
+    `success_count` bigint NOT NULL DEFAULT 0,
+    `fallback_count` bigint NOT NULL DEFAULT 0,
+    `bytes_received` bigint DEFAULT NULL,
+    `bytes_sent` bigint DEFAULT NULL,
+    `input_tokens` bigint DEFAULT NULL,
+    `output_tokens` bigint DEFAULT NULL,
+    `total_tokens` bigint DEFAULT NULL,
+    `llm_duration_count` bigint NOT NULL DEFAULT 0,
+    `llm_duration_sum` double NOT NULL DEFAULT 0,
+    `first_token_count` bigint NOT NULL DEFAULT 0,
+    `first_token_sum` double NOT NULL DEFAULT 0,
+    `duration_count` bigint NOT NULL DEFAULT 0,
+    `duration_sum` double NOT NULL DEFAULT 0,
+    `cache_hit_count` bigint NOT NULL DEFAULT 0,
+    `cache_miss_count` bigint NOT NULL DEFAULT 0,
+    `cache_skip_count` bigint NOT NULL DEFAULT 0,
+    `ratelimited_count` bigint NOT NULL DEFAULT 0,
+    PRIMARY KEY (`id`),
+    KEY `idx_bucket_time` (`bucket_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='Per-hour access_logs aggregates';
+
+CREATE TABLE IF NOT EXISTS `access_log_rollup_state` (
+    `level_name` varchar(16) NOT NULL COMMENT '1m / 1h',
+    `from_time` datetime DEFAULT NULL COMMENT 'Rolled-up range start (inclusive)',
+    `to_time` datetime DEFAULT NULL COMMENT 'Rolled-up range end (exclusive)',
+    `updated_at` datetime(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    PRIMARY KEY (`level_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -0,0 +1,173 @@
+-- V24__Add_access_log_ai_columns.sql
+-- Extract hot ai_log fields of access_logs into indexed virtual columns.
+-- access_logs is created by the log collector and may not exist yet: every statement is skipped
+-- when the table is missing, and DBCollectorServiceImpl falls back to JSON_EXTRACT until the
+-- columns exist.
+-- Requires MySQL 8.0.21+ (JSON_VALUE ... RETURNING DOUBLE for the duration columns). Virtual
+-- columns are added in place without copying the table; the indexes are built online.
+
+SET @dbname = DATABASE();
+
+SET @hasAccessLogs = (
+  SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+  WHERE
+    (TABLE_SCHEMA = @dbname)
+    AND (TABLE_NAME = 'access_logs')
+    AND (COLUMN_NAME = 'ai_log')
+);
+
+-- access_logs.ai_model
+SET @preparedStatement = (SELECT IF(
+  @hasAccessLogs = 0 OR (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE
+      (TABLE_SCHEMA = @dbname)
+      AND (TABLE_NAME = 'access_logs')
+      AND (COLUMN_NAME = 'ai_model')
+  ) > 0,
+  'SELECT 1',
+  'ALTER TABLE `access_logs` ADD COLUMN `ai_model` varchar(255) GENERATED ALWAYS AS (IF(JSON_VALID(`ai_log`), LEFT(NULLIF(JSON_UNQUOTE(JSON_EXTRACT(`ai_log`, ''$.model'')), ''''), 255), NULL)) VIRTUAL'
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
+
+-- access_logs.ai_response_type
+SET @preparedStatement = (SELECT IF(
+  @hasAccessLogs = 0 OR (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE
+      (TABLE_SCHEMA = @dbname)
+      AND (TABLE_NAME = 'access_logs')
+      AND (COLUMN_NAME = 'ai_response_type')
+  ) > 0,
+  'SELECT 1',
+  'ALTER TABLE `access_logs` ADD COLUMN `ai_response_type` varchar(32) GENERATED ALWAYS AS (IF(JSON_VALID(`ai_log`), LEFT(JSON_UNQUOTE(JSON_EXTRACT(`ai_log`, ''$.response_type'')), 32), NULL)) VIRTUAL'
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
+
+-- access_logs.ai_cache_status
+SET @preparedStatement = (SELECT IF(
+  @hasAccessLogs = 0 OR (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE
+      (TABLE_SCHEMA = @dbname)
+      AND (TABLE_NAME = 'access_logs')
+      AND (COLUMN_NAME = 'ai_cache_status')
+  ) > 0,
+  'SELECT 1',
+  'ALTER TABLE `access_logs` ADD COLUMN `ai_cache_status` varchar(32) GENERATED ALWAYS AS (IF(JSON_VALID(`ai_log`), LEFT(JSON_UNQUOTE(JSON_EXTRACT(`ai_log`, ''$.cache_status'')), 32), NULL)) VIRTUAL'
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
+
+-- access_logs.ai_ratelimit_status
+SET @preparedStatement = (SELECT IF(
+  @hasAccessLogs = 0 OR (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE
+      (TABLE_SCHEMA = @dbname)
+      AND (TABLE_NAME = 'access_logs')
+      AND (COLUMN_NAME = 'ai_ratelimit_status')
+  ) > 0,
+  'SELECT 1',
+  'ALTER TABLE `access_logs` ADD COLUMN `ai_ratelimit_status` varchar(32) GENERATED ALWAYS AS (IF(JSON_VALID(`ai_log`), LEFT(JSON_UNQUOTE(JSON_EXTRACT(`ai_log`, ''$.token_ratelimit_status'')), 32), NULL)) VIRTUAL'
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
+
+-- access_logs.ai_safecheck_status
+SET @preparedStatement = (SELECT IF(
+  @hasAccessLogs = 0 OR (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE
+      (TABLE_SCHEMA = @dbname)
+      AND (TABLE_NAME = 'access_logs')
+      AND (COLUMN_NAME = 'ai_safecheck_status')
+  ) > 0,
+  'SELECT 1',
+  'ALTER TABLE `access_logs` ADD COLUMN `ai_safecheck_status` varchar(64) GENERATED ALWAYS AS (IF(JSON_VALID(`ai_log`), LEFT(JSON_UNQUOTE(JSON_EXTRACT(`ai_log`, ''$.safecheck_status'')), 64), NULL)) VIRTUAL'
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
+
+-- access_logs.ai_risk_label
+SET @preparedStatement = (SELECT IF(
+  @hasAccessLogs = 0 OR (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE
+      (TABLE_SCHEMA = @dbname)
+      AND (TABLE_NAME = 'access_logs')
+      AND (COLUMN_NAME = 'ai_risk_label')
+  ) > 0,
+  'SELECT 1',
+  'ALTER TABLE `access_logs` ADD COLUMN `ai_risk_label` varchar(128) GENERATED ALWAYS AS (IF(JSON_VALID(`ai_log`), LEFT(JSON_UNQUOTE(JSON_EXTRACT(`ai_log`, ''$.safecheck_riskLabel'')), 128), NULL)) VIRTUAL'
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
+
+-- access_logs.ai_llm_duration
+SET @preparedStatement = (SELECT IF(
+  @hasAccessLogs = 0 OR (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE
+      (TABLE_SCHEMA = @dbname)
+      AND (TABLE_NAME = 'access_logs')
+      AND (COLUMN_NAME = 'ai_llm_duration')
+  ) > 0,
+  'SELECT 1',
+  'ALTER TABLE `access_logs` ADD COLUMN `ai_llm_duration` double GENERATED ALWAYS AS (IF(JSON_VALID(`ai_log`), JSON_VALUE(`ai_log`, ''$.llm_service_duration'' RETURNING DOUBLE NULL ON ERROR), NULL)) VIRTUAL'
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
+
+-- access_logs.ai_first_token_duration
+SET @preparedStatement = (SELECT IF(
+  @hasAccessLogs = 0 OR (
+    SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+    WHERE
+      (TABLE_SCHEMA = @dbname)
+      AND (TABLE_NAME = 'access_logs')
+      AND (COLUMN_NAME = 'ai_first_token_duration')
+  ) > 0,
+  'SELECT 1',
+  'ALTER TABLE `access_logs` ADD COLUMN `ai_first_token_duration` double GENERATED ALWAYS AS (IF(JSON_VALID(`ai_log`), JSON_VALUE(`ai_log`, ''$.llm_first_token_duration'' RETURNING DOUBLE NULL ON ERROR), NULL)) VIRTUAL'
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
+
+-- access_logs indexes: the missing ones are added in a single online ALTER (one scan of the table,
+-- concurrent inserts from the log collector are not blocked while the indexes are built)
+SET @addKeys = (
+  SELECT GROUP_CONCAT(CONCAT('ADD KEY `', k.index_name, '` (', k.index_columns, ')') SEPARATOR ', ')
+  FROM (
+    SELECT 'idx_start_time_model' AS index_name, '`start_time`, `model`' AS index_columns
+    UNION ALL SELECT 'idx_start_time_consumer', '`start_time`, `consumer`'
+    UNION ALL SELECT 'idx_start_time_ai_model', '`start_time`, `ai_model`'
+    UNION ALL SELECT 'idx_start_time_ai_response_type', '`start_time`, `ai_response_type`'
+  ) k
+  WHERE NOT EXISTS (
+    SELECT 1 FROM INFORMATION_SCHEMA.STATISTICS s
+    WHERE
+      (s.TABLE_SCHEMA = @dbname)
+      AND (s.TABLE_NAME = 'access_logs')
+      AND (s.INDEX_NAME = k.index_name)
+  )
+);
+
+SET @preparedStatement = (SELECT IF(
+  @hasAccessLogs = 0 OR @addKeys IS NULL,
+  'SELECT 1',
+  CONCAT('ALTER TABLE `access_logs` ', @addKeys, ', ALGORITHM=INPLACE, LOCK=NONE')
+));
+PREPARE alterIfNotExists FROM @preparedStatement;
+EXECUTE alterIfNotExists;
+DEALLOCATE PREPARE alterIfNotExists;
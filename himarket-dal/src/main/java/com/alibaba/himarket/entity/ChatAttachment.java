@@ -82,8 +82,14 @@ public class ChatAttachment extends BaseEntity {
     private Long size;
 
     /**
-     * Raw data
+     * Raw data, only kept in the database when no blob store is configured
      */
     @Column(name = "data", columnDefinition = "mediumblob")
     private byte[] data;
+
+    /**
+     * SHA-256 content key in the blob store, null when the bytes live in {@code data}
+     */
+    @Column(name = "blob_key", length = 64)
+    private String blobKey;
 }
@@ -83,4 +83,25 @@ public class Product extends BaseEntity {
     @Column(name = "feature", columnDefinition = "json")
     @Convert(converter = ProductFeatureConverter.class)
     private ProductFeature feature;
+
+    /**
+     * Download count of skill/worker products, denormalized from feature for DB-side sorting
+     */
+    @Column(name = "download_count", nullable = false)
+    @Builder.Default
+    private Long downloadCount = 0L;
+
+    @PrePersist
+    @PreUpdate
+    private void syncDownloadCount() {
+        Long count = null;
+        if (feature != null) {
+            if (type == ProductType.AGENT_SKILL && feature.getSkillConfig() != null) {
+                count = feature.getSkillConfig().getDownloadCount();
+            } else if (type == ProductType.WORKER && feature.getWorkerConfig() != null) {
+                count = feature.getWorkerConfig().getDownloadCount();
+            }
+        }
+        downloadCount = count != null ? count : 0L;
+    }
 }
@@ -26,6 +26,8 @@ import com.alibaba.himarket.support.enums.SourceType;
 import com.alibaba.himarket.support.product.APIGRefConfig;
 import com.alibaba.himarket.support.product.HigressRefConfig;
 import com.alibaba.himarket.support.product.NacosRefConfig;
+import com.alibaba.himarket.utils.JsonUtil;
+import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -92,4 +94,28 @@ public class ProductRef extends BaseEntity {
 
     @Column(name = "api_definition_id", length = 64)
     private String apiDefinitionId;
+
+    /**
+     * Model category of modelConfig, denormalized for DB-side filtering
+     */
+    @Column(name = "model_category", length = 64)
+    private String modelCategory;
+
+    @PrePersist
+    @PreUpdate
+    private void syncModelCategory() {
+        modelCategory = null;
+        if (modelConfig == null || modelConfig.isBlank()) {
+            return;
+        }
+        try {
+            JsonNode category =
+                    JsonUtil.readTree(modelConfig).path("modelAPIConfig").path("modelCategory");
+            if (category.isTextual()) {
+                modelCategory = category.asText();
+            }
+        } catch (RuntimeException e) {
+            // Malformed config is already logged by JsonUtil, leave the category empty
+        }
+    }
 }
@@ -22,6 +22,11 @@ package com.alibaba.himarket.repository;
 import com.alibaba.himarket.entity.ChatAttachment;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface ChatAttachmentRepository extends BaseRepository<ChatAttachment, Long> {
 
@@ -40,4 +45,37 @@ public interface ChatAttachmentRepository extends BaseRepository<ChatAttachment,
      * @return the list of chat attachments
      */
     List<ChatAttachment> findByAttachmentIdIn(List<String> attachmentIds);
+
+    /**
+     * Find the IDs of the next attachments still stored in the database, used to migrate them
+     * into the blob store. Only IDs are selected so the blob column is never loaded for a batch.
+     *
+     * @param id the cursor, only attachments with a larger primary key are returned
+     * @param pageable the page request limiting the batch size
+     * @return the IDs of attachments without blob key, in ascending order
+     */
+    @Query(
+            """
+            SELECT a.id
+            FROM ChatAttachment a
+            WHERE a.id > :id
+              AND a.blobKey IS NULL
+              AND a.data IS NOT NULL
+            ORDER BY a.id ASC
+            """)
+    List<Long> findIdsToMigrate(@Param("id") Long id, Pageable pageable);
+
+    /**
+     * Point a migrated attachment at its blob and release the database copy
+     *
+     * @param id the attachment primary key
+     * @param blobKey the key of the stored blob
+     * @return the number of updated rows, 0 if the attachment was migrated concurrently
+     */
+    @Modifying
+    @Transactional
+    @Query(
+            "UPDATE ChatAttachment a SET a.blobKey = :blobKey, a.data = NULL"
+                    + " WHERE a.id = :id AND a.blobKey IS NULL")
+    int moveDataToBlob(@Param("id") Long id, @Param("blobKey") String blobKey);
 }
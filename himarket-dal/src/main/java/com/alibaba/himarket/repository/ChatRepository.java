@@ -20,9 +20,12 @@
 package com.alibaba.himarket.repository;
 
 import com.alibaba.himarket.entity.Chat;
+import com.alibaba.himarket.support.chat.ChatHistoryItem;
 import com.alibaba.himarket.support.enums.ChatStatus;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -39,6 +42,75 @@ public interface ChatRepository extends BaseRepository<Chat, Long> {
      */
     List<Chat> findBySessionIdAndStatus(String sessionId, ChatStatus status, Sort sort);
 
+    /**
+     * Find the IDs of the latest successful chat of each conversation, newest first
+     *
+     * <p>Answered by the (session_id, product_id, status, conversation_id) index alone; chats
+     * with a blank question or answer are filtered by the caller. Combine with a page request to
+     * bound the number of conversations returned.
+     *
+     * @param sessionId the session ID
+     * @param productId the product ID
+     * @param status the chat status
+     * @param pageable the page request limiting the number of conversations
+     * @return the chat IDs (primary keys), newest conversation first
+     */
+    @Query(
+            """
+            SELECT MAX(c.id)
+            FROM Chat c
+            WHERE c.sessionId = :sessionId
+              AND c.productId = :productId
+              AND c.status = :status
+            GROUP BY c.conversationId
+            ORDER BY MAX(c.id) DESC
+            """)
+    List<Long> findLatestChatIdPerConversation(
+            @Param("sessionId") String sessionId,
+            @Param("productId") String productId,
+            @Param("status") ChatStatus status,
+            Pageable pageable);
+
+    /**
+     * Find the ID of the latest successful chat of the session
+     *
+     * <p>Used to check whether a cached history window is still current. Answered by the
+     * (session_id, product_id, status, conversation_id) index alone.
+     *
+     * @param sessionId the session ID
+     * @param productId the product ID
+     * @param status the chat status
+     * @return the chat ID (primary key), or null if the session has no history
+     */
+    @Query(
+            """
+            SELECT MAX(c.id)
+            FROM Chat c
+            WHERE c.sessionId = :sessionId
+              AND c.productId = :productId
+              AND c.status = :status
+            """)
+    Long findLatestChatId(
+            @Param("sessionId") String sessionId,
+            @Param("productId") String productId,
+            @Param("status") ChatStatus status);
+
+    /**
+     * Load history projections by primary keys, without usage and tool call columns
+     *
+     * @param ids the chat primary keys
+     * @return the history items in ascending ID order
+     */
+    @Query(
+            """
+            SELECT new com.alibaba.himarket.support.chat.ChatHistoryItem(
+                c.id, c.chatId, c.conversationId, c.question, c.attachments, c.answer, c.createAt)
+            FROM Chat c
+            WHERE c.id IN :ids
+            ORDER BY c.id ASC
+            """)
+    List<ChatHistoryItem> findHistoryItemsByIdIn(@Param("ids") Collection<Long> ids);
+
     /**
      * Find chat by chat ID
      *
@@ -47,6 +119,14 @@ public interface ChatRepository extends BaseRepository<Chat, Long> {
      */
     Optional<Chat> findByChatId(String chatId);
 
+    /**
+     * Find chats by chat IDs
+     *
+     * @param chatIds the chat IDs
+     * @return the list of chats
+     */
+    List<Chat> findByChatIdIn(Collection<String> chatIds);
+
     /**
      * Find all chats by session ID and user ID
      *
@@ -20,6 +20,7 @@
 package com.alibaba.himarket.repository;
 
 import com.alibaba.himarket.entity.ProductPublication;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -43,6 +44,14 @@ public interface ProductPublicationRepository extends BaseRepository<ProductPubl
      */
     Page<ProductPublication> findByPortalId(String portalId, Pageable pageable);
 
+    /**
+     * Find all product publications by portal ID
+     *
+     * @param portalId the portal ID
+     * @return the list of product publications
+     */
+    List<ProductPublication> findAllByPortalId(String portalId);
+
     /**
      * Find product publication by portal ID and product ID
      *
@@ -61,6 +70,14 @@ public interface ProductPublicationRepository extends BaseRepository<ProductPubl
      */
     Page<ProductPublication> findByProductId(String productId, Pageable pageable);
 
+    /**
+     * Find all product publications by product ID
+     *
+     * @param productId the product ID
+     * @return the list of product publications
+     */
+    List<ProductPublication> findAllByProductId(String productId);
+
     /**
      * Delete product publication by product ID
      *
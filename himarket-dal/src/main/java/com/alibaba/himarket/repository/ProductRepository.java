@@ -24,6 +24,10 @@ import com.alibaba.himarket.support.enums.ProductType;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface ProductRepository extends BaseRepository<Product, Long> {
 
@@ -96,4 +100,35 @@ public interface ProductRepository extends BaseRepository<Product, Long> {
      * @return the list of products matching the names
      */
     List<Product> findByNameInAndAdminId(Collection<String> names, String adminId);
+
+    /**
+     * Bulk update download counts in one statement, touching only the counter column and the
+     * counter inside the feature JSON. Rows whose count is unchanged are skipped. Rows are matched
+     * on the numeric primary key, so no collation has to be reconciled with the JSON_TABLE columns.
+     *
+     * @param counts JSON array of {"id": ..., "downloadCount": ...}, id being the primary key
+     * @param path JSON path of the counter inside feature, e.g. $.skillConfig.downloadCount
+     * @return the number of rows changed
+     */
+    @Modifying
+    @Transactional
+    @Query(
+            value =
+                    """
+                    UPDATE product p
+                    JOIN JSON_TABLE(
+                            :counts,
+                            '$[*]' COLUMNS (
+                                id BIGINT PATH '$.id',
+                                download_count BIGINT PATH '$.downloadCount'
+                            )
+                          ) c
+                      ON p.id = c.id
+                    SET p.download_count = c.download_count,
+                        p.feature = JSON_SET(p.feature, :path, c.download_count)
+                    WHERE p.download_count <> c.download_count
+                       OR NOT COALESCE(JSON_EXTRACT(p.feature, :path) = c.download_count, FALSE)
+                    """,
+            nativeQuery = true)
+    int updateDownloadCounts(@Param("counts") String counts, @Param("path") String path);
 }
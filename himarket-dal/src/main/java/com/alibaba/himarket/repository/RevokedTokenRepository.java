@@ -21,6 +21,7 @@ package com.alibaba.himarket.repository;
 
 import com.alibaba.himarket.entity.RevokedToken;
 import java.time.LocalDateTime;
+import java.util.List;
 
 public interface RevokedTokenRepository extends BaseRepository<RevokedToken, Long> {
 
@@ -32,6 +33,22 @@ public interface RevokedTokenRepository extends BaseRepository<RevokedToken, Lon
      */
     boolean existsByTokenHash(String tokenHash);
 
+    /**
+     * Find all revoked tokens that are still unexpired at the given time
+     *
+     * @param now the reference time
+     * @return revoked tokens whose expiresAt is after the reference time
+     */
+    List<RevokedToken> findByExpiresAtAfter(LocalDateTime now);
+
+    /**
+     * Find revoked tokens recorded at or after the given time, used for incremental sync
+     *
+     * @param since the lower bound of the creation time (inclusive)
+     * @return revoked tokens created since the given time
+     */
+    List<RevokedToken> findByCreateAtGreaterThanEqual(LocalDateTime since);
+
     /**
      * Delete all revoked tokens that expired before the given cutoff time
      *
@@ -20,8 +20,14 @@
 package com.alibaba.himarket.repository;
 
 import com.alibaba.himarket.entity.SandboxInstance;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface SandboxInstanceRepository extends BaseRepository<SandboxInstance, Long> {
 
@@ -32,4 +38,13 @@ public interface SandboxInstanceRepository extends BaseRepository<SandboxInstanc
     long countByStatus(String status);
 
     List<SandboxInstance> findByStatus(String status);
+
+    /**
+     * Touch the last checked time of sandboxes whose status did not change
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE SandboxInstance s SET s.lastCheckedAt = :checkedAt WHERE s.id IN :ids")
+    int updateLastCheckedAt(
+            @Param("ids") Collection<Long> ids, @Param("checkedAt") LocalDateTime checkedAt);
 }
@@ -38,6 +38,21 @@ public class AcpProperties {
      */
     private RemoteConfig remote = new RemoteConfig();
 
+    /**
+     * 终端输出批量发送与发送队列配置。
+     */
+    private TerminalConfig terminal = new TerminalConfig();
+
+    /**
+     * HiCoding 下行消息队列配置。
+     */
+    private OutboundConfig outbound = new OutboundConfig();
+
+    /**
+     * 沙箱预热池配置。
+     */
+    private WarmPoolConfig warmPool = new WarmPoolConfig();
+
     public boolean isTerminalEnabled() {
         return terminalEnabled;
     }
@@ -78,6 +93,30 @@ public class AcpProperties {
         this.remote = remote;
     }
 
+    public TerminalConfig getTerminal() {
+        return terminal;
+    }
+
+    public void setTerminal(TerminalConfig terminal) {
+        this.terminal = terminal;
+    }
+
+    public OutboundConfig getOutbound() {
+        return outbound;
+    }
+
+    public void setOutbound(OutboundConfig outbound) {
+        this.outbound = outbound;
+    }
+
+    public WarmPoolConfig getWarmPool() {
+        return warmPool;
+    }
+
+    public void setWarmPool(WarmPoolConfig warmPool) {
+        this.warmPool = warmPool;
+    }
+
     /**
      * 根据 provider key 获取配置，找不到则返回 null。
      */
@@ -234,4 +273,182 @@ public class AcpProperties {
             return host != null && !host.isBlank();
         }
     }
+
+    /**
+     * 终端输出配置。
+     * PTY 输出先在会话内合并，满足时间或大小阈值后再作为一个帧发送。
+     */
+    public static class TerminalConfig {
+
+        /**
+         * 输出合并的最长等待时间（毫秒）。
+         */
+        private long flushIntervalMs = 5;
+
+        /**
+         * 单帧最大字节数，达到后立即发送。
+         */
+        private int maxFrameBytes = 16 * 1024;
+
+        /**
+         * 单会话待发送字节上限，超出说明客户端消费过慢，关闭连接由前端重连。
+         */
+        private int maxPendingBytes = 4 * 1024 * 1024;
+
+        /**
+         * 单次发送的时间上限（毫秒），超出后关闭连接。
+         */
+        private int sendTimeLimitMs = 10_000;
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        public int getMaxFrameBytes() {
+            return maxFrameBytes;
+        }
+
+        public void setMaxFrameBytes(int maxFrameBytes) {
+            this.maxFrameBytes = maxFrameBytes;
+        }
+
+        public int getMaxPendingBytes() {
+            return maxPendingBytes;
+        }
+
+        public void setMaxPendingBytes(int maxPendingBytes) {
+            this.maxPendingBytes = maxPendingBytes;
+        }
+
+        public int getSendTimeLimitMs() {
+            return sendTimeLimitMs;
+        }
+
+        public void setSendTimeLimitMs(int sendTimeLimitMs) {
+            this.sendTimeLimitMs = sendTimeLimitMs;
+        }
+    }
+
+    /**
+     * HiCoding 下行消息队列配置。
+     * CLI 输出与通知先进入会话队列，按时间或大小阈值合并为多行文本帧（换行分隔）后发送。
+     * 字节数按 UTF-8 编码计算。
+     */
+    public static class OutboundConfig {
+
+        /**
+         * 消息合并的最长等待时间（毫秒）。
+         */
+        private long flushIntervalMs = 5;
+
+        /**
+         * 单帧最大字节数，单条消息超过时单独成帧。
+         */
+        private int maxFrameBytes = 64 * 1024;
+
+        /**
+         * 单会话待发送字节上限。超出时丢弃队列并关闭连接，前端重连后 reattach 到 sidecar 会话。
+         */
+        private int maxPendingBytes = 8 * 1024 * 1024;
+
+        /**
+         * 单次发送的时间上限（毫秒），超出后关闭连接。
+         */
+        private int sendTimeLimitMs = 10_000;
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        public int getMaxFrameBytes() {
+            return maxFrameBytes;
+        }
+
+        public void setMaxFrameBytes(int maxFrameBytes) {
+            this.maxFrameBytes = maxFrameBytes;
+        }
+
+        public int getMaxPendingBytes() {
+            return maxPendingBytes;
+        }
+
+        public void setMaxPendingBytes(int maxPendingBytes) {
+            this.maxPendingBytes = maxPendingBytes;
+        }
+
+        public int getSendTimeLimitMs() {
+            return sendTimeLimitMs;
+        }
+
+        public void setSendTimeLimitMs(int sendTimeLimitMs) {
+            this.sendTimeLimitMs = sendTimeLimitMs;
+        }
+    }
+
+    /**
+     * 沙箱预热池配置。
+     * 为每种支持预热的沙箱类型预先完成获取与健康检查，连接时直接分配，只剩用户级配置注入与 Sidecar 连接。
+     */
+    public static class WarmPoolConfig {
+
+        /**
+         * 是否启用预热池。
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每种沙箱类型保持的预热沙箱数量（共用沙箱的类型只保留一个）。
+         */
+        private int size = 2;
+
+        /**
+         * 预热沙箱的最长空闲时间（秒），超时后丢弃并重新预热，避免分配已失效的沙箱。
+         */
+        private int maxIdleSeconds = 60;
+
+        /**
+         * 健康检查结果的有效期（秒），只分配有效期内的沙箱，后台按一半的间隔重新检查。
+         */
+        private int healthCheckMaxAgeSeconds = 5;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public int getMaxIdleSeconds() {
+            return maxIdleSeconds;
+        }
+
+        public void setMaxIdleSeconds(int maxIdleSeconds) {
+            this.maxIdleSeconds = maxIdleSeconds;
+        }
+
+        public int getHealthCheckMaxAgeSeconds() {
+            return healthCheckMaxAgeSeconds;
+        }
+
+        public void setHealthCheckMaxAgeSeconds(int healthCheckMaxAgeSeconds) {
+            this.healthCheckMaxAgeSeconds = healthCheckMaxAgeSeconds;
+        }
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "blob-store")
+public class BlobStoreConfig {
+
+    /**
+     * Where chat attachment bytes are stored: DB (mediumblob column), LOCAL or S3
+     */
+    private StoreType type = StoreType.DB;
+
+    /**
+     * Move attachments still stored in the database into the blob store at startup
+     */
+    private boolean migrateExisting = false;
+
+    private LocalProperties local = new LocalProperties();
+
+    private S3Properties s3 = new S3Properties();
+
+    public enum StoreType {
+        DB,
+        LOCAL,
+        S3
+    }
+
+    @Data
+    public static class LocalProperties {
+
+        /**
+         * Root directory of the content-addressed store
+         */
+        private String rootDir = System.getProperty("user.home") + "/.himarket/blobs";
+    }
+
+    @Data
+    public static class S3Properties {
+
+        /**
+         * S3-compatible endpoint, e.g. http://localhost:9000 for a local MinIO
+         */
+        private String endpoint;
+
+        private String region = "us-east-1";
+
+        private String accessKey;
+
+        private String secretKey;
+
+        /**
+         * Created at startup if it does not exist
+         */
+        private String bucket = "himarket-attachments";
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "sandbox.client-pool")
+public class K8sClientPoolConfig {
+
+    /**
+     * Max pooled clients, one per sandbox instance
+     */
+    private int maxSize = 50;
+
+    /**
+     * Close clients not used for this long
+     */
+    private Duration idleTimeout = Duration.ofHours(6);
+
+    /**
+     * Interval of the background liveness validation
+     */
+    private Duration validateInterval = Duration.ofMinutes(1);
+
+    /**
+     * Deadline of a single liveness probe, a timed out probe counts as a failure
+     */
+    private Duration validateTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Consecutive failed probes before a client is evicted and rebuilt
+     */
+    private int evictAfterFailures = 3;
+}
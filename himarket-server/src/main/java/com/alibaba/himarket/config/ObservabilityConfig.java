@@ -20,6 +20,7 @@
 package com.alibaba.himarket.config;
 
 import jakarta.annotation.PostConstruct;
+import java.time.Duration;
 import javax.sql.DataSource;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -69,4 +70,33 @@ public class ObservabilityConfig {
      * 日志数据源：SLS（默认，查询阿里云日志服务）或 DB（查询本地 access_logs 表）
      */
     private LogSource logSource = LogSource.SLS;
+
+    /**
+     * access_logs 预聚合配置（仅 DB 日志源生效）
+     */
+    private Rollup rollup = new Rollup();
+
+    @Data
+    public static class Rollup {
+
+        /**
+         * 是否启用预聚合，关闭后大盘直接查询 access_logs
+         */
+        private boolean enabled = true;
+
+        /**
+         * 日志入库延迟容忍，只聚合早于 now - lateness 的分钟
+         */
+        private Duration lateness = Duration.ofMinutes(2);
+
+        /**
+         * 首次启用时最多回溯的时长
+         */
+        private Duration maxBackfill = Duration.ofDays(7);
+
+        /**
+         * 单个事务聚合的最大时间窗口
+         */
+        private Duration batchWindow = Duration.ofHours(1);
+    }
 }
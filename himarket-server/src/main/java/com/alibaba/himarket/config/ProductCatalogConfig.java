@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "product.catalog")
+public class ProductCatalogConfig {
+
+    /**
+     * Serve portal product listings from an in-memory snapshot of the published catalog. When
+     * disabled, listings query the database and each search loads the catalog afresh
+     */
+    private boolean snapshotEnabled = true;
+
+    /**
+     * Max age of a snapshot before it is rebuilt, bounds staleness for changes made on other
+     * replicas or not covered by an event
+     */
+    private Duration snapshotMaxAge = Duration.ofMinutes(1);
+
+    /**
+     * Max number of portals whose snapshot is kept
+     */
+    private int maxPortals = 100;
+}
@@ -78,6 +78,14 @@ public class ProductController {
         return productService.listProducts(param, pageable);
     }
 
+    @Operation(summary = "Search published products of a portal by relevance")
+    @GetMapping("/search")
+    @PublicAccess
+    public PageResult<ProductResult> searchProducts(
+            @Valid SearchProductParam param, Pageable pageable) {
+        return productService.searchProducts(param, pageable);
+    }
+
     @Operation(summary = "Get product")
     @GetMapping("/{productId}")
     @PublicAccess
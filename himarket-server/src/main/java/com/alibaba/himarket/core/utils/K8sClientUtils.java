@@ -20,37 +20,15 @@
 package com.alibaba.himarket.core.utils;
 
 import cn.hutool.extra.spring.SpringUtil;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.RemovalCause;
 import io.fabric8.kubernetes.api.model.Namespace;
 import io.fabric8.kubernetes.client.Config;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientBuilder;
-import java.time.Duration;
 import java.util.List;
 import java.util.stream.Collectors;
-import lombok.extern.slf4j.Slf4j;
 
-@Slf4j
 public class K8sClientUtils {
 
-    private static final Cache<String, KubernetesClient> CLIENT_CACHE =
-            Caffeine.newBuilder()
-                    .expireAfterAccess(Duration.ofHours(6))
-                    .maximumSize(50)
-                    .removalListener(
-                            (String key, KubernetesClient client, RemovalCause cause) -> {
-                                if (client != null) {
-                                    log.info(
-                                            "关闭KubernetesClient缓存, key={}..., 原因={}",
-                                            key != null ? key.substring(0, 12) : "null",
-                                            cause);
-                                    client.close();
-                                }
-                            })
-                    .build();
-
     private K8sClientUtils() {}
 
     private static boolean shouldTrustCerts() {
@@ -59,46 +37,13 @@ public class K8sClientUtils {
     }
 
     /**
-     * 根据KubeConfig文本获取KubernetesClient（带Caffeine缓存，6小时无访问过期）。
-     * 如果缓存的 client 连接失败，自动 evict 并重建。
-     */
-    public static KubernetesClient getClient(String kubeConfig) {
-        String cacheKey = cn.hutool.crypto.digest.DigestUtil.sha256Hex(kubeConfig);
-        KubernetesClient client =
-                CLIENT_CACHE.get(
-                        cacheKey,
-                        key -> {
-                            log.info("创建新的KubernetesClient, cacheKey={}...", key.substring(0, 12));
-                            Config config = Config.fromKubeconfig(kubeConfig);
-                            config.setTrustCerts(shouldTrustCerts());
-                            return new KubernetesClientBuilder().withConfig(config).build();
-                        });
-        // Verify connectivity; evict and recreate on failure (e.g. expired OIDC token)
-        try {
-            client.getApiVersion();
-        } catch (Exception e) {
-            log.warn(
-                    "缓存的KubernetesClient连接失败，重建: cacheKey={}..., error={}",
-                    cacheKey.substring(0, 12),
-                    e.getMessage());
-            CLIENT_CACHE.invalidate(cacheKey);
-            return CLIENT_CACHE.get(
-                    cacheKey,
-                    key -> {
-                        Config config = Config.fromKubeconfig(kubeConfig);
-                        config.setTrustCerts(shouldTrustCerts());
-                        return new KubernetesClientBuilder().withConfig(config).build();
-                    });
-        }
-        return client;
-    }
-
-    /**
-     * 移除缓存中的client（kubeConfig变更或实例删除时调用）
+     * 根据KubeConfig文本创建新的KubernetesClient，调用方负责关闭。
+     * 沙箱实例的 client 请通过 K8sClientPool 获取。
      */
-    public static void evictClient(String kubeConfig) {
-        String cacheKey = cn.hutool.crypto.digest.DigestUtil.sha256Hex(kubeConfig);
-        CLIENT_CACHE.invalidate(cacheKey);
+    public static KubernetesClient newClient(String kubeConfig) {
+        Config config = Config.fromKubeconfig(kubeConfig);
+        config.setTrustCerts(shouldTrustCerts());
+        return new KubernetesClientBuilder().withConfig(config).build();
     }
 
     /**
@@ -30,6 +30,9 @@ import com.alibaba.himarket.core.constant.CommonConstants;
 import com.alibaba.himarket.service.RevokedTokenService;
 import com.alibaba.himarket.support.common.User;
 import com.alibaba.himarket.support.enums.UserType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import java.nio.charset.StandardCharsets;
@@ -45,6 +48,24 @@ public class TokenUtil {
 
     private static long JWT_EXPIRE_MILLIS;
 
+    /**
+     * Upper bound for how long a verified principal stays cached, even if the token lives longer.
+     */
+    private static final Duration PRINCIPAL_CACHE_MAX_TTL = Duration.ofMinutes(10);
+
+    /**
+     * Verified principals keyed by raw token. An entry never outlives the token's own exp claim,
+     * so a hit is equivalent to a successful signature and expiration check.
+     */
+    private static final Cache<String, TokenPrincipal> PRINCIPAL_CACHE =
+            Caffeine.newBuilder()
+                    .maximumSize(10_000)
+                    .expireAfter(
+                            Expiry.<String, TokenPrincipal>creating(
+                                    (token, principal) -> principal.remainingTtl()))
+                    .recordStats()
+                    .build();
+
     private static String getJwtSecret() {
         if (JWT_SECRET == null) {
             JWT_SECRET = SpringUtil.getProperty("jwt.secret");
@@ -110,12 +131,16 @@ public class TokenUtil {
     }
 
     /**
-     * Parse token
+     * Parse token, served from the verified principal cache when possible
      *
      * @param token JWT token
      * @return user info
      */
     public static User parseUser(String token) {
+        return PRINCIPAL_CACHE.get(token, TokenUtil::verifyToken).toUser();
+    }
+
+    private static TokenPrincipal verifyToken(String token) {
         JWT jwt = JWTUtil.parseToken(token);
 
         // Verify signature
@@ -127,15 +152,26 @@ public class TokenUtil {
         }
 
         // Verify expiration
+        long expiresAtMillis = Long.MAX_VALUE;
         Object expObj = jwt.getPayloads().get(JWT.EXPIRES_AT);
         if (ObjectUtil.isNotNull(expObj)) {
-            long expireAt = Long.parseLong(expObj.toString());
-            if (expireAt * 1000 <= System.currentTimeMillis()) {
+            expiresAtMillis = Long.parseLong(expObj.toString()) * 1000;
+            if (expiresAtMillis <= System.currentTimeMillis()) {
                 throw new IllegalArgumentException("Token has expired");
             }
         }
 
-        return jwt.getPayloads().toBean(User.class);
+        User user = jwt.getPayloads().toBean(User.class);
+        return new TokenPrincipal(user.getUserType(), user.getUserId(), expiresAtMillis);
+    }
+
+    /**
+     * Verified principal cache, exposed for metrics binding
+     *
+     * @return the principal cache
+     */
+    public static Cache<String, ?> getPrincipalCache() {
+        return PRINCIPAL_CACHE;
     }
 
     public static String getTokenFromRequest(HttpServletRequest request) {
@@ -178,6 +214,7 @@ public class TokenUtil {
         }
         long expiresAtMillis = getTokenExpireTime(token);
         SpringUtil.getBean(RevokedTokenService.class).revokeToken(token, expiresAtMillis);
+        PRINCIPAL_CACHE.invalidate(token);
     }
 
     private static long getTokenExpireTime(String token) {
@@ -206,4 +243,21 @@ public class TokenUtil {
     public static long getTokenExpiresIn() {
         return getJwtExpireMillis() / 1000;
     }
+
+    /**
+     * Immutable verified token principal, so cached entries can be shared across requests.
+     */
+    private record TokenPrincipal(UserType userType, String userId, long expiresAtMillis) {
+
+        Duration remainingTtl() {
+            long remaining = expiresAtMillis - System.currentTimeMillis();
+            return remaining < PRINCIPAL_CACHE_MAX_TTL.toMillis()
+                    ? Duration.ofMillis(Math.max(remaining, 0))
+                    : PRINCIPAL_CACHE_MAX_TTL;
+        }
+
+        User toUser() {
+            return User.builder().userType(userType).userId(userId).build();
+        }
+    }
 }
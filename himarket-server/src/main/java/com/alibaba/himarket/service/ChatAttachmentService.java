@@ -21,6 +21,8 @@ package com.alibaba.himarket.service;
 
 import com.alibaba.himarket.dto.result.chat.ChatAttachmentDetailResult;
 import com.alibaba.himarket.dto.result.chat.ChatAttachmentResult;
+import com.alibaba.himarket.entity.ChatAttachment;
+import java.io.InputStream;
 import org.springframework.web.multipart.MultipartFile;
 
 public interface ChatAttachmentService {
@@ -40,4 +42,12 @@ public interface ChatAttachmentService {
      * @return attachment detail result with Base64 data
      */
     ChatAttachmentDetailResult getAttachmentDetail(String attachmentId);
+
+    /**
+     * Open the raw content of an attachment, from the blob store or the legacy data column
+     *
+     * @param attachment attachment entity
+     * @return content stream, to be closed by the caller
+     */
+    InputStream openAttachmentData(ChatAttachment attachment);
 }
@@ -159,6 +159,15 @@ public interface ConsumerService {
      */
     CredentialContext getDefaultCredential(String developerId);
 
+    /**
+     * Get credential authentication info of the specified consumer (used in async contexts where
+     * SecurityContext is not available). Returns empty maps if credential not found
+     *
+     * @param consumerId consumer ID
+     * @return credential authentication info (never null, but maps may be empty)
+     */
+    CredentialContext getConsumerCredential(String consumerId);
+
     /**
      * Set primary consumer
      *
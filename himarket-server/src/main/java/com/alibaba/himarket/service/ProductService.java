@@ -54,6 +54,15 @@ public interface ProductService {
      */
     PageResult<ProductResult> listProducts(QueryProductParam param, Pageable pageable);
 
+    /**
+     * Search published products of a portal, most relevant first.
+     *
+     * @param param the keyword and filters
+     * @param pageable the pagination parameters
+     * @return paged products
+     */
+    PageResult<ProductResult> searchProducts(SearchProductParam param, Pageable pageable);
+
     /**
      * Update an API product.
      *
@@ -19,11 +19,15 @@
 
 package com.alibaba.himarket.service;
 
-/** Service for managing revoked JWT tokens with database persistence and local caching. */
+/**
+ * Service for managing revoked JWT tokens with database persistence and an in-memory revocation
+ * index.
+ */
 public interface RevokedTokenService {
 
     /**
-     * Revoke a token by persisting its SHA-256 hash to the database and caching it locally.
+     * Revoke a token by persisting its SHA-256 hash to the database and adding it to the local
+     * revocation index.
      *
      * @param token the raw JWT token to revoke
      * @param expiresAtMillis the token's expiration time in epoch milliseconds
@@ -33,13 +37,21 @@ public interface RevokedTokenService {
     /**
      * Check whether a token has been revoked.
      *
-     * <p>Checks the Caffeine local cache first; falls back to the database if not cached.
+     * <p>Answered from the in-memory revocation index once it has been loaded at startup; falls
+     * back to the database only before the index is ready.
      *
      * @param token the raw JWT token to check
      * @return true if the token is revoked, false otherwise
      */
     boolean isTokenRevoked(String token);
 
-    /** Delete expired revocation records from the database. */
+    /**
+     * Pull revocations recorded by other replicas into the local revocation index.
+     */
+    void refreshRevokedTokens();
+
+    /**
+     * Delete expired revocation records from the database and the local revocation index.
+     */
     void cleanupExpiredTokens();
 }
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.blob;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Content-addressed binary store. Content is keyed by the lowercase hex SHA-256 of its bytes, so
+ * storing the same content twice yields the same key and is stored only once.
+ */
+public interface BlobStore {
+
+    /**
+     * Store content, streaming it without materializing it in memory
+     *
+     * @param content the content stream, consumed but not closed
+     * @return the blob key (SHA-256 hex of the content)
+     * @throws IOException if the content cannot be stored
+     */
+    String put(InputStream content) throws IOException;
+
+    /**
+     * Open a stream over stored content. The caller must close it.
+     *
+     * @param key the blob key
+     * @return the content stream
+     * @throws IOException if the blob does not exist or cannot be read
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Check whether content exists
+     *
+     * @param key the blob key
+     * @return true if the blob exists
+     */
+    boolean exists(String key);
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.blob;
+
+import com.alibaba.himarket.config.BlobStoreConfig;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Blob store on the local filesystem. Blobs live at {@code <root>/<k[0:2]>/<k[2:4]>/<key>} and are
+ * committed with an atomic rename, so readers never observe partially written content.
+ *
+ * <p>Registered only when {@code blob-store.type=LOCAL}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "blob-store.type", havingValue = "local")
+public class LocalBlobStore implements BlobStore {
+
+    private final Path rootDir;
+
+    private final Path tempDir;
+
+    public LocalBlobStore(BlobStoreConfig blobStoreConfig) throws IOException {
+        this.rootDir = Paths.get(blobStoreConfig.getLocal().getRootDir()).toAbsolutePath();
+        this.tempDir = rootDir.resolve("tmp");
+        Files.createDirectories(tempDir);
+        log.info("Local blob store initialized at: {}", rootDir);
+    }
+
+    @Override
+    public String put(InputStream content) throws IOException {
+        BlobSpool.SpooledBlob blob = BlobSpool.spool(content, tempDir);
+        Path target = resolve(blob.key());
+        try {
+            if (Files.exists(target)) {
+                // Same content already stored
+                return blob.key();
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(blob.file(), target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Stored concurrently by another upload of the same content
+        } finally {
+            Files.deleteIfExists(blob.file());
+        }
+        return blob.key();
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Channels.newInputStream(FileChannel.open(resolve(key), StandardOpenOption.READ));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    private Path resolve(String key) {
+        BlobSpool.checkKey(key);
+        return rootDir.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.blob;
+
+import com.alibaba.himarket.config.BlobStoreConfig;
+import io.minio.BucketExistsArgs;
+import io.minio.GetObjectArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioClient;
+import io.minio.StatObjectArgs;
+import io.minio.UploadObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Blob store backed by an S3-compatible object store (AWS S3, OSS, MinIO). Content is spooled to a
+ * temporary file first so the key is known before upload and duplicates are never sent twice.
+ *
+ * <p>Registered only when {@code blob-store.type=S3}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "blob-store.type", havingValue = "s3")
+public class S3BlobStore implements BlobStore {
+
+    private static final String NO_SUCH_KEY = "NoSuchKey";
+
+    private final MinioClient client;
+
+    private final String bucket;
+
+    private final Path tempDir;
+
+    public S3BlobStore(BlobStoreConfig blobStoreConfig) throws IOException {
+        this(
+                buildClient(blobStoreConfig.getS3()),
+                blobStoreConfig.getS3().getBucket(),
+                Files.createTempDirectory("himarket-blob-"));
+    }
+
+    S3BlobStore(MinioClient client, String bucket, Path tempDir) {
+        this.client = client;
+        this.bucket = bucket;
+        this.tempDir = tempDir;
+    }
+
+    private static MinioClient buildClient(BlobStoreConfig.S3Properties s3) {
+        return MinioClient.builder()
+                .endpoint(s3.getEndpoint())
+                .region(s3.getRegion())
+                .credentials(s3.getAccessKey(), s3.getSecretKey())
+                .build();
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        try {
+            if (!client.bucketExists(BucketExistsArgs.builder().bucket(bucket).build())) {
+                client.makeBucket(MakeBucketArgs.builder().bucket(bucket).build());
+                log.info("Created blob store bucket: {}", bucket);
+            }
+        } catch (Exception e) {
+            throw asIOException("Failed to initialize blob store bucket: " + bucket, e);
+        }
+    }
+
+    @Override
+    public String put(InputStream content) throws IOException {
+        BlobSpool.SpooledBlob blob = BlobSpool.spool(content, tempDir);
+        try {
+            if (exists(blob.key())) {
+                return blob.key();
+            }
+            client.uploadObject(
+                    UploadObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(blob.key())
+                            .filename(blob.file().toString())
+                            .contentType("application/octet-stream")
+                            .build());
+            return blob.key();
+        } catch (Exception e) {
+            throw asIOException("Failed to store blob", e);
+        } finally {
+            Files.deleteIfExists(blob.file());
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        BlobSpool.checkKey(key);
+        try {
+            return client.getObject(GetObjectArgs.builder().bucket(bucket).object(key).build());
+        } catch (Exception e) {
+            throw asIOException("Failed to open blob: " + key, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        BlobSpool.checkKey(key);
+        try {
+            client.statObject(StatObjectArgs.builder().bucket(bucket).object(key).build());
+            return true;
+        } catch (ErrorResponseException e) {
+            if (NO_SUCH_KEY.equals(e.errorResponse().code())) {
+                return false;
+            }
+            throw new IllegalStateException("Failed to stat blob: " + key, e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to stat blob: " + key, e);
+        }
+    }
+
+    private IOException asIOException(String message, Exception e) {
+        return e instanceof IOException ioe ? ioe : new IOException(message, e);
+    }
+}
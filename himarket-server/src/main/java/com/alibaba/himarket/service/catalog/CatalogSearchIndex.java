@@ -0,0 +1,317 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory inverted index over the documents of a catalog snapshot. Query terms must all match
+ * (exactly, as a prefix or within one edit), and hits are ranked by BM25-style term rarity times
+ * the weight of the fields the term occurs in.
+ *
+ * <p>Built once and immutable afterwards, so it can be shared by concurrent searches.
+ */
+public final class CatalogSearchIndex {
+
+    private static final double PREFIX_FACTOR = 0.6;
+
+    private static final double FUZZY_FACTOR = 0.4;
+
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    /**
+     * Saturation of repeated occurrences, as BM25's k1
+     */
+    private static final double SATURATION = 1.2;
+
+    /**
+     * Sorted term dictionary, for prefix and fuzzy expansion
+     */
+    private final String[] terms;
+
+    /**
+     * Postings of terms[i]: ascending doc ids and their saturated field weights
+     */
+    private final int[][] postingDocs;
+
+    private final float[][] postingWeights;
+
+    private final int docCount;
+
+    private CatalogSearchIndex(
+            String[] terms, int[][] postingDocs, float[][] postingWeights, int docCount) {
+        this.terms = terms;
+        this.postingDocs = postingDocs;
+        this.postingWeights = postingWeights;
+        this.docCount = docCount;
+    }
+
+    /**
+     * Build an index, doc ids are positions in the given list
+     *
+     * @param documents documents to index
+     * @return the index
+     */
+    public static CatalogSearchIndex build(List<Document> documents) {
+        Map<String, PostingBuilder> postings = new HashMap<>();
+        for (int docId = 0; docId < documents.size(); docId++) {
+            for (Field field : documents.get(docId).fields()) {
+                for (String token : tokenize(field.text())) {
+                    postings.computeIfAbsent(token, t -> new PostingBuilder())
+                            .add(docId, field.weight());
+                }
+            }
+        }
+
+        String[] terms = postings.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        int[][] docs = new int[terms.length][];
+        float[][] weights = new float[terms.length][];
+        for (int i = 0; i < terms.length; i++) {
+            PostingBuilder posting = postings.get(terms[i]);
+            docs[i] = Arrays.copyOf(posting.docs, posting.size);
+            weights[i] = new float[posting.size];
+            for (int j = 0; j < posting.size; j++) {
+                double raw = posting.weights[j];
+                weights[i][j] = (float) (raw * (SATURATION + 1) / (raw + SATURATION));
+            }
+        }
+        return new CatalogSearchIndex(terms, docs, weights, documents.size());
+    }
+
+    /**
+     * Search documents matching all terms of the query
+     *
+     * @param query free text query
+     * @return hits ordered by descending score, ties by ascending doc id
+     */
+    public List<Hit> search(String query) {
+        List<String> queryTerms = List.copyOf(new LinkedHashSet<>(tokenize(query)));
+        if (queryTerms.isEmpty() || docCount == 0) {
+            return List.of();
+        }
+
+        float[] scores = new float[docCount];
+        int[] matchedTerms = new int[docCount];
+        float[] termScores = new float[docCount];
+        int[] touched = new int[docCount];
+
+        for (String queryTerm : queryTerms) {
+            int touchedCount = 0;
+            for (Expansion expansion : expand(queryTerm)) {
+                int[] docs = postingDocs[expansion.termIndex()];
+                float[] weights = postingWeights[expansion.termIndex()];
+                double idf = Math.log(1 + (docCount - docs.length + 0.5) / (docs.length + 0.5));
+                for (int i = 0; i < docs.length; i++) {
+                    float score = (float) (idf * weights[i] * expansion.factor());
+                    int doc = docs[i];
+                    if (termScores[doc] == 0) {
+                        touched[touchedCount++] = doc;
+                    }
+                    // Best expansion per document, so similar terms do not add up
+                    termScores[doc] = Math.max(termScores[doc], score);
+                }
+            }
+            if (touchedCount == 0) {
+                return List.of();
+            }
+            for (int i = 0; i < touchedCount; i++) {
+                int doc = touched[i];
+                scores[doc] += termScores[doc];
+                matchedTerms[doc]++;
+                termScores[doc] = 0;
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        for (int doc = 0; doc < docCount; doc++) {
+            if (matchedTerms[doc] == queryTerms.size()) {
+                hits.add(new Hit(doc, scores[doc]));
+            }
+        }
+        hits.sort(
+                (a, b) ->
+                        a.score() != b.score()
+                                ? Float.compare(b.score(), a.score())
+                                : Integer.compare(a.doc(), b.doc()));
+        return hits;
+    }
+
+    public int termCount() {
+        return terms.length;
+    }
+
+    /**
+     * Terms of the dictionary matching a query term: exact, then by prefix, and within one edit
+     * only if neither matched. Every match is scored, so a short prefix never drops a document
+     * just because its term sorts late; the work stays bounded by the postings of the index.
+     */
+    private List<Expansion> expand(String queryTerm) {
+        List<Expansion> expansions = new ArrayList<>();
+        int from = Arrays.binarySearch(terms, queryTerm);
+        if (from >= 0) {
+            expansions.add(new Expansion(from, 1.0));
+            from++;
+        } else {
+            from = -from - 1;
+        }
+        for (int i = from; i < terms.length && terms[i].startsWith(queryTerm); i++) {
+            expansions.add(new Expansion(i, PREFIX_FACTOR));
+        }
+
+        if (expansions.isEmpty() && queryTerm.length() >= MIN_FUZZY_LENGTH) {
+            for (int i = 0; i < terms.length; i++) {
+                if (withinOneEdit(queryTerm, terms[i])) {
+                    expansions.add(new Expansion(i, FUZZY_FACTOR));
+                }
+            }
+        }
+        return expansions;
+    }
+
+    /**
+     * Whether two strings differ by at most one insertion, deletion, substitution or adjacent
+     * transposition
+     */
+    static boolean withinOneEdit(String a, String b) {
+        int lengthDiff = a.length() - b.length();
+        if (Math.abs(lengthDiff) > 1) {
+            return false;
+        }
+        int i = 0;
+        while (i < a.length() && i < b.length() && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (lengthDiff > 0) {
+            return a.regionMatches(i + 1, b, i, b.length() - i);
+        }
+        if (lengthDiff < 0) {
+            return b.regionMatches(i + 1, a, i, a.length() - i);
+        }
+        if (i == a.length()) {
+            return true;
+        }
+        if (a.regionMatches(i + 1, b, i + 1, a.length() - i - 1)) {
+            return true;
+        }
+        return i + 1 < a.length()
+                && a.charAt(i) == b.charAt(i + 1)
+                && a.charAt(i + 1) == b.charAt(i)
+                && a.regionMatches(i + 2, b, i + 2, a.length() - i - 2);
+    }
+
+    /**
+     * Split text into lower-cased terms. Latin words are split on non-alphanumerics and camel
+     * case, keeping the whole word as well; Han characters are indexed as unigrams and bigrams.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        int wordStart = -1;
+        int lastHan = -2;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            boolean han =
+                    c >= 0x2E80 && Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+            boolean wordChar = !han && Character.isLetterOrDigit(c);
+
+            if (wordChar && wordStart < 0) {
+                wordStart = i;
+            } else if (!wordChar && wordStart >= 0) {
+                addWord(text.substring(wordStart, i), tokens);
+                wordStart = -1;
+            }
+
+            if (han) {
+                tokens.add(String.valueOf(c));
+                if (lastHan == i - 1) {
+                    tokens.add(text.substring(i - 1, i + 1));
+                }
+                lastHan = i;
+            }
+        }
+        return tokens;
+    }
+
+    private static void addWord(String word, List<String> tokens) {
+        tokens.add(word.toLowerCase(Locale.ROOT));
+
+        // getWeatherForecast -> get, weather, forecast
+        int partStart = 0;
+        for (int i = 1; i < word.length(); i++) {
+            if (Character.isUpperCase(word.charAt(i))
+                    && Character.isLowerCase(word.charAt(i - 1))) {
+                tokens.add(word.substring(partStart, i).toLowerCase(Locale.ROOT));
+                partStart = i;
+            }
+        }
+        if (partStart > 0) {
+            tokens.add(word.substring(partStart).toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * A searchable document made of weighted text fields
+     */
+    public record Document(List<Field> fields) {}
+
+    public record Field(String text, int weight) {}
+
+    /**
+     * @param doc   position of the document in the indexed list
+     * @param score relevance, higher is better
+     */
+    public record Hit(int doc, float score) {}
+
+    private record Expansion(int termIndex, double factor) {}
+
+    private static class PostingBuilder {
+
+        private int[] docs = new int[4];
+
+        private float[] weights = new float[4];
+
+        private int size;
+
+        void add(int doc, int weight) {
+            // Documents are added in order, repeated occurrences accumulate on the last entry
+            if (size > 0 && docs[size - 1] == doc) {
+                weights[size - 1] += weight;
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = doc;
+            weights[size] = weight;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,548 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.catalog;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.himarket.config.ProductCatalogConfig;
+import com.alibaba.himarket.core.event.PortalDeletingEvent;
+import com.alibaba.himarket.core.event.ProductCatalogChangedEvent;
+import com.alibaba.himarket.dto.params.product.ProductSortBy;
+import com.alibaba.himarket.dto.params.product.QueryProductParam;
+import com.alibaba.himarket.dto.params.product.SearchProductParam;
+import com.alibaba.himarket.dto.result.ProductCategoryResult;
+import com.alibaba.himarket.dto.result.common.PageResult;
+import com.alibaba.himarket.dto.result.product.ProductResult;
+import com.alibaba.himarket.entity.ProductPublication;
+import com.alibaba.himarket.repository.ProductPublicationRepository;
+import com.alibaba.himarket.service.ProductService;
+import com.alibaba.himarket.support.enums.ProductStatus;
+import com.alibaba.himarket.support.enums.ProductType;
+import com.alibaba.himarket.support.product.ProductFeature;
+import com.alibaba.himarket.utils.JsonUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Per-portal snapshot of the published product catalog, serving developer-facing product
+ * listings (paging, type, category and name filters) from memory.
+ *
+ * <p>A snapshot is built on first access and replaced copy-on-write when a {@link
+ * ProductCatalogChangedEvent} reports a changed product. Snapshots are rebuilt once they reach
+ * the configured max age, which bounds staleness for changes made on other replicas or not
+ * covered by an event (e.g. download count sync).
+ *
+ * <p>Every change event bumps a change version. A snapshot remembers the version it covers, so
+ * one built while an event was committed, and thus missed by it, is rebuilt on its next read.
+ *
+ * <p>Each snapshot also backs a ranked full-text search through a {@link CatalogSearchIndex},
+ * built on the first search after the snapshot changed.
+ */
+@Slf4j
+@Component
+public class PortalCatalogManager {
+
+    private static final Comparator<CatalogEntry> DEFAULT_ORDER =
+            Comparator.comparing(
+                            (CatalogEntry e) -> e.product().getCreateAt(),
+                            Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+                    .thenComparing(e -> e.product().getProductId());
+
+    private static final Comparator<CatalogEntry> UPDATED_AT_DESC =
+            Comparator.comparing(
+                    (CatalogEntry e) -> e.product().getUpdatedAt(),
+                    Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()));
+
+    private static final Comparator<CatalogEntry> DOWNLOAD_COUNT_DESC =
+            Comparator.comparingLong((CatalogEntry e) -> e.downloadCount())
+                    .reversed()
+                    .thenComparing(UPDATED_AT_DESC);
+
+    private static final int NAME_WEIGHT = 8;
+
+    private static final int TAG_WEIGHT = 4;
+
+    private static final int TOOL_WEIGHT = 3;
+
+    private static final int DESCRIPTION_WEIGHT = 2;
+
+    private static final int DOCUMENT_WEIGHT = 1;
+
+    private static final int MAX_INDEXED_DOCUMENT_LENGTH = 10_000;
+
+    private static final Pattern TOOL_NAME_PATTERN =
+            Pattern.compile("(?<![\\w])\"?name\"?\\s*:\\s*\"?([\\w.\\-]+)");
+
+    private final ProductCatalogConfig config;
+
+    private final ProductPublicationRepository publicationRepository;
+
+    private final Timer buildTimer;
+
+    private final DistributionSummary sizeSummary;
+
+    private final Timer indexBuildTimer;
+
+    private final Timer searchTimer;
+
+    /**
+     * Key: portalId
+     */
+    private final Cache<String, PortalCatalog> catalogs;
+
+    private final Object updateLock = new Object();
+
+    /**
+     * Number of change events seen, only advanced under {@link #updateLock}
+     */
+    private final AtomicLong changeVersion = new AtomicLong();
+
+    @Lazy @Resource private ProductService productService;
+
+    public PortalCatalogManager(
+            ProductCatalogConfig config,
+            ProductPublicationRepository publicationRepository,
+            MeterRegistry meterRegistry) {
+        this.config = config;
+        this.publicationRepository = publicationRepository;
+        this.buildTimer =
+                Timer.builder("product.catalog.snapshot.build")
+                        .description("Time to build the published catalog snapshot of a portal")
+                        .register(meterRegistry);
+        this.sizeSummary =
+                DistributionSummary.builder("product.catalog.snapshot.size")
+                        .description("Products in a freshly built portal catalog snapshot")
+                        .register(meterRegistry);
+        this.indexBuildTimer =
+                Timer.builder("product.catalog.index.build")
+                        .description("Time to build the search index of a portal catalog")
+                        .register(meterRegistry);
+        this.searchTimer =
+                Timer.builder("product.catalog.search")
+                        .description("Latency of ranked portal catalog searches")
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+        // Incremental updates keep the original deadline, so every snapshot is rebuilt in time
+        this.catalogs =
+                Caffeine.newBuilder()
+                        .maximumSize(config.getMaxPortals())
+                        .expireAfter(
+                                Expiry.creating(
+                                        (String portalId, PortalCatalog catalog) ->
+                                                config.getSnapshotMaxAge()))
+                        .build();
+        meterRegistry.gauge("product.catalog.snapshot.portals", catalogs, Cache::estimatedSize);
+    }
+
+    /**
+     * List published products of a portal from its snapshot
+     *
+     * @param param    query parameters, must be scoped to a portal and to published products
+     * @param pageable pagination settings
+     * @return the page, or empty if the query cannot be served from the snapshot
+     */
+    public Optional<PageResult<ProductResult>> listProducts(
+            QueryProductParam param, Pageable pageable) {
+        if (!config.isSnapshotEnabled()
+                || StrUtil.isBlank(param.getPortalId())
+                || param.getStatus() != ProductStatus.PUBLISHED
+                || pageable.isUnpaged()
+                || pageable.getSort().isSorted()) {
+            return Optional.empty();
+        }
+
+        PortalCatalog catalog = catalogOf(param.getPortalId());
+
+        List<CatalogEntry> matched =
+                catalog.entries().stream()
+                        .filter(entry -> matches(entry, param))
+                        .sorted(orderOf(param))
+                        .toList();
+
+        int start = (int) Math.min(pageable.getOffset(), matched.size());
+        int end = Math.min(start + pageable.getPageSize(), matched.size());
+        List<ProductResult> content =
+                matched.subList(start, end).stream()
+                        .map(PortalCatalogManager::copyOf)
+                        .collect(Collectors.toList());
+
+        return Optional.of(
+                PageResult.of(
+                        content,
+                        pageable.getPageNumber() + 1,
+                        pageable.getPageSize(),
+                        matched.size()));
+    }
+
+    /**
+     * Ranked full-text search over the published products of a portal
+     *
+     * <p>With snapshots disabled, the catalog is loaded for this search only and not kept.
+     *
+     * @param portalId portal to search in
+     * @param param    keyword and optional type/category restrictions
+     * @param pageable pagination settings, sorting is by relevance
+     * @return matching products, most relevant first
+     */
+    public PageResult<ProductResult> searchProducts(
+            String portalId, SearchProductParam param, Pageable pageable) {
+        Timer.Sample sample = Timer.start();
+
+        PortalCatalog catalog =
+                config.isSnapshotEnabled() ? catalogOf(portalId) : buildCatalog(portalId);
+        List<CatalogEntry> entries = catalog.entries();
+        List<CatalogEntry> matched =
+                searchIndexOf(catalog).search(param.getKeyword()).stream()
+                        .map(hit -> entries.get(hit.doc()))
+                        .filter(
+                                entry ->
+                                        param.getType() == null
+                                                || entry.product().getType() == param.getType())
+                        .filter(
+                                entry ->
+                                        CollUtil.isEmpty(param.getCategoryIds())
+                                                || param.getCategoryIds().stream()
+                                                        .anyMatch(entry.categoryIds()::contains))
+                        .toList();
+
+        int start = (int) Math.min(pageable.getOffset(), matched.size());
+        int end = Math.min(start + pageable.getPageSize(), matched.size());
+        List<ProductResult> content =
+                matched.subList(start, end).stream()
+                        .map(PortalCatalogManager::copyOf)
+                        .collect(Collectors.toList());
+
+        sample.stop(searchTimer);
+        return PageResult.of(
+                content, pageable.getPageNumber() + 1, pageable.getPageSize(), matched.size());
+    }
+
+    @Async("taskExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductCatalogChanged(ProductCatalogChangedEvent event) {
+        String productId = event.getProductId();
+
+        // Load and apply under one lock: the last update to apply always loaded after every
+        // earlier commit, so an older load can never overwrite a newer one
+        synchronized (updateLock) {
+            long version = changeVersion.incrementAndGet();
+            if (productId == null) {
+                catalogs.invalidateAll();
+                return;
+            }
+            // Snapshots still being built see the new version and are rebuilt on read
+            if (catalogs.estimatedSize() == 0) {
+                return;
+            }
+            applyProductChange(productId, version);
+        }
+    }
+
+    private void applyProductChange(String productId, long version) {
+        try {
+            ProductResult product = productService.getProducts(List.of(productId)).get(productId);
+            CatalogEntry entry = null;
+            Set<String> portalIds = Collections.emptySet();
+            if (product != null && product.getStatus() == ProductStatus.PUBLISHED) {
+                entry = CatalogEntry.of(product);
+                portalIds =
+                        publicationRepository.findAllByProductId(productId).stream()
+                                .map(ProductPublication::getPortalId)
+                                .collect(Collectors.toSet());
+            }
+
+            for (String portalId : List.copyOf(catalogs.asMap().keySet())) {
+                CatalogEntry portalEntry = portalIds.contains(portalId) ? entry : null;
+                catalogs.asMap()
+                        .computeIfPresent(
+                                portalId,
+                                (k, catalog) -> catalog.with(productId, portalEntry, version));
+            }
+        } catch (Exception e) {
+            log.warn(
+                    "Failed to update catalog snapshots for product: {}, dropping snapshots",
+                    productId,
+                    e);
+            catalogs.invalidateAll();
+        }
+    }
+
+    @EventListener
+    public void onPortalDeletion(PortalDeletingEvent event) {
+        catalogs.invalidate(event.getPortalId());
+    }
+
+    /**
+     * Snapshot of a portal, rebuilt once if it missed a change committed while it was built
+     */
+    private PortalCatalog catalogOf(String portalId) {
+        PortalCatalog catalog = catalogs.get(portalId, this::buildCatalog);
+        if (catalog.version() == changeVersion.get()) {
+            return catalog;
+        }
+        // Under the lock no event is half applied, so a version gap means a missed change
+        synchronized (updateLock) {
+            if (catalog.version() != changeVersion.get()) {
+                catalogs.asMap().remove(portalId, catalog);
+            }
+        }
+        return catalogs.get(portalId, this::buildCatalog);
+    }
+
+    private PortalCatalog buildCatalog(String portalId) {
+        Timer.Sample sample = Timer.start();
+        // Read before loading: every change up to this version committed before the load
+        long version = changeVersion.get();
+
+        List<String> productIds =
+                publicationRepository.findAllByPortalId(portalId).stream()
+                        .map(ProductPublication::getProductId)
+                        .distinct()
+                        .toList();
+        List<CatalogEntry> entries =
+                productIds.isEmpty()
+                        ? List.of()
+                        : productService.getProducts(productIds).values().stream()
+                                .filter(product -> product.getStatus() == ProductStatus.PUBLISHED)
+                                .map(CatalogEntry::of)
+                                .sorted(DEFAULT_ORDER)
+                                .toList();
+
+        long elapsed = sample.stop(buildTimer);
+        sizeSummary.record(entries.size());
+        log.debug(
+                "Built catalog snapshot for portal: {}, products: {}, elapsed: {}ms",
+                portalId,
+                entries.size(),
+                elapsed / 1_000_000);
+        return new PortalCatalog(entries, version);
+    }
+
+    private CatalogSearchIndex searchIndexOf(PortalCatalog catalog) {
+        CatalogSearchIndex index = catalog.searchIndex;
+        if (index == null) {
+            synchronized (catalog) {
+                index = catalog.searchIndex;
+                if (index == null) {
+                    Timer.Sample sample = Timer.start();
+                    index =
+                            CatalogSearchIndex.build(
+                                    catalog.entries().stream()
+                                            .map(PortalCatalogManager::toSearchDocument)
+                                            .toList());
+                    long elapsed = sample.stop(indexBuildTimer);
+                    log.debug(
+                            "Built catalog search index, products: {}, terms: {}, elapsed: {}ms",
+                            catalog.entries().size(),
+                            index.termCount(),
+                            elapsed / 1_000_000);
+                    catalog.searchIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Searchable fields of a product, weighted by how well a match describes the product
+     */
+    private static CatalogSearchIndex.Document toSearchDocument(CatalogEntry entry) {
+        ProductResult product = entry.product();
+        List<CatalogSearchIndex.Field> fields = new ArrayList<>();
+        fields.add(new CatalogSearchIndex.Field(product.getName(), NAME_WEIGHT));
+        CollUtil.emptyIfNull(product.getCategories())
+                .forEach(c -> fields.add(new CatalogSearchIndex.Field(c.getName(), TAG_WEIGHT)));
+        if (product.getSkillConfig() != null) {
+            CollUtil.emptyIfNull(product.getSkillConfig().getSkillTags())
+                    .forEach(tag -> fields.add(new CatalogSearchIndex.Field(tag, TAG_WEIGHT)));
+        }
+        if (product.getWorkerConfig() != null) {
+            CollUtil.emptyIfNull(product.getWorkerConfig().getTags())
+                    .forEach(tag -> fields.add(new CatalogSearchIndex.Field(tag, TAG_WEIGHT)));
+        }
+        if (product.getMcpConfig() != null
+                && StrUtil.isNotBlank(product.getMcpConfig().getTools())) {
+            // Tools are raw JSON or YAML depending on the source, pick out the names only
+            Matcher matcher = TOOL_NAME_PATTERN.matcher(product.getMcpConfig().getTools());
+            while (matcher.find()) {
+                fields.add(new CatalogSearchIndex.Field(matcher.group(1), TOOL_WEIGHT));
+            }
+        }
+        fields.add(new CatalogSearchIndex.Field(product.getDescription(), DESCRIPTION_WEIGHT));
+        fields.add(
+                new CatalogSearchIndex.Field(
+                        StrUtil.sub(product.getDocument(), 0, MAX_INDEXED_DOCUMENT_LENGTH),
+                        DOCUMENT_WEIGHT));
+        return new CatalogSearchIndex.Document(fields);
+    }
+
+    /**
+     * Deep copy of a snapshot product, snapshot entries are shared across requests
+     */
+    private static ProductResult copyOf(CatalogEntry entry) {
+        return JsonUtil.convert(entry.product(), ProductResult.class);
+    }
+
+    private boolean matches(CatalogEntry entry, QueryProductParam param) {
+        ProductResult product = entry.product();
+        if (param.getType() != null && product.getType() != param.getType()) {
+            return false;
+        }
+        if (StrUtil.isNotBlank(param.getName())
+                && !StrUtil.containsIgnoreCase(product.getName(), param.getName())) {
+            return false;
+        }
+        if (CollUtil.isNotEmpty(param.getCategoryIds())
+                && param.getCategoryIds().stream().noneMatch(entry.categoryIds()::contains)) {
+            return false;
+        }
+        if (StrUtil.isNotBlank(param.getExcludeCategoryId())
+                && entry.categoryIds().contains(param.getExcludeCategoryId())) {
+            return false;
+        }
+        if (param.getType() != null && param.hasFilter()) {
+            return param.getType() == ProductType.MODEL_API
+                    ? param.getModelFilter().matches(product.getModelConfig())
+                    : product.getModelConfig() != null;
+        }
+        return true;
+    }
+
+    /**
+     * Same ordering as the DB-backed listing
+     */
+    private Comparator<CatalogEntry> orderOf(QueryProductParam param) {
+        boolean skillOrWorker =
+                param.getType() == ProductType.AGENT_SKILL || param.getType() == ProductType.WORKER;
+        if (!skillOrWorker || param.hasFilter()) {
+            return DEFAULT_ORDER;
+        }
+        return param.getSortBy() == ProductSortBy.DOWNLOAD_COUNT
+                ? DOWNLOAD_COUNT_DESC
+                : UPDATED_AT_DESC;
+    }
+
+    /**
+     * Immutable published catalog of a portal, in default order
+     */
+    private static final class PortalCatalog {
+
+        private final List<CatalogEntry> entries;
+
+        /**
+         * Change version the catalog is known to be current with
+         */
+        private final long version;
+
+        /**
+         * Built on first search, so incremental updates do not pay for it
+         */
+        private volatile CatalogSearchIndex searchIndex;
+
+        PortalCatalog(List<CatalogEntry> entries, long version) {
+            this.entries = entries;
+            this.version = version;
+        }
+
+        List<CatalogEntry> entries() {
+            return entries;
+        }
+
+        long version() {
+            return version;
+        }
+
+        /**
+         * Copy of this catalog with the product replaced, or removed if entry is null
+         *
+         * @param version version of the change; the copy only becomes current with it if this
+         *                catalog was current with every earlier change
+         */
+        PortalCatalog with(String productId, CatalogEntry entry, long version) {
+            List<CatalogEntry> updated = new ArrayList<>(entries.size() + 1);
+            for (CatalogEntry e : entries) {
+                if (!e.product().getProductId().equals(productId)) {
+                    updated.add(e);
+                }
+            }
+            if (entry != null) {
+                updated.add(entry);
+            }
+            updated.sort(DEFAULT_ORDER);
+            long current =
+                    this.version >= version - 1 ? Math.max(this.version, version) : this.version;
+            return new PortalCatalog(List.copyOf(updated), current);
+        }
+    }
+
+    /**
+     * A filled product with the fields listings filter and sort on
+     */
+    private record CatalogEntry(
+            ProductResult product, Set<String> categoryIds, long downloadCount) {
+
+        static CatalogEntry of(ProductResult product) {
+            Set<String> categoryIds =
+                    CollUtil.emptyIfNull(product.getCategories()).stream()
+                            .map(ProductCategoryResult::getCategoryId)
+                            .collect(Collectors.toUnmodifiableSet());
+            return new CatalogEntry(product, categoryIds, downloadCount(product));
+        }
+
+        private static long downloadCount(ProductResult product) {
+            ProductFeature feature = product.getFeature();
+            if (feature == null) {
+                return 0L;
+            }
+            if (product.getType() == ProductType.AGENT_SKILL && feature.getSkillConfig() != null) {
+                Long count = feature.getSkillConfig().getDownloadCount();
+                return count != null ? count : 0L;
+            }
+            if (product.getType() == ProductType.WORKER && feature.getWorkerConfig() != null) {
+                return feature.getWorkerConfig().getDownloadCount();
+            }
+            return 0L;
+        }
+    }
+}
@@ -20,6 +20,7 @@
 package com.alibaba.himarket.service.gateway.factory;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -35,6 +36,10 @@ import org.springframework.stereotype.Component;
  *   <li>SQL 使用 access_logs 表（init.sql）作为数据源
  *   <li>SQL 模板内需包含 {@code /*WHERE*\/} 占位符，由服务层注入时间范围与通用过滤条件
  *   <li>SQL 模板内允许使用 {@code {interval}} 占位符，由服务层替换为请求的 interval（秒）
+ *   <li>ai_log 字段以 {@code {ai:字段}} 引用，由服务层替换为 access_logs 上的生成列（见 {@link
+ *       #AI_LOG_FIELDS}），生成列不存在时退回 JSON_EXTRACT
+ *   <li>可累加的场景另有 rollup 模板，以 {@code /*SOURCE*\/} 为数据源（rollup 表与最新原始行的并集），
+ *       度量列见 {@link DBCollectorRollupSql}
  * </ul>
  */
 @Component
@@ -43,6 +48,23 @@ public class DBCollectorPresetSqlRegistry {
 
     public static final String WHERE_PLACEHOLDER = "/*WHERE*/";
     public static final String BIZ_PLACEHOLDER = "/*BIZ*/";
+    public static final String SOURCE_PLACEHOLDER = "/*SOURCE*/";
+
+    /** 高频 ai_log 字段及其生成列（V24 迁移），生成列带 (start_time, 列) 索引的可走索引 */
+    public static final List<AiLogField> AI_LOG_FIELDS =
+            List.of(
+                    new AiLogField("model", "ai_model", false),
+                    new AiLogField("response_type", "ai_response_type", false),
+                    new AiLogField("cache_status", "ai_cache_status", false),
+                    new AiLogField("token_ratelimit_status", "ai_ratelimit_status", false),
+                    new AiLogField("safecheck_status", "ai_safecheck_status", false),
+                    new AiLogField("safecheck_riskLabel", "ai_risk_label", false),
+                    new AiLogField("llm_service_duration", "ai_llm_duration", true),
+                    new AiLogField("llm_first_token_duration", "ai_first_token_duration", true));
+
+    private static final String TIME_BUCKET =
+            "DATE_FORMAT(FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(start_time)/{interval})*{interval}),"
+                    + " '%Y-%m-%d %H:%i:%s') AS time";
 
     /** 场景预设 */
     @Getter
@@ -53,17 +75,31 @@ public class DBCollectorPresetSqlRegistry {
         private final String timeField;
         private final String valueField;
 
+        /** 基于 rollup 的等价 SQL，为 null 表示只能查询原始行 */
+        private final String rollupSqlTemplate;
+
         public Preset(
                 String name,
                 SlsPresetSqlRegistry.DisplayType type,
                 String sqlTemplate,
                 String timeField,
                 String valueField) {
+            this(name, type, sqlTemplate, timeField, valueField, null);
+        }
+
+        public Preset(
+                String name,
+                SlsPresetSqlRegistry.DisplayType type,
+                String sqlTemplate,
+                String timeField,
+                String valueField,
+                String rollupSqlTemplate) {
             this.name = name;
             this.type = type;
             this.sqlTemplate = sqlTemplate;
             this.timeField = timeField;
             this.valueField = valueField;
+            this.rollupSqlTemplate = rollupSqlTemplate;
         }
     }
 
@@ -163,8 +199,7 @@ public class DBCollectorPresetSqlRegistry {
                             + " '%Y-%m-%d %H:%i:%s') AS time, CAST(COUNT(1) AS DOUBLE)/{interval}"
                             + " AS stream_qps FROM access_logs "
                                 + WHERE_PLACEHOLDER
-                                + " AND JSON_VALID(ai_log) AND JSON_UNQUOTE(JSON_EXTRACT(ai_log,"
-                                + " '$.response_type')) = 'stream' GROUP BY time ORDER BY time",
+                                + " AND {ai:response_type} = 'stream' GROUP BY time ORDER BY time",
                         "time",
                         "stream_qps"));
         presets.put(
@@ -177,8 +212,7 @@ public class DBCollectorPresetSqlRegistry {
                             + " '%Y-%m-%d %H:%i:%s') AS time, CAST(COUNT(1) AS DOUBLE)/{interval}"
                             + " AS normal_qps FROM access_logs "
                                 + WHERE_PLACEHOLDER
-                                + " AND JSON_VALID(ai_log) AND JSON_UNQUOTE(JSON_EXTRACT(ai_log,"
-                                + " '$.response_type')) = 'normal' GROUP BY time ORDER BY time",
+                                + " AND {ai:response_type} = 'normal' GROUP BY time ORDER BY time",
                         "time",
                         "normal_qps"));
         presets.put(
@@ -191,9 +225,8 @@ public class DBCollectorPresetSqlRegistry {
                             + " '%Y-%m-%d %H:%i:%s') AS time, CAST(COUNT(1) AS DOUBLE)/{interval}"
                             + " AS total_qps FROM access_logs "
                                 + WHERE_PLACEHOLDER
-                                + " AND JSON_VALID(ai_log) AND JSON_UNQUOTE(JSON_EXTRACT(ai_log,"
-                                + " '$.response_type')) IN ('normal','stream') GROUP BY time ORDER"
-                                + " BY time",
+                                + " AND {ai:response_type} IN ('normal','stream') GROUP BY time"
+                                + " ORDER BY time",
                         "time",
                         "total_qps"));
 
@@ -262,13 +295,10 @@ public class DBCollectorPresetSqlRegistry {
                         SlsPresetSqlRegistry.DisplayType.LINE,
                         "SELECT DATE_FORMAT("
                             + "FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(start_time)/{interval})*{interval}),"
-                            + " '%Y-%m-%d %H:%i:%s') AS time,"
-                            + " SUM(CAST(JSON_UNQUOTE(JSON_EXTRACT(ai_log,"
-                            + " '$.llm_service_duration')) AS DOUBLE)) / NULLIF(COUNT(1), 0) AS"
-                            + " total_rt FROM access_logs "
+                            + " '%Y-%m-%d %H:%i:%s') AS time, SUM({ai:llm_service_duration}) /"
+                            + " NULLIF(COUNT(1), 0) AS total_rt FROM access_logs "
                                 + WHERE_PLACEHOLDER
-                                + " AND JSON_VALID(ai_log)"
-                                + " AND JSON_EXTRACT(ai_log, '$.llm_service_duration') IS NOT NULL"
+                                + " AND {ai:llm_service_duration} IS NOT NULL"
                                 + " GROUP BY time ORDER BY time",
                         "time",
                         "total_rt"));
@@ -279,14 +309,11 @@ public class DBCollectorPresetSqlRegistry {
                         SlsPresetSqlRegistry.DisplayType.LINE,
                         "SELECT DATE_FORMAT("
                             + "FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(start_time)/{interval})*{interval}),"
-                            + " '%Y-%m-%d %H:%i:%s') AS time,"
-                            + " SUM(CAST(JSON_UNQUOTE(JSON_EXTRACT(ai_log,"
-                            + " '$.llm_service_duration')) AS DOUBLE)) / NULLIF(COUNT(1), 0) AS"
-                            + " stream_rt FROM access_logs "
-                                + WHERE_PLACEHOLDER
-                                + " AND JSON_VALID(ai_log) AND JSON_EXTRACT(ai_log,"
-                                + " '$.llm_service_duration') IS NOT NULL AND"
-                                + " JSON_UNQUOTE(JSON_EXTRACT(ai_log, '$.response_type')) ="
+                            + " '%Y-%m-%d %H:%i:%s') AS time, SUM({ai:llm_service_duration}) /"
+                            + " NULLIF(COUNT(1), 0) AS stream_rt FROM access_logs "
+                                + WHERE_PLACEHOLDER
+                                + " AND {ai:llm_service_duration} IS NOT NULL AND"
+                                + " {ai:response_type} ="
                                 + " 'stream' GROUP BY time ORDER BY time",
                         "time",
                         "stream_rt"));
@@ -297,14 +324,11 @@ public class DBCollectorPresetSqlRegistry {
                         SlsPresetSqlRegistry.DisplayType.LINE,
                         "SELECT DATE_FORMAT("
                             + "FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(start_time)/{interval})*{interval}),"
-                            + " '%Y-%m-%d %H:%i:%s') AS time,"
-                            + " SUM(CAST(JSON_UNQUOTE(JSON_EXTRACT(ai_log,"
-                            + " '$.llm_service_duration')) AS DOUBLE)) / NULLIF(COUNT(1), 0) AS"
-                            + " normal_rt FROM access_logs "
-                                + WHERE_PLACEHOLDER
-                                + " AND JSON_VALID(ai_log) AND JSON_EXTRACT(ai_log,"
-                                + " '$.llm_service_duration') IS NOT NULL AND"
-                                + " JSON_UNQUOTE(JSON_EXTRACT(ai_log, '$.response_type')) ="
+                            + " '%Y-%m-%d %H:%i:%s') AS time, SUM({ai:llm_service_duration}) /"
+                            + " NULLIF(COUNT(1), 0) AS normal_rt FROM access_logs "
+                                + WHERE_PLACEHOLDER
+                                + " AND {ai:llm_service_duration} IS NOT NULL AND"
+                                + " {ai:response_type} ="
                                 + " 'normal' GROUP BY time ORDER BY time",
                         "time",
                         "normal_rt"));
@@ -315,14 +339,11 @@ public class DBCollectorPresetSqlRegistry {
                         SlsPresetSqlRegistry.DisplayType.LINE,
                         "SELECT DATE_FORMAT("
                             + "FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(start_time)/{interval})*{interval}),"
-                            + " '%Y-%m-%d %H:%i:%s') AS time,"
-                            + " SUM(CAST(JSON_UNQUOTE(JSON_EXTRACT(ai_log,"
-                            + " '$.llm_first_token_duration')) AS DOUBLE)) / NULLIF(COUNT(1), 0) AS"
-                            + " first_token_rt FROM access_logs "
+                            + " '%Y-%m-%d %H:%i:%s') AS time, SUM({ai:llm_first_token_duration}) /"
+                            + " NULLIF(COUNT(1), 0) AS first_token_rt FROM access_logs "
                                 + WHERE_PLACEHOLDER
-                                + " AND JSON_VALID(ai_log) AND JSON_EXTRACT(ai_log,"
-                                + " '$.llm_first_token_duration') IS NOT NULL GROUP BY time ORDER"
-                                + " BY time",
+                                + " AND {ai:llm_first_token_duration} IS NOT NULL GROUP BY time"
+                                + " ORDER BY time",
                         "time",
                         "first_token_rt"));
 
@@ -337,8 +358,7 @@ public class DBCollectorPresetSqlRegistry {
                             + " '%Y-%m-%d %H:%i:%s') AS time, CAST(COUNT(1) AS DOUBLE)/{interval}"
                             + " AS hit FROM access_logs "
                                 + WHERE_PLACEHOLDER
-                                + " AND JSON_VALID(ai_log) AND JSON_UNQUOTE(JSON_EXTRACT(ai_log,"
-                                + " '$.cache_status')) = 'hit' GROUP BY time ORDER BY time",
+                                + " AND {ai:cache_status} = 'hit' GROUP BY time ORDER BY time",
                         "time",
                         "hit"));
         presets.put(
@@ -351,8 +371,7 @@ public class DBCollectorPresetSqlRegistry {
                             + " '%Y-%m-%d %H:%i:%s') AS time, CAST(COUNT(1) AS DOUBLE)/{interval}"
                             + " AS miss FROM access_logs "
                                 + WHERE_PLACEHOLDER
-                                + " AND JSON_VALID(ai_log) AND JSON_UNQUOTE(JSON_EXTRACT(ai_log,"
-                                + " '$.cache_status')) = 'miss' GROUP BY time ORDER BY time",
+                                + " AND {ai:cache_status} = 'miss' GROUP BY time ORDER BY time",
                         "time",
                         "miss"));
         presets.put(
@@ -365,8 +384,7 @@ public class DBCollectorPresetSqlRegistry {
                             + " '%Y-%m-%d %H:%i:%s') AS time, CAST(COUNT(1) AS DOUBLE)/{interval}"
                             + " AS skip FROM access_logs "
                                 + WHERE_PLACEHOLDER
-                                + " AND JSON_VALID(ai_log) AND JSON_UNQUOTE(JSON_EXTRACT(ai_log,"
-                                + " '$.cache_status')) = 'skip' GROUP BY time ORDER BY time",
+                                + " AND {ai:cache_status} = 'skip' GROUP BY time ORDER BY time",
                         "time",
                         "skip"));
 
@@ -381,9 +399,8 @@ public class DBCollectorPresetSqlRegistry {
                             + " '%Y-%m-%d %H:%i:%s') AS time, CAST(COUNT(1) AS DOUBLE)/{interval}"
                             + " AS ratelimited FROM access_logs "
                                 + WHERE_PLACEHOLDER
-                                + " AND JSON_VALID(ai_log) AND JSON_UNQUOTE(JSON_EXTRACT(ai_log,"
-                                + " '$.token_ratelimit_status')) = 'limited' GROUP BY time ORDER BY"
-                                + " time",
+                                + " AND {ai:token_ratelimit_status} = 'limited' GROUP BY time ORDER"
+                                + " BY time",
                         "time",
                         "ratelimited"));
 
@@ -493,8 +510,7 @@ public class DBCollectorPresetSqlRegistry {
                         "SELECT consumer AS consumer, COUNT(1) AS ratelimited_count"
                                 + " FROM access_logs "
                                 + WHERE_PLACEHOLDER
-                                + " AND JSON_VALID(ai_log) AND JSON_UNQUOTE(JSON_EXTRACT(ai_log,"
-                                + " '$.token_ratelimit_status')) = 'limited' AND consumer IS NOT"
+                                + " AND {ai:token_ratelimit_status} = 'limited' AND consumer IS NOT"
                                 + " NULL GROUP BY consumer ORDER BY ratelimited_count DESC",
                         null,
                         null));
@@ -503,11 +519,10 @@ public class DBCollectorPresetSqlRegistry {
                 new Preset(
                         "risk_label_table",
                         SlsPresetSqlRegistry.DisplayType.TABLE,
-                        "SELECT JSON_UNQUOTE(JSON_EXTRACT(ai_log, '$.safecheck_riskLabel')) AS"
+                        "SELECT {ai:safecheck_riskLabel} AS"
                                 + " risklabel, COUNT(1) AS cnt FROM access_logs "
                                 + WHERE_PLACEHOLDER
-                                + " AND JSON_VALID(ai_log) AND JSON_UNQUOTE(JSON_EXTRACT(ai_log,"
-                                + " '$.safecheck_status')) = 'reqeust deny' GROUP BY risklabel"
+                                + " AND {ai:safecheck_status} = 'reqeust deny' GROUP BY risklabel"
                                 + " ORDER BY cnt DESC",
                         null,
                         null));
@@ -519,8 +534,7 @@ public class DBCollectorPresetSqlRegistry {
                         "SELECT consumer AS consumer, COUNT(1) AS cnt"
                                 + " FROM access_logs "
                                 + WHERE_PLACEHOLDER
-                                + " AND JSON_VALID(ai_log) AND JSON_UNQUOTE(JSON_EXTRACT(ai_log,"
-                                + " '$.safecheck_status')) = 'reqeust deny' AND consumer IS NOT"
+                                + " AND {ai:safecheck_status} = 'reqeust deny' AND consumer IS NOT"
                                 + " NULL GROUP BY consumer ORDER BY cnt DESC",
                         null,
                         null));
@@ -659,6 +673,222 @@ public class DBCollectorPresetSqlRegistry {
                                 + " AND mcp_tool IS NOT NULL LIMIT 100",
                         null,
                         null));
+
+        // ===== ROLLUP（仅可累加的场景，uv/分位数等仍查原始行）=====
+        addRollup(
+                "pv",
+                "SELECT COALESCE(SUM(request_count), 0) AS pv FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE 1=1 "
+                        + BIZ_PLACEHOLDER);
+        addRollup(
+                "fallback_count",
+                "SELECT COALESCE(SUM(fallback_count), 0) AS cnt FROM " + SOURCE_PLACEHOLDER);
+        addRollup(
+                "bytes_received",
+                "SELECT ROUND(SUM(bytes_received) / 1024.0 / 1024.0, 3) AS received FROM "
+                        + SOURCE_PLACEHOLDER);
+        addRollup(
+                "bytes_sent",
+                "SELECT ROUND(SUM(bytes_sent) / 1024.0 / 1024.0, 3) AS sent FROM "
+                        + SOURCE_PLACEHOLDER);
+        addRollup(
+                "input_token_total",
+                "SELECT COALESCE(SUM(input_tokens), 0) AS input_token FROM " + SOURCE_PLACEHOLDER);
+        addRollup(
+                "output_token_total",
+                "SELECT COALESCE(SUM(output_tokens), 0) AS output_token FROM "
+                        + SOURCE_PLACEHOLDER);
+        addRollup(
+                "token_total",
+                "SELECT COALESCE(SUM(total_tokens), 0) AS token FROM " + SOURCE_PLACEHOLDER);
+        addRollup(
+                "qps_stream",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", CAST(SUM(request_count) AS DOUBLE)/{interval} AS stream_qps FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE response_type = 'stream'"
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "qps_normal",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", CAST(SUM(request_count) AS DOUBLE)/{interval} AS normal_qps FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE response_type = 'normal'"
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "qps_total",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", CAST(SUM(request_count) AS DOUBLE)/{interval} AS total_qps FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE response_type IN ('normal','stream')"
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "success_rate",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", CAST(SUM(success_count) AS DOUBLE) / NULLIF(SUM(request_count), 0) AS"
+                        + " success_rate FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "token_per_sec_input",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", COALESCE(SUM(input_tokens), 0)/{interval} AS input_token FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "token_per_sec_output",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", COALESCE(SUM(output_tokens), 0)/{interval} AS output_token FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "token_per_sec_total",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", COALESCE(SUM(total_tokens), 0)/{interval} AS total_token FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "rt_avg_total",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", SUM(llm_duration_sum) / NULLIF(SUM(llm_duration_count), 0) AS total_rt"
+                        + " FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE llm_duration_count > 0"
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "rt_avg_stream",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", SUM(llm_duration_sum) / NULLIF(SUM(llm_duration_count), 0) AS"
+                        + " stream_rt FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE llm_duration_count > 0 AND response_type = 'stream'"
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "rt_avg_normal",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", SUM(llm_duration_sum) / NULLIF(SUM(llm_duration_count), 0) AS"
+                        + " normal_rt FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE llm_duration_count > 0 AND response_type = 'normal'"
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "rt_first_token",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", SUM(first_token_sum) / NULLIF(SUM(first_token_count), 0) AS"
+                        + " first_token_rt FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE first_token_count > 0"
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "cache_hit",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", CAST(SUM(cache_hit_count) AS DOUBLE)/{interval} AS hit FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE cache_hit_count > 0"
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "cache_miss",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", CAST(SUM(cache_miss_count) AS DOUBLE)/{interval} AS miss FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE cache_miss_count > 0"
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "cache_skip",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", CAST(SUM(cache_skip_count) AS DOUBLE)/{interval} AS skip FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE cache_skip_count > 0"
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "ratelimited_per_sec",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", CAST(SUM(ratelimited_count) AS DOUBLE)/{interval} AS ratelimited FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE ratelimited_count > 0"
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "qps_total_simple",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", CAST(SUM(request_count) AS DOUBLE)/{interval} AS total, 'total' AS"
+                        + " response_code FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "rt_avg",
+                "SELECT "
+                        + TIME_BUCKET
+                        + ", SUM(duration_sum) / NULLIF(SUM(duration_count), 0) AS rt_avg FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE duration_count > 0"
+                        + " GROUP BY time ORDER BY time");
+        addRollup(
+                "model_token_table",
+                "SELECT model AS model,"
+                        + " COALESCE(SUM(input_tokens), 0) AS input_token,"
+                        + " COALESCE(SUM(output_tokens), 0) AS output_token,"
+                        + " COALESCE(SUM(total_tokens), 0) AS total_token,"
+                        + " SUM(request_count) AS request FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE model IS NOT NULL"
+                        + " GROUP BY model ORDER BY total_token DESC");
+        addRollup(
+                "consumer_token_table",
+                "SELECT consumer AS consumer,"
+                        + " COALESCE(SUM(input_tokens), 0) AS input_token,"
+                        + " COALESCE(SUM(output_tokens), 0) AS output_token,"
+                        + " COALESCE(SUM(total_tokens), 0) AS total_token,"
+                        + " SUM(request_count) AS request FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE consumer IS NOT NULL"
+                        + " GROUP BY consumer ORDER BY total_token DESC");
+        addRollup(
+                "service_token_table",
+                "SELECT upstream_cluster AS upstream_cluster,"
+                        + " COALESCE(SUM(input_tokens), 0) AS input_token,"
+                        + " COALESCE(SUM(output_tokens), 0) AS output_token,"
+                        + " COALESCE(SUM(total_tokens), 0) AS total_token,"
+                        + " SUM(request_count) AS request FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE upstream_cluster IS NOT NULL"
+                        + " GROUP BY upstream_cluster ORDER BY total_token DESC");
+        addRollup(
+                "ratelimited_consumer_table",
+                "SELECT consumer AS consumer, SUM(ratelimited_count) AS ratelimited_count FROM "
+                        + SOURCE_PLACEHOLDER
+                        + " WHERE ratelimited_count > 0 AND consumer IS NOT NULL"
+                        + " GROUP BY consumer ORDER BY ratelimited_count DESC");
+    }
+
+    /** 为已注册的场景补充 rollup 模板 */
+    private void addRollup(String name, String rollupSqlTemplate) {
+        Preset p = presets.get(name);
+        presets.put(
+                name,
+                new Preset(
+                        p.getName(),
+                        p.getType(),
+                        p.getSqlTemplate(),
+                        p.getTimeField(),
+                        p.getValueField(),
+                        rollupSqlTemplate));
     }
 
     private void addDurationPercentilePreset(String name, double p, String valueAlias) {
@@ -690,6 +920,24 @@ public class DBCollectorPresetSqlRegistry {
                         valueAlias));
     }
 
+    /**
+     * 替换 SQL 中的 {@code {ai:字段}} 占位符
+     *
+     * @param useColumns access_logs 上是否已有生成列
+     */
+    public static String expandAiLogFields(String sql, boolean useColumns) {
+        if (sql == null || !sql.contains("{ai:")) {
+            return sql;
+        }
+        for (AiLogField field : AI_LOG_FIELDS) {
+            sql =
+                    sql.replace(
+                            "{ai:" + field.path() + "}",
+                            useColumns ? field.column() : field.extractExpr());
+        }
+        return sql;
+    }
+
     public Preset getPreset(String scenario) {
         if (scenario == null) return null;
         Preset p = presets.get(scenario);
@@ -698,4 +946,25 @@ public class DBCollectorPresetSqlRegistry {
         }
         return p;
     }
+
+    /**
+     * ai_log 字段
+     *
+     * @param path ai_log 中的 key
+     * @param column access_logs 上的生成列
+     * @param numeric 是否为数值
+     */
+    public record AiLogField(String path, String column, boolean numeric) {
+
+        /** 与生成列语义一致的 JSON_EXTRACT 表达式（ai_log 非法时为 NULL，model 空串视为 NULL） */
+        public String extractExpr() {
+            String value = "JSON_UNQUOTE(JSON_EXTRACT(ai_log, '$." + path + "'))";
+            if (numeric) {
+                value = "CAST(" + value + " AS DOUBLE)";
+            } else if ("model".equals(path)) {
+                value = "NULLIF(" + value + ", '')";
+            }
+            return "(CASE WHEN JSON_VALID(ai_log) THEN " + value + " END)";
+        }
+    }
 }
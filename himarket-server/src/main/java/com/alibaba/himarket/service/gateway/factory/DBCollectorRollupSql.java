@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.gateway.factory;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * access_logs 预聚合（rollup）相关 SQL（MySQL 8 方言）
+ *
+ * <p>说明：
+ *
+ * <ul>
+ *   <li>rollup 表按桶（1 分钟 / 1 小时）和维度列聚合，度量列均可累加
+ *   <li>{@link #rawRows()} 与 {@link #rollupRows(Level)} 输出同构的列，可 UNION ALL 后统一聚合
+ *   <li>ai_log 通过 JSON_TABLE 每行只解析一次
+ *   <li>维度列按 rollup 表的列长截断，原始行与 rollup 行的分组和过滤结果一致
+ * </ul>
+ */
+public final class DBCollectorRollupSql {
+
+    public static final String STATE_TABLE = "access_log_rollup_state";
+
+    public static final Level MINUTE = new Level("1m", "access_log_rollup_1m", 60);
+
+    public static final Level HOUR = new Level("1h", "access_log_rollup_1h", 3600);
+
+    /** rollup 粒度，按从粗到细排列 */
+    public static final List<Level> LEVELS = List.of(HOUR, MINUTE);
+
+    /** 维度列（过滤条件与表格分组使用的列名与 access_logs 一致） */
+    private static final List<String> DIMENSIONS =
+            List.of(
+                    "instance_id",
+                    "api",
+                    "model",
+                    "consumer",
+                    "route_name",
+                    "upstream_cluster",
+                    "mcp_tool");
+
+    /** rollup 表维度列的长度 */
+    public static final int DIMENSION_LENGTH = 255;
+
+    private static final List<String> FLAGS = List.of("response_type", "is_model", "is_mcp");
+
+    /** 可累加的度量列 */
+    private static final List<String> MEASURES =
+            List.of(
+                    "request_count",
+                    "success_count",
+                    "fallback_count",
+                    "bytes_received",
+                    "bytes_sent",
+                    "input_tokens",
+                    "output_tokens",
+                    "total_tokens",
+                    "llm_duration_count",
+                    "llm_duration_sum",
+                    "first_token_count",
+                    "first_token_sum",
+                    "duration_count",
+                    "duration_sum",
+                    "cache_hit_count",
+                    "cache_miss_count",
+                    "cache_skip_count",
+                    "ratelimited_count");
+
+    private static final String COLUMNS =
+            String.join(", ", DIMENSIONS)
+                    + ", "
+                    + String.join(", ", FLAGS)
+                    + ", "
+                    + String.join(", ", MEASURES);
+
+    /** access_logs 单行投影为 rollup 同构列 */
+    private static final String RAW_ROWS =
+            "SELECT l.start_time AS start_time, "
+                    + DIMENSIONS.stream()
+                            .map(d -> "LEFT(l." + d + ", " + DIMENSION_LENGTH + ") AS " + d)
+                            .collect(Collectors.joining(", "))
+                    + ", j.response_type AS response_type,"
+                    + " CASE WHEN NULLIF(j.ai_model, '') IS NOT NULL THEN 1 ELSE 0 END AS is_model,"
+                    + " CASE WHEN REGEXP_LIKE(l.path, '^/mcp-servers') THEN 1 ELSE 0 END AS is_mcp,"
+                    + " 1 AS request_count,"
+                    + " CASE WHEN l.response_code < 300 AND l.response_code > 0 THEN 1 ELSE 0 END"
+                    + " AS success_count,"
+                    + " CASE WHEN l.response_code_details = 'internal_redirect' THEN 1 ELSE 0 END"
+                    + " AS fallback_count,"
+                    + " l.bytes_received, l.bytes_sent, l.input_tokens, l.output_tokens,"
+                    + " l.total_tokens,"
+                    + " j.has_llm_duration AS llm_duration_count,"
+                    + " COALESCE(j.llm_duration, 0) AS llm_duration_sum,"
+                    + " j.has_first_token AS first_token_count,"
+                    + " COALESCE(j.first_token_duration, 0) AS first_token_sum,"
+                    + " CASE WHEN l.duration IS NOT NULL THEN 1 ELSE 0 END AS duration_count,"
+                    + " COALESCE(l.duration, 0) AS duration_sum,"
+                    + " CASE WHEN j.cache_status = 'hit' THEN 1 ELSE 0 END AS cache_hit_count,"
+                    + " CASE WHEN j.cache_status = 'miss' THEN 1 ELSE 0 END AS cache_miss_count,"
+                    + " CASE WHEN j.cache_status = 'skip' THEN 1 ELSE 0 END AS cache_skip_count,"
+                    + " CASE WHEN j.token_ratelimit_status = 'limited' THEN 1 ELSE 0 END"
+                    + " AS ratelimited_count"
+                    + " FROM access_logs l,"
+                    + " JSON_TABLE(IF(JSON_VALID(l.ai_log), l.ai_log, '{}'), '$' COLUMNS ("
+                    + " response_type VARCHAR(32) PATH '$.response_type' NULL ON ERROR,"
+                    + " ai_model VARCHAR(255) PATH '$.model' NULL ON ERROR,"
+                    + " cache_status VARCHAR(32) PATH '$.cache_status' NULL ON ERROR,"
+                    + " token_ratelimit_status VARCHAR(32) PATH '$.token_ratelimit_status'"
+                    + " NULL ON ERROR,"
+                    + " has_llm_duration INT EXISTS PATH '$.llm_service_duration',"
+                    + " llm_duration DOUBLE PATH '$.llm_service_duration' NULL ON ERROR,"
+                    + " has_first_token INT EXISTS PATH '$.llm_first_token_duration',"
+                    + " first_token_duration DOUBLE PATH '$.llm_first_token_duration'"
+                    + " NULL ON ERROR)) j";
+
+    private DBCollectorRollupSql() {}
+
+    /**
+     * access_logs 原始行（同构列，维度已截断），调用方追加 WHERE（按 l.start_time 过滤；维度过滤需套一层子查询，
+     * 作用于截断后的列）
+     */
+    public static String rawRows() {
+        return RAW_ROWS;
+    }
+
+    /**
+     * rollup 表行（同构列，bucket_time 作为 start_time），调用方追加 WHERE
+     */
+    public static String rollupRows(Level level) {
+        return "SELECT bucket_time AS start_time, " + COLUMNS + " FROM " + level.table();
+    }
+
+    /**
+     * 将 [:from, :to) 的 access_logs 聚合写入分钟表
+     */
+    public static String insertFromRaw(Level level) {
+        String groupColumns = String.join(", ", DIMENSIONS) + ", " + String.join(", ", FLAGS);
+        return "INSERT INTO "
+                + level.table()
+                + " (bucket_time, "
+                + COLUMNS
+                + ") SELECT "
+                + bucketExpr("start_time", level)
+                + " AS bucket_time, "
+                + groupColumns
+                + ", "
+                + sumMeasures()
+                + " FROM ("
+                + RAW_ROWS
+                + " WHERE l.start_time >= :from AND l.start_time < :to) r"
+                + " GROUP BY bucket_time, "
+                + groupColumns;
+    }
+
+    /**
+     * 将细粒度表 [:from, :to) 的数据再聚合写入粗粒度表
+     */
+    public static String insertFromRollup(Level level, Level source) {
+        String groupColumns = String.join(", ", DIMENSIONS) + ", " + String.join(", ", FLAGS);
+        return "INSERT INTO "
+                + level.table()
+                + " (bucket_time, "
+                + COLUMNS
+                + ") SELECT "
+                + bucketExpr("bucket_time", level)
+                + " AS bucket, "
+                + groupColumns
+                + ", "
+                + sumMeasures()
+                + " FROM "
+                + source.table()
+                + " WHERE bucket_time >= :from AND bucket_time < :to"
+                + " GROUP BY bucket, "
+                + groupColumns;
+    }
+
+    private static String bucketExpr(String column, Level level) {
+        return "FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP("
+                + column
+                + ")/"
+                + level.seconds()
+                + ")*"
+                + level.seconds()
+                + ")";
+    }
+
+    private static String sumMeasures() {
+        return MEASURES.stream()
+                .map(m -> "SUM(" + m + ") AS " + m)
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * rollup 粒度
+     *
+     * @param name 状态表中的名称
+     * @param table rollup 表名
+     * @param seconds 桶大小（秒）
+     */
+    public record Level(String name, String table, int seconds) {}
+}
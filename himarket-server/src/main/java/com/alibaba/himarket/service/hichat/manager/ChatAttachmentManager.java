@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.hichat.manager;
+
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.ArrayUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.himarket.entity.ChatAttachment;
+import com.alibaba.himarket.repository.ChatAttachmentRepository;
+import com.alibaba.himarket.service.ChatAttachmentService;
+import com.alibaba.himarket.service.hichat.support.AttachmentContent;
+import com.alibaba.himarket.support.enums.ChatAttachmentType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.agentscope.core.message.Base64Source;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serves decoded attachment content for multimodal history replay. Attachments are immutable once
+ * uploaded, so the encoded payload is cached by attachment ID and weighed by size.
+ */
+@Slf4j
+@Component
+public class ChatAttachmentManager {
+
+    /**
+     * Upper bound of cached attachment content, in bytes.
+     */
+    private static final long MAX_CACHE_WEIGHT = 64L * 1024 * 1024;
+
+    private final ChatAttachmentRepository chatAttachmentRepository;
+
+    private final ChatAttachmentService chatAttachmentService;
+
+    private final Cache<String, AttachmentContent> contentCache =
+            Caffeine.newBuilder()
+                    .maximumWeight(MAX_CACHE_WEIGHT)
+                    .weigher((String key, AttachmentContent content) -> content.getWeight())
+                    .expireAfterAccess(30, TimeUnit.MINUTES)
+                    .recordStats()
+                    .build();
+
+    public ChatAttachmentManager(
+            ChatAttachmentRepository chatAttachmentRepository,
+            ChatAttachmentService chatAttachmentService,
+            MeterRegistry meterRegistry) {
+        this.chatAttachmentRepository = chatAttachmentRepository;
+        this.chatAttachmentService = chatAttachmentService;
+        CaffeineCacheMetrics.monitor(meterRegistry, contentCache, "chat.attachment");
+    }
+
+    /**
+     * Get attachment contents, loading all cache misses with a single query
+     *
+     * @param attachmentIds attachment IDs, blank IDs are ignored
+     * @return contents keyed by attachment ID; missing or empty attachments are absent
+     */
+    public Map<String, AttachmentContent> getContents(Collection<String> attachmentIds) {
+        Set<String> ids =
+                attachmentIds.stream().filter(StrUtil::isNotBlank).collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return contentCache.getAll(ids, this::loadContents);
+    }
+
+    private Map<String, AttachmentContent> loadContents(Set<? extends String> attachmentIds) {
+        Map<String, AttachmentContent> contents = new HashMap<>(attachmentIds.size());
+        for (ChatAttachment attachment :
+                chatAttachmentRepository.findByAttachmentIdIn(new ArrayList<>(attachmentIds))) {
+            if (StrUtil.isBlank(attachment.getBlobKey())
+                    && ArrayUtil.isEmpty(attachment.getData())) {
+                continue;
+            }
+            try {
+                contents.put(attachment.getAttachmentId(), toContent(attachment));
+            } catch (Exception e) {
+                log.warn("Failed to load attachment content: {}", attachment.getAttachmentId(), e);
+            }
+        }
+
+        log.debug("Loaded {}/{} attachments", contents.size(), attachmentIds.size());
+        return contents;
+    }
+
+    private AttachmentContent toContent(ChatAttachment attachment) throws Exception {
+        AttachmentContent.AttachmentContentBuilder builder =
+                AttachmentContent.builder()
+                        .attachmentId(attachment.getAttachmentId())
+                        .name(attachment.getName())
+                        .type(attachment.getType());
+
+        if (attachment.getType() == ChatAttachmentType.TEXT) {
+            String text;
+            try (InputStream in = chatAttachmentService.openAttachmentData(attachment)) {
+                text = IoUtil.read(in, StandardCharsets.UTF_8);
+            }
+            return builder.text(text).weight(text.length()).build();
+        }
+
+        // Encode to pure Base64 string (no data URL prefix) while streaming from storage
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (InputStream in = chatAttachmentService.openAttachmentData(attachment);
+                OutputStream out = Base64.getEncoder().wrap(buffer)) {
+            IoUtil.copy(in, out);
+        }
+        String base64Data = buffer.toString(StandardCharsets.ISO_8859_1);
+
+        // Use default mime type if not specified
+        String mediaType =
+                StrUtil.isBlank(attachment.getMimeType())
+                        ? "application/octet-stream"
+                        : attachment.getMimeType();
+
+        return builder.source(Base64Source.builder().data(base64Data).mediaType(mediaType).build())
+                .weight(base64Data.length())
+                .build();
+    }
+}
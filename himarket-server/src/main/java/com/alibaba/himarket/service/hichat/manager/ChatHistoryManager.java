@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.hichat.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.himarket.entity.Chat;
+import com.alibaba.himarket.repository.ChatRepository;
+import com.alibaba.himarket.support.chat.ChatHistoryItem;
+import com.alibaba.himarket.support.enums.ChatStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps a bounded, per-session history window of the latest successful chat of each
+ * conversation, so building model history does not reload the whole session.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChatHistoryManager {
+
+    /**
+     * Max conversation pairs replayed to the model.
+     */
+    public static final int MAX_HISTORY_PAIRS = 10;
+
+    /**
+     * One extra conversation is kept because the current conversation is excluded when reading.
+     */
+    private static final int WINDOW_CAPACITY = MAX_HISTORY_PAIRS + 1;
+
+    private final ChatRepository chatRepository;
+
+    /**
+     * Key: sessionId:productId. Each read checks the window against the latest chat ID in the
+     * database, so chats completed on other replicas are never missed.
+     */
+    private final Cache<String, HistoryWindow> windowCache =
+            Caffeine.newBuilder().maximumSize(1000).expireAfterAccess(10, TimeUnit.MINUTES).build();
+
+    /**
+     * List history items of the session, oldest first
+     *
+     * @param sessionId session ID
+     * @param productId product ID
+     * @param excludeConversationId conversation to exclude, usually the current one
+     * @return at most {@link #MAX_HISTORY_PAIRS} history items
+     */
+    public List<ChatHistoryItem> listHistory(
+            String sessionId, String productId, String excludeConversationId) {
+        String cacheKey = buildCacheKey(sessionId, productId);
+        Long latestChatId =
+                chatRepository.findLatestChatId(sessionId, productId, ChatStatus.SUCCESS);
+
+        HistoryWindow window = windowCache.getIfPresent(cacheKey);
+        if (window == null || !window.covers(latestChatId)) {
+            window = loadWindow(sessionId, productId);
+            windowCache.put(cacheKey, window);
+        }
+        return window.snapshot(excludeConversationId);
+    }
+
+    /**
+     * Append a finished chat to the session window if it is eligible as history
+     *
+     * @param chat the chat whose result has been persisted
+     */
+    public void append(Chat chat) {
+        if (chat.getStatus() != ChatStatus.SUCCESS) {
+            return;
+        }
+
+        String cacheKey = buildCacheKey(chat.getSessionId(), chat.getProductId());
+        HistoryWindow window = windowCache.getIfPresent(cacheKey);
+        if (window == null) {
+            // Drop a window that may be loading concurrently without this chat
+            windowCache.invalidate(cacheKey);
+            return;
+        }
+
+        if (!isEligible(chat.getQuestion(), chat.getAnswer())) {
+            // Not replayed, but the window is still current up to this chat
+            window.seen(chat.getId());
+            return;
+        }
+
+        window.put(
+                ChatHistoryItem.builder()
+                        .id(chat.getId())
+                        .chatId(chat.getChatId())
+                        .conversationId(chat.getConversationId())
+                        .question(chat.getQuestion())
+                        .attachments(chat.getAttachments())
+                        .answer(chat.getAnswer())
+                        .createAt(chat.getCreateAt())
+                        .build());
+    }
+
+    /**
+     * Evict all windows of the session
+     *
+     * @param sessionId session ID
+     */
+    public void evictSession(String sessionId) {
+        String prefix = sessionId + ":";
+        windowCache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private HistoryWindow loadWindow(String sessionId, String productId) {
+        List<Long> chatIds =
+                chatRepository.findLatestChatIdPerConversation(
+                        sessionId,
+                        productId,
+                        ChatStatus.SUCCESS,
+                        PageRequest.of(0, WINDOW_CAPACITY));
+
+        HistoryWindow window = new HistoryWindow();
+        if (CollUtil.isNotEmpty(chatIds)) {
+            // The first ID is the latest chat of the session, whether or not it is replayed
+            window.seen(chatIds.get(0));
+            chatRepository.findHistoryItemsByIdIn(chatIds).stream()
+                    .filter(item -> isEligible(item.getQuestion(), item.getAnswer()))
+                    .forEach(window::put);
+        }
+
+        log.debug(
+                "Loaded history window with {} conversations for session: {}",
+                chatIds.size(),
+                sessionId);
+        return window;
+    }
+
+    /**
+     * Chats with a blank question or answer are not replayed to the model.
+     */
+    private static boolean isEligible(String question, String answer) {
+        return StrUtil.isNotBlank(question) && StrUtil.isNotBlank(answer);
+    }
+
+    private String buildCacheKey(String sessionId, String productId) {
+        return sessionId + ":" + productId;
+    }
+
+    /**
+     * Latest chat per conversation in chronological order, capped at {@link #WINDOW_CAPACITY}.
+     */
+    private static class HistoryWindow {
+
+        private final LinkedHashMap<String, ChatHistoryItem> items = new LinkedHashMap<>();
+
+        private long latestId;
+
+        /**
+         * Whether the window contains the given latest chat. A window ahead of the database (chat
+         * appended locally before its write committed) is also current.
+         */
+        synchronized boolean covers(Long latestChatId) {
+            return latestChatId == null || latestId >= latestChatId;
+        }
+
+        synchronized void seen(Long id) {
+            if (id != null) {
+                latestId = Math.max(latestId, id);
+            }
+        }
+
+        synchronized void put(ChatHistoryItem item) {
+            seen(item.getId());
+            // Re-insert so the conversation moves to the newest position
+            items.remove(item.getConversationId());
+            items.put(item.getConversationId(), item);
+
+            while (items.size() > WINDOW_CAPACITY) {
+                items.remove(items.keySet().iterator().next());
+            }
+        }
+
+        synchronized List<ChatHistoryItem> snapshot(String excludeConversationId) {
+            List<ChatHistoryItem> result = new ArrayList<>(items.size());
+            for (ChatHistoryItem item : items.values()) {
+                if (!StrUtil.equals(item.getConversationId(), excludeConversationId)) {
+                    result.add(item);
+                }
+            }
+            return result.size() > MAX_HISTORY_PAIRS
+                    ? result.subList(result.size() - MAX_HISTORY_PAIRS, result.size())
+                    : result;
+        }
+    }
+}
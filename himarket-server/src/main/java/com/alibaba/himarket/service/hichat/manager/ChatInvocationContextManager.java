@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.hichat.manager;
+
+import com.alibaba.himarket.core.event.ConsumerChangedEvent;
+import com.alibaba.himarket.core.event.DeveloperDeletingEvent;
+import com.alibaba.himarket.core.event.ProductConfigReloadEvent;
+import com.alibaba.himarket.core.event.ProductDeletingEvent;
+import com.alibaba.himarket.core.exception.BusinessException;
+import com.alibaba.himarket.core.security.ContextHolder;
+import com.alibaba.himarket.dto.result.consumer.CredentialContext;
+import com.alibaba.himarket.dto.result.product.ProductRefResult;
+import com.alibaba.himarket.dto.result.product.ProductResult;
+import com.alibaba.himarket.dto.result.product.SubscriptionResult;
+import com.alibaba.himarket.service.ConsumerService;
+import com.alibaba.himarket.service.ProductService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Caches what a chat needs before it can stream: the developer's primary consumer, credential
+ * and subscriptions, and the resolved product with its ref. Entries are evicted by consumer,
+ * developer and product events; the TTLs bound staleness for changes made on other replicas or
+ * not covered by an event (e.g. publishing or unpublishing a product).
+ *
+ * <p>Evictions run after the triggering transaction commits, and a value loaded concurrently with
+ * an eviction is not cached, so a reader cannot put back state that predates the change.
+ *
+ * <p>Cached values are shared across requests and must be treated as read-only.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChatInvocationContextManager {
+
+    private final ContextHolder contextHolder;
+
+    private final ConsumerService consumerService;
+
+    private final ProductService productService;
+
+    /**
+     * Key: developerId
+     */
+    private final Cache<String, DeveloperContext> developerContexts =
+            Caffeine.newBuilder().maximumSize(10000).expireAfterWrite(5, TimeUnit.MINUTES).build();
+
+    /**
+     * Key: scope:productId, where scope is the portal (or admin) the product is visible to
+     */
+    private final Cache<String, ProductContext> productContexts =
+            Caffeine.newBuilder().maximumSize(10000).expireAfterWrite(1, TimeUnit.MINUTES).build();
+
+    /**
+     * Key: productId, MCP products resolved without portal scope
+     */
+    private final Cache<String, ProductResult> mcpProducts =
+            Caffeine.newBuilder().maximumSize(10000).expireAfterWrite(1, TimeUnit.MINUTES).build();
+
+    /**
+     * Bumped before every eviction. A value loaded while the generation changed may predate the
+     * evicting change and is not cached.
+     */
+    private final AtomicLong developerGeneration = new AtomicLong();
+
+    private final AtomicLong productGeneration = new AtomicLong();
+
+    /**
+     * Get the invocation context of the current developer
+     *
+     * @return developer context, with a null consumer if the developer has none
+     */
+    public DeveloperContext getDeveloperContext() {
+        String developerId = contextHolder.getUser();
+        DeveloperContext context = developerContexts.getIfPresent(developerId);
+        if (context == null) {
+            // Not loaded inside the cache, loading may publish events that evict entries
+            long generation = developerGeneration.get();
+            context = loadDeveloperContext(developerId);
+            putIfNotEvicted(
+                    developerContexts, developerGeneration, generation, developerId, context);
+        }
+        return context;
+    }
+
+    /**
+     * Get a product visible to the current user with its ref
+     *
+     * @param productId product ID
+     * @return product context
+     */
+    public ProductContext getProductContext(String productId) {
+        String scope = contextHolder.isAdministrator() ? "admin" : contextHolder.getPortal();
+        String cacheKey = scope + ":" + productId;
+
+        ProductContext context = productContexts.getIfPresent(cacheKey);
+        if (context == null) {
+            long generation = productGeneration.get();
+            context =
+                    new ProductContext(
+                            productService.getProduct(productId),
+                            productService.getProductRef(productId));
+            putIfNotEvicted(productContexts, productGeneration, generation, cacheKey, context);
+        }
+        return context;
+    }
+
+    /**
+     * Get MCP products, loading all misses with one call
+     *
+     * @param productIds product IDs
+     * @return found products keyed by product ID
+     */
+    public Map<String, ProductResult> getMcpProducts(List<String> productIds) {
+        Map<String, ProductResult> products = new HashMap<>(mcpProducts.getAllPresent(productIds));
+        List<String> missing = productIds.stream().filter(id -> !products.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            long generation = productGeneration.get();
+            Map<String, ProductResult> loaded = productService.getProducts(missing);
+            loaded.forEach(
+                    (productId, product) ->
+                            putIfNotEvicted(
+                                    mcpProducts,
+                                    productGeneration,
+                                    generation,
+                                    productId,
+                                    product));
+            products.putAll(loaded);
+        }
+        return products;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onConsumerChanged(ConsumerChangedEvent event) {
+        developerGeneration.incrementAndGet();
+        if (event.getDeveloperId() != null) {
+            developerContexts.invalidate(event.getDeveloperId());
+        }
+        developerContexts
+                .asMap()
+                .values()
+                .removeIf(c -> Objects.equals(c.primaryConsumerId(), event.getConsumerId()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDeveloperDeletion(DeveloperDeletingEvent event) {
+        developerGeneration.incrementAndGet();
+        developerContexts.invalidate(event.getDeveloperId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductConfigReload(ProductConfigReloadEvent event) {
+        evictProduct(event.getProductId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductDeletion(ProductDeletingEvent event) {
+        evictProduct(event.getProductId());
+        // Subscriptions of the product are removed as well
+        developerGeneration.incrementAndGet();
+        developerContexts
+                .asMap()
+                .values()
+                .removeIf(c -> c.subscribedProductIds().contains(event.getProductId()));
+    }
+
+    private void evictProduct(String productId) {
+        productGeneration.incrementAndGet();
+        String suffix = ":" + productId;
+        productContexts.asMap().keySet().removeIf(key -> key.endsWith(suffix));
+        mcpProducts.invalidate(productId);
+    }
+
+    /**
+     * Cache a loaded value unless an eviction ran since the load started. The generation is
+     * checked inside compute, so an eviction either prevents the put or removes the value after
+     * it.
+     */
+    private static <V> void putIfNotEvicted(
+            Cache<String, V> cache, AtomicLong generation, long loadedAt, String key, V value) {
+        cache.asMap().compute(key, (k, current) -> generation.get() == loadedAt ? value : current);
+    }
+
+    private DeveloperContext loadDeveloperContext(String developerId) {
+        String consumerId;
+        try {
+            consumerId = consumerService.getPrimaryConsumer(developerId).getConsumerId();
+        } catch (BusinessException e) {
+            log.debug("No consumer found for developer: {}", developerId);
+            return new DeveloperContext(null, CredentialContext.builder().build(), Set.of());
+        }
+
+        Set<String> subscribedProductIds =
+                consumerService.listConsumerSubscriptions(consumerId).stream()
+                        .map(SubscriptionResult::getProductId)
+                        .collect(Collectors.toUnmodifiableSet());
+
+        return new DeveloperContext(
+                consumerId,
+                consumerService.getConsumerCredential(consumerId),
+                subscribedProductIds);
+    }
+
+    /**
+     * Chat related state of a developer
+     *
+     * @param primaryConsumerId primary consumer, null if the developer has no consumer
+     * @param credential credential of the primary consumer, never null
+     * @param subscribedProductIds products subscribed by the primary consumer
+     */
+    public record DeveloperContext(
+            String primaryConsumerId,
+            CredentialContext credential,
+            Set<String> subscribedProductIds) {}
+
+    /**
+     * Resolved product and its ref
+     *
+     * @param product product with filled configs
+     * @param productRef product ref, null if the product is not linked
+     */
+    public record ProductContext(ProductResult product, ProductRefResult productRef) {}
+}
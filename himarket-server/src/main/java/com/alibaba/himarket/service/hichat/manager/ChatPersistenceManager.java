@@ -0,0 +1,396 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.hichat.manager;
+
+import com.alibaba.himarket.dto.result.chat.LlmInvokeResult;
+import com.alibaba.himarket.entity.Chat;
+import com.alibaba.himarket.repository.ChatRepository;
+import com.alibaba.himarket.support.enums.ChatStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Write-behind persistence of chat records. Creating a chat and recording its result only enqueue
+ * the write, so request and streaming threads never wait for the database; a single writer thread
+ * drains the queue in batches and commits each batch in one transaction.
+ *
+ * <p>The writer assigns the sequence on insert and always inserts a fresh entity, so the caller's
+ * {@link Chat} is never modified and a batch can be retried after a rollback. An insert and the
+ * result of the same chat that land in the same batch are coalesced into a single insert.
+ *
+ * <p>Producers never block on a full queue: a new chat is then inserted on the calling request
+ * thread, and a result is handed to a boundedElastic thread that waits for space, so it is still
+ * written after the insert of its chat.
+ */
+@Slf4j
+@Component
+public class ChatPersistenceManager {
+
+    static final int QUEUE_CAPACITY = 10_000;
+
+    private static final int BATCH_SIZE = 100;
+
+    /**
+     * JDBC batch size of the writer session, applied to result updates only. Inserts use IDENTITY
+     * keys and are never batched by Hibernate.
+     */
+    private static final int JDBC_BATCH_SIZE = 50;
+
+    private static final long POLL_TIMEOUT_MS = 200;
+
+    private static final long SHUTDOWN_TIMEOUT_MS = 30_000;
+
+    private final ChatRepository chatRepository;
+
+    private final ChatHistoryManager chatHistoryManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final EntityManager entityManager;
+
+    private final BlockingQueue<ChatWrite> queue;
+
+    /**
+     * Sessions being deleted, whose writes are dropped. Kept long enough for in-flight chats of
+     * the session to finish.
+     */
+    private final Cache<String, Boolean> cancelledSessions =
+            Caffeine.newBuilder()
+                    .maximumSize(10_000)
+                    .expireAfterWrite(10, TimeUnit.MINUTES)
+                    .build();
+
+    /**
+     * Held while a batch is written, so a session cancellation can wait for the batch in flight.
+     */
+    private final Object flushLock = new Object();
+
+    private final Counter backpressureCounter;
+
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    @Autowired
+    public ChatPersistenceManager(
+            ChatRepository chatRepository,
+            ChatHistoryManager chatHistoryManager,
+            PlatformTransactionManager transactionManager,
+            EntityManager entityManager,
+            MeterRegistry meterRegistry) {
+        this(
+                chatRepository,
+                chatHistoryManager,
+                transactionManager,
+                entityManager,
+                meterRegistry,
+                QUEUE_CAPACITY);
+    }
+
+    ChatPersistenceManager(
+            ChatRepository chatRepository,
+            ChatHistoryManager chatHistoryManager,
+            PlatformTransactionManager transactionManager,
+            EntityManager entityManager,
+            MeterRegistry meterRegistry,
+            int queueCapacity) {
+        this.chatRepository = chatRepository;
+        this.chatHistoryManager = chatHistoryManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.backpressureCounter =
+                Counter.builder("chat.persistence.backpressure")
+                        .description("Chat writes that found the queue full")
+                        .register(meterRegistry);
+        meterRegistry.gaugeCollectionSize("chat.persistence.queue.size", List.of(), queue);
+
+        this.writer = new Thread(this::runWriter, "chat-persistence-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Start the writer thread. Until then writes are made on the calling thread.
+     */
+    @PostConstruct
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * Enqueue insertion of a new chat. Its sequence is assigned when it is written. Called on the
+     * request thread, which writes the chat itself when the queue is full.
+     *
+     * @param chat the new chat
+     */
+    public void create(Chat chat) {
+        ChatWrite write = new ChatWrite(chat.getChatId(), chat.getSessionId(), chat, null);
+        if (!offer(write)) {
+            backpressureCounter.increment();
+            flush(List.of(write));
+        }
+    }
+
+    /**
+     * Record the final result of a chat. The chat is appended to the history window right away so
+     * the next turn sees it, and the write is enqueued without blocking the calling thread.
+     *
+     * @param chat the chat passed to {@link #create}
+     * @param result the LLM invocation result
+     */
+    public void saveResult(Chat chat, LlmInvokeResult result) {
+        Chat finished = newEntity(chat);
+        applyResult(finished, result);
+        chatHistoryManager.append(finished);
+
+        ChatWrite write = new ChatWrite(chat.getChatId(), chat.getSessionId(), null, result);
+        if (!offer(write)) {
+            // Wait for space off the calling (event loop) thread, keeping the write after the
+            // insert
+            backpressureCounter.increment();
+            Schedulers.boundedElastic().schedule(() -> put(write));
+        }
+    }
+
+    /**
+     * Drop queued writes of a session that is being deleted, and wait until the batch being
+     * written has been committed, so no chat of the session is inserted after this returns.
+     *
+     * @param sessionId the session ID
+     */
+    public void cancelSession(String sessionId) {
+        cancelledSessions.put(sessionId, Boolean.TRUE);
+        queue.removeIf(write -> sessionId.equals(write.sessionId()));
+        synchronized (flushLock) {
+            // Batches started from now on skip the session
+        }
+    }
+
+    /**
+     * Flush everything still queued and stop the writer
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            writer.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!queue.isEmpty()) {
+            // Writer is stuck or gone, flush the rest on the shutdown thread
+            List<ChatWrite> remaining = new ArrayList<>(queue.size());
+            queue.drainTo(remaining);
+            flush(remaining);
+        }
+        log.info("Chat persistence writer stopped");
+    }
+
+    private boolean offer(ChatWrite write) {
+        return writer.isAlive() && queue.offer(write);
+    }
+
+    private void put(ChatWrite write) {
+        try {
+            while (writer.isAlive()) {
+                if (queue.offer(write, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Writer has stopped, write on this thread
+        flush(List.of(write));
+    }
+
+    private void runWriter() {
+        List<ChatWrite> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                ChatWrite first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Unexpected error in chat persistence writer", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<ChatWrite> writes) {
+        synchronized (flushLock) {
+            // Coalesce writes of the same chat, keeping the enqueue order
+            Map<String, PendingChat> pendingChats = new LinkedHashMap<>();
+            for (ChatWrite write : writes) {
+                if (write.sessionId() != null
+                        && cancelledSessions.getIfPresent(write.sessionId()) != null) {
+                    continue;
+                }
+                pendingChats.computeIfAbsent(write.chatId(), PendingChat::new).merge(write);
+            }
+            if (pendingChats.isEmpty()) {
+                return;
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> persist(pendingChats.values()));
+            } catch (Exception e) {
+                if (pendingChats.size() == 1) {
+                    log.error("Failed to persist chat: {}", writes.get(0).chatId(), e);
+                    return;
+                }
+
+                // Isolate the failing record so the rest of the batch is not lost
+                log.warn(
+                        "Failed to persist {} chats as a batch, retrying one by one",
+                        pendingChats.size());
+                for (PendingChat pendingChat : pendingChats.values()) {
+                    try {
+                        transactionTemplate.executeWithoutResult(
+                                status -> persist(List.of(pendingChat)));
+                    } catch (Exception ex) {
+                        log.error("Failed to persist chat: {}", pendingChat.chatId, ex);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Persist the pending chats in the current transaction. Inserts always use a fresh entity, so
+     * a retry after a rollback does not reuse a primary key assigned by the failed attempt.
+     */
+    private void persist(Collection<PendingChat> pendingChats) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(JDBC_BATCH_SIZE);
+        Map<String, LlmInvokeResult> updates = new LinkedHashMap<>();
+
+        for (PendingChat pendingChat : pendingChats) {
+            if (pendingChat.chat == null) {
+                if (pendingChat.result != null) {
+                    updates.put(pendingChat.chatId, pendingChat.result);
+                }
+                continue;
+            }
+
+            // Sequence represents the number of tries for this question
+            Chat chat = newEntity(pendingChat.chat);
+            Integer sequence =
+                    chatRepository.findCurrentSequence(
+                            chat.getSessionId(),
+                            chat.getConversationId(),
+                            chat.getQuestionId(),
+                            chat.getProductId());
+            chat.setSequence(sequence + 1);
+            if (pendingChat.result != null) {
+                applyResult(chat, pendingChat.result);
+            }
+            chatRepository.save(chat);
+        }
+
+        if (!updates.isEmpty()) {
+            List<Chat> chats = chatRepository.findByChatIdIn(updates.keySet());
+            chats.forEach(chat -> applyResult(chat, updates.get(chat.getChatId())));
+            chatRepository.saveAll(chats);
+        }
+    }
+
+    /**
+     * Copy the request fields of a chat into a new, unsaved entity
+     */
+    private static Chat newEntity(Chat chat) {
+        return Chat.builder()
+                .chatId(chat.getChatId())
+                .sessionId(chat.getSessionId())
+                .userId(chat.getUserId())
+                .conversationId(chat.getConversationId())
+                .status(chat.getStatus())
+                .productId(chat.getProductId())
+                .questionId(chat.getQuestionId())
+                .question(chat.getQuestion())
+                .attachments(chat.getAttachments())
+                .answerId(chat.getAnswerId())
+                .build();
+    }
+
+    private static void applyResult(Chat chat, LlmInvokeResult result) {
+        chat.setAnswer(result.getAnswer());
+        chat.setStatus(result.isSuccess() ? ChatStatus.SUCCESS : ChatStatus.FAILED);
+        chat.setChatUsage(result.getUsage());
+        chat.setToolCalls(result.getToolCalls());
+    }
+
+    /**
+     * A queued write: either the insertion of a new chat or the result of an existing one.
+     */
+    private record ChatWrite(String chatId, String sessionId, Chat chat, LlmInvokeResult result) {}
+
+    private static class PendingChat {
+
+        private final String chatId;
+
+        private Chat chat;
+
+        private LlmInvokeResult result;
+
+        PendingChat(String chatId) {
+            this.chatId = chatId;
+        }
+
+        void merge(ChatWrite write) {
+            if (write.chat() != null) {
+                chat = write.chat();
+            }
+            if (write.result() != null) {
+                result = write.result();
+            }
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.hichat.manager;
+
+import com.alibaba.himarket.config.ChatStreamConfig;
+import com.alibaba.himarket.service.hichat.support.ChatEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscription;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Coalesces consecutive ASSISTANT/THINKING chunks of a chat stream into fewer SSE frames.
+ *
+ * <p>Text chunks are held for at most the configured window, or until the merged content reaches
+ * the size limit, whichever comes first. Any other event (TOOL_CALL, TOOL_RESULT, ERROR, DONE)
+ * flushes the pending text and is emitted immediately, so ordering is preserved and control
+ * events are never delayed.
+ *
+ * <p>Upstream events are pulled one at a time and only while the subscriber has outstanding
+ * demand, so a slow client backpressures the model stream instead of letting frames pile up in
+ * the sink. At most the pending text plus one control event are buffered beyond the demand.
+ *
+ * <p>Per-chat input chunks, output frames and payload bytes are recorded as distribution
+ * summaries ({@code chat.stream.chunks}, {@code chat.stream.frames}, {@code chat.stream.bytes}).
+ */
+@Slf4j
+@Component
+public class ChatStreamCoalescer {
+
+    private final ChatStreamConfig chatStreamConfig;
+
+    private final Scheduler timer = Schedulers.parallel();
+
+    private final DistributionSummary chunksSummary;
+
+    private final DistributionSummary framesSummary;
+
+    private final DistributionSummary bytesSummary;
+
+    public ChatStreamCoalescer(ChatStreamConfig chatStreamConfig, MeterRegistry meterRegistry) {
+        this.chatStreamConfig = chatStreamConfig;
+        this.chunksSummary =
+                DistributionSummary.builder("chat.stream.chunks")
+                        .description("Events produced by the model per chat")
+                        .register(meterRegistry);
+        this.framesSummary =
+                DistributionSummary.builder("chat.stream.frames")
+                        .description("SSE frames sent per chat")
+                        .register(meterRegistry);
+        this.bytesSummary =
+                DistributionSummary.builder("chat.stream.bytes")
+                        .description("UTF-8 text payload bytes sent per chat")
+                        .baseUnit("bytes")
+                        .register(meterRegistry);
+    }
+
+    /**
+     * Apply coalescing (when enabled) and frame accounting to a chat event stream
+     *
+     * @param chatId chat ID, used for logging
+     * @param events events produced by the LLM service
+     * @return the events to send to the client
+     */
+    public Flux<ChatEvent> apply(String chatId, Flux<ChatEvent> events) {
+        if (!chatStreamConfig.isCoalesceEnabled()) {
+            return Flux.defer(
+                    () -> {
+                        StreamStats stats = new StreamStats();
+                        return events.doOnNext(
+                                        event -> {
+                                            stats.chunks++;
+                                            stats.record(event);
+                                        })
+                                .doFinally(signal -> report(chatId, stats));
+                    });
+        }
+
+        return Flux.create(
+                sink -> {
+                    Coalescer coalescer =
+                            new Coalescer(
+                                    sink,
+                                    chatStreamConfig.getCoalesceWindow(),
+                                    chatStreamConfig.getCoalesceMaxChars());
+                    sink.onRequest(n -> coalescer.requestUpstream());
+                    sink.onDispose(
+                            () -> {
+                                coalescer.dispose();
+                                coalescer.cancelTimer();
+                                report(chatId, coalescer.stats);
+                            });
+                    events.subscribe(coalescer);
+                });
+    }
+
+    private void report(String chatId, StreamStats stats) {
+        chunksSummary.record(stats.chunks);
+        framesSummary.record(stats.frames);
+        bytesSummary.record(stats.bytes);
+        log.debug(
+                "Chat stream finished, chatId: {}, chunks: {}, frames: {}, bytes: {}",
+                chatId,
+                stats.chunks,
+                stats.frames,
+                stats.bytes);
+    }
+
+    private static boolean isMergeable(ChatEvent event) {
+        return (event.getType() == ChatEvent.EventType.ASSISTANT
+                        || event.getType() == ChatEvent.EventType.THINKING)
+                && event.getContent() instanceof String;
+    }
+
+    /**
+     * UTF-8 encoded length without encoding the string
+     */
+    private static long utf8Length(CharSequence s) {
+        long length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static class StreamStats {
+
+        private long chunks;
+
+        private long frames;
+
+        private long bytes;
+
+        void record(ChatEvent event) {
+            frames++;
+            if (event.getContent() instanceof String content) {
+                bytes += utf8Length(content);
+            }
+        }
+    }
+
+    /**
+     * Per-subscription coalescing state. Upstream signals, demand changes and timer flushes are
+     * serialized by synchronizing on this instance.
+     */
+    private class Coalescer extends BaseSubscriber<ChatEvent> {
+
+        private final FluxSink<ChatEvent> sink;
+
+        private final long windowNanos;
+
+        private final int maxChars;
+
+        private final StreamStats stats = new StreamStats();
+
+        private final StringBuilder pending = new StringBuilder();
+
+        private ChatEvent.EventType pendingType;
+
+        private String pendingChatId;
+
+        private Disposable flushTimer;
+
+        /**
+         * An upstream request(1) has not been answered yet
+         */
+        private boolean upstreamRequested;
+
+        private boolean requesting;
+
+        private boolean missedRequest;
+
+        Coalescer(FluxSink<ChatEvent> sink, Duration window, int maxChars) {
+            this.sink = sink;
+            this.windowNanos = window.toNanos();
+            this.maxChars = maxChars;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            requestUpstream();
+        }
+
+        @Override
+        protected synchronized void hookOnNext(ChatEvent event) {
+            upstreamRequested = false;
+            stats.chunks++;
+            if (!isMergeable(event)) {
+                flush();
+                emit(event);
+            } else {
+                merge(event);
+            }
+            requestUpstream();
+        }
+
+        @Override
+        protected synchronized void hookOnError(Throwable error) {
+            flush();
+            sink.error(error);
+        }
+
+        @Override
+        protected synchronized void hookOnComplete() {
+            flush();
+            sink.complete();
+        }
+
+        /**
+         * Pull the next upstream event if downstream still has demand. A call made while already
+         * requesting (a synchronous upstream answering inside request) is folded into the outer
+         * loop instead of recursing.
+         */
+        synchronized void requestUpstream() {
+            if (requesting) {
+                missedRequest = true;
+                return;
+            }
+            requesting = true;
+            try {
+                do {
+                    missedRequest = false;
+                    if (!upstreamRequested
+                            && upstream() != null
+                            && !isDisposed()
+                            && sink.requestedFromDownstream() > 0) {
+                        upstreamRequested = true;
+                        request(1);
+                    }
+                } while (missedRequest);
+            } finally {
+                requesting = false;
+            }
+        }
+
+        private void merge(ChatEvent event) {
+            if (pendingType != null && pendingType != event.getType()) {
+                flush();
+            }
+
+            if (pendingType == null) {
+                pendingType = event.getType();
+                pendingChatId = event.getChatId();
+                flushTimer = timer.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+            }
+            pending.append((String) event.getContent());
+
+            if (pending.length() >= maxChars) {
+                flush();
+            }
+        }
+
+        synchronized void flush() {
+            if (pendingType == null) {
+                return;
+            }
+            cancelTimer();
+
+            String content = pending.toString();
+            emit(
+                    pendingType == ChatEvent.EventType.THINKING
+                            ? ChatEvent.thinking(pendingChatId, content)
+                            : ChatEvent.text(pendingChatId, content));
+
+            pending.setLength(0);
+            pendingType = null;
+            pendingChatId = null;
+        }
+
+        synchronized void cancelTimer() {
+            if (flushTimer != null) {
+                flushTimer.dispose();
+                flushTimer = null;
+            }
+        }
+
+        private void emit(ChatEvent event) {
+            stats.record(event);
+            sink.next(event);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.hichat.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.BooleanUtil;
+import com.alibaba.himarket.core.event.ProductConfigReloadEvent;
+import com.alibaba.himarket.dto.result.consumer.CredentialContext;
+import com.alibaba.himarket.dto.result.mcp.McpConfigResult;
+import com.alibaba.himarket.entity.Consumer;
+import com.alibaba.himarket.entity.Product;
+import com.alibaba.himarket.entity.ProductRef;
+import com.alibaba.himarket.entity.ProductSubscription;
+import com.alibaba.himarket.repository.ConsumerRepository;
+import com.alibaba.himarket.repository.ProductRefRepository;
+import com.alibaba.himarket.repository.ProductRepository;
+import com.alibaba.himarket.repository.SubscriptionRepository;
+import com.alibaba.himarket.service.ConsumerService;
+import com.alibaba.himarket.support.chat.mcp.McpTransportConfig;
+import com.alibaba.himarket.support.enums.ProductType;
+import com.alibaba.himarket.support.enums.SubscriptionStatus;
+import com.alibaba.himarket.utils.JsonUtil;
+import jakarta.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Prewarms the {@link ToolManager} client pool so that the MCP handshake is not part of the first
+ * chat message.
+ *
+ * <p>Chats connect with the credential of the developer's primary consumer, so for each MCP
+ * product a client is initialized per distinct credential of its approved primary-consumer
+ * subscriptions. This runs at startup, whenever a product config reload is triggered, and
+ * periodically to keep the prewarmed clients from expiring.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class McpClientPrewarmer {
+
+    /**
+     * Upper bound of clients prewarmed per product, to keep startup load on MCP servers bounded
+     */
+    private static final int MAX_CLIENTS_PER_PRODUCT = 50;
+
+    private final ToolManager toolManager;
+
+    private final ProductRepository productRepository;
+
+    private final ProductRefRepository productRefRepository;
+
+    private final SubscriptionRepository subscriptionRepository;
+
+    private final ConsumerRepository consumerRepository;
+
+    private final ConsumerService consumerService;
+
+    @Resource(name = "taskExecutor")
+    private Executor taskExecutor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Async("taskExecutor")
+    public void prewarmAll() {
+        prewarmProducts("prewarmed");
+    }
+
+    /**
+     * Re-run the prewarm at half of the {@link ToolManager} idle expiry. Lookups of pooled clients
+     * count as access, so prewarmed clients are never evicted as idle, and clients dropped for
+     * any other reason are recreated off the chat path.
+     */
+    @Scheduled(initialDelay = 300_000, fixedDelay = 300_000)
+    public void refresh() {
+        prewarmProducts("refreshed");
+    }
+
+    private void prewarmProducts(String action) {
+        long startTime = System.currentTimeMillis();
+        List<Product> products = productRepository.findAllByType(ProductType.MCP_SERVER);
+
+        // Products are independent, initialize them in parallel
+        List<CompletableFuture<Integer>> futures =
+                products.stream()
+                        .map(
+                                product ->
+                                        CompletableFuture.supplyAsync(
+                                                () -> prewarm(product.getProductId()),
+                                                taskExecutor))
+                        .toList();
+        int clients = futures.stream().mapToInt(CompletableFuture::join).sum();
+
+        log.info(
+                "MCP client pool {}: {} clients for {} products, total time: {}ms",
+                action,
+                clients,
+                products.size(),
+                System.currentTimeMillis() - startTime);
+    }
+
+    @EventListener
+    @Async("taskExecutor")
+    public void onProductConfigReload(ProductConfigReloadEvent event) {
+        String productId = event.getProductId();
+        boolean isMcpServer =
+                productRepository
+                        .findByProductId(productId)
+                        .map(product -> product.getType() == ProductType.MCP_SERVER)
+                        .orElse(false);
+        if (isMcpServer) {
+            prewarm(productId);
+        }
+    }
+
+    /**
+     * Initialize clients of a product for all subscribed credentials
+     *
+     * @param productId product ID
+     * @return number of clients ready in the pool
+     */
+    private int prewarm(String productId) {
+        try {
+            McpConfigResult mcpConfig =
+                    productRefRepository
+                            .findFirstByProductId(productId)
+                            .map(ProductRef::getMcpConfig)
+                            .map(config -> JsonUtil.parse(config, McpConfigResult.class))
+                            .orElse(null);
+            if (mcpConfig == null || mcpConfig.toTransportConfig() == null) {
+                return 0;
+            }
+
+            Set<String> consumerIds =
+                    subscriptionRepository.findAllByProductId(productId).stream()
+                            .filter(s -> s.getStatus() == SubscriptionStatus.APPROVED)
+                            .map(ProductSubscription::getConsumerId)
+                            .collect(Collectors.toSet());
+            if (CollUtil.isEmpty(consumerIds)) {
+                return 0;
+            }
+
+            // Deduplicate by pool key, consumers sharing a credential share one client
+            Map<String, McpTransportConfig> configs = new LinkedHashMap<>();
+            for (Consumer consumer : consumerRepository.findByConsumerIdIn(consumerIds)) {
+                if (!BooleanUtil.isTrue(consumer.getIsPrimary())) {
+                    continue;
+                }
+                CredentialContext credential =
+                        consumerService.getConsumerCredential(consumer.getConsumerId());
+                McpTransportConfig config = mcpConfig.toTransportConfig();
+                config.setHeaders(credential.copyHeaders());
+                config.setQueryParams(credential.copyQueryParams());
+                configs.putIfAbsent(toolManager.buildCacheKey(config), config);
+
+                if (configs.size() >= MAX_CLIENTS_PER_PRODUCT) {
+                    break;
+                }
+            }
+
+            return toolManager.getOrCreateClients(List.copyOf(configs.values())).size();
+        } catch (Exception e) {
+            log.warn("Failed to prewarm MCP clients for product: {}", productId, e);
+            return 0;
+        }
+    }
+}
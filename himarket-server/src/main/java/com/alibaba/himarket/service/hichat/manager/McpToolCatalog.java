@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.hichat.manager;
+
+import static reactor.core.scheduler.Schedulers.boundedElastic;
+
+import cn.hutool.core.collection.CollUtil;
+import com.alibaba.himarket.dto.result.consumer.CredentialContext;
+import com.alibaba.himarket.dto.result.mcp.McpConfigResult;
+import com.alibaba.himarket.entity.Product;
+import com.alibaba.himarket.entity.ProductRef;
+import com.alibaba.himarket.repository.ProductRefRepository;
+import com.alibaba.himarket.repository.ProductRepository;
+import com.alibaba.himarket.service.GatewayService;
+import com.alibaba.himarket.support.enums.ProductType;
+import com.alibaba.himarket.support.enums.SourceType;
+import com.alibaba.himarket.utils.JsonUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.modelcontextprotocol.spec.McpSchema;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-memory catalog of MCP tool schemas per MCP product, so the portal never waits on a remote
+ * MCP server to list tools.
+ *
+ * <p>Entries are served stale while they are revalidated: a scheduled sweep re-fetches the tools
+ * of every MCP product in the background, and a product config reload pushes freshly fetched
+ * tools via {@link #refresh(ProductRef)}. A failed refresh keeps the previous tool list. Only a
+ * product missing from the catalog (e.g. created after the last sweep) is fetched on the calling
+ * thread; if that fetch fails, the product is not fetched again on demand for a short while.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class McpToolCatalog {
+
+    private static final int REFRESH_CONCURRENCY = 8;
+
+    private static final long FAILURE_TTL_SECONDS = 30;
+
+    private final ToolManager toolManager;
+
+    private final GatewayService gatewayService;
+
+    private final ProductRepository productRepository;
+
+    private final ProductRefRepository productRefRepository;
+
+    /**
+     * Key: productId. Only non-empty tool lists are cached.
+     */
+    private final Cache<String, List<McpSchema.Tool>> catalog =
+            Caffeine.newBuilder().maximumSize(10000).build();
+
+    /**
+     * Products whose last on-demand fetch failed, so an unreachable server is not hit on every
+     * request. Kept short, the scheduled sweep retries regardless.
+     */
+    private final Cache<String, Boolean> recentFailures =
+            Caffeine.newBuilder()
+                    .maximumSize(10000)
+                    .expireAfterWrite(FAILURE_TTL_SECONDS, TimeUnit.SECONDS)
+                    .build();
+
+    /**
+     * Get tools of an MCP product
+     *
+     * @param productId the product ID
+     * @return tools of the product, or {@code null} if none are available
+     */
+    public List<McpSchema.Tool> getTools(String productId) {
+        List<McpSchema.Tool> tools = catalog.getIfPresent(productId);
+        if (tools != null || recentFailures.getIfPresent(productId) != null) {
+            return tools;
+        }
+        // A null result is not cached, the failure is remembered briefly instead
+        return catalog.get(productId, this::load);
+    }
+
+    /**
+     * Fetch the tools of an MCP product from its server and update the catalog. Shared by the
+     * catalog refresh and the product config sync, so both resolve the transport config and the
+     * credential the same way.
+     *
+     * @param productRef the product reference holding the MCP config
+     * @return the fetched tools, or {@code null} if the server returned none or could not be
+     *     reached; the previous list is kept in that case
+     */
+    public List<McpSchema.Tool> refresh(ProductRef productRef) {
+        List<McpSchema.Tool> tools = fetchTools(productRef);
+        if (CollUtil.isEmpty(tools)) {
+            return null;
+        }
+        catalog.put(productRef.getProductId(), List.copyOf(tools));
+        recentFailures.invalidate(productRef.getProductId());
+        return tools;
+    }
+
+    /**
+     * Refresh the tools of all MCP products in the background
+     */
+    @Scheduled(initialDelay = 30_000, fixedDelay = 300_000)
+    public void refreshAll() {
+        try {
+            long startTime = System.currentTimeMillis();
+            Set<String> productIds =
+                    productRepository.findAllByType(ProductType.MCP_SERVER).stream()
+                            .map(Product::getProductId)
+                            .collect(Collectors.toSet());
+
+            // Drop products that no longer exist
+            catalog.asMap().keySet().retainAll(productIds);
+
+            Long refreshed =
+                    Flux.fromIterable(productIds)
+                            .flatMap(
+                                    productId ->
+                                            Mono.fromCallable(() -> refresh(productId))
+                                                    .subscribeOn(boundedElastic()),
+                                    REFRESH_CONCURRENCY)
+                            .filter(Boolean::booleanValue)
+                            .count()
+                            .block();
+
+            log.info(
+                    "MCP tool catalog refreshed: {}/{} products, total time: {}ms",
+                    refreshed,
+                    productIds.size(),
+                    System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("Unexpected error during MCP tool catalog refresh", e);
+        }
+    }
+
+    private boolean refresh(String productId) {
+        ProductRef productRef = productRefRepository.findFirstByProductId(productId).orElse(null);
+        return productRef != null && refresh(productRef) != null;
+    }
+
+    private List<McpSchema.Tool> load(String productId) {
+        List<McpSchema.Tool> tools =
+                productRefRepository
+                        .findFirstByProductId(productId)
+                        .map(this::fetchTools)
+                        .orElse(null);
+        if (CollUtil.isEmpty(tools)) {
+            recentFailures.put(productId, Boolean.TRUE);
+            return null;
+        }
+        return List.copyOf(tools);
+    }
+
+    private List<McpSchema.Tool> fetchTools(ProductRef productRef) {
+        McpConfigResult mcpConfig =
+                productRef.getMcpConfig() == null
+                        ? null
+                        : JsonUtil.parse(productRef.getMcpConfig(), McpConfigResult.class);
+        if (mcpConfig == null) {
+            return null;
+        }
+
+        // Tool schemas do not depend on the caller, use the credential of the product's route
+        CredentialContext credential = new CredentialContext();
+        if (productRef.getSourceType() == SourceType.GATEWAY) {
+            try {
+                credential =
+                        gatewayService.fetchApiCredential(
+                                productRef.getGatewayId(), ProductType.MCP_SERVER, productRef);
+            } catch (Exception e) {
+                log.warn(
+                        "Failed to fetch API credential for product {}: {}",
+                        productRef.getProductId(),
+                        e.getMessage());
+            }
+        }
+
+        return toolManager.fetchTools(mcpConfig, credential);
+    }
+}
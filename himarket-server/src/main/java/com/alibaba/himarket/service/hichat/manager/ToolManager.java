@@ -34,9 +34,12 @@ import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.RemovalCause;
 import io.agentscope.core.tool.mcp.McpClientBuilder;
 import io.agentscope.core.tool.mcp.McpClientWrapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.modelcontextprotocol.spec.McpSchema;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -55,7 +58,10 @@ public class ToolManager {
     private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
     private static final Duration INITIALIZE_TIMEOUT = Duration.ofSeconds(30);
 
-    // MCP client cache with removal listener (10 minutes = 600 seconds)
+    private final MeterRegistry meterRegistry;
+
+    // MCP client cache with removal listener (10 minutes = 600 seconds). Prewarmed clients are
+    // kept alive by McpClientPrewarmer, which refreshes them every 5 minutes
     private final Cache<String, McpClientWrapper> clientCache =
             CacheUtil.newLRUCache(10 * 60, this::onClientRemoved);
 
@@ -279,18 +285,19 @@ public class ToolManager {
 
             if (clientWrapper == null) {
                 log.error("Failed to build MCP client for server: {}", serverName);
+                recordInitLatency(config, startTime, false);
                 return null;
             }
 
             clientWrapper.initialize().timeout(INITIALIZE_TIMEOUT).block();
 
-            long totalTime = System.currentTimeMillis() - startTime;
+            long totalTime = recordInitLatency(config, startTime, true);
             log.info("MCP client created for server: {}, total time: {}ms", serverName, totalTime);
 
             return clientWrapper;
 
         } catch (Exception e) {
-            long totalTime = System.currentTimeMillis() - startTime;
+            long totalTime = recordInitLatency(config, startTime, false);
             log.error(
                     "Failed to create MCP client for server: {}, time: {}ms, error: {}",
                     serverName,
@@ -309,6 +316,23 @@ public class ToolManager {
         }
     }
 
+    /**
+     * Record MCP client build + initialize latency
+     *
+     * @return elapsed time in milliseconds
+     */
+    private long recordInitLatency(McpTransportConfig config, long startTime, boolean success) {
+        long totalTime = System.currentTimeMillis() - startTime;
+        Timer.builder("mcp.client.initialize")
+                .description("MCP client build and initialize handshake latency")
+                .tag("transport", String.valueOf(config.getTransportMode()))
+                .tag("outcome", success ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(totalTime, TimeUnit.MILLISECONDS);
+        return totalTime;
+    }
+
     /**
      * Build cache key from URL, headers and query params
      * Public method for use by other components (e.g. ChatBotManager)
@@ -18,9 +18,7 @@
  */
 package com.alibaba.himarket.service.hichat.service;
 
-import cn.hutool.core.codec.Base64;
 import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.util.ArrayUtil;
 import cn.hutool.core.util.StrUtil;
 import com.alibaba.himarket.core.event.ChatSessionDeletingEvent;
 import com.alibaba.himarket.core.exception.BusinessException;
@@ -28,34 +26,33 @@ import com.alibaba.himarket.core.exception.ErrorCode;
 import com.alibaba.himarket.core.security.ContextHolder;
 import com.alibaba.himarket.core.utils.IdGenerator;
 import com.alibaba.himarket.dto.params.chat.CreateChatParam;
-import com.alibaba.himarket.dto.result.chat.LlmInvokeResult;
 import com.alibaba.himarket.dto.result.consumer.CredentialContext;
-import com.alibaba.himarket.dto.result.product.ProductRefResult;
 import com.alibaba.himarket.dto.result.product.ProductResult;
-import com.alibaba.himarket.dto.result.product.SubscriptionResult;
 import com.alibaba.himarket.entity.Chat;
-import com.alibaba.himarket.entity.ChatAttachment;
 import com.alibaba.himarket.entity.ChatSession;
-import com.alibaba.himarket.repository.ChatAttachmentRepository;
 import com.alibaba.himarket.repository.ChatRepository;
 import com.alibaba.himarket.repository.McpServerEndpointRepository;
 import com.alibaba.himarket.repository.McpServerMetaRepository;
 import com.alibaba.himarket.service.*;
+import com.alibaba.himarket.service.hichat.manager.ChatAttachmentManager;
+import com.alibaba.himarket.service.hichat.manager.ChatHistoryManager;
+import com.alibaba.himarket.service.hichat.manager.ChatInvocationContextManager;
+import com.alibaba.himarket.service.hichat.manager.ChatPersistenceManager;
+import com.alibaba.himarket.service.hichat.manager.ChatStreamCoalescer;
+import com.alibaba.himarket.service.hichat.support.AttachmentContent;
 import com.alibaba.himarket.service.hichat.support.ChatEvent;
 import com.alibaba.himarket.service.hichat.support.InvokeModelParam;
+import com.alibaba.himarket.support.chat.ChatHistoryItem;
 import com.alibaba.himarket.support.chat.attachment.ChatAttachmentConfig;
 import com.alibaba.himarket.support.chat.mcp.McpTransportConfig;
 import com.alibaba.himarket.support.enums.ChatAttachmentType;
-import com.alibaba.himarket.support.enums.ChatStatus;
 import com.alibaba.himarket.support.enums.ProductType;
 import io.agentscope.core.message.*;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
-import org.springframework.data.domain.Sort;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -72,40 +69,35 @@ public class ChatService {
 
     private final ChatRepository chatRepository;
 
-    private final ChatAttachmentRepository chatAttachmentRepository;
-
     private final ContextHolder contextHolder;
 
-    private final ProductService productService;
-
-    private final ConsumerService consumerService;
-
     private final McpServerMetaRepository mcpServerMetaRepository;
 
     private final McpServerEndpointRepository mcpServerEndpointRepository;
 
+    private final ChatHistoryManager chatHistoryManager;
+
+    private final ChatAttachmentManager chatAttachmentManager;
+
+    private final ChatPersistenceManager chatPersistenceManager;
+
+    private final ChatStreamCoalescer chatStreamCoalescer;
+
+    private final ChatInvocationContextManager invocationContextManager;
+
     public Flux<ChatEvent> chat(CreateChatParam param) {
         performAllChecks(param);
 
         Chat chat = createChat(param);
         InvokeModelParam invokeModelParam = buildInvokeModelParam(param, chat);
 
-        return getLlmService(invokeModelParam)
-                .invokeLlm(invokeModelParam, r -> updateChatResult(chat.getChatId(), r));
-    }
+        Flux<ChatEvent> events =
+                getLlmService(invokeModelParam)
+                        .invokeLlm(
+                                invokeModelParam, r -> chatPersistenceManager.saveResult(chat, r));
 
-    private void updateChatResult(String chatId, LlmInvokeResult result) {
-        chatRepository
-                .findByChatId(chatId)
-                .ifPresent(
-                        chat -> {
-                            chat.setAnswer(result.getAnswer());
-                            chat.setStatus(
-                                    result.isSuccess() ? ChatStatus.SUCCESS : ChatStatus.FAILED);
-                            chat.setChatUsage(result.getUsage());
-                            chat.setToolCalls(result.getToolCalls());
-                            chatRepository.save(chat);
-                        });
+        // Merge token chunks into fewer SSE frames
+        return chatStreamCoalescer.apply(chat.getChatId(), events);
     }
 
     private void performAllChecks(CreateChatParam param) {
@@ -118,13 +110,14 @@ public class ChatService {
         }
 
         if (CollUtil.isNotEmpty(param.getMcpProducts())) {
-            Set<String> subscribedProductIds =
-                    consumerService
-                            .listConsumerSubscriptions(
-                                    consumerService.getPrimaryConsumer().getConsumerId())
-                            .stream()
-                            .map(SubscriptionResult::getProductId)
-                            .collect(Collectors.toSet());
+            ChatInvocationContextManager.DeveloperContext developerContext =
+                    invocationContextManager.getDeveloperContext();
+            if (developerContext.primaryConsumerId() == null) {
+                throw new BusinessException(
+                        ErrorCode.INVALID_REQUEST,
+                        "No consumer found for developer: " + contextHolder.getUser());
+            }
+            Set<String> subscribedProductIds = developerContext.subscribedProductIds();
 
             Set<String> unsubscribedProducts =
                     param.getMcpProducts().stream()
@@ -151,33 +144,35 @@ public class ChatService {
         chat.setChatId(chatId);
         chat.setUserId(contextHolder.getUser());
 
-        // Sequence represent the number of tries for this question
-        Integer sequence =
-                chatRepository.findCurrentSequence(
-                        param.getSessionId(),
-                        param.getConversationId(),
-                        param.getQuestionId(),
-                        param.getProductId());
-        chat.setSequence(sequence + 1);
-
-        return chatRepository.save(chat);
+        // Persisted in the background, the sequence is assigned on insert
+        chatPersistenceManager.create(chat);
+        return chat;
     }
 
     private InvokeModelParam buildInvokeModelParam(CreateChatParam param, Chat chat) {
-        // Get product config
-        ProductResult productResult = productService.getProduct(param.getProductId());
-
-        // Record target gateway
-        ProductRefResult productRef = productService.getProductRef(param.getProductId());
-        String gatewayId = productRef.getGatewayId();
+        // Get product config and target gateway (cached, invalidated by product events)
+        ChatInvocationContextManager.ProductContext productContext =
+                invocationContextManager.getProductContext(param.getProductId());
+        ProductResult productResult = productContext.product();
+        String gatewayId = productContext.productRef().getGatewayId();
 
         // Get authentication info
         CredentialContext credentialContext =
-                consumerService.getDefaultCredential(contextHolder.getUser());
+                invocationContextManager.getDeveloperContext().credential();
+
+        // Latest successful chat of each previous conversation, bounded by the history window
+        List<ChatHistoryItem> historyItems =
+                chatHistoryManager.listHistory(
+                        param.getSessionId(), param.getProductId(), param.getConversationId());
+
+        // Load attachments of all turns (history + current) in one batch
+        Map<String, AttachmentContent> attachmentContents =
+                chatAttachmentManager.getContents(collectAttachmentIds(historyItems, chat));
 
         // Build user msg and history msg list which will be passed to model
-        List<Msg> historyMsgList = buildHistoryMsgList(param);
-        Msg currentMsg = buildUserMsg(chat);
+        List<Msg> historyMsgList = buildHistoryMsgList(param, historyItems, attachmentContents);
+        Msg currentMsg =
+                buildUserMsg(chat.getQuestion(), chat.getAttachments(), attachmentContents);
 
         return InvokeModelParam.builder()
                 .chatId(chat.getChatId())
@@ -192,122 +187,76 @@ public class ChatService {
                 .build();
     }
 
-    public List<Msg> buildHistoryMsgList(CreateChatParam param) {
-        List<Msg> messages = new ArrayList<>();
-
-        // 1. Query successful chat records from database
-        List<Chat> chats =
-                chatRepository.findBySessionIdAndStatus(
-                        param.getSessionId(),
-                        ChatStatus.SUCCESS,
-                        Sort.by(Sort.Direction.ASC, "createAt"));
-
-        if (CollUtil.isEmpty(chats)) {
+    public List<Msg> buildHistoryMsgList(
+            CreateChatParam param,
+            List<ChatHistoryItem> historyItems,
+            Map<String, AttachmentContent> attachmentContents) {
+        if (CollUtil.isEmpty(historyItems)) {
             return CollUtil.empty(List.class);
         }
 
-        // 2. Filter and group chats
-        Map<String, List<Chat>> chatGroups =
-                chats.stream()
-                        // Filter valid chats (must have both question and answer)
-                        .filter(
-                                chat ->
-                                        StrUtil.isNotBlank(chat.getQuestion())
-                                                && StrUtil.isNotBlank(chat.getAnswer()))
-                        // Exclude current conversation
-                        .filter(chat -> !param.getConversationId().equals(chat.getConversationId()))
-                        // Ensure same product
-                        .filter(chat -> StrUtil.equals(chat.getProductId(), param.getProductId()))
-                        .collect(Collectors.groupingBy(Chat::getConversationId));
-
-        // 3. Get latest answer for each conversation
-        // Note: A conversation may have multiple chats for the same question (retries,
-        // regenerations)
-        // We need to find the latest question, then get its latest answer
-        List<Chat> latestChats =
-                chatGroups.values().stream()
-                        .map(
-                                conversationChats -> {
-                                    // 3.1 Find the latest question ID
-                                    String latestQuestionId =
-                                            conversationChats.stream()
-                                                    .max(Comparator.comparing(Chat::getCreateAt))
-                                                    .map(Chat::getQuestionId)
-                                                    .orElse(null);
-
-                                    if (StrUtil.isBlank(latestQuestionId)) {
-                                        return null;
-                                    }
-
-                                    // 3.2 Get the latest answer for this question
-                                    return conversationChats.stream()
-                                            .filter(
-                                                    chat ->
-                                                            latestQuestionId.equals(
-                                                                    chat.getQuestionId()))
-                                            .max(Comparator.comparing(Chat::getCreateAt))
-                                            .orElse(null);
-                                })
-                        .filter(Objects::nonNull)
-                        .sorted(Comparator.comparing(Chat::getCreateAt))
-                        .toList();
-
-        // 4. Build AgentScope Msg objects (user + assistant pairs)
-        for (Chat chat : latestChats) {
+        // Build AgentScope Msg objects (user + assistant pairs)
+        List<Msg> messages = new ArrayList<>(historyItems.size() * 2);
+        for (ChatHistoryItem item : historyItems) {
             // User message (with multimodal support)
-            Msg userMsg = buildUserMsg(chat);
-            messages.add(userMsg);
+            messages.add(
+                    buildUserMsg(item.getQuestion(), item.getAttachments(), attachmentContents));
 
             // Assistant message
-            Msg assistantMsg = buildAssistantMsg(chat);
-            messages.add(assistantMsg);
+            messages.add(buildAssistantMsg(item.getAnswer()));
         }
 
-        // 5. Truncate if too many messages
-        messages = truncateMessages(messages);
-
         log.debug(
                 "Built {} AgentScope messages from {} conversations for session: {}",
                 messages.size(),
-                latestChats.size(),
+                historyItems.size(),
                 param.getSessionId());
         return messages;
     }
 
-    private Msg buildUserMsg(Chat chat) {
+    private List<String> collectAttachmentIds(List<ChatHistoryItem> historyItems, Chat chat) {
+        List<String> attachmentIds = new ArrayList<>();
+        for (ChatHistoryItem item : historyItems) {
+            if (CollUtil.isNotEmpty(item.getAttachments())) {
+                item.getAttachments()
+                        .forEach(config -> attachmentIds.add(config.getAttachmentId()));
+            }
+        }
+        if (CollUtil.isNotEmpty(chat.getAttachments())) {
+            chat.getAttachments().forEach(config -> attachmentIds.add(config.getAttachmentId()));
+        }
+        return attachmentIds;
+    }
+
+    private Msg buildUserMsg(
+            String question,
+            List<ChatAttachmentConfig> attachmentConfigs,
+            Map<String, AttachmentContent> attachmentContents) {
         List<ContentBlock> contentBlocks = new ArrayList<>();
 
         // 1. Prepare text content (question)
         StringBuilder textContent = new StringBuilder();
-        if (StrUtil.isNotBlank(chat.getQuestion())) {
-            textContent.append(chat.getQuestion());
+        if (StrUtil.isNotBlank(question)) {
+            textContent.append(question);
         }
 
-        // 2. Load and process attachments
-        List<ChatAttachmentConfig> attachmentConfigs = chat.getAttachments();
+        // 2. Process attachments, content is preloaded and already decoded/encoded
         if (CollUtil.isNotEmpty(attachmentConfigs)) {
-            List<String> attachmentIds =
-                    attachmentConfigs.stream()
-                            .map(ChatAttachmentConfig::getAttachmentId)
-                            .filter(StrUtil::isNotBlank)
-                            .collect(Collectors.toList());
-
-            if (CollUtil.isNotEmpty(attachmentIds)) {
-                List<ChatAttachment> attachments =
-                        chatAttachmentRepository.findByAttachmentIdIn(attachmentIds);
-
-                for (ChatAttachment attachment : attachments) {
-                    if (attachment == null || ArrayUtil.isEmpty(attachment.getData())) {
-                        continue;
-                    }
-
-                    // Process attachment based on type
-                    if (attachment.getType() == ChatAttachmentType.TEXT) {
-                        buildTextContent(attachment, textContent);
-                    } else {
-                        // IMAGE, AUDIO, VIDEO
-                        buildMediaContent(attachment, contentBlocks);
-                    }
+            for (ChatAttachmentConfig config : attachmentConfigs) {
+                if (StrUtil.isBlank(config.getAttachmentId())) {
+                    continue;
+                }
+                AttachmentContent content = attachmentContents.get(config.getAttachmentId());
+                if (content == null) {
+                    continue;
+                }
+
+                // Process attachment based on type
+                if (content.getType() == ChatAttachmentType.TEXT) {
+                    buildTextContent(content, textContent);
+                } else {
+                    // IMAGE, AUDIO, VIDEO
+                    buildMediaContent(content, contentBlocks);
                 }
             }
         }
@@ -327,27 +276,20 @@ public class ChatService {
         }
     }
 
-    private void buildTextContent(ChatAttachment attachment, StringBuilder textContent) {
-        String text = new String(attachment.getData(), StandardCharsets.UTF_8);
-        textContent.append("\n\n## ").append(attachment.getName()).append("\n").append(text);
+    private void buildTextContent(AttachmentContent content, StringBuilder textContent) {
+        textContent
+                .append("\n\n## ")
+                .append(content.getName())
+                .append("\n")
+                .append(content.getText());
     }
 
-    private void buildMediaContent(ChatAttachment attachment, List<ContentBlock> contentBlocks) {
-
-        // Encode to pure Base64 string (no data URL prefix)
-        String base64Data = Base64.encode(attachment.getData());
-
-        // Use default mime type if not specified
-        String mediaType =
-                StrUtil.isBlank(attachment.getMimeType())
-                        ? "application/octet-stream"
-                        : attachment.getMimeType();
-
-        // Create Base64Source with pure base64 data
-        Base64Source source = Base64Source.builder().data(base64Data).mediaType(mediaType).build();
+    private void buildMediaContent(AttachmentContent content, List<ContentBlock> contentBlocks) {
+        // Base64Source is shared across requests, it is immutable once built
+        Base64Source source = content.getSource();
 
         ContentBlock contentBlock;
-        switch (attachment.getType()) {
+        switch (content.getType()) {
             case IMAGE:
                 contentBlock = ImageBlock.builder().source(source).build();
                 break;
@@ -358,32 +300,19 @@ public class ChatService {
                 contentBlock = VideoBlock.builder().source(source).build();
                 break;
             default:
-                log.warn("Unsupported media attachment type: {}", attachment.getType());
+                log.warn("Unsupported media attachment type: {}", content.getType());
                 return;
         }
 
         contentBlocks.add(contentBlock);
     }
 
-    private Msg buildAssistantMsg(Chat chat) {
-        String answer = StrUtil.isBlank(chat.getAnswer()) ? "" : chat.getAnswer();
+    private Msg buildAssistantMsg(String answer) {
         // Use textContent() convenience method for simple text messages
-        return Msg.builder().role(MsgRole.ASSISTANT).textContent(answer).build();
-    }
-
-    private List<Msg> truncateMessages(List<Msg> messages) {
-        // Max conversation pairs to keep
-        int maxHistoryPairs = 10;
-        int maxMessages = maxHistoryPairs * 2;
-
-        if (messages.size() > maxMessages) {
-            int startIndex = messages.size() - maxMessages;
-            List<Msg> truncated = messages.subList(startIndex, messages.size());
-            log.debug("Truncated history to last {} conversation pairs", maxHistoryPairs);
-            return truncated;
-        }
-
-        return messages;
+        return Msg.builder()
+                .role(MsgRole.ASSISTANT)
+                .textContent(StrUtil.isBlank(answer) ? "" : answer)
+                .build();
     }
 
     private List<McpTransportConfig> buildMCPConfigs(
@@ -392,7 +321,7 @@ public class ChatService {
             return CollUtil.empty(List.class);
         }
 
-        return productService.getProducts(param.getMcpProducts()).values().stream()
+        return invocationContextManager.getMcpProducts(param.getMcpProducts()).values().stream()
                 .filter(
                         product ->
                                 product.getType() == ProductType.MCP_SERVER
@@ -441,8 +370,12 @@ public class ChatService {
         try {
             log.info("Cleaning chat records and attachments for session: {}", sessionId);
 
+            // Drop queued writes first so no chat is inserted after the delete
+            chatPersistenceManager.cancelSession(sessionId);
+
             // Delete all chat records
             chatRepository.deleteAllBySessionId(sessionId);
+            chatHistoryManager.evictSession(sessionId);
 
             log.info("Successfully cleaned chat records for session: {}", sessionId);
         } catch (Exception e) {
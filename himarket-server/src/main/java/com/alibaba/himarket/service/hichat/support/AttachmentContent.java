@@ -0,0 +1,36 @@
+package com.alibaba.himarket.service.hichat.support;
+
+import com.alibaba.himarket.support.enums.ChatAttachmentType;
+import io.agentscope.core.message.Base64Source;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Decoded attachment content ready to be replayed to the model. Instances are cached and shared
+ * across requests, so they are immutable.
+ */
+@Value
+@Builder
+public class AttachmentContent {
+
+    private String attachmentId;
+
+    private String name;
+
+    private ChatAttachmentType type;
+
+    /**
+     * Decoded UTF-8 text, only set for TEXT attachments
+     */
+    private String text;
+
+    /**
+     * Already encoded Base64 payload, only set for IMAGE/AUDIO/VIDEO attachments
+     */
+    private Base64Source source;
+
+    /**
+     * Approximate retained size in bytes, used as cache weight
+     */
+    private int weight;
+}
@@ -23,6 +23,7 @@ import com.alibaba.himarket.support.chat.ChatUsage;
 import com.alibaba.himarket.utils.JsonUtil;
 import io.agentscope.core.agent.Event;
 import io.agentscope.core.agent.EventType;
+import io.agentscope.core.message.ContentBlock;
 import io.agentscope.core.message.Msg;
 import io.agentscope.core.message.ThinkingBlock;
 import io.agentscope.core.message.ToolResultBlock;
@@ -55,11 +56,14 @@ public class ChatFormatter {
             Msg msg = event.getMessage();
             EventType type = event.getType();
 
-            log.debug(
-                    "Converting event - type: {}, isLast: {}, msg: {}",
-                    type,
-                    event.isLast(),
-                    JsonUtil.toJson(msg));
+            // Serializing the message is costly, only do it when debug is actually enabled
+            if (log.isDebugEnabled()) {
+                log.debug(
+                        "Converting event - type: {}, isLast: {}, msg: {}",
+                        type,
+                        event.isLast(),
+                        JsonUtil.toJson(msg));
+            }
 
             switch (type) {
                 case REASONING:
@@ -92,14 +96,19 @@ public class ChatFormatter {
     }
 
     private Flux<ChatEvent> handleReasoning(Msg msg, boolean isLast, ChatContext chatContext) {
-        List<ChatEvent> chunks = new ArrayList<>();
+        // Most streaming chunks carry a single thinking or text delta, emit it without buffering
+        EventBuffer events = new EventBuffer();
         String chatId = chatContext.getChatId();
 
-        // 1. Extract thinking content
-        List<ThinkingBlock> thinkingBlocks = msg.getContentBlocks(ThinkingBlock.class);
-        for (ThinkingBlock thinking : thinkingBlocks) {
-            if (StrUtil.isNotBlank(thinking.getThinking())) {
-                chunks.add(ChatEvent.thinking(chatId, thinking.getThinking()));
+        // 1. Extract thinking content (and count tool calls in the same pass)
+        int toolUseCount = 0;
+        for (ContentBlock block : msg.getContent()) {
+            if (block instanceof ThinkingBlock thinking) {
+                if (StrUtil.isNotBlank(thinking.getThinking())) {
+                    events.add(ChatEvent.thinking(chatId, thinking.getThinking()));
+                }
+            } else if (block instanceof ToolUseBlock) {
+                toolUseCount++;
             }
         }
 
@@ -119,12 +128,12 @@ public class ChatFormatter {
                     log.debug(
                             "Emitting final text as no streaming chunks were sent (length={})",
                             textContent.length());
-                    chunks.add(ChatEvent.text(chatId, textContent));
+                    events.add(ChatEvent.text(chatId, textContent));
                 }
             } else {
                 // Send incremental chunks for streaming
                 hasStreamedText = true;
-                chunks.add(ChatEvent.text(chatId, textContent));
+                events.add(ChatEvent.text(chatId, textContent));
             }
         }
 
@@ -138,12 +147,11 @@ public class ChatFormatter {
         //   - input contains COMPLETE PARSED arguments (accumulated by AgentScope)
         //   - Send: complete tool call with full parameters
         //
-        List<ToolUseBlock> toolUseBlocks = msg.getContentBlocks(ToolUseBlock.class);
-        if (!toolUseBlocks.isEmpty()) {
+        if (toolUseCount > 0) {
             if (isLast) {
                 // Final complete tool calls with parsed input arguments
-                log.debug("Sending {} complete tool call(s)", toolUseBlocks.size());
-                for (ToolUseBlock toolUse : toolUseBlocks) {
+                log.debug("Sending {} complete tool call(s)", toolUseCount);
+                for (ToolUseBlock toolUse : msg.getContentBlocks(ToolUseBlock.class)) {
                     ToolMeta toolMeta = chatContext.getToolMeta(toolUse.getName());
                     String mcpServerName = toolMeta != null ? toolMeta.getMcpServerName() : null;
 
@@ -154,34 +162,33 @@ public class ChatFormatter {
                                     .arguments(toolUse.getInput())
                                     .mcpServerName(mcpServerName)
                                     .build();
-                    chunks.add(ChatEvent.toolCall(chatId, tc));
+                    events.add(ChatEvent.toolCall(chatId, tc));
                 }
             } else {
                 // Skip streaming tool call chunks (input is empty, contains fragments)
-                log.debug("Skipping {} streaming tool call chunk(s)", toolUseBlocks.size());
+                log.debug("Skipping {} streaming tool call chunk(s)", toolUseCount);
             }
         }
 
-        return Flux.fromIterable(chunks);
+        return events.toFlux();
     }
 
     private Flux<ChatEvent> handleToolResult(Msg msg, ChatContext chatContext) {
-        List<ChatEvent> chunks = new ArrayList<>();
+        EventBuffer events = new EventBuffer();
         String chatId = chatContext.getChatId();
 
         // Extract and send all tool execution results
-        List<ToolResultBlock> toolResults = msg.getContentBlocks(ToolResultBlock.class);
-        for (ToolResultBlock toolResult : toolResults) {
+        for (ToolResultBlock toolResult : msg.getContentBlocks(ToolResultBlock.class)) {
             ChatEvent.ToolResultContent tr =
                     ChatEvent.ToolResultContent.builder()
                             .id(toolResult.getId())
                             .name(toolResult.getName())
                             .result(toolResult.getOutput())
                             .build();
-            chunks.add(ChatEvent.toolResult(chatId, tr));
+            events.add(ChatEvent.toolResult(chatId, tr));
         }
 
-        return Flux.fromIterable(chunks);
+        return events.toFlux();
     }
 
     private Flux<ChatEvent> handleSummary(Msg msg, ChatContext chatContext) {
@@ -242,4 +249,34 @@ public class ChatFormatter {
                 usage.getOutputTokens(),
                 usage.getTotalTokens());
     }
+
+    /**
+     * Collects the events of one AgentScope event. The list is only allocated once a second event
+     * is added, so the common single-event chunk becomes a plain {@link Flux#just(Object)}.
+     */
+    private static final class EventBuffer {
+
+        private ChatEvent first;
+
+        private List<ChatEvent> events;
+
+        void add(ChatEvent event) {
+            if (first == null) {
+                first = event;
+                return;
+            }
+            if (events == null) {
+                events = new ArrayList<>(4);
+                events.add(first);
+            }
+            events.add(event);
+        }
+
+        Flux<ChatEvent> toFlux() {
+            if (events != null) {
+                return Flux.fromIterable(events);
+            }
+            return first != null ? Flux.just(first) : Flux.empty();
+        }
+    }
 }
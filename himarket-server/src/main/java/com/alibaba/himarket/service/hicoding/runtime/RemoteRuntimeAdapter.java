@@ -9,18 +9,16 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.reactive.socket.WebSocketMessage;
-import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -34,6 +32,8 @@ import reactor.core.publisher.Sinks;
  *
  * <p>支持 detach/reconnect 语义：WebSocket 断开时进入 DETACHED 状态， sidecar 端的 CLI
  * 进程继续运行并缓冲输出，后续可通过 reconnect() 重新连接。
+ *
+ * <p>连接、ping 定时均使用共享的 {@link SidecarWebSocketClient}，适配器本身不持有线程。
  */
 public class RemoteRuntimeAdapter implements RuntimeAdapter {
 
@@ -41,39 +41,37 @@ public class RemoteRuntimeAdapter implements RuntimeAdapter {
     private static final ObjectMapper CONTROL_MSG_MAPPER = new ObjectMapper();
 
     static final long WS_PING_INTERVAL_SECONDS = 10;
+    static final long CONNECT_TIMEOUT_SECONDS = 10;
 
     private final String host;
     private final int port;
+    private final SidecarWebSocketClient sidecarClient;
+    private final SidecarWireStats wireStats;
 
     private final Sinks.Many<String> stdoutSink =
             Sinks.many().multicast().onBackpressureBuffer(256, false);
+    private final AtomicLong droppedStdoutLines = new AtomicLong();
     private Sinks.Many<String> wsSendSink = Sinks.many().unicast().onBackpressureBuffer();
     private volatile RuntimeStatus status = RuntimeStatus.CREATING;
     private volatile String sidecarSessionId;
     private URI sidecarWsUri;
     private SidecarFileSystemAdapter fileSystem;
     private Disposable wsConnection;
-    private ScheduledFuture<?> wsPingFuture;
+    private Disposable wsPingTask;
     private final AtomicReference<org.springframework.web.reactive.socket.WebSocketSession>
             wsSessionRef = new AtomicReference<>();
-    private final ScheduledExecutorService scheduler;
 
     private Consumer<RuntimeFaultNotification> faultListener;
 
-    public RemoteRuntimeAdapter(String host, int port) {
+    public RemoteRuntimeAdapter(String host, int port, SidecarWebSocketClient sidecarClient) {
         if (host == null || host.isBlank()) {
             throw new IllegalArgumentException("host must not be null or blank");
         }
         this.host = host;
         this.port = port;
+        this.sidecarClient = sidecarClient;
+        this.wireStats = sidecarClient.newWireStats();
         this.fileSystem = new SidecarFileSystemAdapter(host);
-        this.scheduler =
-                Executors.newSingleThreadScheduledExecutor(
-                        r -> {
-                            Thread t = new Thread(r, "remote-runtime-scheduler");
-                            t.setDaemon(true);
-                            return t;
-                        });
     }
 
     @Override
@@ -122,18 +120,16 @@ public class RemoteRuntimeAdapter implements RuntimeAdapter {
             return;
         }
         logger.info(
-                "Detaching RemoteRuntimeAdapter: host={}:{}, sidecarSessionId={}",
+                "Detaching RemoteRuntimeAdapter: host={}:{}, sidecarSessionId={}, wire=[{}]",
                 host,
                 port,
-                sidecarSessionId);
+                sidecarSessionId,
+                wireStats);
 
         // 先设置状态，使得 WS 关闭触发的 doOnError/doOnComplete 不会误判为异常
         status = RuntimeStatus.DETACHED;
 
-        if (wsPingFuture != null) {
-            wsPingFuture.cancel(false);
-            wsPingFuture = null;
-        }
+        stopWsPing();
 
         wsSendSink.tryEmitComplete();
 
@@ -173,7 +169,7 @@ public class RemoteRuntimeAdapter implements RuntimeAdapter {
         if (status != RuntimeStatus.DETACHED) {
             throw new RuntimeException("Cannot reconnect: current status is " + status);
         }
-        logger.info("Reconnecting RemoteRuntimeAdapter to: {}", wsUri);
+        logger.info("Reconnecting RemoteRuntimeAdapter to: {}", redact(wsUri));
 
         this.sidecarWsUri = wsUri;
         this.wsSendSink = Sinks.many().unicast().onBackpressureBuffer();
@@ -230,12 +226,9 @@ public class RemoteRuntimeAdapter implements RuntimeAdapter {
         if (status == RuntimeStatus.STOPPED) {
             return;
         }
-        logger.info("Closing RemoteRuntimeAdapter: host={}:{}", host, port);
+        logger.info("Closing RemoteRuntimeAdapter: host={}:{}, wire=[{}]", host, port, wireStats);
 
-        if (wsPingFuture != null) {
-            wsPingFuture.cancel(false);
-            wsPingFuture = null;
-        }
+        stopWsPing();
 
         wsSendSink.tryEmitComplete();
         if (wsConnection != null) {
@@ -248,7 +241,6 @@ public class RemoteRuntimeAdapter implements RuntimeAdapter {
         }
 
         stdoutSink.tryEmitComplete();
-        scheduler.shutdownNow();
         status = RuntimeStatus.STOPPED;
     }
 
@@ -266,17 +258,13 @@ public class RemoteRuntimeAdapter implements RuntimeAdapter {
     // ===== 内部方法 =====
 
     private void connectWebSocket(URI wsUri) {
-        logger.info("Connecting to remote sidecar WebSocket: {}", wsUri);
-        ReactorNettyWebSocketClient wsClient =
-                new ReactorNettyWebSocketClient(
-                        reactor.netty.http.client.HttpClient.create()
-                                .responseTimeout(Duration.ofSeconds(30)));
-        wsClient.setHandlePing(true);
-        wsClient.setMaxFramePayloadLength(1024 * 1024);
-        CountDownLatch connectedLatch = new CountDownLatch(1);
+        logger.info("Connecting to remote sidecar WebSocket: {}", redact(wsUri));
+        // 握手完成或失败时由 reactor 线程完成该 future，连接本身不占用额外线程
+        CompletableFuture<Void> connected = new CompletableFuture<>();
 
         wsConnection =
-                wsClient.execute(
+                sidecarClient
+                        .execute(
                                 wsUri,
                                 session -> {
                                     wsSessionRef.set(session);
@@ -294,8 +282,12 @@ public class RemoteRuntimeAdapter implements RuntimeAdapter {
                                                                 if (msg.getType()
                                                                         == WebSocketMessage.Type
                                                                                 .PONG) {
+                                                                    sidecarClient.recordPong(msg);
                                                                     return;
                                                                 }
+                                                                wireStats.inboundFrame(
+                                                                        msg.getPayload()
+                                                                                .readableByteCount());
                                                                 String text =
                                                                         msg.getPayloadAsText();
 
@@ -368,15 +360,25 @@ public class RemoteRuntimeAdapter implements RuntimeAdapter {
                                                     wsSendSink
                                                             .asFlux()
                                                             .doOnNext(
-                                                                    msg ->
-                                                                            logger.info(
+                                                                    msg -> {
+                                                                        if (logger
+                                                                                .isTraceEnabled()) {
+                                                                            logger.trace(
                                                                                     "[WS-Remote]"
                                                                                         + " Sending:"
                                                                                         + " {}",
-                                                                                    msg))
-                                                            .map(session::textMessage));
+                                                                                    msg);
+                                                                        }
+                                                                    })
+                                                            .map(session::textMessage)
+                                                            .doOnNext(
+                                                                    msg ->
+                                                                            wireStats
+                                                                                    .outboundMessage(
+                                                                                            msg.getPayload()
+                                                                                                    .readableByteCount())));
 
-                                    connectedLatch.countDown();
+                                    connected.complete(null);
                                     return Mono.when(receive, send);
                                 })
                         .subscribe(
@@ -384,57 +386,68 @@ public class RemoteRuntimeAdapter implements RuntimeAdapter {
                                 err -> {
                                     logger.error(
                                             "[WS-Remote] Connection failed: {}", err.getMessage());
-                                    connectedLatch.countDown();
+                                    connected.completeExceptionally(err);
                                 });
 
         try {
-            if (!connectedLatch.await(10, TimeUnit.SECONDS)) {
-                throw new RuntimeException(
-                        "Timeout waiting for WebSocket connection to sidecar at " + wsUri);
-            }
+            connected.get(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            wsConnection.dispose();
+            throw new RuntimeException(
+                    "Timeout waiting for WebSocket connection to sidecar at " + redact(wsUri));
+        } catch (ExecutionException e) {
+            throw new RuntimeException(
+                    "Failed to establish WebSocket connection to sidecar at " + redact(wsUri),
+                    e.getCause());
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            wsConnection.dispose();
             throw new RuntimeException("Interrupted while connecting to sidecar WebSocket", e);
         }
-
-        if (wsSessionRef.get() == null) {
-            throw new RuntimeException(
-                    "Failed to establish WebSocket connection to sidecar at " + wsUri);
-        }
-        logger.info("WebSocket connected to remote sidecar: {}", wsUri);
+        logger.info("WebSocket connected to remote sidecar: {}", redact(wsUri));
     }
 
     /**
      * 处理单条接收到的消息行：拦截控制消息或转发到 stdoutSink。
      */
     private void processReceivedLine(String line) {
-        if (isControlMessage(line)) {
-            handleControlMessage(line);
+        String controlType = SidecarControlMessages.typeOf(line);
+        if (controlType != null) {
+            wireStats.controlMessage(controlType);
+            handleControlMessage(line, controlType);
             return;
         }
-        logger.info("[WS-Remote] Received: {}", line);
-        stdoutSink.tryEmitNext(line);
+        wireStats.inboundMessage();
+        if (logger.isTraceEnabled()) {
+            logger.trace("[WS-Remote] Received: {}", line);
+        }
+        emitStdout(line);
     }
 
     /**
-     * 判断是否为 sidecar 控制消息（session_meta、buffer_truncated、process_exited）。
+     * 推送一行到 stdoutSink。无订阅者时 sink 最多缓冲 256 行，超出的行被丢弃并记录。
      */
-    private boolean isControlMessage(String text) {
-        return text.contains("\"type\":")
-                && (text.contains("\"session_meta\"")
-                        || text.contains("\"buffer_truncated\"")
-                        || text.contains("\"process_exited\""));
+    private void emitStdout(String line) {
+        Sinks.EmitResult result = stdoutSink.tryEmitNext(line);
+        if (result.isFailure()) {
+            long dropped = droppedStdoutLines.incrementAndGet();
+            if (dropped == 1 || dropped % 100 == 0) {
+                logger.warn(
+                        "[WS-Remote] Dropped stdout line(s): result={}, totalDropped={}",
+                        result,
+                        dropped);
+            }
+        }
     }
 
     /**
      * 处理 sidecar 控制消息，不转发到 stdoutSink（process_exited 除外）。
      */
-    private void handleControlMessage(String text) {
+    private void handleControlMessage(String text, String type) {
         try {
             JsonNode node = CONTROL_MSG_MAPPER.readTree(text);
-            String type = node.has("type") ? node.get("type").asText() : null;
 
-            if ("session_meta".equals(type)) {
+            if (SidecarControlMessages.SESSION_META.equals(type)) {
                 if (node.has("sessionId")) {
                     sidecarSessionId = node.get("sessionId").asText();
                 }
@@ -445,18 +458,19 @@ public class RemoteRuntimeAdapter implements RuntimeAdapter {
                 return;
             }
 
-            if ("buffer_truncated".equals(type)) {
+            if (SidecarControlMessages.BUFFER_TRUNCATED.equals(type)) {
                 long dropped = node.has("droppedBytes") ? node.get("droppedBytes").asLong() : 0;
+                wireStats.bufferTruncated(dropped);
                 logger.warn("[WS-Remote] Buffer truncated: droppedBytes={}", dropped);
                 return;
             }
 
-            if ("process_exited".equals(type)) {
+            if (SidecarControlMessages.PROCESS_EXITED.equals(type)) {
                 int code = node.has("code") ? node.get("code").asInt(-1) : -1;
                 String signal = node.has("signal") ? node.get("signal").asText(null) : null;
                 logger.info("[WS-Remote] Process exited: code={}, signal={}", code, signal);
                 // 转发给前端，让前端感知 CLI 进程退出
-                stdoutSink.tryEmitNext(text);
+                emitStdout(text);
                 return;
             }
         } catch (Exception e) {
@@ -464,42 +478,38 @@ public class RemoteRuntimeAdapter implements RuntimeAdapter {
                     "Failed to parse control message, forwarding as stdout: {}", e.getMessage());
         }
         // 无法解析为控制消息，作为普通 stdout 转发
-        stdoutSink.tryEmitNext(text);
+        emitStdout(text);
     }
 
     private void startWsPing() {
-        wsPingFuture =
-                scheduler.scheduleAtFixedRate(
+        stopWsPing();
+        wsPingTask =
+                sidecarClient.schedulePeriodic(
                         () -> {
-                            try {
-                                var session = wsSessionRef.get();
-                                if (session == null || !session.isOpen()) {
-                                    return;
-                                }
-                                session.send(
-                                                Mono.just(
-                                                        session.pingMessage(
-                                                                factory ->
-                                                                        factory.wrap(
-                                                                                "ping"
-                                                                                        .getBytes(
-                                                                                                StandardCharsets
-                                                                                                        .UTF_8)))))
-                                        .subscribe(
-                                                unused -> {},
-                                                err ->
-                                                        logger.warn(
-                                                                "[WS-Ping] Failed: {}",
-                                                                err.getMessage()));
-                            } catch (Exception e) {
-                                logger.warn("[WS-Ping] Error: {}", e.getMessage());
+                            var session = wsSessionRef.get();
+                            if (session == null || !session.isOpen()) {
+                                return;
                             }
+                            sidecarClient
+                                    .ping(session)
+                                    .subscribe(
+                                            unused -> {},
+                                            err ->
+                                                    logger.warn(
+                                                            "[WS-Ping] Failed: {}",
+                                                            err.getMessage()));
                         },
                         WS_PING_INTERVAL_SECONDS,
-                        WS_PING_INTERVAL_SECONDS,
                         TimeUnit.SECONDS);
     }
 
+    private void stopWsPing() {
+        if (wsPingTask != null) {
+            wsPingTask.dispose();
+            wsPingTask = null;
+        }
+    }
+
     private void notifyFault(String faultType, String suggestedAction) {
         if (faultListener != null) {
             try {
@@ -512,6 +522,13 @@ public class RemoteRuntimeAdapter implements RuntimeAdapter {
         }
     }
 
+    /**
+     * 日志中只保留地址和路径，查询参数可能包含环境变量（API Key 等）。
+     */
+    private static String redact(URI uri) {
+        return uri.getScheme() + "://" + uri.getAuthority() + uri.getPath();
+    }
+
     // ===== 用于测试的 Getter =====
 
     URI getSidecarWsUri() {
@@ -0,0 +1,46 @@
+package com.alibaba.himarket.service.hicoding.runtime;
+
+/**
+ * Sidecar 控制消息识别。
+ *
+ * <p>Sidecar 以 {@code JSON.stringify({type: ..., ...})} 发送控制消息，{@code type} 总是第一个字段，
+ * 因此只需比较行首的固定前缀与类型名，不必对每一行做多次全文 {@code contains} 扫描。
+ * ACP 的 JSON-RPC 消息以 {@code {"jsonrpc"} 等字段开头，不会命中。
+ */
+final class SidecarControlMessages {
+
+    static final String SESSION_META = "session_meta";
+    static final String BUFFER_TRUNCATED = "buffer_truncated";
+    static final String PROCESS_EXITED = "process_exited";
+
+    private static final String TYPE_PREFIX = "{\"type\":\"";
+
+    private SidecarControlMessages() {}
+
+    /**
+     * 返回控制消息类型，非控制消息返回 null。
+     */
+    static String typeOf(String line) {
+        if (!line.startsWith(TYPE_PREFIX)) {
+            return null;
+        }
+        int offset = TYPE_PREFIX.length();
+        if (matchesType(line, offset, SESSION_META)) {
+            return SESSION_META;
+        }
+        if (matchesType(line, offset, BUFFER_TRUNCATED)) {
+            return BUFFER_TRUNCATED;
+        }
+        if (matchesType(line, offset, PROCESS_EXITED)) {
+            return PROCESS_EXITED;
+        }
+        return null;
+    }
+
+    private static boolean matchesType(String line, int offset, String type) {
+        int end = offset + type.length();
+        return line.length() > end
+                && line.charAt(end) == '"'
+                && line.regionMatches(offset, type, 0, type.length());
+    }
+}
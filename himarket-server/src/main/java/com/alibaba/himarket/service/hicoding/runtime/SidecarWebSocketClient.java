@@ -0,0 +1,286 @@
+package com.alibaba.himarket.service.hicoding.runtime;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import jakarta.annotation.PreDestroy;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.WebsocketClientSpec;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Sidecar WebSocket 连接的共享基础设施。
+ *
+ * <p>所有 {@link RemoteRuntimeAdapter} 与远程终端共用：
+ * <ul>
+ *   <li>一个 Reactor Netty {@link HttpClient} 及其专用事件循环，不再为每个连接新建客户端
+ *   <li>一个 {@link HashedWheelTimer}，承载所有会话的 ping / 心跳 / 重连定时，不再为每个连接新建调度线程
+ * </ul>
+ * 定时任务在时间轮线程上执行，必须是非阻塞的；需要阻塞的逻辑应自行切换到其它线程。
+ *
+ * <p>指标：{@code sidecar.ws.connections.active}、{@code sidecar.ws.connect.latency}、
+ * {@code sidecar.ws.ping.rtt}，以及收发流量 {@code sidecar.ws.messages}、{@code sidecar.ws.bytes}
+ * （按 direction 区分）、{@code sidecar.ws.control.messages}（按 type 区分）、
+ * {@code sidecar.ws.buffer.truncated.bytes}。
+ */
+@Component
+public class SidecarWebSocketClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(SidecarWebSocketClient.class);
+
+    static final int MAX_FRAME_PAYLOAD_LENGTH = 1024 * 1024;
+
+    private final LoopResources loopResources =
+            LoopResources.create("sidecar-ws", LoopResources.DEFAULT_IO_WORKER_COUNT, true);
+    private final HashedWheelTimer timer =
+            new HashedWheelTimer(
+                    r -> {
+                        Thread t = new Thread(r, "sidecar-ws-timer");
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    100,
+                    TimeUnit.MILLISECONDS);
+    private final ReactorNettyWebSocketClient client;
+
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final Timer connectLatency;
+    private final Timer pingRtt;
+    private final WireMeters wireMeters;
+
+    /**
+     * 收发流量指标，所有连接共享。
+     */
+    record WireMeters(
+            Counter messagesIn,
+            Counter bytesIn,
+            Counter messagesOut,
+            Counter bytesOut,
+            Map<String, Counter> controlMessages,
+            Counter truncatedBytes) {}
+
+    public SidecarWebSocketClient(MeterRegistry meterRegistry) {
+        // WebSocket 升级后的连接不可复用，不走连接池
+        HttpClient httpClient =
+                HttpClient.create(ConnectionProvider.newConnection())
+                        .runOn(loopResources)
+                        .responseTimeout(Duration.ofSeconds(30));
+        this.client =
+                new ReactorNettyWebSocketClient(
+                        httpClient,
+                        () ->
+                                WebsocketClientSpec.builder()
+                                        .handlePing(true)
+                                        .maxFramePayloadLength(MAX_FRAME_PAYLOAD_LENGTH));
+
+        Gauge.builder("sidecar.ws.connections.active", activeConnections, AtomicInteger::get)
+                .description("Open WebSocket connections to sidecars")
+                .register(meterRegistry);
+        this.connectLatency =
+                Timer.builder("sidecar.ws.connect.latency")
+                        .description("Time to establish a sidecar WebSocket connection")
+                        .register(meterRegistry);
+        this.pingRtt =
+                Timer.builder("sidecar.ws.ping.rtt")
+                        .description("Round-trip time of WebSocket pings to sidecars")
+                        .register(meterRegistry);
+        this.wireMeters =
+                new WireMeters(
+                        wireCounter(meterRegistry, "sidecar.ws.messages", "in"),
+                        wireCounter(meterRegistry, "sidecar.ws.bytes", "in"),
+                        wireCounter(meterRegistry, "sidecar.ws.messages", "out"),
+                        wireCounter(meterRegistry, "sidecar.ws.bytes", "out"),
+                        Map.of(
+                                SidecarControlMessages.SESSION_META,
+                                controlCounter(meterRegistry, SidecarControlMessages.SESSION_META),
+                                SidecarControlMessages.BUFFER_TRUNCATED,
+                                controlCounter(
+                                        meterRegistry, SidecarControlMessages.BUFFER_TRUNCATED),
+                                SidecarControlMessages.PROCESS_EXITED,
+                                controlCounter(
+                                        meterRegistry, SidecarControlMessages.PROCESS_EXITED)),
+                        Counter.builder("sidecar.ws.buffer.truncated.bytes")
+                                .description("Output bytes the sidecar dropped while detached")
+                                .register(meterRegistry));
+    }
+
+    private static Counter wireCounter(MeterRegistry meterRegistry, String name, String direction) {
+        return Counter.builder(name).tag("direction", direction).register(meterRegistry);
+    }
+
+    private static Counter controlCounter(MeterRegistry meterRegistry, String type) {
+        return Counter.builder("sidecar.ws.control.messages")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 为一个 sidecar 连接创建收发统计。
+     */
+    public SidecarWireStats newWireStats() {
+        return new SidecarWireStats(wireMeters);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timer.stop();
+        loopResources.disposeLater().block(Duration.ofSeconds(5));
+    }
+
+    /**
+     * 建立到 sidecar 的 WebSocket 连接，语义同 {@link ReactorNettyWebSocketClient#execute}。
+     * 握手完成时才会调用 handler，连接关闭时 handler 返回的 Mono 结束。
+     */
+    public Mono<Void> execute(URI uri, WebSocketHandler handler) {
+        return Mono.defer(
+                () -> {
+                    long start = System.nanoTime();
+                    return client.execute(
+                            uri,
+                            session -> {
+                                connectLatency.record(
+                                        System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                                activeConnections.incrementAndGet();
+                                return handler.handle(session)
+                                        .doFinally(signal -> activeConnections.decrementAndGet());
+                            });
+                });
+    }
+
+    /**
+     * 发送携带发送时间戳的 ping，对端 pong 回显后由 {@link #recordPong} 计算 RTT。
+     */
+    public Mono<Void> ping(WebSocketSession session) {
+        long sentAt = System.nanoTime();
+        return session.send(
+                Mono.just(
+                        session.pingMessage(
+                                factory ->
+                                        factory.wrap(
+                                                ByteBuffer.allocate(Long.BYTES)
+                                                        .putLong(sentAt)
+                                                        .flip()))));
+    }
+
+    /**
+     * 记录 pong 的往返时间。非本客户端 ping 产生的 pong（负载不是 8 字节时间戳）会被忽略。
+     */
+    public void recordPong(WebSocketMessage message) {
+        DataBuffer payload = message.getPayload();
+        if (payload.readableByteCount() != Long.BYTES) {
+            return;
+        }
+        byte[] bytes = new byte[Long.BYTES];
+        payload.read(bytes);
+        long rtt = System.nanoTime() - ByteBuffer.wrap(bytes).getLong();
+        if (rtt >= 0 && rtt < TimeUnit.MINUTES.toNanos(5)) {
+            pingRtt.record(rtt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 在共享时间轮上延迟执行一次任务。
+     */
+    public Disposable schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = timer.newTimeout(t -> runSafely(task), delay, unit);
+        return new Disposable() {
+            @Override
+            public void dispose() {
+                timeout.cancel();
+            }
+
+            @Override
+            public boolean isDisposed() {
+                return timeout.isCancelled() || timeout.isExpired();
+            }
+        };
+    }
+
+    /**
+     * 在共享时间轮上以固定间隔周期执行任务（首次执行在一个间隔之后）。
+     */
+    public Disposable schedulePeriodic(Runnable task, long interval, TimeUnit unit) {
+        PeriodicTask periodic = new PeriodicTask(task, interval, unit);
+        periodic.scheduleNext();
+        return periodic;
+    }
+
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            logger.warn("[Sidecar-WS] Scheduled task failed: {}", e.getMessage());
+        }
+    }
+
+    private final class PeriodicTask implements Disposable {
+
+        private final Runnable task;
+        private final long interval;
+        private final TimeUnit unit;
+        private volatile boolean disposed;
+        private volatile Timeout current;
+
+        PeriodicTask(Runnable task, long interval, TimeUnit unit) {
+            this.task = task;
+            this.interval = interval;
+            this.unit = unit;
+        }
+
+        void scheduleNext() {
+            if (disposed) {
+                return;
+            }
+            try {
+                current =
+                        timer.newTimeout(
+                                t -> {
+                                    if (disposed) {
+                                        return;
+                                    }
+                                    runSafely(task);
+                                    scheduleNext();
+                                },
+                                interval,
+                                unit);
+            } catch (IllegalStateException e) {
+                // 时间轮已停止（应用关闭中）
+                disposed = true;
+            }
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+            Timeout timeout = current;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+}
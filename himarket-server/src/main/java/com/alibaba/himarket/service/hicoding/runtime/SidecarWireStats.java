@@ -0,0 +1,76 @@
+package com.alibaba.himarket.service.hicoding.runtime;
+
+import io.micrometer.core.instrument.Counter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个 sidecar 连接的收发统计。
+ *
+ * <p>同时累加全局指标（由 {@link SidecarWebSocketClient} 注册，不带会话标签以控制基数）
+ * 与本会话计数，会话计数在 detach / close 时输出到日志。
+ */
+public final class SidecarWireStats {
+
+    private final SidecarWebSocketClient.WireMeters meters;
+
+    private final AtomicLong framesIn = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong messagesIn = new AtomicLong();
+    private final AtomicLong messagesOut = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong controlMessages = new AtomicLong();
+    private final AtomicLong truncatedBytes = new AtomicLong();
+
+    SidecarWireStats(SidecarWebSocketClient.WireMeters meters) {
+        this.meters = meters;
+    }
+
+    void inboundFrame(int bytes) {
+        framesIn.incrementAndGet();
+        bytesIn.addAndGet(bytes);
+        meters.bytesIn().increment(bytes);
+    }
+
+    void inboundMessage() {
+        messagesIn.incrementAndGet();
+        meters.messagesIn().increment();
+    }
+
+    void outboundMessage(int bytes) {
+        messagesOut.incrementAndGet();
+        bytesOut.addAndGet(bytes);
+        meters.messagesOut().increment();
+        meters.bytesOut().increment(bytes);
+    }
+
+    void controlMessage(String type) {
+        controlMessages.incrementAndGet();
+        Counter counter = meters.controlMessages().get(type);
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    void bufferTruncated(long droppedBytes) {
+        truncatedBytes.addAndGet(droppedBytes);
+        meters.truncatedBytes().increment(droppedBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "in="
+                + messagesIn.get()
+                + " msgs/"
+                + framesIn.get()
+                + " frames/"
+                + bytesIn.get()
+                + " bytes, out="
+                + messagesOut.get()
+                + " msgs/"
+                + bytesOut.get()
+                + " bytes, control="
+                + controlMessages.get()
+                + ", truncatedBytes="
+                + truncatedBytes.get();
+    }
+}
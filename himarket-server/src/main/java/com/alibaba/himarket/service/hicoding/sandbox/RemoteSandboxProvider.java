@@ -4,6 +4,7 @@ import com.alibaba.himarket.config.AcpProperties;
 import com.alibaba.himarket.service.hicoding.runtime.RemoteRuntimeAdapter;
 import com.alibaba.himarket.service.hicoding.runtime.RuntimeAdapter;
 import com.alibaba.himarket.service.hicoding.runtime.RuntimeConfig;
+import com.alibaba.himarket.service.hicoding.runtime.SidecarWebSocketClient;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Path;
@@ -31,10 +32,15 @@ public class RemoteSandboxProvider implements SandboxProvider {
 
     private final SandboxHttpClient sandboxHttpClient;
     private final AcpProperties acpProperties;
+    private final SidecarWebSocketClient sidecarClient;
 
-    public RemoteSandboxProvider(SandboxHttpClient sandboxHttpClient, AcpProperties acpProperties) {
+    public RemoteSandboxProvider(
+            SandboxHttpClient sandboxHttpClient,
+            AcpProperties acpProperties,
+            SidecarWebSocketClient sidecarClient) {
         this.sandboxHttpClient = sandboxHttpClient;
         this.acpProperties = acpProperties;
+        this.sidecarClient = sidecarClient;
     }
 
     @Override
@@ -44,6 +50,37 @@ public class RemoteSandboxProvider implements SandboxProvider {
 
     @Override
     public SandboxInfo acquire(SandboxConfig config) {
+        return assign(acquireWarm(), config);
+    }
+
+    /**
+     * 所有用户共用同一个 Sidecar，预热的沙箱只需在分配时绑定用户工作目录。
+     */
+    @Override
+    public boolean supportsWarmPool() {
+        return true;
+    }
+
+    @Override
+    public boolean sharesWarmSandbox() {
+        return true;
+    }
+
+    @Override
+    public SandboxInfo acquireWarm() {
+        AcpProperties.RemoteConfig remoteConfig = acpProperties.getRemote();
+        return new SandboxInfo(
+                SandboxType.REMOTE,
+                "sandbox-remote",
+                remoteConfig.getHost(),
+                remoteConfig.getPort(),
+                null,
+                true,
+                Map.of());
+    }
+
+    @Override
+    public SandboxInfo assign(SandboxInfo warm, SandboxConfig config) {
         if (config.userId() == null || config.userId().isBlank()) {
             throw new IllegalArgumentException("userId 不能为空");
         }
@@ -52,21 +89,23 @@ public class RemoteSandboxProvider implements SandboxProvider {
             throw new IllegalArgumentException("userId 包含非法字符: " + userId);
         }
 
-        AcpProperties.RemoteConfig remoteConfig = acpProperties.getRemote();
-        String host = remoteConfig.getHost();
-        int port = remoteConfig.getPort();
-
         String workspacePath = "/workspace/" + userId;
 
         logger.info(
                 "[RemoteSandboxProvider] acquire: userId={}, host={}:{}, workspacePath={}",
                 userId,
-                host,
-                port,
+                warm.host(),
+                warm.sidecarPort(),
                 workspacePath);
 
         return new SandboxInfo(
-                SandboxType.REMOTE, "sandbox-remote", host, port, workspacePath, true, Map.of());
+                warm.type(),
+                warm.sandboxId(),
+                warm.host(),
+                warm.sidecarPort(),
+                workspacePath,
+                warm.reused(),
+                warm.metadata());
     }
 
     @Override
@@ -114,7 +153,8 @@ public class RemoteSandboxProvider implements SandboxProvider {
 
     @Override
     public RuntimeAdapter connectSidecar(SandboxInfo info, RuntimeConfig config) {
-        RemoteRuntimeAdapter adapter = new RemoteRuntimeAdapter(info.host(), info.sidecarPort());
+        RemoteRuntimeAdapter adapter =
+                new RemoteRuntimeAdapter(info.host(), info.sidecarPort(), sidecarClient);
 
         String command = config.getCommand();
         String args = config.getArgs() != null ? String.join(" ", config.getArgs()) : null;
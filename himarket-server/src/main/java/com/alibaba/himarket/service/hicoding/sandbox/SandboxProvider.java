@@ -38,6 +38,34 @@ public interface SandboxProvider {
      */
     SandboxInfo acquire(SandboxConfig config);
 
+    /**
+     * 是否支持预热池。支持时 {@link #acquireWarm()} 产出的沙箱可在连接时经 {@link #assign} 分配给任意用户。
+     */
+    default boolean supportsWarmPool() {
+        return false;
+    }
+
+    /**
+     * 预热沙箱是否由所有会话共用（如共享同一个 Sidecar）。共用时预热池只保留一个实例，分配后不移出池。
+     */
+    default boolean sharesWarmSandbox() {
+        return false;
+    }
+
+    /**
+     * 获取一个尚未绑定用户的沙箱实例，供预热池提前完成创建与健康检查。
+     */
+    default SandboxInfo acquireWarm() {
+        throw new UnsupportedOperationException("warm pool not supported");
+    }
+
+    /**
+     * 将预热池中的沙箱分配给用户，返回绑定用户工作空间后的沙箱信息。
+     */
+    default SandboxInfo assign(SandboxInfo warm, SandboxConfig config) {
+        throw new UnsupportedOperationException("warm pool not supported");
+    }
+
     /**
      * 释放沙箱资源。
      */
@@ -0,0 +1,373 @@
+package com.alibaba.himarket.service.hicoding.sandbox;
+
+import com.alibaba.himarket.config.AcpProperties;
+import com.alibaba.himarket.service.hicoding.sandbox.init.RetryPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 沙箱预热池。
+ *
+ * <p>为每种支持预热（{@link SandboxProvider#supportsWarmPool()}）的沙箱类型保持 {@code size} 个
+ * 已完成获取且健康检查通过的沙箱。连接时由 {@link #take} 取出一个交给 SandboxInitPipeline，
+ * 跳过获取与文件系统健康检查阶段；取出后在 boundedElastic 线程异步补充。
+ *
+ * <p>只有健康检查结果不超过 {@code healthCheckMaxAgeSeconds} 的沙箱才会分配，池在后台按该时长的一半重新检查空闲沙箱，
+ * 检查失败的被丢弃并重新预热。补充时健康检查失败按 {@link RetryPolicy#lbWarmup()} 退避重试，
+ * 等待 LB 规则下发的时间不落在用户连接路径上。空闲超过 {@code maxIdleSeconds} 的沙箱会被丢弃并重新获取。
+ *
+ * <p>所有会话共用的沙箱（{@link SandboxProvider#sharesWarmSandbox()}，如 REMOTE 的共享 Sidecar）只保留一个，
+ * 分配时不移出池。
+ *
+ * <p>指标（按 type 区分）：{@code sandbox.warm.pool.size}、{@code sandbox.warm.pool.requests}
+ * （result=hit/miss）、{@code sandbox.warm.pool.hit.ratio}、{@code sandbox.warm.pool.time.to.ready}、
+ * {@code sandbox.warm.pool.refill.failures}。
+ */
+@Component
+public class SandboxWarmPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(SandboxWarmPool.class);
+
+    private final AcpProperties.WarmPoolConfig config;
+    private final Map<SandboxType, Pool> pools = new EnumMap<>(SandboxType.class);
+    private final Scheduler scheduler = Schedulers.boundedElastic();
+
+    private volatile boolean closed;
+    private Disposable maintenance;
+
+    public SandboxWarmPool(
+            SandboxProviderRegistry providerRegistry,
+            AcpProperties acpProperties,
+            MeterRegistry meterRegistry) {
+        this.config = acpProperties.getWarmPool();
+        if (!config.isEnabled() || config.getSize() <= 0) {
+            return;
+        }
+        for (SandboxType type : providerRegistry.supportedTypes()) {
+            SandboxProvider provider = providerRegistry.getProvider(type);
+            if (provider.supportsWarmPool()) {
+                pools.put(type, new Pool(provider, meterRegistry));
+            }
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (pools.isEmpty()) {
+            return;
+        }
+        logger.info("[WarmPool] 启用沙箱预热池: types={}, size={}", pools.keySet(), config.getSize());
+        long periodMillis = Math.max(500, recheckNanos() / 1_000_000);
+        maintenance =
+                scheduler.schedulePeriodically(
+                        this::maintain, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        closed = true;
+        if (maintenance != null) {
+            maintenance.dispose();
+        }
+        pools.values().forEach(Pool::drain);
+    }
+
+    /**
+     * 取出一个健康检查结果仍有效的预热沙箱并触发异步补充。
+     *
+     * @return 预热沙箱，池中没有可用沙箱或该类型未启用预热时返回 null
+     */
+    public SandboxInfo take(SandboxType type) {
+        Pool pool = pools.get(type);
+        if (pool == null) {
+            return null;
+        }
+        SandboxInfo info = pool.take();
+        pool.refill();
+        return info;
+    }
+
+    /**
+     * 丢弃过期沙箱、重新检查空闲沙箱并补足各类型的预热池。
+     */
+    void maintain() {
+        for (Pool pool : pools.values()) {
+            pool.evictExpired();
+            pool.recheck();
+            pool.refill();
+        }
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String type, String result) {
+        return Counter.builder("sandbox.warm.pool.requests")
+                .tag("type", type)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private long maxIdleNanos() {
+        return TimeUnit.SECONDS.toNanos(config.getMaxIdleSeconds());
+    }
+
+    private long maxAgeNanos() {
+        return TimeUnit.SECONDS.toNanos(config.getHealthCheckMaxAgeSeconds());
+    }
+
+    private long recheckNanos() {
+        return maxAgeNanos() / 2;
+    }
+
+    /**
+     * 池中的沙箱，checkedAtNanos 为最近一次健康检查通过的时间。
+     */
+    private static final class WarmSandbox {
+
+        private final SandboxInfo info;
+        private final long readyAtNanos;
+        private final AtomicBoolean checking = new AtomicBoolean();
+        private volatile long checkedAtNanos;
+
+        WarmSandbox(SandboxInfo info, long readyAtNanos) {
+            this.info = info;
+            this.readyAtNanos = readyAtNanos;
+            this.checkedAtNanos = readyAtNanos;
+        }
+    }
+
+    /**
+     * 单个沙箱类型的预热池。
+     */
+    private final class Pool {
+
+        private final SandboxProvider provider;
+        private final Deque<WarmSandbox> idle = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger preparing = new AtomicInteger();
+
+        private final Counter hits;
+        private final Counter misses;
+        private final Counter refillFailures;
+        private final Timer timeToReady;
+
+        Pool(SandboxProvider provider, MeterRegistry meterRegistry) {
+            this.provider = provider;
+            String type = provider.getType().getValue();
+            Gauge.builder("sandbox.warm.pool.size", idle, Deque::size)
+                    .description("Warm sandboxes ready to be handed out")
+                    .tag("type", type)
+                    .register(meterRegistry);
+            this.hits = requestCounter(meterRegistry, type, "hit");
+            this.misses = requestCounter(meterRegistry, type, "miss");
+            Gauge.builder("sandbox.warm.pool.hit.ratio", this, Pool::hitRatio)
+                    .description("Share of session starts served from the warm pool")
+                    .tag("type", type)
+                    .register(meterRegistry);
+            this.timeToReady =
+                    Timer.builder("sandbox.warm.pool.time.to.ready")
+                            .description("Time to acquire and health-check a warm sandbox")
+                            .tag("type", type)
+                            .register(meterRegistry);
+            this.refillFailures =
+                    Counter.builder("sandbox.warm.pool.refill.failures")
+                            .description("Warm sandboxes that failed to become ready")
+                            .tag("type", type)
+                            .register(meterRegistry);
+        }
+
+        double hitRatio() {
+            double total = hits.count() + misses.count();
+            return total == 0 ? 0 : hits.count() / total;
+        }
+
+        SandboxInfo take() {
+            long now = System.nanoTime();
+            for (WarmSandbox warm : idle) {
+                if (now - warm.readyAtNanos > maxIdleNanos()) {
+                    if (idle.remove(warm)) {
+                        release(warm.info);
+                    }
+                    continue;
+                }
+                // 健康检查结果过旧的留给后台重新检查，不分配
+                if (now - warm.checkedAtNanos > maxAgeNanos()) {
+                    continue;
+                }
+                // 共用沙箱分配后留在池中；独占沙箱仅当未被并发取走时分配
+                if (provider.sharesWarmSandbox() || idle.remove(warm)) {
+                    hits.increment();
+                    return warm.info;
+                }
+            }
+            misses.increment();
+            return null;
+        }
+
+        /**
+         * 目标数量，共用沙箱只需一个。
+         */
+        private int target() {
+            return provider.sharesWarmSandbox() ? 1 : config.getSize();
+        }
+
+        /**
+         * 补足到目标数量，预热任务在 boundedElastic 线程执行。
+         */
+        void refill() {
+            while (!closed) {
+                int current = preparing.get();
+                if (idle.size() + current >= target()) {
+                    return;
+                }
+                if (preparing.compareAndSet(current, current + 1)) {
+                    long start = System.nanoTime();
+                    scheduler.schedule(() -> prepare(start));
+                }
+            }
+        }
+
+        void evictExpired() {
+            long now = System.nanoTime();
+            for (WarmSandbox warm : idle) {
+                if (now - warm.readyAtNanos > maxIdleNanos() && idle.remove(warm)) {
+                    release(warm.info);
+                }
+            }
+        }
+
+        /**
+         * 重新检查健康检查结果即将过期的空闲沙箱，失败的移出池。
+         */
+        void recheck() {
+            long now = System.nanoTime();
+            for (WarmSandbox warm : idle) {
+                if (now - warm.checkedAtNanos >= recheckNanos()
+                        && warm.checking.compareAndSet(false, true)) {
+                    scheduler.schedule(() -> recheck(warm));
+                }
+            }
+        }
+
+        private void recheck(WarmSandbox warm) {
+            boolean healthy;
+            try {
+                healthy = !closed && provider.healthCheck(warm.info);
+            } catch (Exception e) {
+                healthy = false;
+            }
+            if (healthy) {
+                warm.checkedAtNanos = System.nanoTime();
+            } else if (idle.remove(warm)) {
+                // 已被分配的沙箱归会话所有，不在这里释放
+                logger.warn(
+                        "[WarmPool] 预热沙箱重新检查失败，丢弃: type={}, sandboxId={}",
+                        provider.getType(),
+                        warm.info.sandboxId());
+                release(warm.info);
+                refill();
+            }
+            warm.checking.set(false);
+        }
+
+        void drain() {
+            WarmSandbox warm;
+            while ((warm = idle.pollFirst()) != null) {
+                release(warm.info);
+            }
+        }
+
+        private void prepare(long start) {
+            if (closed) {
+                preparing.decrementAndGet();
+                return;
+            }
+            SandboxInfo info;
+            try {
+                info = provider.acquireWarm();
+            } catch (Exception e) {
+                logger.warn(
+                        "[WarmPool] 预热沙箱获取失败: type={}, error={}",
+                        provider.getType(),
+                        e.getMessage());
+                fail();
+                return;
+            }
+            verify(info, start, 1);
+        }
+
+        private void verify(SandboxInfo info, long start, int attempt) {
+            if (closed) {
+                release(info);
+                preparing.decrementAndGet();
+                return;
+            }
+            boolean healthy;
+            try {
+                healthy = provider.healthCheck(info);
+            } catch (Exception e) {
+                healthy = false;
+            }
+            if (healthy) {
+                timeToReady.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                idle.addLast(new WarmSandbox(info, System.nanoTime()));
+                preparing.decrementAndGet();
+                logger.debug(
+                        "[WarmPool] 预热沙箱就绪: type={}, sandboxId={}, attempts={}",
+                        provider.getType(),
+                        info.sandboxId(),
+                        attempt);
+                return;
+            }
+            RetryPolicy policy = RetryPolicy.lbWarmup();
+            if (attempt > policy.maxRetries()) {
+                logger.warn(
+                        "[WarmPool] 预热沙箱健康检查失败，放弃: type={}, sandboxId={}, attempts={}",
+                        provider.getType(),
+                        info.sandboxId(),
+                        attempt);
+                release(info);
+                fail();
+                return;
+            }
+            scheduler.schedule(
+                    () -> verify(info, start, attempt + 1),
+                    policy.delayMillis(attempt),
+                    TimeUnit.MILLISECONDS);
+        }
+
+        private void fail() {
+            refillFailures.increment();
+            preparing.decrementAndGet();
+        }
+
+        private void release(SandboxInfo info) {
+            // 共用沙箱的生命周期不归预热池管理
+            if (provider.sharesWarmSandbox()) {
+                return;
+            }
+            try {
+                provider.release(info);
+            } catch (Exception e) {
+                logger.warn(
+                        "[WarmPool] 释放预热沙箱失败: sandboxId={}, error={}",
+                        info.sandboxId(),
+                        e.getMessage());
+            }
+        }
+    }
+}
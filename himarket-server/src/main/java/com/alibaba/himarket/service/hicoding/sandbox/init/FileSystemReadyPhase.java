@@ -12,6 +12,8 @@ import org.slf4j.LoggerFactory;
  * <p>当健康检查失败时，提供包含 host:port 的友好错误信息，
  * 帮助用户快速定位沙箱连接问题。使用快速失败策略（仅重试 1 次），
  * 避免沙箱不可达时长时间无意义等待。
+ *
+ * <p>来自预热池的沙箱在入池前已通过健康检查，跳过本阶段。
  */
 public class FileSystemReadyPhase implements InitPhase {
 
@@ -29,7 +31,8 @@ public class FileSystemReadyPhase implements InitPhase {
 
     @Override
     public boolean shouldExecute(InitContext context) {
-        return true;
+        // 预热池只分配健康检查结果不超过 healthCheckMaxAgeSeconds 的沙箱
+        return context.getWarmSandbox() == null;
     }
 
     @Override
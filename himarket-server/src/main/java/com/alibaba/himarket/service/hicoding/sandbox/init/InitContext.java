@@ -31,6 +31,9 @@ public class InitContext {
     private final CliSessionConfig sessionConfig;
     private final WebSocketSession frontendSession;
 
+    // 预热池分配的沙箱（可为 null）
+    private SandboxInfo warmSandbox;
+
     // 阶段产出
     private SandboxInfo sandboxInfo;
     private RuntimeAdapter runtimeAdapter;
@@ -89,6 +92,10 @@ public class InitContext {
         return frontendSession;
     }
 
+    public SandboxInfo getWarmSandbox() {
+        return warmSandbox;
+    }
+
     public SandboxInfo getSandboxInfo() {
         return sandboxInfo;
     }
@@ -119,6 +126,10 @@ public class InitContext {
 
     // ========== Setters（阶段产出 + 状态） ==========
 
+    public void setWarmSandbox(SandboxInfo warmSandbox) {
+        this.warmSandbox = warmSandbox;
+    }
+
     public void setSandboxInfo(SandboxInfo sandboxInfo) {
         this.sandboxInfo = sandboxInfo;
     }
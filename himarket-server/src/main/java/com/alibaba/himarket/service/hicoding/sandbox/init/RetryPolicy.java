@@ -21,4 +21,14 @@ public record RetryPolicy(
     public static RetryPolicy lbWarmup() {
         return new RetryPolicy(10, Duration.ofSeconds(3), 1.5, Duration.ofSeconds(10));
     }
+
+    /** 第 attempt 次失败后的等待时间（从 1 开始），按指数退避并受 maxDelay 限制。 */
+    public long delayMillis(int attempt) {
+        long delayMs = (long) (initialDelay.toMillis() * Math.pow(backoffMultiplier, attempt - 1));
+        long maxDelayMs = maxDelay.toMillis();
+        if (maxDelayMs > 0) {
+            delayMs = Math.min(delayMs, maxDelayMs);
+        }
+        return delayMs;
+    }
 }
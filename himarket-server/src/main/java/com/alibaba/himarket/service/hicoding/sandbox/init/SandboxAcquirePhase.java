@@ -6,6 +6,7 @@ import com.alibaba.himarket.service.hicoding.sandbox.SandboxProvider;
 /**
  * 获取沙箱实例。
  * 通过 SandboxProvider.acquire() 统一处理，不直接依赖任何具体实现。
+ * 上下文中已有预热池分配的沙箱时，改为 SandboxProvider.assign() 将其绑定到当前用户。
  */
 public class SandboxAcquirePhase implements InitPhase {
 
@@ -26,11 +27,19 @@ public class SandboxAcquirePhase implements InitPhase {
 
     @Override
     public void execute(InitContext context) throws InitPhaseException {
+        SandboxProvider provider = context.getProvider();
+        SandboxInfo warm = context.getWarmSandbox();
         try {
-            SandboxProvider provider = context.getProvider();
-            SandboxInfo info = provider.acquire(context.getSandboxConfig());
+            SandboxInfo info =
+                    warm != null
+                            ? provider.assign(warm, context.getSandboxConfig())
+                            : provider.acquire(context.getSandboxConfig());
             context.setSandboxInfo(info);
         } catch (Exception e) {
+            // 共用的预热沙箱仍在池中，不能释放
+            if (warm != null && !provider.sharesWarmSandbox()) {
+                provider.release(warm);
+            }
             throw new InitPhaseException("sandbox-acquire", "沙箱获取失败: " + e.getMessage(), e, false);
         }
     }
@@ -146,17 +146,8 @@ public class SandboxInitPipeline {
                             maxAttempts,
                             e.getMessage());
 
-                    long delayMs =
-                            (long)
-                                    (policy.initialDelay().toMillis()
-                                            * Math.pow(policy.backoffMultiplier(), attempt - 1));
-                    long maxDelayMs = policy.maxDelay().toMillis();
-                    if (maxDelayMs > 0) {
-                        delayMs = Math.min(delayMs, maxDelayMs);
-                    }
-
                     try {
-                        Thread.sleep(delayMs);
+                        Thread.sleep(policy.delayMillis(attempt));
                     } catch (InterruptedException ie) {
                         Thread.currentThread().interrupt();
                         context.setLastError("重试等待被中断");
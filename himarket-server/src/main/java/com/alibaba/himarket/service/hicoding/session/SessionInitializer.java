@@ -9,6 +9,7 @@ import com.alibaba.himarket.service.hicoding.sandbox.SandboxInfo;
 import com.alibaba.himarket.service.hicoding.sandbox.SandboxProvider;
 import com.alibaba.himarket.service.hicoding.sandbox.SandboxProviderRegistry;
 import com.alibaba.himarket.service.hicoding.sandbox.SandboxType;
+import com.alibaba.himarket.service.hicoding.sandbox.SandboxWarmPool;
 import com.alibaba.himarket.service.hicoding.sandbox.init.ConfigInjectionPhase;
 import com.alibaba.himarket.service.hicoding.sandbox.init.FileSystemReadyPhase;
 import com.alibaba.himarket.service.hicoding.sandbox.init.InitConfig;
@@ -31,7 +32,7 @@ import org.springframework.web.socket.WebSocketSession;
  * 会话初始化器。
  *
  * <p>编排沙箱初始化的完整流程：获取 Provider → 注入 authToken → 解析配置 →
- * 构建 SandboxConfig/InitContext → 执行 Pipeline → 返回结果。
+ * 构建 SandboxConfig/InitContext → 从预热池取沙箱 → 执行 Pipeline → 返回结果。
  *
  * <p>从 {@code HiCodingWebSocketHandler.initSandboxAsync()} 中提取，
  * 不包含 WebSocket 消息发送、stdout 订阅、连接状态管理等职责。
@@ -44,14 +45,17 @@ public class SessionInitializer {
     private final SessionConfigResolver configResolver;
     private final ConfigFileBuilder configFileBuilder;
     private final SandboxProviderRegistry providerRegistry;
+    private final SandboxWarmPool warmPool;
 
     public SessionInitializer(
             SessionConfigResolver configResolver,
             ConfigFileBuilder configFileBuilder,
-            SandboxProviderRegistry providerRegistry) {
+            SandboxProviderRegistry providerRegistry,
+            SandboxWarmPool warmPool) {
         this.configResolver = configResolver;
         this.configFileBuilder = configFileBuilder;
         this.providerRegistry = providerRegistry;
+        this.warmPool = warmPool;
     }
 
     /**
@@ -123,7 +127,10 @@ public class SessionInitializer {
                             frontendSession);
             context.setResolvedSessionConfig(resolved);
 
-            // 6. 构建 Pipeline（传入 ConfigFileBuilder 给 ConfigInjectionPhase）
+            // 6. 从预热池取刚通过健康检查的沙箱，命中时跳过获取与健康检查阶段
+            context.setWarmSandbox(warmPool.take(sandboxType));
+
+            // 7. 构建 Pipeline（传入 ConfigFileBuilder 给 ConfigInjectionPhase）
             SandboxInitPipeline pipeline =
                     new SandboxInitPipeline(
                             List.of(
@@ -134,10 +141,10 @@ public class SessionInitializer {
                                     new SidecarConnectPhase()),
                             InitConfig.defaults());
 
-            // 7. 执行 Pipeline
+            // 8. 执行 Pipeline
             InitResult result = pipeline.execute(context);
 
-            // 8. 转换为 InitializationResult
+            // 9. 转换为 InitializationResult
             return toInitializationResult(result, context);
 
         } catch (Exception e) {
@@ -1,30 +1,30 @@
 package com.alibaba.himarket.service.hicoding.terminal;
 
+import com.alibaba.himarket.service.hicoding.runtime.SidecarWebSocketClient;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Executors;
-import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.reactive.socket.WebSocketMessage;
-import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * 远程终端后端。
  * 通过 WebSocket 连接 Sidecar 的 /terminal 端点，
  * Sidecar 端使用 node-pty 提供交互式 PTY shell。
  * 不依赖 K8s API，适用于任意可达的 Sidecar 服务。
+ * 连接、心跳与重连定时均使用共享的 {@link SidecarWebSocketClient}，不持有专用线程。
  */
 public class RemoteTerminalBackend implements TerminalBackend {
 
@@ -36,6 +36,7 @@ public class RemoteTerminalBackend implements TerminalBackend {
     private final String host;
     private final int port;
     private final String cwd;
+    private final SidecarWebSocketClient sidecarClient;
 
     private final Sinks.Many<byte[]> outputSink = Sinks.many().multicast().onBackpressureBuffer();
     private final Sinks.Many<String> sendSink = Sinks.many().unicast().onBackpressureBuffer();
@@ -45,15 +46,7 @@ public class RemoteTerminalBackend implements TerminalBackend {
     private volatile boolean closed = false;
 
     // 心跳保活
-    private final ScheduledExecutorService scheduler =
-            Executors.newScheduledThreadPool(
-                    1,
-                    r -> {
-                        Thread t = new Thread(r, "remote-terminal-scheduler");
-                        t.setDaemon(true);
-                        return t;
-                    });
-    private ScheduledFuture<?> pingFuture;
+    private Disposable heartbeatTask;
 
     // 断连重连
     private final AtomicInteger reconnectAttempts = new AtomicInteger(0);
@@ -61,10 +54,12 @@ public class RemoteTerminalBackend implements TerminalBackend {
     private volatile int lastCols;
     private volatile int lastRows;
 
-    public RemoteTerminalBackend(String host, int port, String cwd) {
+    public RemoteTerminalBackend(
+            String host, int port, String cwd, SidecarWebSocketClient sidecarClient) {
         this.host = host;
         this.port = port;
         this.cwd = cwd;
+        this.sidecarClient = sidecarClient;
     }
 
     @Override
@@ -89,17 +84,15 @@ public class RemoteTerminalBackend implements TerminalBackend {
 
         logger.info("[RemoteTerminal] Connecting to {}", wsUri);
 
-        ReactorNettyWebSocketClient wsClient = new ReactorNettyWebSocketClient();
-        CountDownLatch connectedLatch = blocking ? new CountDownLatch(1) : null;
+        CompletableFuture<Void> connected = new CompletableFuture<>();
 
         wsConnection =
-                wsClient.execute(
+                sidecarClient
+                        .execute(
                                 wsUri,
                                 session -> {
                                     wsSessionRef.set(session);
-                                    if (connectedLatch != null) {
-                                        connectedLatch.countDown();
-                                    }
+                                    connected.complete(null);
 
                                     Flux<WebSocketMessage> outgoing =
                                             sendSink.asFlux().map(session::textMessage);
@@ -142,15 +135,19 @@ public class RemoteTerminalBackend implements TerminalBackend {
                                                                     })
                                                             .then());
                                 })
-                        .subscribe();
+                        .subscribe(unused -> {}, connected::completeExceptionally);
 
         if (blocking) {
             try {
-                if (!connectedLatch.await(10, TimeUnit.SECONDS)) {
-                    throw new IOException("连接远程终端超时: " + wsUri);
-                }
+                connected.get(10, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                wsConnection.dispose();
+                throw new IOException("连接远程终端超时: " + wsUri);
+            } catch (ExecutionException e) {
+                throw new IOException("连接远程终端失败: " + wsUri, e.getCause());
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
+                wsConnection.dispose();
                 throw new IOException("连接远程终端被中断", e);
             }
         }
@@ -160,40 +157,29 @@ public class RemoteTerminalBackend implements TerminalBackend {
 
     private void startHeartbeat() {
         stopHeartbeat();
-        try {
-            pingFuture =
-                    scheduler.scheduleAtFixedRate(
-                            () -> {
-                                try {
-                                    var session = wsSessionRef.get();
-                                    if (session == null || !session.isOpen()) {
-                                        return;
-                                    }
-                                    session.send(Mono.just(session.textMessage(HEARTBEAT_MSG)))
-                                            .subscribe(
-                                                    unused -> {},
-                                                    err ->
-                                                            logger.warn(
-                                                                    "[RemoteTerminal] Heartbeat"
-                                                                            + " failed: {}",
-                                                                    err.getMessage()));
-                                } catch (Exception e) {
-                                    logger.warn(
-                                            "[RemoteTerminal] Heartbeat error: {}", e.getMessage());
-                                }
-                            },
-                            HEARTBEAT_INTERVAL_SECONDS,
-                            HEARTBEAT_INTERVAL_SECONDS,
-                            TimeUnit.SECONDS);
-        } catch (RejectedExecutionException e) {
-            logger.debug("[RemoteTerminal] Scheduler already shutdown, skip heartbeat");
-        }
+        heartbeatTask =
+                sidecarClient.schedulePeriodic(
+                        () -> {
+                            var session = wsSessionRef.get();
+                            if (session == null || !session.isOpen()) {
+                                return;
+                            }
+                            session.send(Mono.just(session.textMessage(HEARTBEAT_MSG)))
+                                    .subscribe(
+                                            unused -> {},
+                                            err ->
+                                                    logger.warn(
+                                                            "[RemoteTerminal] Heartbeat failed: {}",
+                                                            err.getMessage()));
+                        },
+                        HEARTBEAT_INTERVAL_SECONDS,
+                        TimeUnit.SECONDS);
     }
 
     private void stopHeartbeat() {
-        if (pingFuture != null) {
-            pingFuture.cancel(false);
-            pingFuture = null;
+        if (heartbeatTask != null) {
+            heartbeatTask.dispose();
+            heartbeatTask = null;
         }
     }
 
@@ -217,8 +203,12 @@ public class RemoteTerminalBackend implements TerminalBackend {
                 "[RemoteTerminal] Scheduling reconnect attempt {} in {}ms", attempt + 1, delayMs);
 
         try {
-            scheduler.schedule(this::doReconnect, delayMs, TimeUnit.MILLISECONDS);
-        } catch (RejectedExecutionException e) {
+            // 重连会阻塞等待握手，不能在共享时间轮线程上执行
+            sidecarClient.schedule(
+                    () -> Schedulers.boundedElastic().schedule(this::doReconnect),
+                    delayMs,
+                    TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
             logger.debug("[RemoteTerminal] Scheduler shutdown, cannot reconnect");
             reconnecting = false;
             outputSink.tryEmitComplete();
@@ -282,7 +272,6 @@ public class RemoteTerminalBackend implements TerminalBackend {
         closed = true;
         logger.info("[RemoteTerminal] Closing");
         stopHeartbeat();
-        scheduler.shutdownNow();
         outputSink.tryEmitComplete();
         sendSink.tryEmitComplete();
         if (wsConnection != null && !wsConnection.isDisposed()) {
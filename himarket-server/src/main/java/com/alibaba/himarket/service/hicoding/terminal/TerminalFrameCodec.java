@@ -0,0 +1,80 @@
+package com.alibaba.himarket.service.hicoding.terminal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 终端二进制帧编解码。
+ *
+ * <p>每个 WebSocket 二进制帧的第一个字节为帧类型，其余为负载：
+ * <ul>
+ *   <li>服务端 → 客户端 {@link #OUTPUT}：PTY 原始输出字节
+ *   <li>服务端 → 客户端 {@link #EXIT}：4 字节大端退出码
+ *   <li>客户端 → 服务端 {@link #INPUT}：UTF-8 编码的用户输入
+ *   <li>客户端 → 服务端 {@link #RESIZE}：2 字节列数 + 2 字节行数（无符号大端）
+ * </ul>
+ * 客户端通过握手参数 {@code ?protocol=binary} 启用该协议，未声明的旧客户端继续使用 JSON + Base64 文本帧。
+ */
+public final class TerminalFrameCodec {
+
+    /** 握手参数取值，声明客户端支持二进制帧 */
+    public static final String PROTOCOL_BINARY = "binary";
+
+    public static final byte OUTPUT = 0x01;
+    public static final byte EXIT = 0x02;
+
+    public static final byte INPUT = 0x01;
+    public static final byte RESIZE = 0x02;
+
+    private TerminalFrameCodec() {}
+
+    /**
+     * 编码输出帧，仅做一次拷贝。
+     */
+    public static ByteBuffer encodeOutput(byte[] data, int offset, int length) {
+        byte[] frame = new byte[length + 1];
+        frame[0] = OUTPUT;
+        System.arraycopy(data, offset, frame, 1, length);
+        return ByteBuffer.wrap(frame);
+    }
+
+    public static ByteBuffer encodeExit(int code) {
+        return ByteBuffer.allocate(5).put(EXIT).putInt(code).flip();
+    }
+
+    /**
+     * 解码客户端上行帧并分派给终端后端。
+     *
+     * @return false 表示帧类型未知或长度不合法
+     */
+    public static boolean dispatch(ByteBuffer frame, TerminalBackend backend) throws IOException {
+        if (!frame.hasRemaining()) {
+            return false;
+        }
+        byte type = frame.get();
+        switch (type) {
+            case INPUT -> {
+                if (frame.hasRemaining()) {
+                    backend.write(StandardCharsets.UTF_8.decode(frame).toString());
+                }
+                return true;
+            }
+            case RESIZE -> {
+                if (frame.remaining() < 4) {
+                    return false;
+                }
+                int cols = Short.toUnsignedInt(frame.getShort());
+                int rows = Short.toUnsignedInt(frame.getShort());
+                if (cols == 0 || rows == 0) {
+                    return false;
+                }
+                backend.resize(cols, rows);
+                return true;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.alibaba.himarket.service.hicoding.terminal;
+
+import com.alibaba.himarket.config.AcpProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 单个终端会话的下行输出通道。
+ *
+ * <p>PTY 输出线程只负责把字节追加到待发送队列，不做编码也不阻塞在 WebSocket 发送上；
+ * 队列在 {@code flushIntervalMs} 到期或累计达到 {@code maxFrameBytes} 时由 boundedElastic 线程合并成帧发送。
+ * 同一时刻最多只有一个发送任务，发送期间到达的输出继续合并，客户端越慢单帧越大。
+ * 待发送字节超过 {@code maxPendingBytes} 时关闭连接，避免无限堆积，也避免丢字节导致终端转义序列错乱。
+ */
+class TerminalOutputChannel {
+
+    private static final Logger logger = LoggerFactory.getLogger(TerminalOutputChannel.class);
+
+    /**
+     * 通道指标，按协议区分，所有会话共享。
+     */
+    record Metrics(
+            AtomicLong queuedBytes,
+            DistributionSummary frameBytes,
+            Timer sendLatency,
+            Counter overflows) {}
+
+    private final WebSocketSession session;
+    private final boolean binary;
+    private final ObjectMapper objectMapper;
+    private final AcpProperties.TerminalConfig config;
+    private final Metrics metrics;
+    private final Scheduler scheduler = Schedulers.boundedElastic();
+
+    private final Object lock = new Object();
+    private final ArrayDeque<byte[]> pending = new ArrayDeque<>();
+    private int headOffset;
+    private int pendingBytes;
+    private boolean flushScheduled;
+    private boolean closed;
+    private Integer exitCode;
+
+    TerminalOutputChannel(
+            WebSocketSession session,
+            boolean binary,
+            ObjectMapper objectMapper,
+            AcpProperties.TerminalConfig config,
+            Metrics metrics) {
+        this.session = session;
+        this.binary = binary;
+        this.objectMapper = objectMapper;
+        this.config = config;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 追加一段 PTY 输出，由终端输出线程调用，不会阻塞。
+     */
+    void append(byte[] data) {
+        if (data.length == 0) {
+            return;
+        }
+        long delayMs;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            if (pendingBytes + data.length > config.getMaxPendingBytes()) {
+                overflow();
+                return;
+            }
+            pending.addLast(data);
+            pendingBytes += data.length;
+            metrics.queuedBytes().addAndGet(data.length);
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+            delayMs = pendingBytes >= config.getMaxFrameBytes() ? 0 : config.getFlushIntervalMs();
+        }
+        schedule(delayMs);
+    }
+
+    /**
+     * 终端退出，剩余输出发送完毕后再发送退出帧。
+     */
+    void exit(int code) {
+        synchronized (lock) {
+            if (closed || exitCode != null) {
+                return;
+            }
+            exitCode = code;
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        schedule(0);
+    }
+
+    /**
+     * 关闭通道并丢弃未发送的输出。
+     */
+    void close() {
+        synchronized (lock) {
+            closed = true;
+            discardPending();
+        }
+    }
+
+    private void schedule(long delayMs) {
+        if (delayMs > 0) {
+            scheduler.schedule(this::flush, delayMs, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler.schedule(this::flush);
+        }
+    }
+
+    private void flush() {
+        while (true) {
+            byte[] frame;
+            int frameLength;
+            Integer code = null;
+            synchronized (lock) {
+                if (closed) {
+                    flushScheduled = false;
+                    return;
+                }
+                if (pendingBytes == 0) {
+                    if (exitCode == null) {
+                        flushScheduled = false;
+                        return;
+                    }
+                    code = exitCode;
+                    closed = true;
+                    flushScheduled = false;
+                }
+                frameLength = Math.min(pendingBytes, config.getMaxFrameBytes());
+                frame = code == null ? take(frameLength) : null;
+            }
+            try {
+                if (code != null) {
+                    sendExit(code);
+                    return;
+                }
+                sendOutput(frame, frameLength);
+            } catch (Exception e) {
+                logger.debug(
+                        "Failed to send terminal output for session {}: {}",
+                        session.getId(),
+                        e.getMessage());
+                close();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 从队列头部取出 length 字节，调用方需持有锁。
+     */
+    private byte[] take(int length) {
+        byte[] head = pending.peekFirst();
+        if (headOffset == 0 && head.length == length) {
+            pending.pollFirst();
+            pendingBytes -= length;
+            metrics.queuedBytes().addAndGet(-length);
+            return head;
+        }
+        byte[] out = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            head = pending.peekFirst();
+            int n = Math.min(head.length - headOffset, length - copied);
+            System.arraycopy(head, headOffset, out, copied, n);
+            copied += n;
+            headOffset += n;
+            if (headOffset == head.length) {
+                pending.pollFirst();
+                headOffset = 0;
+            }
+        }
+        pendingBytes -= length;
+        metrics.queuedBytes().addAndGet(-length);
+        return out;
+    }
+
+    private void sendOutput(byte[] data, int length) throws Exception {
+        WebSocketMessage<?> message;
+        if (binary) {
+            message = new BinaryMessage(TerminalFrameCodec.encodeOutput(data, 0, length));
+        } else {
+            String encoded = Base64.getEncoder().encodeToString(data);
+            message =
+                    new TextMessage(
+                            objectMapper.writeValueAsString(
+                                    Map.of("type", "output", "data", encoded)));
+        }
+        metrics.frameBytes().record(length);
+        send(message);
+    }
+
+    private void sendExit(int code) throws Exception {
+        WebSocketMessage<?> message =
+                binary
+                        ? new BinaryMessage(TerminalFrameCodec.encodeExit(code))
+                        : new TextMessage(
+                                objectMapper.writeValueAsString(
+                                        Map.of("type", "exit", "code", code)));
+        send(message);
+    }
+
+    private void send(WebSocketMessage<?> message) throws Exception {
+        if (!session.isOpen()) {
+            close();
+            return;
+        }
+        long start = System.nanoTime();
+        session.sendMessage(message);
+        metrics.sendLatency().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 待发送字节超限，调用方需持有锁。
+     */
+    private void overflow() {
+        closed = true;
+        metrics.overflows().increment();
+        logger.warn(
+                "Terminal output backlog exceeded {} bytes, closing session {}",
+                config.getMaxPendingBytes(),
+                session.getId());
+        discardPending();
+        scheduler.schedule(
+                () -> {
+                    try {
+                        session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                    } catch (Exception e) {
+                        logger.debug("Error closing terminal session {}", session.getId(), e);
+                    }
+                });
+    }
+
+    private void discardPending() {
+        metrics.queuedBytes().addAndGet(-pendingBytes);
+        pending.clear();
+        headOffset = 0;
+        pendingBytes = 0;
+    }
+}
@@ -1,44 +1,87 @@
 package com.alibaba.himarket.service.hicoding.terminal;
 
 import com.alibaba.himarket.config.AcpProperties;
+import com.alibaba.himarket.service.hicoding.runtime.SidecarWebSocketClient;
 import com.alibaba.himarket.service.hicoding.websocket.WebSocketPingScheduler;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.IOException;
-import java.util.Base64;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 import reactor.core.Disposable;
 
 /**
  * Terminal WebSocket handler。
  * 通过 WebSocket 连接远程 Sidecar 的 /terminal 端点提供终端功能。
+ *
+ * <p>握手参数 {@code ?protocol=binary} 的客户端使用 {@link TerminalFrameCodec} 定义的二进制帧，
+ * 其余客户端沿用 JSON + Base64 文本帧。两种协议的下行输出都经 {@link TerminalOutputChannel} 合并、排队后发送。
  */
 @Component
-public class TerminalWebSocketHandler extends TextWebSocketHandler {
+public class TerminalWebSocketHandler extends AbstractWebSocketHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(TerminalWebSocketHandler.class);
 
     private final AcpProperties acpProperties;
     private final ObjectMapper objectMapper;
     private final WebSocketPingScheduler pingScheduler;
+    private final SidecarWebSocketClient sidecarClient;
     private final Map<String, TerminalBackend> backendMap = new ConcurrentHashMap<>();
     private final Map<String, Disposable> subscriptionMap = new ConcurrentHashMap<>();
+    private final Map<String, TerminalOutputChannel> channelMap = new ConcurrentHashMap<>();
+    private final TerminalOutputChannel.Metrics binaryMetrics;
+    private final TerminalOutputChannel.Metrics jsonMetrics;
 
     public TerminalWebSocketHandler(
             AcpProperties acpProperties,
             ObjectMapper objectMapper,
-            WebSocketPingScheduler pingScheduler) {
+            WebSocketPingScheduler pingScheduler,
+            SidecarWebSocketClient sidecarClient,
+            MeterRegistry meterRegistry) {
         this.acpProperties = acpProperties;
         this.objectMapper = objectMapper;
         this.pingScheduler = pingScheduler;
+        this.sidecarClient = sidecarClient;
+
+        AtomicLong queuedBytes = new AtomicLong();
+        Gauge.builder("terminal.output.queued.bytes", queuedBytes, AtomicLong::get)
+                .description("Terminal output bytes waiting to be sent to clients")
+                .register(meterRegistry);
+        this.binaryMetrics = outputMetrics(meterRegistry, queuedBytes, "binary");
+        this.jsonMetrics = outputMetrics(meterRegistry, queuedBytes, "json");
+    }
+
+    private static TerminalOutputChannel.Metrics outputMetrics(
+            MeterRegistry meterRegistry, AtomicLong queuedBytes, String protocol) {
+        return new TerminalOutputChannel.Metrics(
+                queuedBytes,
+                DistributionSummary.builder("terminal.output.frame.bytes")
+                        .description("Payload size of terminal output frames")
+                        .baseUnit("bytes")
+                        .tag("protocol", protocol)
+                        .register(meterRegistry),
+                Timer.builder("terminal.output.send.latency")
+                        .description("Time spent sending one terminal output frame")
+                        .tag("protocol", protocol)
+                        .register(meterRegistry),
+                Counter.builder("terminal.output.overflow")
+                        .description("Terminal sessions closed because the client fell behind")
+                        .tag("protocol", protocol)
+                        .register(meterRegistry));
     }
 
     @Override
@@ -75,7 +118,7 @@ public class TerminalWebSocketHandler extends TextWebSocketHandler {
         String cwd = "/workspace/" + userId;
 
         logger.info("Creating RemoteTerminalBackend: host={}:{}, cwd={}", host, port, cwd);
-        TerminalBackend backend = new RemoteTerminalBackend(host, port, cwd);
+        TerminalBackend backend = new RemoteTerminalBackend(host, port, cwd, sidecarClient);
 
         try {
             backend.start(80, 24);
@@ -87,30 +130,31 @@ public class TerminalWebSocketHandler extends TextWebSocketHandler {
 
         backendMap.put(session.getId(), backend);
 
+        // 发送统一经过线程安全的装饰器，ping 与输出帧不会并发写同一连接
+        AcpProperties.TerminalConfig terminalConfig = acpProperties.getTerminal();
+        WebSocketSession sender =
+                new ConcurrentWebSocketSessionDecorator(
+                        session,
+                        terminalConfig.getSendTimeLimitMs(),
+                        terminalConfig.getMaxPendingBytes());
+        boolean binary =
+                TerminalFrameCodec.PROTOCOL_BINARY.equals(session.getAttributes().get("protocol"));
+        TerminalOutputChannel channel =
+                new TerminalOutputChannel(
+                        sender,
+                        binary,
+                        objectMapper,
+                        terminalConfig,
+                        binary ? binaryMetrics : jsonMetrics);
+        channelMap.put(session.getId(), channel);
+
         // 启动 WebSocket 协议级 ping 定时器，保持前端连接活跃
-        pingScheduler.startPing(session);
+        pingScheduler.startPing(sender);
 
         Disposable subscription =
                 backend.output()
                         .subscribe(
-                                data -> {
-                                    try {
-                                        if (session.isOpen()) {
-                                            String encoded =
-                                                    Base64.getEncoder().encodeToString(data);
-                                            String json =
-                                                    objectMapper.writeValueAsString(
-                                                            Map.of(
-                                                                    "type", "output", "data",
-                                                                    encoded));
-                                            synchronized (session) {
-                                                session.sendMessage(new TextMessage(json));
-                                            }
-                                        }
-                                    } catch (IOException e) {
-                                        logger.error("Error sending terminal output", e);
-                                    }
-                                },
+                                channel::append,
                                 error ->
                                         logger.error(
                                                 "Terminal output error for session {}",
@@ -118,21 +162,7 @@ public class TerminalWebSocketHandler extends TextWebSocketHandler {
                                                 error),
                                 () -> {
                                     logger.info("Terminal exited for session {}", session.getId());
-                                    try {
-                                        if (session.isOpen()) {
-                                            int exitCode = 0;
-                                            String json =
-                                                    objectMapper.writeValueAsString(
-                                                            Map.of(
-                                                                    "type", "exit", "code",
-                                                                    exitCode));
-                                            synchronized (session) {
-                                                session.sendMessage(new TextMessage(json));
-                                            }
-                                        }
-                                    } catch (IOException e) {
-                                        logger.debug("Error sending exit message", e);
-                                    }
+                                    channel.exit(0);
                                 });
 
         subscriptionMap.put(session.getId(), subscription);
@@ -163,6 +193,17 @@ public class TerminalWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message)
+            throws Exception {
+        TerminalBackend backend = backendMap.get(session.getId());
+        if (backend == null) return;
+
+        if (!TerminalFrameCodec.dispatch(message.getPayload(), backend)) {
+            logger.debug("Ignoring malformed terminal frame for session {}", session.getId());
+        }
+    }
+
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
         logger.info("Terminal closed: id={}, status={}", session.getId(), status);
@@ -179,6 +220,8 @@ public class TerminalWebSocketHandler extends TextWebSocketHandler {
         pingScheduler.stopPing(sessionId);
         Disposable subscription = subscriptionMap.remove(sessionId);
         if (subscription != null && !subscription.isDisposed()) subscription.dispose();
+        TerminalOutputChannel channel = channelMap.remove(sessionId);
+        if (channel != null) channel.close();
         TerminalBackend backend = backendMap.remove(sessionId);
         if (backend != null) backend.close();
     }
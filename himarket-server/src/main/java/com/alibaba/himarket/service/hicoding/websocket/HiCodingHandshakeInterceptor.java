@@ -51,6 +51,12 @@ public class HiCodingHandshakeInterceptor implements HandshakeInterceptor {
             if (StrUtil.isNotBlank(sandboxMode)) {
                 attributes.put("sandboxMode", sandboxMode);
             }
+
+            // Extract terminal frame protocol from query param: ?protocol=binary
+            String protocol = params.getFirst("protocol");
+            if (StrUtil.isNotBlank(protocol)) {
+                attributes.put("protocol", protocol);
+            }
         } catch (Exception e) {
             logger.debug("Failed to parse token from query param", e);
         }
@@ -1,14 +1,23 @@
 package com.alibaba.himarket.service.hicoding.websocket;
 
+import com.alibaba.himarket.config.AcpProperties;
 import com.alibaba.himarket.service.hicoding.runtime.RuntimeAdapter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
-import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 import reactor.core.Disposable;
 
 /**
@@ -20,6 +29,7 @@ import reactor.core.Disposable;
  *   <li>订阅 CLI stdout 流并转发到前端 WebSocket
  *   <li>将前端消息转发到 CLI 进程
  *   <li>回放初始化期间缓存的待转发消息
+ *   <li>维护每个前端会话的下行消息队列（{@link HiCodingOutboundQueue}）
  * </ul>
  */
 @Component
@@ -27,11 +37,74 @@ public class HiCodingMessageRouter {
 
     private static final Logger logger = LoggerFactory.getLogger(HiCodingMessageRouter.class);
 
+    private final AcpProperties.OutboundConfig outboundConfig;
+    private final HiCodingOutboundQueue.Metrics metrics;
+    private final Map<String, HiCodingOutboundQueue> outboundMap = new ConcurrentHashMap<>();
+
+    public HiCodingMessageRouter(AcpProperties acpProperties, MeterRegistry meterRegistry) {
+        this.outboundConfig = acpProperties.getOutbound();
+
+        AtomicLong queuedBytes = new AtomicLong();
+        Gauge.builder("hicoding.outbound.queued.bytes", queuedBytes, AtomicLong::get)
+                .description("HiCoding messages waiting to be sent to browsers, in bytes")
+                .register(meterRegistry);
+        Gauge.builder("hicoding.outbound.sessions", outboundMap, Map::size)
+                .description("HiCoding sessions with an open outbound queue")
+                .register(meterRegistry);
+        this.metrics =
+                new HiCodingOutboundQueue.Metrics(
+                        queuedBytes,
+                        DistributionSummary.builder("hicoding.outbound.frame.messages")
+                                .description("Messages coalesced into one WebSocket frame")
+                                .register(meterRegistry),
+                        Timer.builder("hicoding.outbound.send.latency")
+                                .description("Time spent sending one frame to the browser")
+                                .register(meterRegistry),
+                        Counter.builder("hicoding.outbound.dropped")
+                                .description("Messages dropped before reaching the browser")
+                                .register(meterRegistry),
+                        Counter.builder("hicoding.outbound.overflow")
+                                .description("Sessions closed because the browser fell behind")
+                                .register(meterRegistry));
+    }
+
+    /**
+     * 为前端会话创建下行消息队列。
+     *
+     * @param session 前端 WebSocket session
+     * @return 线程安全的 session 装饰器，其它发送方（如 ping）应通过它发送
+     */
+    public WebSocketSession openOutbound(WebSocketSession session) {
+        WebSocketSession sender =
+                new ConcurrentWebSocketSessionDecorator(
+                        session,
+                        outboundConfig.getSendTimeLimitMs(),
+                        outboundConfig.getMaxPendingBytes());
+        HiCodingOutboundQueue previous =
+                outboundMap.put(
+                        session.getId(),
+                        new HiCodingOutboundQueue(sender, outboundConfig, metrics));
+        if (previous != null) {
+            previous.close();
+        }
+        return sender;
+    }
+
+    /**
+     * 关闭前端会话的下行消息队列，丢弃未发送的消息。
+     */
+    public void closeOutbound(String sessionId) {
+        HiCodingOutboundQueue queue = outboundMap.remove(sessionId);
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
     /**
      * 订阅 CLI stdout 并转发到前端 WebSocket。
      *
      * <p>从 HiCodingWebSocketHandler.initSandboxAsync() 中提取的 stdout 订阅逻辑。 当 stdout
-     * 流完成时，会自动关闭对应的 WebSocket session。
+     * 流完成时，待队列中的消息发送完毕后关闭对应的 WebSocket session。
      *
      * @param adapter CLI 运行时适配器
      * @param session 前端 WebSocket session
@@ -48,6 +121,11 @@ public class HiCodingMessageRouter {
                                         error),
                         () -> {
                             logger.info("Stdout stream completed for session {}", session.getId());
+                            HiCodingOutboundQueue queue = outboundMap.get(session.getId());
+                            if (queue != null) {
+                                queue.closeAfterDrain(CloseStatus.NORMAL);
+                                return;
+                            }
                             try {
                                 if (session.isOpen()) {
                                     session.close(CloseStatus.NORMAL);
@@ -97,20 +175,18 @@ public class HiCodingMessageRouter {
     /**
      * 将消息发送到前端 WebSocket session。
      *
-     * <p>使用 synchronized 保证同一 session 的消息发送顺序。
+     * <p>消息进入会话的下行队列后立即返回，由队列保证顺序并在后台发送，调用线程不会被慢速客户端阻塞。
      *
      * @param session 前端 WebSocket session
      * @param message 要发送的消息内容
      */
-    private void sendToFrontend(WebSocketSession session, String message) {
-        try {
-            if (session.isOpen()) {
-                synchronized (session) {
-                    session.sendMessage(new TextMessage(message));
-                }
-            }
-        } catch (IOException e) {
-            logger.error("Error sending message to WebSocket", e);
+    public void sendToFrontend(WebSocketSession session, String message) {
+        HiCodingOutboundQueue queue = outboundMap.get(session.getId());
+        if (queue == null) {
+            logger.debug("No outbound queue for session {}, dropping message", session.getId());
+            metrics.dropped().increment();
+            return;
         }
+        queue.enqueue(message);
     }
 }
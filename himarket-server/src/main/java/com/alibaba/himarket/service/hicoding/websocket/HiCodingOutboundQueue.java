@@ -0,0 +1,291 @@
+package com.alibaba.himarket.service.hicoding.websocket;
+
+import com.alibaba.himarket.config.AcpProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 单个 HiCoding 前端会话的下行消息队列。
+ *
+ * <p>生产方（sidecar 接收线程、初始化线程）只把消息放入队列立即返回，不会被慢速浏览器阻塞；
+ * 队列在 {@code flushIntervalMs} 到期或累计达到 {@code maxFrameBytes} 时由 boundedElastic 线程发送，
+ * 多条消息以换行分隔合并为一个文本帧。同一时刻最多只有一个发送任务，消息顺序与入队顺序一致。
+ * 字节数均按 UTF-8 编码计算，与实际发送的帧大小一致。
+ *
+ * <p>溢出策略：待发送字节超过 {@code maxPendingBytes} 时丢弃整个队列并以 SESSION_NOT_RELIABLE 关闭连接，
+ * 前端重连后 reattach 到 sidecar 会话，不会出现部分 JSON-RPC 响应丢失而会话仍继续的情况。
+ */
+class HiCodingOutboundQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(HiCodingOutboundQueue.class);
+
+    /**
+     * 队列指标，所有会话共享。
+     */
+    record Metrics(
+            AtomicLong queuedBytes,
+            DistributionSummary frameMessages,
+            Timer sendLatency,
+            Counter dropped,
+            Counter overflows) {}
+
+    private final WebSocketSession session;
+    private final AcpProperties.OutboundConfig config;
+    private final Metrics metrics;
+    private final Scheduler scheduler = Schedulers.boundedElastic();
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private long pendingBytes;
+    private boolean flushScheduled;
+    private boolean closed;
+    private CloseStatus closeAfterDrain;
+
+    // 会话级统计，连接关闭时输出
+    private long sentMessages;
+    private long sentFrames;
+    private long droppedMessages;
+    private long peakPendingBytes;
+
+    HiCodingOutboundQueue(
+            WebSocketSession session, AcpProperties.OutboundConfig config, Metrics metrics) {
+        this.session = session;
+        this.config = config;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 已做并发保护的 session，ping 等其它发送方也应通过它发送。
+     */
+    WebSocketSession session() {
+        return session;
+    }
+
+    /**
+     * 入队一条消息，不会阻塞。
+     */
+    void enqueue(String message) {
+        long delayMs;
+        synchronized (lock) {
+            if (closed || closeAfterDrain != null) {
+                recordDropped(1);
+                return;
+            }
+            int bytes = utf8Length(message);
+            if (pendingBytes + bytes > config.getMaxPendingBytes()) {
+                overflow();
+                return;
+            }
+            pending.addLast(new Pending(message, bytes));
+            pendingBytes += bytes;
+            peakPendingBytes = Math.max(peakPendingBytes, pendingBytes);
+            metrics.queuedBytes().addAndGet(bytes);
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+            delayMs = pendingBytes >= config.getMaxFrameBytes() ? 0 : config.getFlushIntervalMs();
+        }
+        schedule(delayMs);
+    }
+
+    /**
+     * 队列中已有消息发送完毕后关闭连接。
+     */
+    void closeAfterDrain(CloseStatus status) {
+        synchronized (lock) {
+            if (closed || closeAfterDrain != null) {
+                return;
+            }
+            closeAfterDrain = status;
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        schedule(0);
+    }
+
+    /**
+     * 关闭队列，丢弃未发送的消息。
+     */
+    void close() {
+        synchronized (lock) {
+            if (!closed) {
+                closed = true;
+                discardPending();
+            }
+            logger.debug(
+                    "Outbound queue closed for session {}: sentMessages={}, sentFrames={},"
+                            + " droppedMessages={}, peakPendingBytes={}",
+                    session.getId(),
+                    sentMessages,
+                    sentFrames,
+                    droppedMessages,
+                    peakPendingBytes);
+        }
+    }
+
+    private void schedule(long delayMs) {
+        if (delayMs > 0) {
+            scheduler.schedule(this::flush, delayMs, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler.schedule(this::flush);
+        }
+    }
+
+    private void flush() {
+        while (true) {
+            String frame;
+            int count;
+            CloseStatus status = null;
+            synchronized (lock) {
+                if (closed) {
+                    flushScheduled = false;
+                    return;
+                }
+                if (pending.isEmpty()) {
+                    flushScheduled = false;
+                    if (closeAfterDrain == null) {
+                        return;
+                    }
+                    status = closeAfterDrain;
+                    closed = true;
+                    frame = null;
+                    count = 0;
+                } else {
+                    Pending first = pending.pollFirst();
+                    StringBuilder sb = new StringBuilder(first.message());
+                    long taken = first.bytes();
+                    int frameBytes = first.bytes();
+                    count = 1;
+                    while (!pending.isEmpty()
+                            && frameBytes + 1 + pending.peekFirst().bytes()
+                                    <= config.getMaxFrameBytes()) {
+                        Pending next = pending.pollFirst();
+                        sb.append('\n').append(next.message());
+                        taken += next.bytes();
+                        frameBytes += 1 + next.bytes();
+                        count++;
+                    }
+                    frame = sb.toString();
+                    pendingBytes -= taken;
+                    metrics.queuedBytes().addAndGet(-taken);
+                }
+            }
+            if (status != null) {
+                closeSession(status);
+                return;
+            }
+            try {
+                if (!session.isOpen()) {
+                    recordDropped(count);
+                    close();
+                    return;
+                }
+                long start = System.nanoTime();
+                session.sendMessage(new TextMessage(frame));
+                metrics.sendLatency().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                metrics.frameMessages().record(count);
+                synchronized (lock) {
+                    sentMessages += count;
+                    sentFrames++;
+                }
+            } catch (Exception e) {
+                recordDropped(count);
+                logger.warn(
+                        "Failed to send {} message(s) to session {}: {}",
+                        count,
+                        session.getId(),
+                        e.getMessage());
+                close();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 待发送字节超限，调用方需持有锁。
+     */
+    private void overflow() {
+        closed = true;
+        metrics.overflows().increment();
+        logger.warn(
+                "Outbound backlog of session {} exceeded {} bytes, dropping {} message(s) and"
+                        + " closing",
+                session.getId(),
+                config.getMaxPendingBytes(),
+                pending.size() + 1);
+        recordDropped(1);
+        discardPending();
+        scheduler.schedule(() -> closeSession(CloseStatus.SESSION_NOT_RELIABLE));
+    }
+
+    private void recordDropped(int count) {
+        synchronized (lock) {
+            droppedMessages += count;
+        }
+        metrics.dropped().increment(count);
+    }
+
+    /**
+     * 调用方需持有锁。
+     */
+    private void discardPending() {
+        if (!pending.isEmpty()) {
+            recordDropped(pending.size());
+        }
+        metrics.queuedBytes().addAndGet(-pendingBytes);
+        pending.clear();
+        pendingBytes = 0;
+    }
+
+    /**
+     * 字符串按 UTF-8 编码后的字节数，不分配数组。
+     */
+    static int utf8Length(String s) {
+        int bytes = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)
+                    && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符编码为 '?'
+                bytes++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private record Pending(String message, int bytes) {}
+
+    private void closeSession(CloseStatus status) {
+        try {
+            if (session.isOpen()) {
+                session.close(status);
+            }
+        } catch (Exception e) {
+            logger.debug("Error closing WebSocket session {}", session.getId(), e);
+        }
+    }
+}
@@ -157,8 +157,8 @@ public class HiCodingWebSocketHandler extends TextWebSocketHandler {
                 session.getId());
         // Non-blocking return for all sandbox types
 
-        // 启动 WebSocket 协议级 ping 定时器，保持前端连接活跃
-        pingScheduler.startPing(session);
+        // 创建下行消息队列，并通过其线程安全的 session 启动 WebSocket 协议级 ping 定时器，保持前端连接活跃
+        pingScheduler.startPing(messageRouter.openOutbound(session));
     }
 
     @Override
@@ -255,6 +255,7 @@ public class HiCodingWebSocketHandler extends TextWebSocketHandler {
             throws Exception {
         logger.info("WebSocket closed: id={}, status={}", session.getId(), status);
         pingScheduler.stopPing(session.getId());
+        messageRouter.closeOutbound(session.getId());
         connectionManager.cleanup(session.getId());
     }
 
@@ -263,6 +264,7 @@ public class HiCodingWebSocketHandler extends TextWebSocketHandler {
             throws Exception {
         logger.error("WebSocket transport error for session {}", session.getId(), exception);
         pingScheduler.stopPing(session.getId());
+        messageRouter.closeOutbound(session.getId());
         connectionManager.cleanup(session.getId());
     }
 
@@ -512,9 +514,7 @@ public class HiCodingWebSocketHandler extends TextWebSocketHandler {
             params.set("diagnostics", diagnostics);
 
             notification.set("params", params);
-            synchronized (session) {
-                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(notification)));
-            }
+            messageRouter.sendToFrontend(session, objectMapper.writeValueAsString(notification));
             logger.error(
                     "[Sandbox-Init] 发送错误通知: failedPhase={}, retryable={}, message={}",
                     result.failedPhase(),
@@ -569,9 +569,7 @@ public class HiCodingWebSocketHandler extends TextWebSocketHandler {
             params.put("totalPhases", totalPhases);
             params.put("completedPhases", completedPhases);
             notification.set("params", params);
-            synchronized (session) {
-                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(notification)));
-            }
+            messageRouter.sendToFrontend(session, objectMapper.writeValueAsString(notification));
         } catch (Exception e) {
             logger.warn("Failed to send init progress notification: {}", e.getMessage());
         }
@@ -598,9 +596,7 @@ public class HiCodingWebSocketHandler extends TextWebSocketHandler {
                 params.put("sandboxHost", sandboxHost);
             }
             notification.set("params", params);
-            synchronized (session) {
-                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(notification)));
-            }
+            messageRouter.sendToFrontend(session, objectMapper.writeValueAsString(notification));
         } catch (Exception e) {
             logger.warn("Failed to send sandbox status notification: {}", e.getMessage());
         }
@@ -618,9 +614,7 @@ public class HiCodingWebSocketHandler extends TextWebSocketHandler {
             ObjectNode params = objectMapper.createObjectNode();
             params.put("cwd", cwd);
             notification.set("params", params);
-            synchronized (session) {
-                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(notification)));
-            }
+            messageRouter.sendToFrontend(session, objectMapper.writeValueAsString(notification));
         } catch (Exception e) {
             logger.warn("Failed to send workspace info notification: {}", e.getMessage());
         }
@@ -639,9 +633,7 @@ public class HiCodingWebSocketHandler extends TextWebSocketHandler {
             params.put("sidecarSessionId", sidecarSessionId);
             params.put("reattached", true);
             notification.set("params", params);
-            synchronized (session) {
-                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(notification)));
-            }
+            messageRouter.sendToFrontend(session, objectMapper.writeValueAsString(notification));
         } catch (Exception e) {
             logger.warn("Failed to send reattach notification: {}", e.getMessage());
         }
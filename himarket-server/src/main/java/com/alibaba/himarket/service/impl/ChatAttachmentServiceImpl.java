@@ -19,7 +19,8 @@
 
 package com.alibaba.himarket.service.impl;
 
-import cn.hutool.core.codec.Base64;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.StrUtil;
 import com.alibaba.himarket.core.exception.BusinessException;
 import com.alibaba.himarket.core.exception.ErrorCode;
 import com.alibaba.himarket.core.security.ContextHolder;
@@ -30,9 +31,18 @@ import com.alibaba.himarket.dto.result.chat.ChatAttachmentResult;
 import com.alibaba.himarket.entity.ChatAttachment;
 import com.alibaba.himarket.repository.ChatAttachmentRepository;
 import com.alibaba.himarket.service.ChatAttachmentService;
+import com.alibaba.himarket.service.blob.BlobStore;
 import com.alibaba.himarket.support.enums.ChatAttachmentType;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -45,6 +55,8 @@ public class ChatAttachmentServiceImpl implements ChatAttachmentService {
 
     private final ChatAttachmentRepository chatAttachmentRepository;
 
+    private final ObjectProvider<BlobStore> blobStoreProvider;
+
     @Override
     public ChatAttachmentResult uploadAttachment(MultipartFile file) {
         if (file == null || file.isEmpty()) {
@@ -59,6 +71,18 @@ public class ChatAttachmentServiceImpl implements ChatAttachmentService {
         ChatAttachmentType type = determineAttachmentType(mimeType);
 
         try {
+            // Stream into the blob store when configured, otherwise keep bytes in the database
+            BlobStore blobStore = blobStoreProvider.getIfAvailable();
+            String blobKey = null;
+            byte[] data = null;
+            if (blobStore != null) {
+                try (InputStream in = file.getInputStream()) {
+                    blobKey = blobStore.put(in);
+                }
+            } else {
+                data = file.getBytes();
+            }
+
             // Build attachment entity
             ChatAttachment attachment =
                     ChatAttachment.builder()
@@ -68,7 +92,8 @@ public class ChatAttachmentServiceImpl implements ChatAttachmentService {
                             .type(type)
                             .mimeType(mimeType)
                             .size(file.getSize())
-                            .data(file.getBytes())
+                            .data(data)
+                            .blobKey(blobKey)
                             .build();
 
             // Save to database
@@ -108,8 +133,17 @@ public class ChatAttachmentServiceImpl implements ChatAttachmentService {
     public ChatAttachmentDetailResult getAttachmentDetail(String attachmentId) {
         ChatAttachment attachment = findAttachment(attachmentId);
 
-        // Encode data to Base64
-        String base64Data = Base64.encode(attachment.getData());
+        // Encode data to Base64 while streaming from storage
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (InputStream in = openAttachmentData(attachment);
+                OutputStream out = Base64.getEncoder().wrap(buffer)) {
+            IoUtil.copy(in, out);
+        } catch (IOException e) {
+            log.error("Failed to read attachment data: {}", attachmentId, e);
+            throw new BusinessException(
+                    ErrorCode.INTERNAL_ERROR, "Failed to read attachment: " + attachmentId);
+        }
+        String base64Data = buffer.toString(StandardCharsets.ISO_8859_1);
 
         log.debug(
                 "Retrieved attachment detail: attachmentId={}, size={}, base64Length={}",
@@ -127,6 +161,29 @@ public class ChatAttachmentServiceImpl implements ChatAttachmentService {
                 .build();
     }
 
+    @Override
+    public InputStream openAttachmentData(ChatAttachment attachment) {
+        if (StrUtil.isBlank(attachment.getBlobKey())) {
+            byte[] data = attachment.getData();
+            return new ByteArrayInputStream(data == null ? new byte[0] : data);
+        }
+
+        BlobStore blobStore = blobStoreProvider.getIfAvailable();
+        if (blobStore == null) {
+            throw new BusinessException(
+                    ErrorCode.INTERNAL_ERROR,
+                    "Blob store is not configured for attachment: " + attachment.getAttachmentId());
+        }
+        try {
+            return blobStore.open(attachment.getBlobKey());
+        } catch (IOException e) {
+            log.error("Failed to open attachment blob: {}", attachment.getAttachmentId(), e);
+            throw new BusinessException(
+                    ErrorCode.INTERNAL_ERROR,
+                    "Failed to read attachment: " + attachment.getAttachmentId());
+        }
+    }
+
     private ChatAttachment findAttachment(String attachmentId) {
         return chatAttachmentRepository
                 .findByAttachmentId(attachmentId)
@@ -21,7 +21,9 @@ package com.alibaba.himarket.service.impl;
 
 import cn.hutool.core.util.BooleanUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.extra.spring.SpringUtil;
 import com.alibaba.himarket.core.constant.Resources;
+import com.alibaba.himarket.core.event.ConsumerChangedEvent;
 import com.alibaba.himarket.core.event.DeveloperDeletingEvent;
 import com.alibaba.himarket.core.event.ProductDeletingEvent;
 import com.alibaba.himarket.core.exception.BusinessException;
@@ -123,6 +125,7 @@ public class ConsumerServiceImpl implements ConsumerService {
         // Initialize credential
         ConsumerCredential credential = initCredential(consumerId);
         credentialRepository.save(credential);
+        publishConsumerChanged(consumerId, developerId);
 
         return getConsumer(consumerId);
     }
@@ -207,6 +210,7 @@ public class ConsumerServiceImpl implements ConsumerService {
 
         // 6. Delete consumer
         consumerRepository.delete(consumer);
+        publishConsumerChanged(consumerId, consumer.getDeveloperId());
     }
 
     @Override
@@ -227,6 +231,7 @@ public class ConsumerServiceImpl implements ConsumerService {
         credential.setConsumerId(consumerId);
         complementCredentials(credential);
         credentialRepository.save(credential);
+        publishConsumerChanged(consumerId, null);
     }
 
     private ConsumerCredential initCredential(String consumerId) {
@@ -273,12 +278,14 @@ public class ConsumerServiceImpl implements ConsumerService {
         }
 
         credentialRepository.saveAndFlush(credential);
+        publishConsumerChanged(consumerId, null);
     }
 
     @Override
     public void deleteCredential(String consumerId) {
         existsConsumer(consumerId);
         credentialRepository.deleteAllByConsumerId(consumerId);
+        publishConsumerChanged(consumerId, null);
     }
 
     @Override
@@ -323,6 +330,7 @@ public class ConsumerServiceImpl implements ConsumerService {
         }
 
         subscriptionRepository.save(subscription);
+        publishConsumerChanged(consumerId, consumer.getDeveloperId());
 
         SubscriptionResult r = new SubscriptionResult().convertFrom(subscription);
         r.setProductName(product.getName());
@@ -359,6 +367,7 @@ public class ConsumerServiceImpl implements ConsumerService {
 
         subscriptionRepository.deleteByConsumerIdAndProductId(
                 consumerId, subscription.getProductId());
+        publishConsumerChanged(consumerId, null);
     }
 
     private ProductSubscription findBySubscriptionIdOrProductId(
@@ -446,6 +455,7 @@ public class ConsumerServiceImpl implements ConsumerService {
         subscription.setConsumerAuthConfig(consumerAuthConfig);
         subscription.setStatus(SubscriptionStatus.APPROVED);
         subscriptionRepository.saveAndFlush(subscription);
+        publishConsumerChanged(consumerId, consumer.getDeveloperId());
 
         ProductResult product = productService.getProduct(subscription.getProductId());
         SubscriptionResult result = new SubscriptionResult().convertFrom(subscription);
@@ -696,6 +706,11 @@ public class ConsumerServiceImpl implements ConsumerService {
                 });
     }
 
+    private void publishConsumerChanged(String consumerId, String developerId) {
+        SpringUtil.getApplicationContext()
+                .publishEvent(new ConsumerChangedEvent(consumerId, developerId));
+    }
+
     private ConsumerRef matchConsumerRef(String consumerId, GatewayConfig gatewayConfig) {
         List<ConsumerRef> consumeRefs =
                 consumerRefRepository.findAllByConsumerIdAndGatewayType(
@@ -735,6 +750,14 @@ public class ConsumerServiceImpl implements ConsumerService {
         }
     }
 
+    @Override
+    public CredentialContext getConsumerCredential(String consumerId) {
+        return credentialRepository
+                .findByConsumerId(consumerId)
+                .map(this::buildAuthInfo)
+                .orElseGet(() -> CredentialContext.builder().build());
+    }
+
     @Override
     @Transactional
     public void setPrimaryConsumer(String consumerId) {
@@ -751,6 +774,7 @@ public class ConsumerServiceImpl implements ConsumerService {
 
         consumer.setIsPrimary(true);
         consumerRepository.save(consumer);
+        publishConsumerChanged(consumerId, consumer.getDeveloperId());
     }
 
     @Override
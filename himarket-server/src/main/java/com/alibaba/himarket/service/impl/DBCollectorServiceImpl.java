@@ -19,10 +19,13 @@
 
 package com.alibaba.himarket.service.impl;
 
+import com.alibaba.himarket.config.ObservabilityConfig;
 import com.alibaba.himarket.dto.params.sls.GenericSlsQueryRequest;
 import com.alibaba.himarket.dto.params.sls.GenericSlsQueryResponse;
 import com.alibaba.himarket.service.DBCollectorService;
 import com.alibaba.himarket.service.gateway.factory.DBCollectorPresetSqlRegistry;
+import com.alibaba.himarket.service.gateway.factory.DBCollectorRollupSql;
+import com.alibaba.himarket.service.gateway.factory.SlsPresetSqlRegistry;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -34,6 +37,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
@@ -49,8 +53,16 @@ public class DBCollectorServiceImpl implements DBCollectorService {
 
     private static final int DEFAULT_LIMIT = 1000;
     private static final int MAX_LIMIT = 5000;
+    private static final long AI_LOG_COLUMNS_CHECK_INTERVAL_MS = 5 * 60 * 1000;
 
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final DBCollectorPresetSqlRegistry presetRegistry;
+    private final ObservabilityConfig observabilityConfig;
+
+    /** access_logs 上是否已有 ai_log 生成列，定期重新检测（表可能由采集端稍后创建） */
+    private volatile boolean aiLogColumns;
+
+    private volatile long aiLogColumnsCheckedAt;
 
     @Override
     public GenericSlsQueryResponse executeQuery(GenericSlsQueryRequest request) {
@@ -63,9 +75,14 @@ public class DBCollectorServiceImpl implements DBCollectorService {
             }
 
             int interval = clampInterval(request.getInterval());
-            String sql = applyInterval(request.getSql(), interval);
-
             MapSqlParameterSource params = new MapSqlParameterSource();
+
+            String sql = buildRollupQuery(request, interval, params);
+            if (sql != null) {
+                return buildResponse(jdbcTemplate.queryForList(sql, params), originalSql, start);
+            }
+            sql = applyInterval(request.getSql(), interval);
+
             String where = buildWhereClause(request, params);
 
             if (!sql.contains(DBCollectorPresetSqlRegistry.WHERE_PLACEHOLDER)) {
@@ -82,30 +99,16 @@ public class DBCollectorServiceImpl implements DBCollectorService {
                                 buildBizClause(request));
             }
 
+            sql =
+                    DBCollectorPresetSqlRegistry.expandAiLogFields(
+                            sql, sql.contains("{ai:") && hasAiLogColumns());
+
             // 可选 limit：仅当请求显式传入 pageSize 且 SQL 未显式 limit 时追加
             if (request.getPageSize() != null && !containsLimit(sql)) {
                 sql = sql + " LIMIT " + clampLimit(request.getPageSize());
             }
 
-            List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql, params);
-            List<Map<String, String>> resultRows = new ArrayList<>(rows.size());
-            for (Map<String, Object> r : rows) {
-                Map<String, String> m = new HashMap<>();
-                for (Map.Entry<String, Object> e : r.entrySet()) {
-                    Object v = e.getValue();
-                    m.put(e.getKey(), v == null ? null : String.valueOf(v));
-                }
-                resultRows.add(m);
-            }
-
-            return GenericSlsQueryResponse.builder()
-                    .success(true)
-                    .processStatus("Complete")
-                    .count((long) resultRows.size())
-                    .aggregations(resultRows)
-                    .sql(originalSql)
-                    .elapsedMillis(System.currentTimeMillis() - start)
-                    .build();
+            return buildResponse(jdbcTemplate.queryForList(sql, params), originalSql, start);
         } catch (Exception e) {
             log.warn("[DBCollector Query Failed] sql: {}, err: {}", originalSql, e.getMessage(), e);
             return GenericSlsQueryResponse.builder()
@@ -120,6 +123,230 @@ public class DBCollectorServiceImpl implements DBCollectorService {
         }
     }
 
+    private boolean hasAiLogColumns() {
+        long now = System.currentTimeMillis();
+        if (now - aiLogColumnsCheckedAt < AI_LOG_COLUMNS_CHECK_INTERVAL_MS) {
+            return aiLogColumns;
+        }
+        List<String> columns =
+                DBCollectorPresetSqlRegistry.AI_LOG_FIELDS.stream()
+                        .map(DBCollectorPresetSqlRegistry.AiLogField::column)
+                        .toList();
+        try {
+            Integer count =
+                    jdbcTemplate.queryForObject(
+                            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA ="
+                                + " DATABASE() AND TABLE_NAME = 'access_logs' AND COLUMN_NAME IN"
+                                + " (:columns)",
+                            new MapSqlParameterSource("columns", columns),
+                            Integer.class);
+            aiLogColumns = count != null && count == columns.size();
+        } catch (Exception e) {
+            log.debug("[DBCollector] failed to check ai_log columns: {}", e.getMessage());
+            aiLogColumns = false;
+        }
+        aiLogColumnsCheckedAt = now;
+        return aiLogColumns;
+    }
+
+    private GenericSlsQueryResponse buildResponse(
+            List<Map<String, Object>> rows, String sql, long startMillis) {
+        List<Map<String, String>> resultRows = new ArrayList<>(rows.size());
+        for (Map<String, Object> r : rows) {
+            Map<String, String> m = new HashMap<>();
+            for (Map.Entry<String, Object> e : r.entrySet()) {
+                Object v = e.getValue();
+                m.put(e.getKey(), v == null ? null : String.valueOf(v));
+            }
+            resultRows.add(m);
+        }
+
+        return GenericSlsQueryResponse.builder()
+                .success(true)
+                .processStatus("Complete")
+                .count((long) resultRows.size())
+                .aggregations(resultRows)
+                .sql(sql)
+                .elapsedMillis(System.currentTimeMillis() - startMillis)
+                .build();
+    }
+
+    /**
+     * 预设场景优先从 rollup 表查询：时间范围内已聚合的部分取最粗的可用粒度（LINE 场景要求 interval
+     * 为粒度的整数倍），未对齐的首尾和尚未聚合的最新部分查原始行，两者 UNION ALL 后统一聚合。
+     *
+     * @return rollup 查询 SQL，不适用时返回 null（走原始 SQL）
+     */
+    private String buildRollupQuery(
+            GenericSlsQueryRequest request, int interval, MapSqlParameterSource params) {
+        if (!observabilityConfig.getRollup().isEnabled() || request.getScenario() == null) {
+            return null;
+        }
+        DBCollectorPresetSqlRegistry.Preset preset =
+                presetRegistry.getPreset(request.getScenario());
+        // 仅对未被改写的预设 SQL 生效
+        if (preset == null
+                || preset.getRollupSqlTemplate() == null
+                || !request.getSql().equals(preset.getSqlTemplate())) {
+            return null;
+        }
+        Timestamp startTs = resolveStartTime(request);
+        Timestamp endTs = resolveEndTime(request);
+        if (startTs == null || endTs == null) {
+            return null;
+        }
+
+        boolean line = preset.getType() == SlsPresetSqlRegistry.DisplayType.LINE;
+        List<Coverage> coverages =
+                loadCoverages().stream()
+                        .filter(c -> !line || interval % c.level().seconds() == 0)
+                        .toList();
+        List<Segment> segments = new ArrayList<>();
+        planSegments(
+                startTs.toInstant().getEpochSecond(),
+                endTs.toInstant().getEpochSecond(),
+                true,
+                coverages,
+                0,
+                segments);
+        if (segments.stream().allMatch(seg -> seg.level() == null)) {
+            return null;
+        }
+
+        String filters = buildFilterClause(request, params);
+        List<String> parts = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            Segment seg = segments.get(i);
+            String from = "seg" + i + "_from";
+            String to = "seg" + i + "_to";
+            params.addValue(from, Timestamp.from(Instant.ofEpochSecond(seg.from())));
+            params.addValue(to, Timestamp.from(Instant.ofEpochSecond(seg.to())));
+            if (seg.level() == null) {
+                // 维度过滤作用于截断后的列，与 rollup 行一致
+                parts.add(
+                        "SELECT * FROM ("
+                                + DBCollectorRollupSql.rawRows()
+                                + " WHERE l.start_time >= :"
+                                + from
+                                + " AND l.start_time "
+                                + (seg.closed() ? "<= :" : "< :")
+                                + to
+                                + ") r WHERE 1=1"
+                                + filters);
+            } else {
+                parts.add(
+                        DBCollectorRollupSql.rollupRows(seg.level())
+                                + " WHERE bucket_time >= :"
+                                + from
+                                + " AND bucket_time < :"
+                                + to
+                                + filters);
+            }
+        }
+
+        String sql =
+                applyInterval(preset.getRollupSqlTemplate(), interval)
+                        .replace(
+                                DBCollectorPresetSqlRegistry.SOURCE_PLACEHOLDER,
+                                "(" + String.join(" UNION ALL ", parts) + ") t");
+        if (sql.contains(DBCollectorPresetSqlRegistry.BIZ_PLACEHOLDER)) {
+            boolean isMcp = "MCP_SERVER".equals(request.getBizType());
+            sql =
+                    sql.replace(
+                            DBCollectorPresetSqlRegistry.BIZ_PLACEHOLDER,
+                            isMcp ? "AND is_mcp = 1" : "AND is_model = 1");
+        }
+        log.debug(
+                "[DBCollector] scenario {} answered from rollup, segments: {}",
+                request.getScenario(),
+                segments);
+        return sql;
+    }
+
+    /**
+     * 将 [lo, hi) 或 [lo, hi] 切分为粒度 idx 覆盖的整桶部分和交给更细数据源的首尾部分
+     */
+    private void planSegments(
+            long lo,
+            long hi,
+            boolean closed,
+            List<Coverage> coverages,
+            int idx,
+            List<Segment> out) {
+        if (lo > hi || (lo == hi && !closed)) {
+            return;
+        }
+        if (idx == coverages.size()) {
+            out.add(new Segment(null, lo, hi, closed));
+            return;
+        }
+        Coverage c = coverages.get(idx);
+        long size = c.level().seconds();
+        long a = Math.max(Math.floorDiv(lo + size - 1, size) * size, c.from());
+        long b = Math.min(Math.floorDiv(hi, size) * size, c.to());
+        if (a >= b) {
+            planSegments(lo, hi, closed, coverages, idx + 1, out);
+            return;
+        }
+        planSegments(lo, a, false, coverages, idx + 1, out);
+        out.add(new Segment(c.level(), a, b, false));
+        planSegments(b, hi, closed, coverages, idx + 1, out);
+    }
+
+    /**
+     * 各粒度已聚合的时间范围，按从粗到细排列
+     */
+    private List<Coverage> loadCoverages() {
+        Map<String, Coverage> byLevel = new HashMap<>();
+        try {
+            List<Map<String, Object>> rows =
+                    jdbcTemplate.queryForList(
+                            "SELECT level_name, from_time, to_time FROM "
+                                    + DBCollectorRollupSql.STATE_TABLE,
+                            new MapSqlParameterSource());
+            for (Map<String, Object> row : rows) {
+                Instant from = toInstant(row.get("from_time"));
+                Instant to = toInstant(row.get("to_time"));
+                DBCollectorRollupSql.LEVELS.stream()
+                        .filter(level -> level.name().equals(row.get("level_name")))
+                        .findFirst()
+                        .filter(level -> from != null && to != null && to.isAfter(from))
+                        .ifPresent(
+                                level ->
+                                        byLevel.put(
+                                                level.name(),
+                                                new Coverage(
+                                                        level,
+                                                        from.getEpochSecond(),
+                                                        to.getEpochSecond())));
+            }
+        } catch (Exception e) {
+            log.debug("[DBCollector] rollup state unavailable: {}", e.getMessage());
+            return List.of();
+        }
+        return DBCollectorRollupSql.LEVELS.stream()
+                .map(level -> byLevel.get(level.name()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private Instant toInstant(Object value) {
+        if (value instanceof Timestamp ts) {
+            return ts.toInstant();
+        }
+        if (value instanceof LocalDateTime ldt) {
+            return ldt.atZone(ZoneId.systemDefault()).toInstant();
+        }
+        return null;
+    }
+
+    private record Coverage(DBCollectorRollupSql.Level level, long from, long to) {}
+
+    /**
+     * 查询分段，level 为 null 表示原始行；closed 表示包含右端点
+     */
+    private record Segment(DBCollectorRollupSql.Level level, long from, long to, boolean closed) {}
+
     private GenericSlsQueryResponse buildErrorResponse(String sql, String msg, long startMillis) {
         return GenericSlsQueryResponse.builder()
                 .success(false)
@@ -174,6 +401,13 @@ public class DBCollectorServiceImpl implements DBCollectorService {
             params.addValue("endTime", endTs);
         }
 
+        sb.append(buildFilterClause(request, params));
+        return sb.toString();
+    }
+
+    private String buildFilterClause(GenericSlsQueryRequest request, MapSqlParameterSource params) {
+        StringBuilder sb = new StringBuilder();
+
         // 通用过滤：与 GenericSlsQueryRequest 字段对齐
         appendOrEquals(sb, params, "instance_id", "clusterId", request.getClusterId());
         appendOrEquals(sb, params, "api", "api", request.getApi());
@@ -205,8 +439,7 @@ public class DBCollectorServiceImpl implements DBCollectorService {
         if (isMcp) {
             return "AND REGEXP_LIKE(path, '^/mcp-servers')";
         }
-        return "AND JSON_VALID(ai_log)"
-                + " AND NULLIF(JSON_UNQUOTE(JSON_EXTRACT(ai_log, '$.model')), '') IS NOT NULL";
+        return "AND {ai:model} IS NOT NULL";
     }
 
     private void appendOrEquals(
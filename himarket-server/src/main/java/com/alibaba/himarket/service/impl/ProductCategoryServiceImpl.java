@@ -21,7 +21,9 @@ package com.alibaba.himarket.service.impl;
 
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.extra.spring.SpringUtil;
 import com.alibaba.himarket.core.constant.Resources;
+import com.alibaba.himarket.core.event.ProductCatalogChangedEvent;
 import com.alibaba.himarket.core.exception.BusinessException;
 import com.alibaba.himarket.core.exception.ErrorCode;
 import com.alibaba.himarket.core.security.ContextHolder;
@@ -126,6 +128,7 @@ public class ProductCategoryServiceImpl implements ProductCategoryService {
 
         param.update(category);
         categoryRepository.saveAndFlush(category);
+        publishCatalogChanged();
 
         return getProductCategory(categoryId);
     }
@@ -260,6 +263,7 @@ public class ProductCategoryServiceImpl implements ProductCategoryService {
 
         // Delete the relationships between products and category
         categoryRelationRepository.deleteByProductIdInAndCategoryId(productIds, categoryId);
+        publishCatalogChanged();
     }
 
     @Override
@@ -290,11 +294,19 @@ public class ProductCategoryServiceImpl implements ProductCategoryService {
 
         if (CollUtil.isNotEmpty(newRelations)) {
             categoryRelationRepository.saveAll(newRelations);
+            publishCatalogChanged();
         }
 
         log.info("Bound {} products to category {}", newRelations.size(), categoryId);
     }
 
+    /**
+     * Category changes may touch many products, let portal catalogs rebuild
+     */
+    private void publishCatalogChanged() {
+        SpringUtil.getApplicationContext().publishEvent(new ProductCatalogChangedEvent(null));
+    }
+
     private ProductCategory findCategory(String categoryId) {
         return categoryRepository
                 .findByCategoryId(categoryId)
@@ -24,6 +24,7 @@ import cn.hutool.core.util.StrUtil;
 import cn.hutool.extra.spring.SpringUtil;
 import com.alibaba.himarket.core.constant.Resources;
 import com.alibaba.himarket.core.event.PortalDeletingEvent;
+import com.alibaba.himarket.core.event.ProductCatalogChangedEvent;
 import com.alibaba.himarket.core.event.ProductConfigReloadEvent;
 import com.alibaba.himarket.core.event.ProductDeletingEvent;
 import com.alibaba.himarket.core.exception.BusinessException;
@@ -36,7 +37,6 @@ import com.alibaba.himarket.dto.result.ProductCategoryResult;
 import com.alibaba.himarket.dto.result.agent.AgentConfigResult;
 import com.alibaba.himarket.dto.result.common.PageResult;
 import com.alibaba.himarket.dto.result.common.VersionResult;
-import com.alibaba.himarket.dto.result.consumer.CredentialContext;
 import com.alibaba.himarket.dto.result.gateway.GatewayResult;
 import com.alibaba.himarket.dto.result.httpapi.APIConfigResult;
 import com.alibaba.himarket.dto.result.mcp.McpConfigResult;
@@ -48,7 +48,8 @@ import com.alibaba.himarket.dto.result.product.*;
 import com.alibaba.himarket.entity.*;
 import com.alibaba.himarket.repository.*;
 import com.alibaba.himarket.service.*;
-import com.alibaba.himarket.service.hichat.manager.ToolManager;
+import com.alibaba.himarket.service.catalog.PortalCatalogManager;
+import com.alibaba.himarket.service.hichat.manager.McpToolCatalog;
 import com.alibaba.himarket.support.api.spec.OpenAPIToolsConfig;
 import com.alibaba.himarket.support.enums.ProductStatus;
 import com.alibaba.himarket.support.enums.ProductType;
@@ -62,6 +63,7 @@ import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import jakarta.persistence.criteria.Subquery;
 import jakarta.transaction.Transactional;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -69,7 +71,9 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
@@ -102,17 +106,25 @@ public class ProductServiceImpl implements ProductService {
 
     private final ProductCategoryService productCategoryService;
 
-    private final ToolManager toolManager;
+    private final McpToolCatalog mcpToolCatalog;
 
     private final WorkerService workerService;
 
     private final SkillService skillService;
 
+    private final PortalCatalogManager portalCatalogManager;
+
     /**
      * Cache to prevent duplicate sync within interval (5 minutes default)
      */
     private final Cache<String, Boolean> productSyncCache = CacheUtil.newCache(5);
 
+    /**
+     * Parsed ProductRef configs keyed by productId, validated against the ref version on read
+     */
+    private final Cache<String, ParsedRefConfig> parsedRefConfigCache =
+            CacheUtil.newLRUCache(30 * 60);
+
     @Override
     public ProductResult createProduct(CreateProductParam param) {
         productRepository
@@ -209,6 +221,12 @@ public class ProductServiceImpl implements ProductService {
         // Non-admin users can only see published products
         if (!contextHolder.isAdministrator()) {
             param.setStatus(ProductStatus.PUBLISHED);
+
+            Optional<PageResult<ProductResult>> cached =
+                    portalCatalogManager.listProducts(param, pageable);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
         }
 
         if (param.getType() != null && param.hasFilter()) {
@@ -252,6 +270,16 @@ public class ProductServiceImpl implements ProductService {
                 results, page.getNumber() + 1, page.getSize(), page.getTotalElements());
     }
 
+    @Override
+    public PageResult<ProductResult> searchProducts(SearchProductParam param, Pageable pageable) {
+        String portalId =
+                contextHolder.isAdministrator() ? param.getPortalId() : contextHolder.getPortal();
+        if (StrUtil.isBlank(portalId)) {
+            throw new BusinessException(ErrorCode.INVALID_REQUEST, "Portal ID cannot be blank");
+        }
+        return portalCatalogManager.searchProducts(portalId, param, pageable);
+    }
+
     @Override
     public ProductResult updateProduct(String productId, UpdateProductParam param) {
         Product product = findProduct(productId);
@@ -273,7 +301,7 @@ public class ProductServiceImpl implements ProductService {
 
         productRepository.saveAndFlush(product);
 
-        // Set product categories
+        // Set product categories, which also refreshes portal catalogs
         setProductCategories(product.getProductId(), param.getCategories());
 
         return getProduct(product.getProductId());
@@ -288,6 +316,7 @@ public class ProductServiceImpl implements ProductService {
             if (product.getStatus() != ProductStatus.PUBLISHED) {
                 product.setStatus(ProductStatus.PUBLISHED);
                 productRepository.save(product);
+                publishCatalogChanged(productId);
             }
             return;
         }
@@ -306,6 +335,7 @@ public class ProductServiceImpl implements ProductService {
 
         publicationRepository.save(productPublication);
         productRepository.save(product);
+        publishCatalogChanged(productId);
     }
 
     @Override
@@ -373,6 +403,7 @@ public class ProductServiceImpl implements ProductService {
 
         publicationRepository.delete(publication);
         productRepository.save(product);
+        publishCatalogChanged(productId);
     }
 
     @Override
@@ -395,6 +426,14 @@ public class ProductServiceImpl implements ProductService {
 
         // Asynchronously clean up product resources
         SpringUtil.getApplicationContext().publishEvent(new ProductDeletingEvent(productId));
+        publishCatalogChanged(productId);
+    }
+
+    /**
+     * Notify portal catalog snapshots of a product change, delivered after commit
+     */
+    private void publishCatalogChanged(String productId) {
+        SpringUtil.getApplicationContext().publishEvent(new ProductCatalogChangedEvent(productId));
     }
 
     private void deleteLinkedApiDefinition(ProductRef productRef) {
@@ -474,6 +513,7 @@ public class ProductServiceImpl implements ProductService {
 
         productRepository.save(product);
         productRefRepository.save(productRef);
+        publishCatalogChanged(productId);
     }
 
     @Override
@@ -506,6 +546,8 @@ public class ProductServiceImpl implements ProductService {
         productRefRepository.delete(productRef);
         productRepository.save(product);
         productSyncCache.invalidate(productId);
+        parsedRefConfigCache.invalidate(productId);
+        publishCatalogChanged(productId);
     }
 
     @EventListener
@@ -601,6 +643,7 @@ public class ProductServiceImpl implements ProductService {
 
         productCategoryService.unbindAllProductCategories(productId);
         productCategoryService.bindProductCategories(productId, categoryIds);
+        publishCatalogChanged(productId);
     }
 
     @Override
@@ -626,6 +669,8 @@ public class ProductServiceImpl implements ProductService {
         syncConfig(product, productRef);
         syncMcpTools(product, productRef);
         productRefRepository.saveAndFlush(productRef);
+        parsedRefConfigCache.invalidate(productId);
+        publishCatalogChanged(productId);
     }
 
     @Override
@@ -649,12 +694,9 @@ public class ProductServiceImpl implements ProductService {
                                         "API product is not subscribed, not allowed to list"
                                                 + " tools"));
 
-        // Initialize client and fetch tools
-        CredentialContext credentialContext =
-                consumerService.getDefaultCredential(contextHolder.getUser());
+        // Served from the tool catalog, refreshed in the background
         McpToolListResult result = new McpToolListResult();
-
-        result.setTools(toolManager.fetchTools(product.getMcpConfig(), credentialContext));
+        result.setTools(mcpToolCatalog.getTools(productId));
         return result;
     }
 
@@ -691,6 +733,8 @@ public class ProductServiceImpl implements ProductService {
 
         product.setFeature(feature);
         productRepository.save(product);
+        parsedRefConfigCache.invalidate(productId);
+        publishCatalogChanged(productId);
     }
 
     private void syncConfig(Product product, ProductRef productRef) {
@@ -764,34 +808,14 @@ public class ProductServiceImpl implements ProductService {
             return;
         }
 
-        McpConfigResult mcpConfig =
-                Optional.ofNullable(productRef.getMcpConfig())
-                        .map(config -> JsonUtil.parse(config, McpConfigResult.class))
-                        .orElse(null);
-
-        if (mcpConfig == null) {
-            return;
-        }
-
-        CredentialContext credential = new CredentialContext();
-        if (productRef.getSourceType() == SourceType.GATEWAY) {
-            try {
-                credential =
-                        gatewayService.fetchApiCredential(
-                                productRef.getGatewayId(), product.getType(), productRef);
-            } catch (Exception e) {
-                log.warn(
-                        "Failed to fetch API credential for product {}: {}",
-                        productRef.getProductId(),
-                        e.getMessage());
-            }
-        }
-
-        List<McpSchema.Tool> tools = toolManager.fetchTools(mcpConfig, credential);
+        // Fetched with the same config and credential resolution as the catalog refresh
+        List<McpSchema.Tool> tools = mcpToolCatalog.refresh(productRef);
         if (CollUtil.isEmpty(tools)) {
             return;
         }
 
+        McpConfigResult mcpConfig =
+                JsonUtil.parse(productRef.getMcpConfig(), McpConfigResult.class);
         try {
             OpenAPIToolsConfig toolsConfig =
                     OpenAPIToolsConfigConverter.convertFromToolList(
@@ -862,27 +886,42 @@ public class ProductServiceImpl implements ProductService {
         product.setSubscribable(
                 productRef.getSourceType() != null && productRef.getSourceType().isGateway());
 
-        // API config for REST API
-        if (StrUtil.isNotBlank(productRef.getApiConfig())) {
-            product.setApiConfig(JsonUtil.parse(productRef.getApiConfig(), APIConfigResult.class));
-        }
+        // Shared across requests, no caller modifies the config DTOs
+        ParsedRefConfig config = getParsedRefConfig(productRef);
+        product.setApiConfig(config.apiConfig());
+        product.setMcpConfig(config.mcpConfig());
+        product.setAgentConfig(config.agentConfig());
+        product.setModelConfig(config.modelConfig());
+    }
 
-        // MCP config for MCP Server
-        if (StrUtil.isNotBlank(productRef.getMcpConfig())) {
-            product.setMcpConfig(JsonUtil.parse(productRef.getMcpConfig(), McpConfigResult.class));
+    /**
+     * Get parsed configs of a product ref, parsing the JSON columns only when the ref changed.
+     *
+     * <p>The ref update timestamp is the version; every write path that changes the configs also
+     * invalidates the entry.
+     *
+     * @param productRef the product reference containing config data
+     * @return parsed configs, absent configs are null
+     */
+    private ParsedRefConfig getParsedRefConfig(ProductRef productRef) {
+        ParsedRefConfig cached = parsedRefConfigCache.getIfPresent(productRef.getProductId());
+        if (cached != null && Objects.equals(cached.updatedAt(), productRef.getUpdatedAt())) {
+            return cached;
         }
 
-        // Agent config for Agent API
-        if (StrUtil.isNotBlank(productRef.getAgentConfig())) {
-            product.setAgentConfig(
-                    JsonUtil.parse(productRef.getAgentConfig(), AgentConfigResult.class));
-        }
+        ParsedRefConfig parsed =
+                new ParsedRefConfig(
+                        productRef.getUpdatedAt(),
+                        parseConfig(productRef.getApiConfig(), APIConfigResult.class),
+                        parseConfig(productRef.getMcpConfig(), McpConfigResult.class),
+                        parseConfig(productRef.getAgentConfig(), AgentConfigResult.class),
+                        parseConfig(productRef.getModelConfig(), ModelConfigResult.class));
+        parsedRefConfigCache.put(productRef.getProductId(), parsed);
+        return parsed;
+    }
 
-        // Model config for Model API
-        if (StrUtil.isNotBlank(productRef.getModelConfig())) {
-            product.setModelConfig(
-                    JsonUtil.parse(productRef.getModelConfig(), ModelConfigResult.class));
-        }
+    private <T> T parseConfig(String config, Class<T> type) {
+        return StrUtil.isNotBlank(config) ? JsonUtil.parse(config, type) : null;
     }
 
     private Product findPublishedProduct(String portalId, String productId) {
@@ -1012,6 +1051,8 @@ public class ProductServiceImpl implements ProductService {
             syncMcpTools(product, productRef);
 
             productRefRepository.save(productRef);
+            parsedRefConfigCache.invalidate(productId);
+            publishCatalogChanged(productId);
 
             log.info("Auto-sync product ref: {} successfully completed", productId);
         } catch (Exception e) {
@@ -1021,59 +1062,32 @@ public class ProductServiceImpl implements ProductService {
 
     /**
      * List skill/worker products sorted by download count (descending).
-     * Uses in-memory sorting since downloadCount is stored inside the feature JSON column.
+     * Backed by the denormalized download_count column, so sorting and paging happen in the DB.
      */
     private PageResult<ProductResult> listProductsSortedByDownloadCount(
             QueryProductParam param, Pageable pageable) {
-        List<Product> allProducts = productRepository.findAll(buildSpecification(param));
-
-        if (CollUtil.isEmpty(allProducts)) {
-            return PageResult.empty(pageable.getPageNumber(), pageable.getPageSize());
-        }
-
-        // Sort by download count descending (null treated as 0)
-        allProducts.sort(
-                Comparator.comparingLong((Product p) -> getDownloadCount(p, param.getType()))
-                        .reversed());
-
-        // Manual pagination
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), allProducts.size());
-        List<Product> pageContent =
-                start < allProducts.size()
-                        ? allProducts.subList(start, end)
-                        : Collections.emptyList();
-
+        Pageable sortedPageable =
+                PageRequest.of(
+                        pageable.getPageNumber(),
+                        pageable.getPageSize(),
+                        Sort.by(Sort.Direction.DESC, "downloadCount")
+                                .and(Sort.by(Sort.Direction.DESC, "updatedAt")));
+        Page<Product> page = productRepository.findAll(buildSpecification(param), sortedPageable);
         List<ProductResult> results =
-                pageContent.stream()
+                page.stream()
                         .map(product -> new ProductResult().convertFrom(product))
                         .collect(Collectors.toList());
 
         fillProducts(results);
 
         return PageResult.of(
-                results, pageable.getPageNumber() + 1, pageable.getPageSize(), allProducts.size());
-    }
-
-    private long getDownloadCount(Product product, ProductType type) {
-        ProductFeature feature = product.getFeature();
-        if (feature == null) {
-            return 0L;
-        }
-        if (type == ProductType.AGENT_SKILL) {
-            SkillConfig cfg = feature.getSkillConfig();
-            return cfg != null && cfg.getDownloadCount() != null ? cfg.getDownloadCount() : 0L;
-        }
-        if (type == ProductType.WORKER) {
-            WorkerConfig cfg = feature.getWorkerConfig();
-            return cfg != null ? cfg.getDownloadCount() : 0L;
-        }
-        return 0L;
+                results, page.getNumber() + 1, page.getSize(), page.getTotalElements());
     }
 
     /**
      * List products with type-specific filter.
-     * Filter is used to match specific properties in Product Config (e.g., ModelAPIConfig, APIConfig).
+     * Filter is used to match specific properties in Product Config (e.g., ModelAPIConfig, APIConfig),
+     * evaluated against denormalized ProductRef columns so that paging happens in the DB.
      *
      * @param param    query parameters including product type and filter
      * @param pageable pagination settings
@@ -1081,92 +1095,61 @@ public class ProductServiceImpl implements ProductService {
      */
     private PageResult<ProductResult> listProductsWithFilter(
             QueryProductParam param, Pageable pageable) {
-        List<Product> allProducts = productRepository.findAllByType(param.getType());
-
-        if (CollUtil.isEmpty(allProducts)) {
-            return PageResult.empty(pageable.getPageNumber(), pageable.getPageSize());
-        }
-
-        Map<String, ProductRef> productRefMap =
-                productRefRepository
-                        .findByProductIdIn(
-                                allProducts.stream()
-                                        .map(Product::getProductId)
-                                        .collect(Collectors.toList()))
-                        .stream()
-                        .collect(Collectors.toMap(ProductRef::getProductId, ref -> ref));
-
-        List<Product> targetProducts =
-                allProducts.stream()
-                        .filter(p -> matchesFilter(productRefMap.get(p.getProductId()), param))
-                        // Filter by Product fields (status, name)
-                        .filter(
-                                p ->
-                                        param.getStatus() == null
-                                                || p.getStatus().equals(param.getStatus()))
-                        .filter(
-                                p ->
-                                        StrUtil.isBlank(param.getName())
-                                                || Optional.ofNullable(p.getName())
-                                                        .orElse("")
-                                                        .contains(param.getName()))
-                        .collect(Collectors.toList());
-
-        // Manual pagination
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), targetProducts.size());
-        List<Product> pageContent =
-                start < targetProducts.size()
-                        ? targetProducts.subList(start, end)
-                        : Collections.emptyList();
-
+        Page<Product> page =
+                productRepository.findAll(
+                        buildSpecification(param).and(buildFilterSpecification(param)), pageable);
         List<ProductResult> results =
-                pageContent.stream()
+                page.stream()
                         .map(product -> new ProductResult().convertFrom(product))
                         .collect(Collectors.toList());
 
         fillProducts(results);
 
         return PageResult.of(
-                results,
-                pageable.getPageNumber() + 1,
-                pageable.getPageSize(),
-                targetProducts.size());
+                results, page.getNumber() + 1, page.getSize(), page.getTotalElements());
     }
 
     /**
-     * Check if product matches the type-specific filter
+     * Build the type-specific filter on product configs
      *
-     * @param productRef the product reference containing config data
-     * @param param      query parameters containing filter criteria
-     * @return true if product matches the filter, false otherwise
+     * @param param query parameters containing filter criteria
+     * @return specification matching products whose ref config satisfies the filter
      */
-    private boolean matchesFilter(ProductRef productRef, QueryProductParam param) {
-        if (productRef == null || StrUtil.isBlank(productRef.getModelConfig())) {
-            return false;
-        }
-
-        // MODEL_API type: use ModelFilter
-        if (param.getType() == ProductType.MODEL_API && param.getModelFilter() != null) {
-            try {
-                ModelConfigResult config =
-                        JsonUtil.parse(productRef.getModelConfig(), ModelConfigResult.class);
-                return param.getModelFilter().matches(config);
-            } catch (Exception e) {
-                log.warn(
-                        "Failed to parse modelConfig for product: {}",
-                        productRef.getProductId(),
-                        e);
-                return false;
+    private Specification<Product> buildFilterSpecification(QueryProductParam param) {
+        return (root, query, cb) -> {
+            Subquery<String> subquery = query.subquery(String.class);
+            Root<ProductRef> refRoot = subquery.from(ProductRef.class);
+            subquery.select(refRoot.get("productId"));
+
+            // MODEL_API type: use ModelFilter
+            if (param.getType() == ProductType.MODEL_API && param.getModelFilter() != null) {
+                String category = param.getModelFilter().getCategory();
+                subquery.where(
+                        category == null
+                                ? cb.and(
+                                        cb.isNotNull(refRoot.get("modelConfig")),
+                                        cb.isNull(refRoot.get("modelCategory")))
+                                : cb.equal(refRoot.get("modelCategory"), category));
+                return root.get("productId").in(subquery);
             }
-        }
 
-        // TODO: Add other filter types here
-        // if (param.getType() == ProductType.AGENT && param.getAgentFilter() != null) {
-        //     ...
-        // }
+            // TODO: Add other filter types here
 
-        // No filter specified or no matching filter type, pass through
-        return true;
+            // No matching filter type, only require the model config to be present
+            subquery.where(cb.isNotNull(refRoot.get("modelConfig")));
+            return root.get("productId").in(subquery);
+        };
     }
+
+    /**
+     * Parsed configs of a product ref, shared read-only across requests
+     *
+     * @param updatedAt update timestamp of the ref the configs were parsed from
+     */
+    private record ParsedRefConfig(
+            LocalDateTime updatedAt,
+            APIConfigResult apiConfig,
+            McpConfigResult mcpConfig,
+            AgentConfigResult agentConfig,
+            ModelConfigResult modelConfig) {}
 }
@@ -24,13 +24,16 @@ import cn.hutool.crypto.digest.DigestUtil;
 import com.alibaba.himarket.entity.RevokedToken;
 import com.alibaba.himarket.repository.RevokedTokenRepository;
 import com.alibaba.himarket.service.RevokedTokenService;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -39,10 +42,23 @@ import org.springframework.transaction.annotation.Transactional;
 @Slf4j
 public class RevokedTokenServiceImpl implements RevokedTokenService {
 
+    /**
+     * Overlap applied to the incremental sync watermark to tolerate clock skew between replicas
+     * and transactions that commit after the previous sync.
+     */
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
     private final RevokedTokenRepository revokedTokenRepository;
 
-    private final Cache<String, Boolean> revokedTokenCache =
-            Caffeine.newBuilder().maximumSize(10_000).expireAfterWrite(1, TimeUnit.HOURS).build();
+    /**
+     * In-memory revocation index: token hash -> expiration time. Holds every unexpired revoked
+     * token, so a miss means the token is not revoked once the index is loaded.
+     */
+    private final Map<String, LocalDateTime> revokedTokenIndex = new ConcurrentHashMap<>();
+
+    private volatile boolean indexLoaded = false;
+
+    private volatile LocalDateTime lastSyncTime;
 
     public RevokedTokenServiceImpl(RevokedTokenRepository revokedTokenRepository) {
         this.revokedTokenRepository = revokedTokenRepository;
@@ -61,7 +77,7 @@ public class RevokedTokenServiceImpl implements RevokedTokenService {
         RevokedToken revokedToken =
                 RevokedToken.builder().tokenHash(tokenHash).expiresAt(expiresAt).build();
         revokedTokenRepository.save(revokedToken);
-        revokedTokenCache.put(tokenHash, Boolean.TRUE);
+        revokedTokenIndex.put(tokenHash, expiresAt);
     }
 
     @Override
@@ -71,23 +87,60 @@ public class RevokedTokenServiceImpl implements RevokedTokenService {
         }
         String tokenHash = DigestUtil.sha256Hex(token);
 
-        Boolean cached = revokedTokenCache.getIfPresent(tokenHash);
-        if (cached != null) {
-            return cached;
+        LocalDateTime expiresAt = revokedTokenIndex.get(tokenHash);
+        if (expiresAt != null) {
+            return true;
+        }
+        if (indexLoaded) {
+            return false;
         }
 
+        // Index not loaded yet (application still starting), fall back to the database
         boolean revoked = revokedTokenRepository.existsByTokenHash(tokenHash);
         if (revoked) {
-            revokedTokenCache.put(tokenHash, Boolean.TRUE);
+            revokedTokenIndex.put(tokenHash, LocalDateTime.MAX);
         }
         return revoked;
     }
 
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadRevokedTokens() {
+        LocalDateTime syncTime = LocalDateTime.now();
+        List<RevokedToken> tokens = revokedTokenRepository.findByExpiresAtAfter(syncTime);
+        tokens.forEach(t -> revokedTokenIndex.put(t.getTokenHash(), t.getExpiresAt()));
+        lastSyncTime = syncTime;
+        indexLoaded = true;
+        log.info("Loaded {} revoked tokens into revocation index", tokens.size());
+    }
+
+    @Override
+    @Scheduled(fixedDelay = 30000, initialDelay = 30000)
+    public void refreshRevokedTokens() {
+        if (!indexLoaded) {
+            return;
+        }
+        try {
+            LocalDateTime syncTime = LocalDateTime.now();
+            List<RevokedToken> tokens =
+                    revokedTokenRepository.findByCreateAtGreaterThanEqual(
+                            lastSyncTime.minus(SYNC_OVERLAP));
+            tokens.forEach(t -> revokedTokenIndex.put(t.getTokenHash(), t.getExpiresAt()));
+            lastSyncTime = syncTime;
+            if (!tokens.isEmpty()) {
+                log.debug("Synced {} revoked tokens into revocation index", tokens.size());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to refresh revocation index", e);
+        }
+    }
+
     @Override
     @Scheduled(fixedRate = 3600000)
     @Transactional
     public void cleanupExpiredTokens() {
-        revokedTokenRepository.deleteByExpiresAtBefore(LocalDateTime.now());
+        LocalDateTime now = LocalDateTime.now();
+        revokedTokenIndex.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+        revokedTokenRepository.deleteByExpiresAtBefore(now);
         log.info("Cleaned up expired revoked tokens");
     }
 }
@@ -37,6 +37,7 @@ import com.alibaba.himarket.entity.SandboxInstance;
 import com.alibaba.himarket.repository.McpServerEndpointRepository;
 import com.alibaba.himarket.repository.SandboxInstanceRepository;
 import com.alibaba.himarket.service.SandboxService;
+import com.alibaba.himarket.service.sandbox.K8sClientPool;
 import com.alibaba.himarket.support.enums.McpHostingType;
 import com.alibaba.himarket.utils.JsonUtil;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -63,6 +64,7 @@ public class SandboxServiceImpl implements SandboxService {
     private final McpServerEndpointRepository mcpServerEndpointRepository;
     private final ContextHolder contextHolder;
     private final com.alibaba.himarket.service.sandbox.SandboxHealthCheckTask healthCheckTask;
+    private final K8sClientPool k8sClientPool;
 
     @Override
     public List<SandboxSimpleResult> listMcpCapableSandboxes() {
@@ -111,8 +113,7 @@ public class SandboxServiceImpl implements SandboxService {
                         });
 
         // 从KubeConfig连接集群获取信息
-        try {
-            KubernetesClient client = K8sClientUtils.getClient(param.getKubeConfig());
+        try (KubernetesClient client = K8sClientUtils.newClient(param.getKubeConfig())) {
             String apiServer = K8sClientUtils.getApiServer(client);
             String clusterAttribute = buildClusterAttribute(client);
 
@@ -154,11 +155,8 @@ public class SandboxServiceImpl implements SandboxService {
 
         // 如果更新了KubeConfig，重新获取集群信息
         if (StrUtil.isNotBlank(param.getKubeConfig())) {
-            if (StrUtil.isNotBlank(sandbox.getKubeConfig())) {
-                K8sClientUtils.evictClient(sandbox.getKubeConfig());
-            }
-            try {
-                KubernetesClient client = K8sClientUtils.getClient(param.getKubeConfig());
+            k8sClientPool.evict(sandboxId);
+            try (KubernetesClient client = K8sClientUtils.newClient(param.getKubeConfig())) {
                 sandbox.setApiServer(K8sClientUtils.getApiServer(client));
                 sandbox.setClusterAttribute(buildClusterAttribute(client));
             } catch (BusinessException e) {
@@ -195,9 +193,7 @@ public class SandboxServiceImpl implements SandboxService {
         }
 
         // 清除K8s client缓存
-        if (StrUtil.isNotBlank(sandbox.getKubeConfig())) {
-            K8sClientUtils.evictClient(sandbox.getKubeConfig());
-        }
+        k8sClientPool.evict(sandboxId);
         sandboxInstanceRepository.delete(sandbox);
     }
 
@@ -212,8 +208,7 @@ public class SandboxServiceImpl implements SandboxService {
 
     @Override
     public ClusterInfoResult fetchClusterInfo(String kubeConfig) {
-        try {
-            KubernetesClient client = K8sClientUtils.getClient(kubeConfig);
+        try (KubernetesClient client = K8sClientUtils.newClient(kubeConfig)) {
             return ClusterInfoResult.builder()
                     .ok(true)
                     .clusterAttribute(buildClusterAttribute(client))
@@ -240,9 +235,8 @@ public class SandboxServiceImpl implements SandboxService {
         if (StrUtil.isBlank(sandbox.getKubeConfig())) {
             throw new BusinessException(ErrorCode.INVALID_REQUEST, "沙箱实例未配置 KubeConfig");
         }
-        try {
-            KubernetesClient client = K8sClientUtils.getClient(sandbox.getKubeConfig());
-            return K8sClientUtils.listNamespaces(client);
+        try (K8sClientPool.Lease lease = k8sClientPool.acquire(sandbox)) {
+            return K8sClientUtils.listNamespaces(lease.client());
         } catch (Exception e) {
             throw new BusinessException(
                     ErrorCode.INTERNAL_ERROR, "获取 Namespace 列表失败: " + e.getMessage());
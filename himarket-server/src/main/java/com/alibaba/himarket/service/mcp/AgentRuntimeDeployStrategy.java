@@ -22,8 +22,8 @@ package com.alibaba.himarket.service.mcp;
 import cn.hutool.core.util.StrUtil;
 import com.alibaba.himarket.core.exception.BusinessException;
 import com.alibaba.himarket.core.exception.ErrorCode;
-import com.alibaba.himarket.core.utils.K8sClientUtils;
 import com.alibaba.himarket.entity.SandboxInstance;
+import com.alibaba.himarket.service.sandbox.K8sClientPool;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
 import io.fabric8.kubernetes.api.model.Secret;
@@ -98,6 +98,8 @@ public class AgentRuntimeDeployStrategy implements McpSandboxDeployStrategy {
         pollScheduler.shutdownNow();
     }
 
+    @jakarta.annotation.Resource private K8sClientPool k8sClientPool;
+
     @org.springframework.beans.factory.annotation.Value("${sandbox.ssl-verify:true}")
     private boolean sslVerify;
 
@@ -252,54 +254,62 @@ public class AgentRuntimeDeployStrategy implements McpSandboxDeployStrategy {
         }
 
         // 下发 CRD（先创建 Secret，再创建 CRD，CRD 失败时回滚 Secret）
-        KubernetesClient client = K8sClientUtils.getClient(sandbox.getKubeConfig());
-
-        // 当 authType 为 "apikey" 且 apiKey 非空时，先创建 K8s Secret
-        if ("apikey".equalsIgnoreCase(authType) && StrUtil.isNotBlank(apiKey)) {
-            Secret k8sSecret =
-                    new SecretBuilder()
-                            .withNewMetadata()
-                            .withName(secretName)
-                            .withNamespace(ns)
-                            .addToLabels("app.kubernetes.io/managed-by", "himarket")
-                            .addToLabels("himarket.io/user-id", userId)
-                            .addToLabels("himarket.io/mcp-name", mcpName)
-                            .addToLabels("himarket.io/mcp-server-id", mcpServerId)
-                            .addToLabels("himarket.io/ref-toolserver", resourceName)
-                            .endMetadata()
-                            .withType("Opaque")
-                            .addToStringData("API_KEY", apiKey)
-                            .build();
-            client.secrets().inNamespace(ns).resource(k8sSecret).createOrReplace();
-            log.info("[AgentRuntimeDeploy] K8s Secret 创建成功: namespace={}, name={}", ns, secretName);
-        }
+        // 轮询期间持有租约，client 不会在使用中被关闭
+        String endpointUrl;
+        try (K8sClientPool.Lease lease = k8sClientPool.acquire(sandbox)) {
+            KubernetesClient client = lease.client();
+
+            // 当 authType 为 "apikey" 且 apiKey 非空时，先创建 K8s Secret
+            if ("apikey".equalsIgnoreCase(authType) && StrUtil.isNotBlank(apiKey)) {
+                Secret k8sSecret =
+                        new SecretBuilder()
+                                .withNewMetadata()
+                                .withName(secretName)
+                                .withNamespace(ns)
+                                .addToLabels("app.kubernetes.io/managed-by", "himarket")
+                                .addToLabels("himarket.io/user-id", userId)
+                                .addToLabels("himarket.io/mcp-name", mcpName)
+                                .addToLabels("himarket.io/mcp-server-id", mcpServerId)
+                                .addToLabels("himarket.io/ref-toolserver", resourceName)
+                                .endMetadata()
+                                .withType("Opaque")
+                                .addToStringData("API_KEY", apiKey)
+                                .build();
+                client.secrets().inNamespace(ns).resource(k8sSecret).createOrReplace();
+                log.info(
+                        "[AgentRuntimeDeploy] K8s Secret 创建成功: namespace={}, name={}",
+                        ns,
+                        secretName);
+            }
 
-        try {
-            client.genericKubernetesResources(CRD_CONTEXT)
-                    .inNamespace(ns)
-                    .resource(crd)
-                    .createOrReplace();
-        } catch (Exception e) {
-            if (secretName != null) {
-                try {
-                    client.secrets().inNamespace(ns).withName(secretName).delete();
-                    log.info("[AgentRuntimeDeploy] CRD 创建失败，已回滚删除 Secret: {}", secretName);
-                } catch (Exception rollbackEx) {
-                    log.warn("[AgentRuntimeDeploy] 回滚删除 Secret 失败: {}", rollbackEx.getMessage());
+            try {
+                client.genericKubernetesResources(CRD_CONTEXT)
+                        .inNamespace(ns)
+                        .resource(crd)
+                        .createOrReplace();
+            } catch (Exception e) {
+                if (secretName != null) {
+                    try {
+                        client.secrets().inNamespace(ns).withName(secretName).delete();
+                        log.info("[AgentRuntimeDeploy] CRD 创建失败，已回滚删除 Secret: {}", secretName);
+                    } catch (Exception rollbackEx) {
+                        log.warn(
+                                "[AgentRuntimeDeploy] 回滚删除 Secret 失败: {}", rollbackEx.getMessage());
+                    }
                 }
+                throw e;
             }
-            throw e;
-        }
 
-        log.info(
-                "[AgentRuntimeDeploy] CRD 下发成功: namespace={}, name={}, template={}",
-                ns,
-                resourceName,
-                templateFile);
+            log.info(
+                    "[AgentRuntimeDeploy] CRD 下发成功: namespace={}, name={}, template={}",
+                    ns,
+                    resourceName,
+                    templateFile);
 
-        // 轮询 Endpoint CRD 获取真实 endpoint URL
-        String endpointName = resourceName + "-primary";
-        String endpointUrl = pollEndpointUrl(client, ns, endpointName);
+            // 轮询 Endpoint CRD 获取真实 endpoint URL
+            String endpointName = resourceName + "-primary";
+            endpointUrl = pollEndpointUrl(client, ns, endpointName);
+        }
 
         // When SSL verification is disabled, downgrade HTTPS to HTTP
         if (!sslVerify && endpointUrl != null && endpointUrl.startsWith("https://")) {
@@ -343,53 +353,55 @@ public class AgentRuntimeDeployStrategy implements McpSandboxDeployStrategy {
         }
 
         String ns = StrUtil.blankToDefault(namespace, "default");
-        KubernetesClient client = K8sClientUtils.getClient(sandbox.getKubeConfig());
+        try (K8sClientPool.Lease lease = k8sClientPool.acquire(sandbox)) {
+            KubernetesClient client = lease.client();
 
-        if (StrUtil.isBlank(resourceName)) {
-            resourceName = buildResourceName(mcpName, userId);
-        }
+            if (StrUtil.isBlank(resourceName)) {
+                resourceName = buildResourceName(mcpName, userId);
+            }
+
+            // 先删除 K8s Secret（如果有）
+            if (StrUtil.isNotBlank(secretName)) {
+                try {
+                    client.secrets().inNamespace(ns).withName(secretName).delete();
+                    log.info(
+                            "[AgentRuntimeDeploy] K8s Secret 删除成功: namespace={}, name={}",
+                            ns,
+                            secretName);
+                } catch (Exception e) {
+                    log.warn(
+                            "[AgentRuntimeDeploy] K8s Secret 删除失败（可能已不存在）: namespace={}, name={},"
+                                    + " error={}",
+                            ns,
+                            secretName,
+                            e.getMessage());
+                }
+            }
 
-        // 先删除 K8s Secret（如果有）
-        if (StrUtil.isNotBlank(secretName)) {
+            String endpointName = resourceName + "-primary";
+
+            // 删除 ToolServer CRD
             try {
-                client.secrets().inNamespace(ns).withName(secretName).delete();
+                client.genericKubernetesResources(CRD_CONTEXT)
+                        .inNamespace(ns)
+                        .withName(resourceName)
+                        .delete();
                 log.info(
-                        "[AgentRuntimeDeploy] K8s Secret 删除成功: namespace={}, name={}",
+                        "[AgentRuntimeDeploy] ToolServer CRD 删除成功: namespace={}, name={}",
                         ns,
-                        secretName);
+                        resourceName);
             } catch (Exception e) {
                 log.warn(
-                        "[AgentRuntimeDeploy] K8s Secret 删除失败（可能已不存在）: namespace={}, name={},"
+                        "[AgentRuntimeDeploy] ToolServer CRD 删除失败（可能已不存在）: namespace={}, name={},"
                                 + " error={}",
                         ns,
-                        secretName,
+                        resourceName,
                         e.getMessage());
+                return;
             }
-        }
-
-        String endpointName = resourceName + "-primary";
 
-        // 删除 ToolServer CRD
-        try {
-            client.genericKubernetesResources(CRD_CONTEXT)
-                    .inNamespace(ns)
-                    .withName(resourceName)
-                    .delete();
-            log.info(
-                    "[AgentRuntimeDeploy] ToolServer CRD 删除成功: namespace={}, name={}",
-                    ns,
-                    resourceName);
-        } catch (Exception e) {
-            log.warn(
-                    "[AgentRuntimeDeploy] ToolServer CRD 删除失败（可能已不存在）: namespace={}, name={},"
-                            + " error={}",
-                    ns,
-                    resourceName,
-                    e.getMessage());
-            return;
+            waitEndpointDeleted(client, ns, endpointName);
         }
-
-        waitEndpointDeleted(client, ns, endpointName);
     }
 
     /**
@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.sandbox;
+
+import com.alibaba.himarket.config.K8sClientPoolConfig;
+import com.alibaba.himarket.core.utils.K8sClientUtils;
+import com.alibaba.himarket.entity.SandboxInstance;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.http.HttpClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 沙箱集群 KubernetesClient 池。
+ *
+ * <p>按 sandboxId 缓存 client，获取时只做一次 map 查找和 KubeConfig 比对，不再每次请求 API Server；
+ * 连通性由后台定时探测（/version）保证，连续失败 {@code evictAfterFailures} 次的 client 被移出池，下次获取时重建。
+ *
+ * <p>client 通过 {@link #acquire} 以租约形式借出，移出池的 client 要等所有租约归还后才关闭，
+ * 不会关掉仍在使用（如轮询 Endpoint）的 client。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class K8sClientPool {
+
+    private final K8sClientPoolConfig config;
+
+    private final MeterRegistry meterRegistry;
+
+    private Cache<String, PooledClient> clients;
+
+    private ScheduledExecutorService validator;
+
+    @PostConstruct
+    void init() {
+        clients =
+                Caffeine.newBuilder()
+                        .expireAfterAccess(config.getIdleTimeout())
+                        .maximumSize(config.getMaxSize())
+                        .removalListener(this::onRemoval)
+                        .build();
+        meterRegistry.gauge("k8s.client.pool.size", clients, Cache::estimatedSize);
+
+        validator =
+                Executors.newSingleThreadScheduledExecutor(
+                        r -> {
+                            Thread t = new Thread(r, "k8s-client-validator");
+                            t.setDaemon(true);
+                            return t;
+                        });
+        long interval = config.getValidateInterval().toMillis();
+        validator.scheduleWithFixedDelay(
+                this::validateAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        validator.shutdownNow();
+        clients.invalidateAll();
+    }
+
+    /**
+     * 借出沙箱实例的 client，KubeConfig 变更后自动重建。用完后须关闭租约。
+     */
+    public Lease acquire(SandboxInstance sandbox) {
+        String sandboxId = sandbox.getSandboxId();
+        String kubeConfig = sandbox.getKubeConfig();
+        while (true) {
+            PooledClient pooled = clients.getIfPresent(sandboxId);
+            if (pooled == null || !pooled.kubeConfig.equals(kubeConfig)) {
+                pooled =
+                        clients.asMap()
+                                .compute(
+                                        sandboxId,
+                                        (key, existing) -> {
+                                            if (existing != null
+                                                    && existing.kubeConfig.equals(kubeConfig)) {
+                                                return existing;
+                                            }
+                                            log.info("创建新的KubernetesClient, sandboxId={}", key);
+                                            meterRegistry
+                                                    .counter("k8s.client.pool.created")
+                                                    .increment();
+                                            return new PooledClient(
+                                                    kubeConfig,
+                                                    K8sClientUtils.newClient(kubeConfig));
+                                        });
+            }
+            // 已被移出且关闭的 client 借不出来，重新查找
+            if (pooled.retain()) {
+                return new Lease(sandboxId, pooled);
+            }
+        }
+    }
+
+    /**
+     * 移出沙箱实例的 client（KubeConfig 变更或实例删除时调用），借出中的 client 在归还后关闭。
+     */
+    public void evict(String sandboxId) {
+        clients.invalidate(sandboxId);
+    }
+
+    /**
+     * 并发探测池中所有 client，连续失败达到阈值的被移出池。
+     */
+    private void validateAll() {
+        for (Map.Entry<String, PooledClient> entry : clients.asMap().entrySet()) {
+            String sandboxId = entry.getKey();
+            PooledClient pooled = entry.getValue();
+            if (!pooled.retain()) {
+                continue;
+            }
+            Lease lease = new Lease(sandboxId, pooled);
+            try {
+                KubernetesClient client = lease.client();
+                HttpClient httpClient = client.getHttpClient();
+                String url = client.getConfiguration().getMasterUrl();
+                httpClient
+                        .sendAsync(
+                                httpClient
+                                        .newHttpRequestBuilder()
+                                        .uri(url + (url.endsWith("/") ? "" : "/") + "version")
+                                        .build(),
+                                String.class)
+                        .orTimeout(config.getValidateTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                        .whenComplete(
+                                (response, e) -> {
+                                    if (e == null && response.isSuccessful()) {
+                                        lease.markSucceeded();
+                                    } else {
+                                        lease.markFailed(
+                                                e != null
+                                                        ? e.toString()
+                                                        : "HTTP " + response.code());
+                                    }
+                                    lease.close();
+                                });
+            } catch (Exception e) {
+                lease.markFailed(e.toString());
+                lease.close();
+            }
+        }
+    }
+
+    private void onRemoval(String sandboxId, PooledClient pooled, RemovalCause cause) {
+        if (pooled == null) {
+            return;
+        }
+        log.info("移出KubernetesClient, sandboxId={}, 原因={}", sandboxId, cause);
+        meterRegistry.counter("k8s.client.pool.evicted", "cause", cause.name()).increment();
+        pooled.retire(sandboxId);
+    }
+
+    /**
+     * 借出的 client，关闭租约即归还。
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final String sandboxId;
+
+        private final PooledClient pooled;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(String sandboxId, PooledClient pooled) {
+            this.sandboxId = sandboxId;
+            this.pooled = pooled;
+        }
+
+        public KubernetesClient client() {
+            return pooled.client;
+        }
+
+        /**
+         * 记录一次调用成功，清零连续失败次数。
+         */
+        public void markSucceeded() {
+            pooled.failures.set(0);
+        }
+
+        /**
+         * 记录一次连通性失败，连续失败达到阈值时移出池（只移除这个 client，期间已重建的不受影响）。
+         */
+        public void markFailed(String error) {
+            int failures = pooled.failures.incrementAndGet();
+            if (failures < config.getEvictAfterFailures()) {
+                log.debug(
+                        "KubernetesClient连通性校验失败: sandboxId={}, 连续失败={}, error={}",
+                        sandboxId,
+                        failures,
+                        error);
+                return;
+            }
+            log.warn(
+                    "KubernetesClient连续{}次连通性校验失败，移出池: sandboxId={}, error={}",
+                    failures,
+                    sandboxId,
+                    error);
+            clients.asMap().remove(sandboxId, pooled);
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                pooled.release(sandboxId);
+            }
+        }
+    }
+
+    /**
+     * 池中的 client 及其引用计数。refs 为 -1 表示已关闭；移出池后最后一个租约归还时关闭。
+     */
+    private static final class PooledClient {
+
+        private final String kubeConfig;
+
+        private final KubernetesClient client;
+
+        private final AtomicInteger refs = new AtomicInteger();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private volatile boolean retired;
+
+        PooledClient(String kubeConfig, KubernetesClient client) {
+            this.kubeConfig = kubeConfig;
+            this.client = client;
+        }
+
+        boolean retain() {
+            while (true) {
+                int current = refs.get();
+                if (current < 0) {
+                    return false;
+                }
+                if (refs.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void release(String sandboxId) {
+            if (refs.decrementAndGet() == 0 && retired) {
+                closeIfUnused(sandboxId);
+            }
+        }
+
+        void retire(String sandboxId) {
+            retired = true;
+            closeIfUnused(sandboxId);
+        }
+
+        private void closeIfUnused(String sandboxId) {
+            if (refs.compareAndSet(0, -1)) {
+                log.info("关闭KubernetesClient, sandboxId={}", sandboxId);
+                client.close();
+            }
+        }
+    }
+}
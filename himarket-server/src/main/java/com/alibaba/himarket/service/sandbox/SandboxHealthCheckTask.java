@@ -19,12 +19,28 @@
 
 package com.alibaba.himarket.service.sandbox;
 
-import com.alibaba.himarket.core.utils.K8sClientUtils;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.himarket.config.SandboxHealthCheckConfig;
 import com.alibaba.himarket.entity.SandboxInstance;
 import com.alibaba.himarket.repository.SandboxInstanceRepository;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.http.HttpClient;
+import io.fabric8.kubernetes.client.http.HttpResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -32,15 +48,28 @@ import org.springframework.stereotype.Component;
 
 /**
  * 沙箱集群健康检查定时任务。
- * 每 10 分钟检查一次所有沙箱实例的 K8s 集群连通性，更新状态。
+ * 每 10 分钟并发探测所有沙箱实例的 K8s 集群（/readyz），每个集群有独立超时，只在状态变化时写库。
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class SandboxHealthCheckTask {
 
+    private static final int MAX_MESSAGE_LENGTH = 500;
+
+    /**
+     * /readyz 未对当前身份开放时退回 /version
+     */
+    private static final Set<Integer> FALLBACK_CODES = Set.of(401, 403, 404);
+
     private final SandboxInstanceRepository sandboxInstanceRepository;
 
+    private final SandboxHealthCheckConfig config;
+
+    private final K8sClientPool k8sClientPool;
+
+    private final MeterRegistry meterRegistry;
+
     @Scheduled(fixedDelay = 10 * 60 * 1000, initialDelay = 30 * 1000)
     public void checkAll() {
         List<SandboxInstance> sandboxes = sandboxInstanceRepository.findAll();
@@ -48,55 +77,169 @@ public class SandboxHealthCheckTask {
             return;
         }
         log.info("[SandboxHealthCheck] 开始检查 {} 个沙箱实例", sandboxes.size());
+
+        // 探测是异步的，信号量限制同时在途的探测数
+        Semaphore permits = new Semaphore(Math.max(1, config.getParallelism()));
+        List<CompletableFuture<ProbeResult>> futures = new ArrayList<>(sandboxes.size());
         for (SandboxInstance sandbox : sandboxes) {
-            checkOne(sandbox);
+            permits.acquireUninterruptibly();
+            futures.add(probe(sandbox).whenComplete((r, e) -> permits.release()));
         }
-        log.info("[SandboxHealthCheck] 检查完成");
+
+        LocalDateTime checkedAt = LocalDateTime.now();
+        List<Long> unchanged = new ArrayList<>();
+        int changed = 0;
+        for (int i = 0; i < sandboxes.size(); i++) {
+            SandboxInstance sandbox = sandboxes.get(i);
+            ProbeResult result = futures.get(i).join();
+            if (Objects.equals(sandbox.getStatus(), result.status())
+                    && Objects.equals(sandbox.getStatusMessage(), result.message())) {
+                unchanged.add(sandbox.getId());
+                continue;
+            }
+            updateStatus(sandbox, result, checkedAt);
+            changed++;
+        }
+        if (!unchanged.isEmpty()) {
+            sandboxInstanceRepository.updateLastCheckedAt(unchanged, checkedAt);
+        }
+        log.info("[SandboxHealthCheck] 检查完成, 状态变更 {} 个", changed);
     }
 
     /**
      * 检查单个沙箱实例的集群连通性并更新状态。
      */
     public void checkOne(SandboxInstance sandbox) {
+        updateStatus(sandbox, probe(sandbox).join(), LocalDateTime.now());
+    }
+
+    /**
+     * 异步探测集群，超时或失败时返回 ERROR，不会异常完成。
+     */
+    private CompletableFuture<ProbeResult> probe(SandboxInstance sandbox) {
         String kubeConfig = sandbox.getKubeConfig();
         if (kubeConfig == null || kubeConfig.isBlank()) {
-            updateStatus(sandbox, "ERROR", "KubeConfig 为空");
-            return;
+            return CompletableFuture.completedFuture(new ProbeResult("ERROR", "KubeConfig 为空"));
         }
-        try {
-            KubernetesClient client = K8sClientUtils.getClient(kubeConfig);
-            // 尝试列出 namespace 验证连通性
-            client.namespaces().list();
 
-            updateStatus(sandbox, "RUNNING", null);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        // 超时后取消的是底层 HTTP 请求，取消依赖阶段不会中止请求
+        AtomicReference<CompletableFuture<?>> inflight = new AtomicReference<>();
+        K8sClientPool.Lease lease = null;
+        CompletableFuture<Void> request;
+        try {
+            lease = k8sClientPool.acquire(sandbox);
+            request = probeReadiness(lease.client(), inflight);
         } catch (Exception e) {
-            String msg = e.getMessage();
-            if (msg == null || msg.isBlank()) {
-                msg = e.getClass().getSimpleName();
-            }
-            // 截断过长的错误信息
-            if (msg.length() > 500) {
-                msg = msg.substring(0, 500);
-            }
-            // 连接失败时清除缓存，下次重新创建 client
-            K8sClientUtils.evictClient(kubeConfig);
-            updateStatus(sandbox, "ERROR", msg);
+            request = CompletableFuture.failedFuture(e);
         }
+
+        K8sClientPool.Lease acquired = lease;
+
+        return request.orTimeout(config.getTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .handle(
+                        (ignored, e) -> {
+                            ProbeResult result;
+                            if (e == null) {
+                                result = new ProbeResult("RUNNING", null);
+                                if (acquired != null) {
+                                    acquired.markSucceeded();
+                                }
+                            } else {
+                                CompletableFuture<?> send = inflight.get();
+                                if (send != null) {
+                                    send.cancel(true);
+                                }
+                                result = new ProbeResult("ERROR", errorMessage(e));
+                                // 计入连续失败次数，达到阈值时 client 被移出池并在下次获取时重建
+                                if (acquired != null) {
+                                    acquired.markFailed(result.message());
+                                }
+                            }
+                            if (acquired != null) {
+                                acquired.close();
+                            }
+                            sample.stop(
+                                    Timer.builder("sandbox.health.check.latency")
+                                            .tag("type", sandbox.getSandboxType())
+                                            .tag("status", result.status())
+                                            .publishPercentileHistogram()
+                                            .register(meterRegistry));
+                            return result;
+                        });
+    }
+
+    private CompletableFuture<Void> probeReadiness(
+            KubernetesClient client, AtomicReference<CompletableFuture<?>> inflight) {
+        HttpClient httpClient = client.getHttpClient();
+        String baseUrl = StrUtil.addSuffixIfNot(client.getConfiguration().getMasterUrl(), "/");
+        return send(httpClient, baseUrl + "readyz", inflight)
+                .thenCompose(
+                        response ->
+                                FALLBACK_CODES.contains(response.code())
+                                        ? send(httpClient, baseUrl + "version", inflight)
+                                        : CompletableFuture.completedFuture(response))
+                .thenAccept(
+                        response -> {
+                            if (!response.isSuccessful()) {
+                                throw new IllegalStateException(
+                                        StrUtil.format(
+                                                "集群探测失败: HTTP {} {}",
+                                                response.code(),
+                                                response.request().uri().getPath()));
+                            }
+                        });
     }
 
-    private void updateStatus(SandboxInstance sandbox, String status, String message) {
+    private CompletableFuture<HttpResponse<String>> send(
+            HttpClient httpClient, String url, AtomicReference<CompletableFuture<?>> inflight) {
+        CompletableFuture<?> previous = inflight.get();
+        if (previous != null && previous.isCancelled()) {
+            // 探测已超时，不再发起 /version 回退请求
+            return CompletableFuture.failedFuture(new CancellationException());
+        }
+        CompletableFuture<HttpResponse<String>> send =
+                httpClient.sendAsync(
+                        httpClient.newHttpRequestBuilder().uri(url).build(), String.class);
+        inflight.set(send);
+        return send;
+    }
+
+    private String errorMessage(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException)
+                && e.getCause() != null) {
+            e = e.getCause();
+        }
+        String msg =
+                e instanceof TimeoutException
+                        ? StrUtil.format("集群探测超时（{}ms）", config.getTimeout().toMillis())
+                        : e.getMessage();
+        if (msg == null || msg.isBlank()) {
+            msg = e.getClass().getSimpleName();
+        }
+        // 截断过长的错误信息
+        if (msg.length() > MAX_MESSAGE_LENGTH) {
+            msg = msg.substring(0, MAX_MESSAGE_LENGTH);
+        }
+        return msg;
+    }
+
+    private void updateStatus(
+            SandboxInstance sandbox, ProbeResult result, LocalDateTime checkedAt) {
         String oldStatus = sandbox.getStatus();
-        sandbox.setStatus(status);
-        sandbox.setStatusMessage(message);
-        sandbox.setLastCheckedAt(LocalDateTime.now());
+        sandbox.setStatus(result.status());
+        sandbox.setStatusMessage(result.message());
+        sandbox.setLastCheckedAt(checkedAt);
         sandboxInstanceRepository.save(sandbox);
-        if (!status.equals(oldStatus)) {
+        if (!result.status().equals(oldStatus)) {
             log.warn(
                     "[SandboxHealthCheck] 状态变更: sandbox={}, {} -> {}, message={}",
                     sandbox.getSandboxName(),
                     oldStatus,
-                    status,
-                    message);
+                    result.status(),
+                    result.message());
         }
     }
+
+    private record ProbeResult(String status, String message) {}
 }
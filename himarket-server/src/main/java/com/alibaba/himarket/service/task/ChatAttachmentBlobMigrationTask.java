@@ -0,0 +1,92 @@
+package com.alibaba.himarket.service.task;
+
+import com.alibaba.himarket.config.BlobStoreConfig;
+import com.alibaba.himarket.repository.ChatAttachmentRepository;
+import com.alibaba.himarket.service.blob.BlobStore;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-off background migration of attachment bytes from the database into the configured blob
+ * store. Runs at startup when {@code blob-store.migrate-existing=true}; IDs are paged first and
+ * each row's blob is then streamed into the store on its own, so at most one attachment is in
+ * flight at a time. A restart simply resumes with the rows that still have no blob key.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ChatAttachmentBlobMigrationTask {
+
+    static final int BATCH_SIZE = 100;
+
+    private static final String SELECT_DATA_SQL =
+            "SELECT data FROM chat_attachment WHERE id = :id AND blob_key IS NULL";
+
+    private final BlobStoreConfig blobStoreConfig;
+    private final ObjectProvider<BlobStore> blobStoreProvider;
+    private final ChatAttachmentRepository chatAttachmentRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateExistingAttachments() {
+        BlobStore blobStore = blobStoreProvider.getIfAvailable();
+        if (!blobStoreConfig.isMigrateExisting() || blobStore == null) {
+            return;
+        }
+
+        log.info("Migrating chat attachments into blob store: {}", blobStoreConfig.getType());
+        long migrated = 0;
+        long failed = 0;
+        long cursor = 0;
+        List<Long> ids;
+        while (!(ids =
+                        chatAttachmentRepository.findIdsToMigrate(
+                                cursor, PageRequest.of(0, BATCH_SIZE)))
+                .isEmpty()) {
+            for (Long id : ids) {
+                cursor = id;
+                try {
+                    if (migrate(blobStore, id)) {
+                        migrated++;
+                    }
+                } catch (Exception e) {
+                    failed++;
+                    log.warn("Failed to migrate attachment {} into blob store", id, e);
+                }
+            }
+        }
+        log.info("Chat attachment migration finished, migrated={}, failed={}", migrated, failed);
+    }
+
+    private boolean migrate(BlobStore blobStore, Long id) {
+        String blobKey =
+                jdbcTemplate.query(
+                        SELECT_DATA_SQL,
+                        new MapSqlParameterSource("id", id),
+                        rs -> {
+                            if (!rs.next()) {
+                                return null;
+                            }
+                            try (InputStream data = rs.getBinaryStream("data")) {
+                                return data == null ? null : blobStore.put(data);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+        // Already migrated or deleted since the IDs were paged
+        return blobKey != null && chatAttachmentRepository.moveDataToBlob(id, blobKey) > 0;
+    }
+}
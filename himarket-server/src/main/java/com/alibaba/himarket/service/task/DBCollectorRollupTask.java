@@ -0,0 +1,229 @@
+package com.alibaba.himarket.service.task;
+
+import com.alibaba.himarket.config.ObservabilityConfig;
+import com.alibaba.himarket.service.gateway.factory.DBCollectorRollupSql;
+import com.alibaba.himarket.service.gateway.factory.DBCollectorRollupSql.Level;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Incrementally rolls access_logs up into the per-minute and per-hour tables read by the
+ * DB-backed observability dashboards.
+ *
+ * <p>Each level keeps a watermark in {@code access_log_rollup_state}. A window is aggregated and
+ * the watermark advanced in one transaction, with the state row locked, so replicas never
+ * aggregate the same window twice. Rows arriving later than {@code observability.rollup.lateness}
+ * are not included in the rollups.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "observability.log-source", havingValue = "DB")
+public class DBCollectorRollupTask {
+
+    /**
+     * Max windows advanced per level and run, so a first backfill does not hold the scheduler
+     */
+    private static final int MAX_WINDOWS_PER_RUN = 24;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObservabilityConfig observabilityConfig;
+
+    private final MeterRegistry meterRegistry;
+
+    @Scheduled(fixedDelay = 60_000, initialDelay = 60_000)
+    public void rollup() {
+        if (!observabilityConfig.getRollup().isEnabled()) {
+            return;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            for (int i = 0; i < MAX_WINDOWS_PER_RUN; i++) {
+                if (!advance(DBCollectorRollupSql.MINUTE, null)) {
+                    break;
+                }
+            }
+            for (int i = 0; i < MAX_WINDOWS_PER_RUN; i++) {
+                if (!advance(DBCollectorRollupSql.HOUR, DBCollectorRollupSql.MINUTE)) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to roll up access logs: {}", e.getMessage(), e);
+        } finally {
+            sample.stop(meterRegistry.timer("db.collector.rollup.duration"));
+        }
+    }
+
+    /**
+     * Aggregate the next window of a level, from access_logs or from a finer level
+     *
+     * @return true if the watermark moved and there may be more to do
+     */
+    private boolean advance(Level level, Level source) {
+        Boolean advanced =
+                transactionTemplate.execute(
+                        status -> {
+                            Watermark watermark = lockWatermark(level);
+                            Instant target = target(level, source);
+                            if (target == null) {
+                                return false;
+                            }
+
+                            Instant to = watermark.to();
+                            if (to == null) {
+                                to = initialFrom(level, source, target);
+                                updateWatermark(level, to, to);
+                                log.info("Access log rollup {} starts from {}", level.name(), to);
+                            }
+
+                            Instant end = to.plus(observabilityConfig.getRollup().getBatchWindow());
+                            if (end.isAfter(target)) {
+                                end = target;
+                            }
+                            if (!end.isAfter(to)) {
+                                return false;
+                            }
+
+                            String sql =
+                                    source == null
+                                            ? DBCollectorRollupSql.insertFromRaw(level)
+                                            : DBCollectorRollupSql.insertFromRollup(level, source);
+                            int rows =
+                                    jdbcTemplate.update(
+                                            sql,
+                                            new MapSqlParameterSource()
+                                                    .addValue("from", Timestamp.from(to))
+                                                    .addValue("to", Timestamp.from(end)));
+                            updateWatermark(level, null, end);
+                            meterRegistry
+                                    .counter("db.collector.rollup.rows", "level", level.name())
+                                    .increment(rows);
+                            return true;
+                        });
+        return Boolean.TRUE.equals(advanced);
+    }
+
+    /**
+     * The end a level may be rolled up to: complete minutes older than the lateness window, or
+     * complete buckets of the finer level
+     */
+    private Instant target(Level level, Level source) {
+        if (source == null) {
+            Instant now = Instant.now().minus(observabilityConfig.getRollup().getLateness());
+            return floor(now, level);
+        }
+        Instant sourceTo = readWatermark(source).to();
+        return sourceTo == null ? null : floor(sourceTo, level);
+    }
+
+    private Instant initialFrom(Level level, Level source, Instant target) {
+        if (source != null) {
+            Instant sourceFrom = readWatermark(source).from();
+            return min(ceil(sourceFrom, level), target);
+        }
+        Instant oldest =
+                toInstant(
+                        jdbcTemplate.queryForObject(
+                                "SELECT MIN(start_time) FROM access_logs",
+                                new MapSqlParameterSource(),
+                                Object.class));
+        if (oldest == null) {
+            return target;
+        }
+        Instant earliest =
+                floor(Instant.now().minus(observabilityConfig.getRollup().getMaxBackfill()), level);
+        Instant from = floor(oldest, level);
+        return min(from.isBefore(earliest) ? earliest : from, target);
+    }
+
+    private Watermark lockWatermark(Level level) {
+        MapSqlParameterSource params = new MapSqlParameterSource("level", level.name());
+        jdbcTemplate.update(
+                "INSERT IGNORE INTO "
+                        + DBCollectorRollupSql.STATE_TABLE
+                        + " (level_name) VALUES (:level)",
+                params);
+        return toWatermark(
+                jdbcTemplate.queryForMap(
+                        "SELECT from_time, to_time FROM "
+                                + DBCollectorRollupSql.STATE_TABLE
+                                + " WHERE level_name = :level FOR UPDATE",
+                        params));
+    }
+
+    private Watermark readWatermark(Level level) {
+        List<Map<String, Object>> rows =
+                jdbcTemplate.queryForList(
+                        "SELECT from_time, to_time FROM "
+                                + DBCollectorRollupSql.STATE_TABLE
+                                + " WHERE level_name = :level",
+                        new MapSqlParameterSource("level", level.name()));
+        return rows.isEmpty() ? new Watermark(null, null) : toWatermark(rows.get(0));
+    }
+
+    private void updateWatermark(Level level, Instant from, Instant to) {
+        MapSqlParameterSource params =
+                new MapSqlParameterSource("level", level.name()).addValue("to", Timestamp.from(to));
+        String set = "to_time = :to";
+        if (from != null) {
+            set += ", from_time = :from";
+            params.addValue("from", Timestamp.from(from));
+        }
+        jdbcTemplate.update(
+                "UPDATE "
+                        + DBCollectorRollupSql.STATE_TABLE
+                        + " SET "
+                        + set
+                        + " WHERE level_name = :level",
+                params);
+    }
+
+    private Watermark toWatermark(Map<String, Object> row) {
+        return new Watermark(toInstant(row.get("from_time")), toInstant(row.get("to_time")));
+    }
+
+    private static Instant toInstant(Object value) {
+        if (value instanceof Timestamp ts) {
+            return ts.toInstant();
+        }
+        if (value instanceof LocalDateTime ldt) {
+            return ldt.atZone(ZoneId.systemDefault()).toInstant();
+        }
+        return null;
+    }
+
+    private static Instant floor(Instant instant, Level level) {
+        long epoch = instant.getEpochSecond();
+        return Instant.ofEpochSecond(Math.floorDiv(epoch, level.seconds()) * level.seconds());
+    }
+
+    private static Instant ceil(Instant instant, Level level) {
+        Instant floor = floor(instant, level);
+        return floor.equals(instant) ? floor : floor.plusSeconds(level.seconds());
+    }
+
+    private static Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private record Watermark(Instant from, Instant to) {}
+}
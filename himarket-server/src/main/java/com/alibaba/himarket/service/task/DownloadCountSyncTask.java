@@ -1,20 +1,30 @@
 package com.alibaba.himarket.service.task;
 
 import cn.hutool.core.collection.CollUtil;
+import cn.hutool.extra.spring.SpringUtil;
+import com.alibaba.himarket.config.DownloadCountSyncConfig;
+import com.alibaba.himarket.core.event.ProductCatalogChangedEvent;
 import com.alibaba.himarket.entity.Product;
 import com.alibaba.himarket.repository.ProductRepository;
 import com.alibaba.himarket.service.NacosService;
 import com.alibaba.himarket.support.enums.ProductType;
 import com.alibaba.himarket.support.product.SkillConfig;
 import com.alibaba.himarket.support.product.WorkerConfig;
+import com.alibaba.himarket.utils.JsonUtil;
 import com.alibaba.nacos.api.ai.model.agentspecs.AgentSpecSummary;
 import com.alibaba.nacos.api.ai.model.skills.SkillSummary;
 import com.alibaba.nacos.api.model.Page;
 import com.alibaba.nacos.maintainer.client.ai.AiMaintainerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,6 +33,9 @@ import org.springframework.stereotype.Component;
 
 /**
  * Scheduled task to sync download counts for Skill and Worker products from Nacos.
+ *
+ * <p>Pages of a namespace are fetched concurrently, and only changed counters are written, in
+ * bulk when {@code download-count-sync.batch-enabled} is on.
  */
 @Component
 @Slf4j
@@ -31,184 +44,276 @@ public class DownloadCountSyncTask {
 
     private static final int PAGE_SIZE = 100;
 
+    private static final String SKILL_COUNT_PATH = "$.skillConfig.downloadCount";
+
+    private static final String WORKER_COUNT_PATH = "$.workerConfig.downloadCount";
+
     private final ProductRepository productRepository;
+
     private final NacosService nacosService;
 
+    private final DownloadCountSyncConfig config;
+
+    private final MeterRegistry meterRegistry;
+
+    @Resource(name = "taskExecutor")
+    private Executor taskExecutor;
+
     @Scheduled(fixedRate = 300_000)
     public void syncDownloadCounts() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        int changed = 0;
         try {
-            syncSkillDownloadCounts();
-            syncWorkerDownloadCounts();
+            changed += syncDownloadCounts(ProductType.AGENT_SKILL);
+            changed += syncDownloadCounts(ProductType.WORKER);
         } catch (Exception e) {
             log.error("Unexpected error during download count sync", e);
+        } finally {
+            sample.stop(meterRegistry.timer("download.count.sync.duration"));
+        }
+
+        if (changed > 0) {
+            log.info("Synced download counts, {} products changed", changed);
+            // Counters order catalog listings
+            SpringUtil.getApplicationContext().publishEvent(new ProductCatalogChangedEvent(null));
         }
     }
 
-    private void syncSkillDownloadCounts() {
-        List<Product> products =
-                productRepository.findAllByType(ProductType.AGENT_SKILL).stream()
-                        .filter(
-                                p ->
-                                        p.getFeature() != null
-                                                && p.getFeature().getSkillConfig() != null
-                                                && p.getFeature().getSkillConfig().getNacosId()
-                                                        != null)
+    /**
+     * Sync download counts of one product type
+     *
+     * @return the number of products changed
+     */
+    private int syncDownloadCounts(ProductType type) {
+        List<SyncTarget> targets =
+                productRepository.findAllByType(type).stream()
+                        .map(product -> SyncTarget.of(type, product))
+                        .filter(Objects::nonNull)
                         .toList();
 
-        if (products.isEmpty()) {
-            return;
+        if (targets.isEmpty()) {
+            return 0;
         }
 
-        products.stream()
-                .collect(
-                        Collectors.groupingBy(
-                                p -> {
-                                    SkillConfig c = p.getFeature().getSkillConfig();
-                                    return c.getNacosId() + ":" + c.getNamespace();
-                                }))
-                .forEach(
-                        (key, group) -> {
-                            Product first = group.get(0);
-                            SkillConfig config = first.getFeature().getSkillConfig();
-                            syncSkillGroup(config.getNacosId(), config.getNamespace(), group);
-                        });
+        int changed = 0;
+        Map<String, List<SyncTarget>> groups =
+                targets.stream()
+                        .collect(Collectors.groupingBy(t -> t.nacosId() + ":" + t.namespace()));
+        for (List<SyncTarget> group : groups.values()) {
+            SyncTarget first = group.get(0);
+            changed += syncGroup(type, first.nacosId(), first.namespace(), group);
+        }
+        return changed;
     }
 
-    private void syncWorkerDownloadCounts() {
-        List<Product> products =
-                productRepository.findAllByType(ProductType.WORKER).stream()
+    private int syncGroup(
+            ProductType type, String nacosId, String namespace, List<SyncTarget> targets) {
+        Map<String, Long> downloadCountMap;
+        try {
+            downloadCountMap = fetchDownloadCounts(type, nacosId, namespace);
+        } catch (Exception e) {
+            log.warn(
+                    "Failed to sync download counts for {} products from Nacos {}: {}",
+                    type,
+                    nacosId,
+                    e.getMessage());
+            return 0;
+        }
+
+        List<SyncTarget> changed =
+                targets.stream()
                         .filter(
-                                p ->
-                                        p.getFeature() != null
-                                                && p.getFeature().getWorkerConfig() != null
-                                                && p.getFeature().getWorkerConfig().getNacosId()
-                                                        != null)
+                                t -> {
+                                    Long count = downloadCountMap.get(t.name());
+                                    return count != null && !Objects.equals(t.count(), count);
+                                })
                         .toList();
-
-        if (products.isEmpty()) {
-            return;
+        if (changed.isEmpty()) {
+            return 0;
         }
 
-        products.stream()
-                .collect(
-                        Collectors.groupingBy(
-                                p -> {
-                                    WorkerConfig c = p.getFeature().getWorkerConfig();
-                                    return c.getNacosId() + ":" + c.getNamespace();
-                                }))
-                .forEach(
-                        (key, group) -> {
-                            Product first = group.get(0);
-                            WorkerConfig config = first.getFeature().getWorkerConfig();
-                            syncWorkerGroup(config.getNacosId(), config.getNamespace(), group);
-                        });
+        int written =
+                config.isBatchEnabled()
+                        ? writeBatched(type, changed, downloadCountMap)
+                        : writeEach(type, changed, downloadCountMap);
+        meterRegistry
+                .counter("download.count.sync.changed", "type", type.name())
+                .increment(written);
+        return written;
     }
 
-    private void syncSkillGroup(String nacosId, String namespace, List<Product> products) {
-        try {
-            AiMaintainerService aiService = nacosService.getAiMaintainerService(nacosId);
-
-            Map<String, Long> downloadCountMap = new HashMap<>();
-            int pageNo = 1;
-            while (true) {
-                Page<SkillSummary> page =
-                        aiService.skill().listSkills(namespace, null, null, pageNo, PAGE_SIZE);
-                if (page == null || CollUtil.isEmpty(page.getPageItems())) {
-                    break;
-                }
-                for (SkillSummary summary : page.getPageItems()) {
-                    downloadCountMap.putIfAbsent(summary.getName(), summary.getDownloadCount());
-                }
-                if (page.getPageItems().size() < PAGE_SIZE) {
-                    break;
-                }
-                pageNo++;
+    /**
+     * Write counters with one bulk statement per batch, touching only the counter
+     */
+    private int writeBatched(
+            ProductType type, List<SyncTarget> changed, Map<String, Long> downloadCountMap) {
+        String path = type == ProductType.AGENT_SKILL ? SKILL_COUNT_PATH : WORKER_COUNT_PATH;
+        int written = 0;
+        for (List<SyncTarget> batch : CollUtil.split(changed, config.getBatchSize())) {
+            List<Map<String, Object>> counts =
+                    batch.stream()
+                            .map(
+                                    t ->
+                                            Map.<String, Object>of(
+                                                    "id",
+                                                    t.product().getId(),
+                                                    "downloadCount",
+                                                    downloadCountMap.get(t.name())))
+                            .toList();
+            try {
+                written += productRepository.updateDownloadCounts(JsonUtil.toJson(counts), path);
+            } catch (Exception e) {
+                log.warn(
+                        "Failed to update download counts of {} {} products",
+                        batch.size(),
+                        type,
+                        e);
             }
+        }
+        return written;
+    }
 
-            if (downloadCountMap.isEmpty()) {
-                return;
+    /**
+     * Save each changed product, for databases without JSON_TABLE support
+     */
+    private int writeEach(
+            ProductType type, List<SyncTarget> changed, Map<String, Long> downloadCountMap) {
+        int written = 0;
+        for (SyncTarget target : changed) {
+            Product product = target.product();
+            try {
+                long count = downloadCountMap.get(target.name());
+                if (type == ProductType.AGENT_SKILL) {
+                    product.getFeature().getSkillConfig().setDownloadCount(count);
+                } else {
+                    product.getFeature().getWorkerConfig().setDownloadCount(count);
+                }
+                productRepository.save(product);
+                written++;
+            } catch (Exception e) {
+                log.warn(
+                        "Failed to sync download count for {} product {}",
+                        type,
+                        product.getProductId(),
+                        e);
             }
+        }
+        return written;
+    }
+
+    /**
+     * Fetch download counts of a namespace: the first page tells how many pages there are, the
+     * rest are fetched concurrently.
+     *
+     * @return download count by skill/agent spec name
+     */
+    private Map<String, Long> fetchDownloadCounts(
+            ProductType type, String nacosId, String namespace) throws Exception {
+        AiMaintainerService aiService = nacosService.getAiMaintainerService(nacosId);
 
-            for (Product product : products) {
-                try {
-                    SkillConfig config = product.getFeature().getSkillConfig();
-                    Long count = downloadCountMap.get(config.getSkillName());
-
-                    if (count != null && !Objects.equals(config.getDownloadCount(), count)) {
-                        config.setDownloadCount(count);
-                        productRepository.save(product);
-                        log.info(
-                                "Synced download count for skill product {}: {}",
-                                product.getProductId(),
-                                count);
-                    }
-                } catch (Exception e) {
-                    log.warn(
-                            "Failed to sync download count for skill product {}",
-                            product.getProductId(),
-                            e);
+        Map<String, Long> downloadCountMap = new HashMap<>();
+        List<NameCount> firstPage = fetchPage(aiService, type, namespace, 1);
+        collect(firstPage, downloadCountMap);
+        if (firstPage.size() < PAGE_SIZE) {
+            return downloadCountMap;
+        }
+
+        int parallelism = Math.max(1, config.getFetchParallelism());
+        int pageNo = 2;
+        while (true) {
+            // Fetch a wave of pages, stop at the first one that is not full
+            List<CompletableFuture<List<NameCount>>> wave = new ArrayList<>();
+            for (int i = 0; i < parallelism; i++, pageNo++) {
+                int page = pageNo;
+                wave.add(
+                        CompletableFuture.supplyAsync(
+                                () -> fetchPageUnchecked(aiService, type, namespace, page),
+                                taskExecutor));
+            }
+            for (CompletableFuture<List<NameCount>> future : wave) {
+                List<NameCount> items = future.join();
+                // Keep page order, so the first occurrence of a name wins as before
+                collect(items, downloadCountMap);
+                if (items.size() < PAGE_SIZE) {
+                    return downloadCountMap;
                 }
             }
-        } catch (Exception e) {
-            log.warn(
-                    "Failed to sync download counts for skill products from Nacos {}: {}",
-                    nacosId,
-                    e.getMessage());
         }
     }
 
-    private void syncWorkerGroup(String nacosId, String namespace, List<Product> products) {
+    private List<NameCount> fetchPageUnchecked(
+            AiMaintainerService aiService, ProductType type, String namespace, int pageNo) {
         try {
-            AiMaintainerService aiService = nacosService.getAiMaintainerService(nacosId);
-
-            Map<String, Long> downloadCountMap = new HashMap<>();
-            int pageNo = 1;
-            while (true) {
-                Page<AgentSpecSummary> page =
-                        aiService
-                                .agentSpec()
-                                .listAgentSpecAdminItems(namespace, null, null, pageNo, PAGE_SIZE);
-                if (page == null || CollUtil.isEmpty(page.getPageItems())) {
-                    break;
-                }
-                for (AgentSpecSummary summary : page.getPageItems()) {
-                    downloadCountMap.putIfAbsent(summary.getName(), summary.getDownloadCount());
-                }
-                if (page.getPageItems().size() < PAGE_SIZE) {
-                    break;
-                }
-                pageNo++;
-            }
+            return fetchPage(aiService, type, namespace, pageNo);
+        } catch (Exception e) {
+            throw new IllegalStateException(
+                    "Failed to fetch page " + pageNo + " of namespace " + namespace, e);
+        }
+    }
 
-            if (downloadCountMap.isEmpty()) {
-                return;
+    private List<NameCount> fetchPage(
+            AiMaintainerService aiService, ProductType type, String namespace, int pageNo)
+            throws Exception {
+        List<NameCount> items = new ArrayList<>();
+        if (type == ProductType.AGENT_SKILL) {
+            Page<SkillSummary> page =
+                    aiService.skill().listSkills(namespace, null, null, pageNo, PAGE_SIZE);
+            if (page != null && CollUtil.isNotEmpty(page.getPageItems())) {
+                page.getPageItems()
+                        .forEach(s -> items.add(new NameCount(s.getName(), s.getDownloadCount())));
             }
+        } else {
+            Page<AgentSpecSummary> page =
+                    aiService
+                            .agentSpec()
+                            .listAgentSpecAdminItems(namespace, null, null, pageNo, PAGE_SIZE);
+            if (page != null && CollUtil.isNotEmpty(page.getPageItems())) {
+                page.getPageItems()
+                        .forEach(s -> items.add(new NameCount(s.getName(), s.getDownloadCount())));
+            }
+        }
+        meterRegistry.counter("download.count.sync.pages", "type", type.name()).increment();
+        return items;
+    }
 
-            for (Product product : products) {
-                try {
-                    WorkerConfig config = product.getFeature().getWorkerConfig();
-                    Long count = downloadCountMap.get(config.getAgentSpecName());
-
-                    if (count != null && !Objects.equals(config.getDownloadCount(), count)) {
-                        config.setDownloadCount(count);
-                        productRepository.save(product);
-                        log.info(
-                                "Synced download count for worker product {}: {}",
-                                product.getProductId(),
-                                count);
-                    }
-                } catch (Exception e) {
-                    log.warn(
-                            "Failed to sync download count for worker product {}",
-                            product.getProductId(),
-                            e);
-                }
+    private void collect(List<NameCount> items, Map<String, Long> downloadCountMap) {
+        for (NameCount item : items) {
+            downloadCountMap.putIfAbsent(item.name(), item.downloadCount());
+        }
+    }
+
+    private record NameCount(String name, Long downloadCount) {}
+
+    /**
+     * A product linked to a Nacos skill or agent spec, with its current counter
+     */
+    private record SyncTarget(
+            Product product, String nacosId, String namespace, String name, Long count) {
+
+        static SyncTarget of(ProductType type, Product product) {
+            if (product.getFeature() == null) {
+                return null;
             }
-        } catch (Exception e) {
-            log.warn(
-                    "Failed to sync download counts for worker products from Nacos {}: {}",
-                    nacosId,
-                    e.getMessage());
+            if (type == ProductType.AGENT_SKILL) {
+                SkillConfig c = product.getFeature().getSkillConfig();
+                return c != null && c.getNacosId() != null
+                        ? new SyncTarget(
+                                product,
+                                c.getNacosId(),
+                                c.getNamespace(),
+                                c.getSkillName(),
+                                c.getDownloadCount())
+                        : null;
+            }
+            WorkerConfig c = product.getFeature().getWorkerConfig();
+            return c != null && c.getNacosId() != null
+                    ? new SyncTarget(
+                            product,
+                            c.getNacosId(),
+                            c.getNamespace(),
+                            c.getAgentSpecName(),
+                            c.getDownloadCount())
+                    : null;
         }
     }
 }
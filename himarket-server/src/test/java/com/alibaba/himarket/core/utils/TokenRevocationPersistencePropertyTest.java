@@ -29,9 +29,10 @@ import com.alibaba.himarket.service.RevokedTokenService;
 import com.alibaba.himarket.service.impl.RevokedTokenServiceImpl;
 import com.alibaba.himarket.support.common.User;
 import com.alibaba.himarket.support.enums.UserType;
-import com.github.benmanes.caffeine.cache.Cache;
 import java.lang.reflect.Field;
+import java.time.LocalDateTime;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import net.jqwik.api.*;
 
@@ -77,13 +78,13 @@ class TokenRevocationPersistencePropertyTest {
     /**
      * <b>Validates: Requirements 1.1, 1.3</b>
      *
-     * <p>Bug Condition: For any revoked, non-expired token, clearing the Caffeine cache
+     * <p>Bug Condition: For any revoked, non-expired token, clearing the revocation index
      * (simulating restart) must NOT cause isTokenRevoked to return false. The fix delegates to
-     * RevokedTokenService which checks the DB when the cache misses.
+     * RevokedTokenService which checks the DB until the index has been loaded.
      *
      * <p>This test directly exercises RevokedTokenServiceImpl with a mock repository that tracks
-     * persisted token hashes. After revoking a token and clearing the Caffeine cache, the service
-     * falls back to the DB (mock) and still correctly identifies the token as revoked.
+     * persisted token hashes. After revoking a token and clearing the revocation index, the
+     * service falls back to the DB (mock) and still correctly identifies the token as revoked.
      */
     @Property(tries = 50)
     @SuppressWarnings("unchecked")
@@ -114,29 +115,29 @@ class TokenRevocationPersistencePropertyTest {
         String token = TokenUtil.generateAdminToken(userId);
         long expiresAtMillis = System.currentTimeMillis() + 7L * 24 * 60 * 60 * 1000;
 
-        // Revoke the token (persists to mock DB + puts in Caffeine cache)
+        // Revoke the token (persists to mock DB + puts in revocation index)
         service.revokeToken(token, expiresAtMillis);
 
-        // Verify token is revoked before restart simulation (served from cache)
+        // Verify token is revoked before restart simulation (served from index)
         assertTrue(
                 service.isTokenRevoked(token),
                 "Token should be revoked immediately after revokeToken call");
 
-        // Simulate application restart by clearing the Caffeine cache via reflection
+        // Simulate application restart by clearing the revocation index via reflection
         try {
-            Field cacheField = RevokedTokenServiceImpl.class.getDeclaredField("revokedTokenCache");
-            cacheField.setAccessible(true);
-            Cache<String, Boolean> cache = (Cache<String, Boolean>) cacheField.get(service);
-            cache.invalidateAll();
+            Field indexField = RevokedTokenServiceImpl.class.getDeclaredField("revokedTokenIndex");
+            indexField.setAccessible(true);
+            Map<String, LocalDateTime> index = (Map<String, LocalDateTime>) indexField.get(service);
+            index.clear();
         } catch (Exception e) {
-            fail("Failed to clear revokedTokenCache via reflection: " + e.getMessage());
+            fail("Failed to clear revokedTokenIndex via reflection: " + e.getMessage());
         }
 
         // Assert the expected (fixed) behavior: isTokenRevoked should still return true
-        // because the service falls back to the DB (mock repository) after cache miss
+        // because the service falls back to the DB (mock repository) before the index is loaded
         assertTrue(
                 service.isTokenRevoked(token),
-                "Bug confirmed: isTokenRevoked returns false after clearing Caffeine cache"
+                "Bug confirmed: isTokenRevoked returns false after clearing revocation index"
                         + " (simulated restart) for a revoked, non-expired token. Token: "
                         + token.substring(0, Math.min(20, token.length()))
                         + "...");
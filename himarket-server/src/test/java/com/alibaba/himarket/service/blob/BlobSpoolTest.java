@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.blob;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BlobSpoolTest {
+
+    @TempDir Path tempDir;
+
+    @Test
+    void spoolsContentAndComputesSha256Key() throws IOException {
+        byte[] content = new byte[200 * 1024 + 3];
+        new Random(7).nextBytes(content);
+
+        BlobSpool.SpooledBlob blob = BlobSpool.spool(new ByteArrayInputStream(content), tempDir);
+
+        assertEquals(DigestUtil.sha256Hex(content), blob.key());
+        assertEquals(content.length, blob.size());
+        assertArrayEquals(content, Files.readAllBytes(blob.file()));
+    }
+
+    @Test
+    void deletesTheTemporaryFileWhenTheSourceFails() throws IOException {
+        InputStream failing =
+                new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("boom");
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        throw new IOException("boom");
+                    }
+                };
+
+        assertThrows(IOException.class, () -> BlobSpool.spool(failing, tempDir));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void checkKeyAcceptsOnlyLowercaseSha256Hex() {
+        BlobSpool.checkKey(DigestUtil.sha256Hex("x"));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> BlobSpool.checkKey(DigestUtil.sha256Hex("x").toUpperCase()));
+        assertThrows(IllegalArgumentException.class, () -> BlobSpool.checkKey("abc"));
+        assertThrows(IllegalArgumentException.class, () -> BlobSpool.checkKey(null));
+    }
+}
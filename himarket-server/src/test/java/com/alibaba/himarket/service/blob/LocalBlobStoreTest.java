@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.blob;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.alibaba.himarket.config.BlobStoreConfig;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LocalBlobStoreTest {
+
+    @TempDir Path rootDir;
+
+    private LocalBlobStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        BlobStoreConfig config = new BlobStoreConfig();
+        config.getLocal().setRootDir(rootDir.toString());
+        store = new LocalBlobStore(config);
+    }
+
+    @Test
+    void sameContentIsStoredOnceUnderTheSameKey() throws IOException {
+        byte[] content = "hello blob".getBytes(StandardCharsets.UTF_8);
+
+        String first = store.put(new ByteArrayInputStream(content));
+        String second = store.put(new ByteArrayInputStream(content));
+
+        assertEquals(first, second);
+        assertEquals(DigestUtil.sha256Hex(content), first);
+        assertEquals(
+                List.of(
+                        rootDir.resolve(first.substring(0, 2))
+                                .resolve(first.substring(2, 4))
+                                .resolve(first)),
+                storedFiles());
+        assertTrue(spoolFiles().isEmpty(), "temporary spool files must be cleaned up");
+    }
+
+    @Test
+    void differentContentGetsDifferentKeys() throws IOException {
+        String a = store.put(new ByteArrayInputStream(new byte[] {1}));
+        String b = store.put(new ByteArrayInputStream(new byte[] {2}));
+
+        assertNotEquals(a, b);
+        assertEquals(2, storedFiles().size());
+    }
+
+    @Test
+    void streamsLargeContentRoundTrip() throws IOException {
+        // Larger than the spool buffer so the content crosses several reads
+        byte[] content = new byte[300 * 1024 + 7];
+        new Random(42).nextBytes(content);
+
+        String key = store.put(new ByteArrayInputStream(content));
+
+        assertTrue(store.exists(key));
+        try (InputStream in = store.open(key)) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void missingKeyIsReportedAsAbsentAndCannotBeOpened() {
+        String key = DigestUtil.sha256Hex("never stored");
+
+        assertFalse(store.exists(key));
+        assertThrows(IOException.class, () -> store.open(key));
+    }
+
+    @Test
+    void rejectsKeysThatAreNotSha256() {
+        assertThrows(IllegalArgumentException.class, () -> store.open("../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> store.exists("ABC"));
+        assertThrows(IllegalArgumentException.class, () -> store.open(null));
+    }
+
+    private List<Path> storedFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(rootDir)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> !file.startsWith(rootDir.resolve("tmp")))
+                    .toList();
+        }
+    }
+
+    private List<Path> spoolFiles() throws IOException {
+        try (Stream<Path> files = Files.list(rootDir.resolve("tmp"))) {
+            return files.toList();
+        }
+    }
+}
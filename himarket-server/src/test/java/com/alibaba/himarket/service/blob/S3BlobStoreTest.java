@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.blob;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import io.minio.StatObjectArgs;
+import io.minio.UploadObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ErrorResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class S3BlobStoreTest {
+
+    private static final byte[] CONTENT = "hello s3".getBytes(StandardCharsets.UTF_8);
+
+    private static final String KEY = DigestUtil.sha256Hex(CONTENT);
+
+    @TempDir Path tempDir;
+
+    private MinioClient client;
+
+    private S3BlobStore store;
+
+    @BeforeEach
+    void setUp() {
+        client = mock(MinioClient.class);
+        store = new S3BlobStore(client, "bucket", tempDir);
+    }
+
+    @Test
+    void uploadsNewContentUnderItsSha256Key() throws Exception {
+        ErrorResponseException noSuchKey = errorResponse("NoSuchKey");
+        when(client.statObject(any(StatObjectArgs.class))).thenThrow(noSuchKey);
+        AtomicReference<byte[]> uploaded = new AtomicReference<>();
+        when(client.uploadObject(any(UploadObjectArgs.class)))
+                .thenAnswer(
+                        invocation -> {
+                            UploadObjectArgs args = invocation.getArgument(0);
+                            assertEquals("bucket", args.bucket());
+                            assertEquals(KEY, args.object());
+                            uploaded.set(Files.readAllBytes(Paths.get(args.filename())));
+                            return null;
+                        });
+
+        assertEquals(KEY, store.put(new ByteArrayInputStream(CONTENT)));
+
+        assertArrayEquals(CONTENT, uploaded.get());
+        assertTempDirEmpty();
+    }
+
+    @Test
+    void existingContentIsNotUploadedAgain() throws Exception {
+        assertEquals(KEY, store.put(new ByteArrayInputStream(CONTENT)));
+
+        verify(client).statObject(any(StatObjectArgs.class));
+        verify(client, never()).uploadObject(any(UploadObjectArgs.class));
+        assertTempDirEmpty();
+    }
+
+    @Test
+    void existsDistinguishesMissingKeysFromFailures() throws Exception {
+        ErrorResponseException noSuchKey = errorResponse("NoSuchKey");
+        ErrorResponseException accessDenied = errorResponse("AccessDenied");
+        when(client.statObject(any(StatObjectArgs.class)))
+                .thenThrow(noSuchKey)
+                .thenThrow(accessDenied);
+
+        assertFalse(store.exists(KEY));
+        assertThrows(IllegalStateException.class, () -> store.exists(KEY));
+    }
+
+    @Test
+    void openStreamsTheObjectAndWrapsFailures() throws Exception {
+        GetObjectResponse response = mock(GetObjectResponse.class);
+        ErrorResponseException noSuchKey = errorResponse("NoSuchKey");
+        when(client.getObject(any(GetObjectArgs.class))).thenReturn(response).thenThrow(noSuchKey);
+
+        assertSame(response, store.open(KEY));
+        assertThrows(IOException.class, () -> store.open(KEY));
+        assertThrows(IllegalArgumentException.class, () -> store.open("not-a-key"));
+    }
+
+    private ErrorResponseException errorResponse(String code) {
+        ErrorResponse errorResponse = mock(ErrorResponse.class);
+        when(errorResponse.code()).thenReturn(code);
+        ErrorResponseException e = mock(ErrorResponseException.class);
+        when(e.errorResponse()).thenReturn(errorResponse);
+        return e;
+    }
+
+    private void assertTempDirEmpty() throws IOException {
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CatalogSearchIndexTest {
+
+    private final CatalogSearchIndex index =
+            CatalogSearchIndex.build(
+                    List.of(
+                            doc("Weather Service", "Forecasts for any city"),
+                            doc("Map Search", "Find places, with weather overlays"),
+                            doc("天气预报助手", "查询城市天气"),
+                            doc("Code Review Bot", "Reviews pull requests"),
+                            doc("getWeatherForecast", "MCP tool")));
+
+    @Test
+    void shouldRankNameMatchesAboveDescriptionMatches() {
+        List<CatalogSearchIndex.Hit> hits = index.search("weather");
+
+        assertEquals(List.of(0, 4, 1), hits.stream().map(CatalogSearchIndex.Hit::doc).toList());
+    }
+
+    @Test
+    void shouldRequireAllQueryTerms() {
+        assertEquals(
+                List.of(1), index.search("weather places").stream().map(h -> h.doc()).toList());
+        assertTrue(index.search("weather nowhere").isEmpty());
+    }
+
+    @Test
+    void shouldMatchPrefixesAndTypos() {
+        assertEquals(3, index.search("rev").get(0).doc());
+        assertEquals(3, index.search("reveiw").get(0).doc());
+    }
+
+    @Test
+    void shouldScoreEveryPrefixMatch() {
+        List<CatalogSearchIndex.Document> docs = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            docs.add(doc(String.format("w%03d", i), "service"));
+        }
+
+        // The best match sorts last among the prefix terms
+        docs.add(doc("wz", "wz"));
+        List<CatalogSearchIndex.Hit> hits = CatalogSearchIndex.build(docs).search("w");
+
+        assertEquals(201, hits.size());
+        assertEquals(200, hits.get(0).doc());
+    }
+
+    @Test
+    void shouldMatchHanText() {
+        assertEquals(List.of(2), index.search("天气").stream().map(h -> h.doc()).toList());
+    }
+
+    @Test
+    void shouldTokenizeCamelCaseAndSeparators() {
+        assertEquals(
+                List.of("getweatherforecast", "get", "weather", "forecast", "mcp", "tool"),
+                CatalogSearchIndex.tokenize("getWeatherForecast mcp_tool"));
+    }
+
+    @Test
+    void shouldDetectSingleEdits() {
+        assertTrue(CatalogSearchIndex.withinOneEdit("review", "reviews"));
+        assertTrue(CatalogSearchIndex.withinOneEdit("review", "reveiw"));
+        assertTrue(CatalogSearchIndex.withinOneEdit("review", "revuew"));
+        assertFalse(CatalogSearchIndex.withinOneEdit("review", "rvwiee"));
+    }
+
+    private static CatalogSearchIndex.Document doc(String name, String description) {
+        return new CatalogSearchIndex.Document(
+                List.of(
+                        new CatalogSearchIndex.Field(name, 8),
+                        new CatalogSearchIndex.Field(description, 2)));
+    }
+}
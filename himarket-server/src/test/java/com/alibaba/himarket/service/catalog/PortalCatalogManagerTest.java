@@ -0,0 +1,382 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.catalog;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import com.alibaba.himarket.config.ProductCatalogConfig;
+import com.alibaba.himarket.core.event.ProductCatalogChangedEvent;
+import com.alibaba.himarket.dto.params.product.ProductSortBy;
+import com.alibaba.himarket.dto.params.product.QueryProductParam;
+import com.alibaba.himarket.dto.params.product.SearchProductParam;
+import com.alibaba.himarket.dto.result.ProductCategoryResult;
+import com.alibaba.himarket.dto.result.common.PageResult;
+import com.alibaba.himarket.dto.result.model.ModelConfigResult;
+import com.alibaba.himarket.dto.result.product.ProductResult;
+import com.alibaba.himarket.entity.ProductPublication;
+import com.alibaba.himarket.repository.ProductPublicationRepository;
+import com.alibaba.himarket.service.ProductService;
+import com.alibaba.himarket.support.enums.ProductStatus;
+import com.alibaba.himarket.support.enums.ProductType;
+import com.alibaba.himarket.support.product.ProductFeature;
+import com.alibaba.himarket.support.product.SkillConfig;
+import com.alibaba.himarket.utils.JsonUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class PortalCatalogManagerTest {
+
+    private static final String PORTAL = "portal-1";
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private ProductCatalogConfig config;
+    private ProductPublicationRepository publicationRepository;
+    private ProductService productService;
+    private PortalCatalogManager manager;
+
+    /** Current product state, by product ID */
+    private final Map<String, ProductResult> products = new LinkedHashMap<>();
+
+    /** Published product IDs, by portal ID */
+    private final Map<String, Set<String>> publications = new HashMap<>();
+
+    /** Runs once inside the next product load, to interleave a concurrent change */
+    private Runnable duringNextLoad;
+
+    @BeforeEach
+    void setUp() {
+        config = new ProductCatalogConfig();
+        publicationRepository = mock(ProductPublicationRepository.class);
+        productService = mock(ProductService.class);
+
+        when(publicationRepository.findAllByPortalId(anyString()))
+                .thenAnswer(
+                        invocation ->
+                                publications
+                                        .getOrDefault(invocation.getArgument(0), Set.of())
+                                        .stream()
+                                        .map(
+                                                productId ->
+                                                        publication(
+                                                                invocation.getArgument(0),
+                                                                productId))
+                                        .toList());
+        when(publicationRepository.findAllByProductId(anyString()))
+                .thenAnswer(
+                        invocation ->
+                                publications.entrySet().stream()
+                                        .filter(
+                                                e ->
+                                                        e.getValue()
+                                                                .contains(
+                                                                        invocation
+                                                                                .<String>
+                                                                                        getArgument(
+                                                                                                0)))
+                                        .map(
+                                                e ->
+                                                        publication(
+                                                                e.getKey(),
+                                                                invocation.getArgument(0)))
+                                        .toList());
+        when(productService.getProducts(anyList()))
+                .thenAnswer(
+                        invocation -> {
+                            // Fresh objects per load, like the real service
+                            Map<String, ProductResult> loaded = new LinkedHashMap<>();
+                            for (String productId : invocation.<List<String>>getArgument(0)) {
+                                ProductResult product = products.get(productId);
+                                if (product != null) {
+                                    loaded.put(
+                                            productId,
+                                            JsonUtil.convert(product, ProductResult.class));
+                                }
+                            }
+                            if (duringNextLoad != null) {
+                                Runnable action = duringNextLoad;
+                                duringNextLoad = null;
+                                action.run();
+                            }
+                            return loaded;
+                        });
+
+        manager =
+                new PortalCatalogManager(config, publicationRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(manager, "productService", productService);
+    }
+
+    @Test
+    void shouldServeListingsFromOneSnapshotInDefaultOrder() {
+        publish(product("p3", ProductType.REST_API, T0.plusDays(1), T0));
+        publish(product("p2", ProductType.REST_API, T0, T0));
+        publish(product("p1", ProductType.REST_API, T0, T0));
+
+        assertEquals(List.of("p1", "p2", "p3"), ids(list(query(null), PageRequest.of(0, 10))));
+        assertEquals(List.of("p2"), ids(list(query(null), PageRequest.of(1, 1))));
+
+        verify(publicationRepository, times(1)).findAllByPortalId(PORTAL);
+        verify(productService, times(1)).getProducts(anyList());
+    }
+
+    @Test
+    void shouldSortSkillsLikeTheDatabaseListing() {
+        publish(skill("old", T0, 5L));
+        publish(skill("new", T0.plusDays(2), 1L));
+        publish(skill("never", null, 5L));
+        publish(skill("mid", T0.plusDays(1), 5L));
+
+        // ORDER BY updatedAt DESC, MySQL puts nulls last
+        assertEquals(
+                List.of("new", "mid", "old", "never"),
+                ids(list(query(ProductType.AGENT_SKILL), PageRequest.of(0, 10))));
+
+        // ORDER BY downloadCount DESC, updatedAt DESC
+        QueryProductParam byDownloads = query(ProductType.AGENT_SKILL);
+        byDownloads.setSortBy(ProductSortBy.DOWNLOAD_COUNT);
+        assertEquals(
+                List.of("mid", "old", "never", "new"),
+                ids(list(byDownloads, PageRequest.of(0, 10))));
+    }
+
+    @Test
+    void shouldSwapInAChangedProductWithoutRebuilding() {
+        publish(product("p1", ProductType.REST_API, T0, T0));
+        publish(product("p2", ProductType.REST_API, T0.plusDays(1), T0));
+        list(query(null), PageRequest.of(0, 10));
+
+        update("p1", p -> p.setName("renamed"));
+        manager.onProductCatalogChanged(new ProductCatalogChangedEvent("p1"));
+
+        List<ProductResult> listed = list(query(null), PageRequest.of(0, 10)).getContent();
+        assertEquals(List.of("p1", "p2"), ids(listed));
+        assertEquals("renamed", listed.get(0).getName());
+        verify(publicationRepository, times(1)).findAllByPortalId(PORTAL);
+        verify(productService).getProducts(List.of("p1"));
+    }
+
+    @Test
+    void shouldAddNewlyPublishedProductsInOrder() {
+        publish(product("p1", ProductType.REST_API, T0, T0));
+        publish(product("p3", ProductType.REST_API, T0.plusDays(2), T0));
+        list(query(null), PageRequest.of(0, 10));
+
+        publish(product("p2", ProductType.REST_API, T0.plusDays(1), T0));
+        manager.onProductCatalogChanged(new ProductCatalogChangedEvent("p2"));
+
+        assertEquals(List.of("p1", "p2", "p3"), ids(list(query(null), PageRequest.of(0, 10))));
+        verify(publicationRepository, times(1)).findAllByPortalId(PORTAL);
+    }
+
+    @Test
+    void shouldRemoveUnpublishedProducts() {
+        publish(product("p1", ProductType.REST_API, T0, T0));
+        publish(product("p2", ProductType.REST_API, T0.plusDays(1), T0));
+        publish(product("p3", ProductType.REST_API, T0.plusDays(2), T0));
+        list(query(null), PageRequest.of(0, 10));
+
+        // Unpublished from the portal, and taken offline altogether
+        publications.get(PORTAL).remove("p1");
+        update("p2", p -> p.setStatus(ProductStatus.PENDING));
+        manager.onProductCatalogChanged(new ProductCatalogChangedEvent("p1"));
+        manager.onProductCatalogChanged(new ProductCatalogChangedEvent("p2"));
+
+        PageResult<ProductResult> page = list(query(null), PageRequest.of(0, 10));
+        assertEquals(List.of("p3"), ids(page));
+        assertEquals(1, page.getTotalElements());
+        verify(publicationRepository, times(1)).findAllByPortalId(PORTAL);
+    }
+
+    @Test
+    void shouldNotLoseAChangeCommittedWhileTheFirstSnapshotIsBuilt() {
+        publish(product("p1", ProductType.REST_API, T0, T0));
+        duringNextLoad =
+                () -> {
+                    update("p1", p -> p.setName("renamed"));
+                    manager.onProductCatalogChanged(new ProductCatalogChangedEvent("p1"));
+                };
+
+        List<ProductResult> listed = list(query(null), PageRequest.of(0, 10)).getContent();
+
+        assertEquals("renamed", listed.get(0).getName());
+        verify(publicationRepository, times(2)).findAllByPortalId(PORTAL);
+    }
+
+    @Test
+    void shouldRebuildAfterAFailedIncrementalUpdate() {
+        publish(product("p1", ProductType.REST_API, T0, T0));
+        list(query(null), PageRequest.of(0, 10));
+
+        duringNextLoad =
+                () -> {
+                    throw new IllegalStateException("database unavailable");
+                };
+        manager.onProductCatalogChanged(new ProductCatalogChangedEvent("p1"));
+        update("p1", p -> p.setName("renamed"));
+
+        assertEquals(
+                "renamed", list(query(null), PageRequest.of(0, 10)).getContent().get(0).getName());
+        verify(publicationRepository, times(2)).findAllByPortalId(PORTAL);
+    }
+
+    @Test
+    void shouldHandOutDeepCopies() {
+        ProductResult product = product("p1", ProductType.MODEL_API, T0, T0);
+        ProductCategoryResult category = new ProductCategoryResult();
+        category.setCategoryId("c1");
+        category.setName("Chat");
+        product.setCategories(new ArrayList<>(List.of(category)));
+        ModelConfigResult modelConfig = new ModelConfigResult();
+        modelConfig.setModelAPIConfig(new ModelConfigResult.ModelAPIConfig());
+        modelConfig.getModelAPIConfig().setAiProtocols(new ArrayList<>(List.of("OpenAI/V1")));
+        product.setModelConfig(modelConfig);
+        product.setSkillConfig(
+                SkillConfig.builder().skillTags(new ArrayList<>(List.of("a"))).build());
+        publish(product);
+
+        ProductResult handedOut = list(query(null), PageRequest.of(0, 10)).getContent().get(0);
+        handedOut.getCategories().get(0).setName("changed");
+        handedOut.getCategories().clear();
+        handedOut.getModelConfig().getModelAPIConfig().getAiProtocols().clear();
+        handedOut.getSkillConfig().getSkillTags().add("b");
+
+        ProductResult again = list(query(null), PageRequest.of(0, 10)).getContent().get(0);
+        assertEquals("Chat", again.getCategories().get(0).getName());
+        assertEquals(
+                List.of("OpenAI/V1"), again.getModelConfig().getModelAPIConfig().getAiProtocols());
+        assertEquals(List.of("a"), again.getSkillConfig().getSkillTags());
+    }
+
+    @Test
+    void shouldFallBackToTheDatabaseForQueriesItCannotServe() {
+        QueryProductParam noPortal = query(null);
+        noPortal.setPortalId(" ");
+        QueryProductParam notPublished = query(null);
+        notPublished.setStatus(ProductStatus.PENDING);
+
+        assertTrue(manager.listProducts(noPortal, PageRequest.of(0, 10)).isEmpty());
+        assertTrue(manager.listProducts(notPublished, PageRequest.of(0, 10)).isEmpty());
+        assertTrue(manager.listProducts(query(null), Pageable.unpaged()).isEmpty());
+        assertTrue(
+                manager.listProducts(query(null), PageRequest.of(0, 10, Sort.by("name")))
+                        .isEmpty());
+
+        config.setSnapshotEnabled(false);
+        assertTrue(manager.listProducts(query(null), PageRequest.of(0, 10)).isEmpty());
+
+        verifyNoInteractions(publicationRepository, productService);
+    }
+
+    @Test
+    void shouldSearchWithoutKeepingSnapshotsWhenDisabled() {
+        publish(product("weather", ProductType.MCP_SERVER, T0, T0));
+        SearchProductParam param = new SearchProductParam();
+        param.setKeyword("weather");
+
+        manager.searchProducts(PORTAL, param, PageRequest.of(0, 10));
+        manager.searchProducts(PORTAL, param, PageRequest.of(0, 10));
+        verify(publicationRepository, times(1)).findAllByPortalId(PORTAL);
+
+        config.setSnapshotEnabled(false);
+        update("weather", p -> p.setName("weather today"));
+        PageResult<ProductResult> page =
+                manager.searchProducts(PORTAL, param, PageRequest.of(0, 10));
+        manager.searchProducts(PORTAL, param, PageRequest.of(0, 10));
+
+        assertEquals("weather today", page.getContent().get(0).getName());
+        verify(publicationRepository, times(3)).findAllByPortalId(PORTAL);
+    }
+
+    private PageResult<ProductResult> list(QueryProductParam param, Pageable pageable) {
+        Optional<PageResult<ProductResult>> page = manager.listProducts(param, pageable);
+        assertTrue(page.isPresent());
+        return page.get();
+    }
+
+    private static QueryProductParam query(ProductType type) {
+        QueryProductParam param = new QueryProductParam();
+        param.setPortalId(PORTAL);
+        param.setStatus(ProductStatus.PUBLISHED);
+        param.setType(type);
+        return param;
+    }
+
+    private void publish(ProductResult product) {
+        products.put(product.getProductId(), product);
+        publications
+                .computeIfAbsent(PORTAL, k -> new LinkedHashSet<>())
+                .add(product.getProductId());
+    }
+
+    private void update(String productId, Consumer<ProductResult> change) {
+        change.accept(products.get(productId));
+    }
+
+    private static ProductResult product(
+            String productId, ProductType type, LocalDateTime createAt, LocalDateTime updatedAt) {
+        ProductResult product = new ProductResult();
+        product.setProductId(productId);
+        product.setName(productId);
+        product.setType(type);
+        product.setStatus(ProductStatus.PUBLISHED);
+        product.setCreateAt(createAt);
+        product.setUpdatedAt(updatedAt);
+        return product;
+    }
+
+    private static ProductResult skill(String productId, LocalDateTime updatedAt, long downloads) {
+        ProductResult product = product(productId, ProductType.AGENT_SKILL, T0, updatedAt);
+        product.setFeature(
+                ProductFeature.builder()
+                        .skillConfig(SkillConfig.builder().downloadCount(downloads).build())
+                        .build());
+        return product;
+    }
+
+    private static ProductPublication publication(String portalId, String productId) {
+        return ProductPublication.builder().portalId(portalId).productId(productId).build();
+    }
+
+    private static List<String> ids(PageResult<ProductResult> page) {
+        return ids(page.getContent());
+    }
+
+    private static List<String> ids(List<ProductResult> products) {
+        return products.stream().map(ProductResult::getProductId).toList();
+    }
+}
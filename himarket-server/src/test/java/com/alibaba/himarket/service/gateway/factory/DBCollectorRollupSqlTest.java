@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.gateway.factory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DBCollectorRollupSqlTest {
+
+    private static final List<String> DIMENSIONS =
+            List.of(
+                    "instance_id",
+                    "api",
+                    "model",
+                    "consumer",
+                    "route_name",
+                    "upstream_cluster",
+                    "mcp_tool");
+
+    @Test
+    void rawRowsTruncateDimensionsLikeRollupColumns() {
+        String raw = DBCollectorRollupSql.rawRows();
+
+        for (String d : DIMENSIONS) {
+            assertTrue(raw.contains("LEFT(l." + d + ", 255) AS " + d), d);
+        }
+    }
+
+    @Test
+    void rawAndRollupRowsProjectSameColumns() {
+        List<String> raw = projectedColumns(DBCollectorRollupSql.rawRows());
+
+        for (DBCollectorRollupSql.Level level : DBCollectorRollupSql.LEVELS) {
+            assertEquals(raw, projectedColumns(DBCollectorRollupSql.rollupRows(level)));
+        }
+    }
+
+    @Test
+    void insertFromRawGroupsByBucketAndTruncatedDimensions() {
+        String sql = DBCollectorRollupSql.insertFromRaw(DBCollectorRollupSql.MINUTE);
+
+        assertTrue(sql.startsWith("INSERT INTO access_log_rollup_1m (bucket_time, instance_id,"));
+        assertTrue(
+                sql.contains(
+                        "FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(start_time)/60)*60) AS bucket_time"));
+        assertTrue(sql.contains("WHERE l.start_time >= :from AND l.start_time < :to) r"));
+        assertTrue(
+                sql.endsWith(
+                        "GROUP BY bucket_time, instance_id, api, model, consumer, route_name,"
+                                + " upstream_cluster, mcp_tool, response_type, is_model, is_mcp"));
+        // 截断在原始行投影中完成，外层不再重复
+        assertEquals(DIMENSIONS.size(), countOccurrences(sql, "LEFT("));
+        assertTrue(sql.contains("SUM(request_count) AS request_count"));
+    }
+
+    @Test
+    void insertFromRollupReaggregatesFinerLevel() {
+        String sql =
+                DBCollectorRollupSql.insertFromRollup(
+                        DBCollectorRollupSql.HOUR, DBCollectorRollupSql.MINUTE);
+
+        assertTrue(sql.startsWith("INSERT INTO access_log_rollup_1h (bucket_time, "));
+        assertTrue(sql.contains("FROM_UNIXTIME(FLOOR(UNIX_TIMESTAMP(bucket_time)/3600)*3600)"));
+        assertTrue(
+                sql.contains(
+                        "FROM access_log_rollup_1m WHERE bucket_time >= :from AND bucket_time <"
+                                + " :to"));
+        assertTrue(sql.contains("SUM(ratelimited_count) AS ratelimited_count"));
+    }
+
+    /** 取最外层 SELECT 的输出列名（AS 别名或列名） */
+    private static List<String> projectedColumns(String sql) {
+        String select = sql.substring("SELECT ".length(), sql.indexOf(" FROM "));
+        return splitTopLevel(select).stream()
+                .map(String::trim)
+                .map(
+                        expr -> {
+                            int as = expr.lastIndexOf(" AS ");
+                            String name = as >= 0 ? expr.substring(as + 4) : expr;
+                            return name.substring(name.indexOf('.') + 1);
+                        })
+                .toList();
+    }
+
+    private static List<String> splitTopLevel(String s) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                parts.add(s.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(s.substring(start));
+        return parts;
+    }
+
+    private static int countOccurrences(String s, String token) {
+        int count = 0;
+        for (int i = s.indexOf(token); i >= 0; i = s.indexOf(token, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.hichat.manager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import com.alibaba.himarket.entity.Chat;
+import com.alibaba.himarket.repository.ChatRepository;
+import com.alibaba.himarket.support.chat.ChatHistoryItem;
+import com.alibaba.himarket.support.enums.ChatStatus;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ChatHistoryManagerTest {
+
+    private ChatRepository chatRepository;
+    private ChatHistoryManager manager;
+
+    @BeforeEach
+    void setUp() {
+        chatRepository = mock(ChatRepository.class);
+        manager = new ChatHistoryManager(chatRepository);
+    }
+
+    @Test
+    void reloadsWindowWhenAnotherReplicaFinishedAChat() {
+        stubDatabase(item(1L, "conv-1"));
+        assertEquals(List.of("conv-1"), conversations(manager.listHistory("s", "p", null)));
+
+        // conv-2 completed on another replica, this replica never saw append()
+        stubDatabase(item(1L, "conv-1"), item(2L, "conv-2"));
+
+        assertEquals(
+                List.of("conv-1", "conv-2"), conversations(manager.listHistory("s", "p", null)));
+        verify(chatRepository, times(2)).findHistoryItemsByIdIn(anyCollection());
+    }
+
+    @Test
+    void reusesWindowWhenLatestChatIsUnchanged() {
+        stubDatabase(item(1L, "conv-1"));
+
+        manager.listHistory("s", "p", null);
+        manager.listHistory("s", "p", "conv-2");
+
+        verify(chatRepository, times(1)).findHistoryItemsByIdIn(anyCollection());
+    }
+
+    @Test
+    void reusesWindowAheadOfDatabase() {
+        stubDatabase(item(1L, "conv-1"));
+        manager.listHistory("s", "p", null);
+
+        // Appended locally before the write of chat 2 is visible in the database
+        manager.append(chat(2L, "conv-2"));
+
+        assertEquals(
+                List.of("conv-1", "conv-2"), conversations(manager.listHistory("s", "p", null)));
+        verify(chatRepository, times(1)).findHistoryItemsByIdIn(anyCollection());
+    }
+
+    @Test
+    void blankPairsAreSkippedButKeepTheWindowCurrent() {
+        stubDatabase(item(1L, "conv-1"), item(2L, "conv-2", " "), item(3L, "conv-3", ""));
+
+        assertEquals(List.of("conv-1"), conversations(manager.listHistory("s", "p", null)));
+        assertEquals(List.of("conv-1"), conversations(manager.listHistory("s", "p", null)));
+        verify(chatRepository, times(1)).findHistoryItemsByIdIn(anyCollection());
+    }
+
+    @Test
+    void appendedBlankChatKeepsTheWindowCurrent() {
+        stubDatabase(item(1L, "conv-1"));
+        manager.listHistory("s", "p", null);
+
+        Chat blank = chat(2L, "conv-2");
+        blank.setAnswer("  ");
+        manager.append(blank);
+        when(chatRepository.findLatestChatId("s", "p", ChatStatus.SUCCESS)).thenReturn(2L);
+
+        assertEquals(List.of("conv-1"), conversations(manager.listHistory("s", "p", null)));
+        verify(chatRepository, times(1)).findHistoryItemsByIdIn(anyCollection());
+    }
+
+    private void stubDatabase(ChatHistoryItem... items) {
+        List<ChatHistoryItem> list = List.of(items);
+        Long latestId = list.isEmpty() ? null : list.get(list.size() - 1).getId();
+        when(chatRepository.findLatestChatId("s", "p", ChatStatus.SUCCESS)).thenReturn(latestId);
+        when(chatRepository.findLatestChatIdPerConversation(
+                        eq("s"), eq("p"), eq(ChatStatus.SUCCESS), any()))
+                .thenReturn(
+                        list.stream()
+                                .map(ChatHistoryItem::getId)
+                                .sorted(Comparator.reverseOrder())
+                                .toList());
+        when(chatRepository.findHistoryItemsByIdIn(anyCollection())).thenReturn(list);
+    }
+
+    private static ChatHistoryItem item(Long id, String conversationId) {
+        return item(id, conversationId, "a");
+    }
+
+    private static ChatHistoryItem item(Long id, String conversationId, String answer) {
+        return ChatHistoryItem.builder()
+                .id(id)
+                .chatId("chat-" + id)
+                .conversationId(conversationId)
+                .question("q")
+                .answer(answer)
+                .build();
+    }
+
+    private static Chat chat(Long id, String conversationId) {
+        Chat chat = new Chat();
+        chat.setId(id);
+        chat.setChatId("chat-" + id);
+        chat.setSessionId("s");
+        chat.setProductId("p");
+        chat.setConversationId(conversationId);
+        chat.setStatus(ChatStatus.SUCCESS);
+        chat.setQuestion("q");
+        chat.setAnswer("a");
+        return chat;
+    }
+
+    private static List<String> conversations(List<ChatHistoryItem> items) {
+        return items.stream().map(ChatHistoryItem::getConversationId).toList();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.alibaba.himarket.service.hichat.manager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.alibaba.himarket.core.event.ConsumerChangedEvent;
+import com.alibaba.himarket.core.security.ContextHolder;
+import com.alibaba.himarket.dto.result.consumer.ConsumerResult;
+import com.alibaba.himarket.dto.result.consumer.CredentialContext;
+import com.alibaba.himarket.dto.result.product.SubscriptionResult;
+import com.alibaba.himarket.service.ConsumerService;
+import com.alibaba.himarket.service.ProductService;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ChatInvocationContextManagerTest {
+
+    private ConsumerService consumerService;
+    private ChatInvocationContextManager manager;
+
+    @BeforeEach
+    void setUp() {
+        ContextHolder contextHolder = mock(ContextHolder.class);
+        when(contextHolder.getUser()).thenReturn("dev");
+        consumerService = mock(ConsumerService.class);
+        manager =
+                new ChatInvocationContextManager(
+                        contextHolder, consumerService, mock(ProductService.class));
+
+        ConsumerResult consumer = new ConsumerResult();
+        consumer.setConsumerId("consumer");
+        when(consumerService.getPrimaryConsumer("dev")).thenReturn(consumer);
+        when(consumerService.getConsumerCredential("consumer"))
+                .thenReturn(CredentialContext.builder().build());
+    }
+
+    @Test
+    void cachesDeveloperContextUntilConsumerChanges() {
+        stubSubscriptions("p1");
+        assertEquals(Set.of("p1"), manager.getDeveloperContext().subscribedProductIds());
+
+        stubSubscriptions("p1", "p2");
+        assertEquals(Set.of("p1"), manager.getDeveloperContext().subscribedProductIds());
+
+        manager.onConsumerChanged(new ConsumerChangedEvent("consumer", null));
+        assertEquals(Set.of("p1", "p2"), manager.getDeveloperContext().subscribedProductIds());
+    }
+
+    @Test
+    void doesNotCacheContextLoadedConcurrentlyWithAnEviction() {
+        // The subscription commits and its eviction runs while the old list is being loaded
+        AtomicInteger loads = new AtomicInteger();
+        when(consumerService.listConsumerSubscriptions("consumer"))
+                .thenAnswer(
+                        invocation -> {
+                            if (loads.getAndIncrement() > 0) {
+                                return subscriptions("p1", "p2");
+                            }
+                            manager.onConsumerChanged(new ConsumerChangedEvent("consumer", "dev"));
+                            return subscriptions("p1");
+                        });
+
+        assertEquals(Set.of("p1"), manager.getDeveloperContext().subscribedProductIds());
+        assertEquals(Set.of("p1", "p2"), manager.getDeveloperContext().subscribedProductIds());
+    }
+
+    private void stubSubscriptions(String... productIds) {
+        when(consumerService.listConsumerSubscriptions("consumer"))
+                .thenReturn(subscriptions(productIds));
+    }
+
+    private static List<SubscriptionResult> subscriptions(String... productIds) {
+        return Arrays.stream(productIds)
+                .map(
+                        productId -> {
+                            SubscriptionResult subscription = new SubscriptionResult();
+                            subscription.setProductId(productId);
+                            return subscription;
+                        })
+                .toList();
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.hichat.manager;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+import com.alibaba.himarket.dto.result.chat.LlmInvokeResult;
+import com.alibaba.himarket.entity.Chat;
+import com.alibaba.himarket.repository.ChatRepository;
+import com.alibaba.himarket.support.enums.ChatStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class ChatPersistenceManagerTest {
+
+    private final ChatRepository chatRepository = mock(ChatRepository.class);
+    private final ChatHistoryManager chatHistoryManager = mock(ChatHistoryManager.class);
+    private final PlatformTransactionManager transactionManager =
+            mock(PlatformTransactionManager.class);
+
+    /** Committed rows by chat ID, standing in for the chat table */
+    private final Map<String, Chat> rows = new ConcurrentHashMap<>();
+
+    /** Chat IDs in save order, with the primary key the entity carried when saved */
+    private final List<String> saves = new CopyOnWriteArrayList<>();
+
+    /** Blocks the first transaction of the writer until released */
+    private final CountDownLatch writerGate = new CountDownLatch(1);
+
+    private ChatPersistenceManager manager;
+
+    @AfterEach
+    void tearDown() {
+        writerGate.countDown();
+        if (manager != null) {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    void resultIsAppendedToHistoryBeforeItIsWritten() {
+        manager = newManager(10, true);
+        Chat chat = chat("c1", "s1");
+        manager.create(chat);
+
+        manager.saveResult(chat, success("answer"));
+
+        // The writer is still blocked, but the next turn already sees the chat
+        verify(chatHistoryManager)
+                .append(
+                        argThat(
+                                c ->
+                                        "c1".equals(c.getChatId())
+                                                && c.getStatus() == ChatStatus.SUCCESS
+                                                && "answer".equals(c.getAnswer())));
+        assertTrue(saves.isEmpty());
+        assertNull(chat.getAnswer(), "caller's chat is not modified");
+    }
+
+    @Test
+    void fullQueueDoesNotBlockResultProducer() {
+        manager = newManager(1, true);
+        Chat first = chat("c1", "s1");
+        Chat second = chat("c2", "s1");
+        manager.create(first);
+        awaitWriterBlocked();
+        manager.create(second);
+
+        // Queue is full and the writer is blocked, saving a result must still return at once
+        assertTimeoutPreemptively(
+                Duration.ofMillis(500), () -> manager.saveResult(second, success("answer")));
+
+        writerGate.countDown();
+        await().atMost(2, TimeUnit.SECONDS)
+                .until(() -> rows.containsKey("c2") && rows.get("c2").getAnswer() != null);
+        assertEquals(List.of("c1:null", "c2:null"), saves);
+        assertEquals(ChatStatus.SUCCESS, rows.get("c2").getStatus());
+    }
+
+    @Test
+    void retryAfterRollbackInsertsFreshEntities() {
+        manager = newManager(10, true);
+        AtomicInteger failures = new AtomicInteger();
+        doAnswer(
+                        invocation -> {
+                            Chat chat = invocation.getArgument(0);
+                            if ("bad".equals(chat.getChatId()) && failures.getAndIncrement() == 0) {
+                                throw new IllegalStateException("constraint violation");
+                            }
+                            return insert(chat);
+                        })
+                .when(chatRepository)
+                .save(any());
+
+        manager.create(chat("c0", "s1"));
+        awaitWriterBlocked();
+        manager.create(chat("good", "s1"));
+        manager.create(chat("bad", "s1"));
+        writerGate.countDown();
+
+        verify(chatRepository, timeout(2000).times(5)).save(any());
+        // c0, then good + bad as a batch that rolls back on bad, then both one by one. Every
+        // attempt inserts an entity without the key assigned by the rolled back attempt
+        assertEquals(List.of("c0:null", "good:null", "good:null", "bad:null"), saves);
+    }
+
+    @Test
+    void cancelledSessionIsNotWrittenAfterCancelReturns() throws Exception {
+        manager = newManager(10, true);
+        manager.create(chat("in-flight", "deleted"));
+        awaitWriterBlocked();
+        manager.create(chat("queued", "deleted"));
+        manager.create(chat("other", "kept"));
+
+        Thread canceller = new Thread(() -> manager.cancelSession("deleted"));
+        canceller.start();
+        canceller.join(200);
+        assertTrue(canceller.isAlive(), "cancel waits for the batch in flight");
+
+        writerGate.countDown();
+        canceller.join(2000);
+        assertFalse(canceller.isAlive());
+        List<String> savedBeforeCancelReturned = List.copyOf(saves);
+
+        verify(chatRepository, timeout(2000).times(2)).save(any());
+        assertTrue(savedBeforeCancelReturned.contains("in-flight:null"));
+        assertEquals(List.of("in-flight:null", "other:null"), saves);
+
+        // Writes of the session arriving later are dropped as well
+        manager.create(chat("late", "deleted"));
+        manager.create(chat("last", "kept"));
+        verify(chatRepository, timeout(2000).times(3)).save(any());
+        assertFalse(rows.containsKey("late"));
+    }
+
+    private ChatPersistenceManager newManager(int queueCapacity, boolean gateFirstTransaction) {
+        AtomicInteger transactions = new AtomicInteger();
+        when(transactionManager.getTransaction(any()))
+                .thenAnswer(
+                        invocation -> {
+                            if (gateFirstTransaction && transactions.getAndIncrement() == 0) {
+                                writerGate.await(5, TimeUnit.SECONDS);
+                            }
+                            return null;
+                        });
+        when(chatRepository.findCurrentSequence(any(), any(), any(), any())).thenReturn(0);
+        when(chatRepository.save(any()))
+                .thenAnswer(invocation -> insert(invocation.getArgument(0)));
+        when(chatRepository.findByChatIdIn(anyCollection()))
+                .thenAnswer(
+                        invocation -> {
+                            Collection<String> chatIds = invocation.getArgument(0);
+                            return chatIds.stream().map(rows::get).filter(c -> c != null).toList();
+                        });
+
+        EntityManager entityManager = mock(EntityManager.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(mock(Session.class));
+        ChatPersistenceManager manager =
+                new ChatPersistenceManager(
+                        chatRepository,
+                        chatHistoryManager,
+                        transactionManager,
+                        entityManager,
+                        new SimpleMeterRegistry(),
+                        queueCapacity);
+        manager.start();
+        return manager;
+    }
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private Chat insert(Chat chat) {
+        saves.add(chat.getChatId() + ":" + chat.getId());
+        chat.setId(ids.incrementAndGet());
+        rows.put(chat.getChatId(), chat);
+        return chat;
+    }
+
+    private void awaitWriterBlocked() {
+        verify(transactionManager, timeout(2000)).getTransaction(any());
+    }
+
+    private static Chat chat(String chatId, String sessionId) {
+        return Chat.builder()
+                .chatId(chatId)
+                .sessionId(sessionId)
+                .userId("u1")
+                .conversationId("conv-" + chatId)
+                .productId("p1")
+                .questionId("q-" + chatId)
+                .question("question")
+                .build();
+    }
+
+    private static LlmInvokeResult success(String answer) {
+        return LlmInvokeResult.builder().success(true).answer(answer).build();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.alibaba.himarket.service.hichat.manager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.alibaba.himarket.config.ChatStreamConfig;
+import com.alibaba.himarket.service.hichat.support.ChatEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+class ChatStreamCoalescerTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(20);
+
+    @Test
+    void flushesMergedTextWhenWindowElapses() {
+        StepVerifier.withVirtualTime(
+                        () ->
+                                coalescer(1024)
+                                        .apply(
+                                                "c",
+                                                Flux.just(text("a"), text("b"))
+                                                        .concatWith(Flux.never())))
+                .expectSubscription()
+                .expectNoEvent(WINDOW.minusMillis(1))
+                .thenAwait(Duration.ofMillis(1))
+                .assertNext(event -> assertText(ChatEvent.EventType.ASSISTANT, "ab", event))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void flushesAsSoonAsSizeLimitIsReached() {
+        StepVerifier.withVirtualTime(
+                        () ->
+                                coalescer(4)
+                                        .apply(
+                                                "c",
+                                                Flux.just(text("ab"), text("cd"), text("e"))
+                                                        .concatWith(Flux.never())))
+                .expectSubscription()
+                .assertNext(event -> assertText(ChatEvent.EventType.ASSISTANT, "abcd", event))
+                .expectNoEvent(WINDOW.minusMillis(1))
+                .thenAwait(Duration.ofMillis(1))
+                .assertNext(event -> assertText(ChatEvent.EventType.ASSISTANT, "e", event))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void controlEventFlushesPendingTextFirst() {
+        ChatEvent done = ChatEvent.done("c", null);
+        StepVerifier.create(
+                        coalescer(1024)
+                                .apply(
+                                        "c",
+                                        Flux.just(
+                                                thinking("t"),
+                                                text("a"),
+                                                text("b"),
+                                                done,
+                                                text("z"))))
+                .assertNext(event -> assertText(ChatEvent.EventType.THINKING, "t", event))
+                .assertNext(event -> assertText(ChatEvent.EventType.ASSISTANT, "ab", event))
+                .expectNext(done)
+                .assertNext(event -> assertText(ChatEvent.EventType.ASSISTANT, "z", event))
+                .verifyComplete();
+    }
+
+    @Test
+    void errorFlushesPendingTextBeforeTheError() {
+        IllegalStateException error = new IllegalStateException("boom");
+        StepVerifier.create(
+                        coalescer(1024)
+                                .apply(
+                                        "c",
+                                        Flux.just(text("a"), text("b"))
+                                                .concatWith(Flux.error(error))))
+                .assertNext(event -> assertText(ChatEvent.EventType.ASSISTANT, "ab", event))
+                .verifyErrorMatches(e -> e == error);
+    }
+
+    @Test
+    void pullsUpstreamOnlyWhileDownstreamHasDemand() {
+        AtomicLong upstreamRequested = new AtomicLong();
+        Flux<ChatEvent> events =
+                Flux.range(0, 100)
+                        .map(i -> ChatEvent.start("c"))
+                        .doOnRequest(upstreamRequested::addAndGet);
+
+        StepVerifier.create(coalescer(1024).apply("c", events), 0)
+                .expectSubscription()
+                .then(() -> assertEquals(0, upstreamRequested.get()))
+                .thenRequest(2)
+                .expectNextCount(2)
+                .then(() -> assertEquals(2, upstreamRequested.get()))
+                .thenRequest(3)
+                .expectNextCount(3)
+                .then(() -> assertEquals(5, upstreamRequested.get()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void keepsMergingWhileWaitingForDemand() {
+        AtomicLong upstreamRequested = new AtomicLong();
+        Flux<ChatEvent> events =
+                Flux.just(text("a"), text("b"), ChatEvent.start("c"), text("c"))
+                        .doOnRequest(upstreamRequested::addAndGet);
+
+        StepVerifier.create(coalescer(1024).apply("c", events), 1)
+                .assertNext(event -> assertText(ChatEvent.EventType.ASSISTANT, "ab", event))
+                // The control event that ended the merge is held, nothing further is pulled
+                .then(() -> assertEquals(3, upstreamRequested.get()))
+                .thenRequest(Long.MAX_VALUE)
+                .expectNextMatches(event -> event.getType() == ChatEvent.EventType.START)
+                .assertNext(event -> assertText(ChatEvent.EventType.ASSISTANT, "c", event))
+                .verifyComplete();
+    }
+
+    private static ChatStreamCoalescer coalescer(int maxChars) {
+        ChatStreamConfig config = new ChatStreamConfig();
+        config.setCoalesceWindow(WINDOW);
+        config.setCoalesceMaxChars(maxChars);
+        return new ChatStreamCoalescer(config, new SimpleMeterRegistry());
+    }
+
+    private static ChatEvent text(String content) {
+        return ChatEvent.text("c", content);
+    }
+
+    private static ChatEvent thinking(String content) {
+        return ChatEvent.thinking("c", content);
+    }
+
+    private static void assertText(ChatEvent.EventType type, String content, ChatEvent event) {
+        assertEquals(type, event.getType());
+        assertEquals(content, event.getContent());
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.hicoding.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class SidecarControlMessagesTest {
+
+    @Test
+    void shouldDetectSidecarControlMessages() {
+        assertEquals(
+                SidecarControlMessages.SESSION_META,
+                SidecarControlMessages.typeOf(
+                        "{\"type\":\"session_meta\",\"sessionId\":\"s-1\",\"replayed\":true}"));
+        assertEquals(
+                SidecarControlMessages.BUFFER_TRUNCATED,
+                SidecarControlMessages.typeOf(
+                        "{\"type\":\"buffer_truncated\",\"droppedBytes\":1024}"));
+        assertEquals(
+                SidecarControlMessages.PROCESS_EXITED,
+                SidecarControlMessages.typeOf(
+                        "{\"type\":\"process_exited\",\"code\":0,\"signal\":null}"));
+    }
+
+    @Test
+    void shouldIgnoreAcpTraffic() {
+        assertNull(
+                SidecarControlMessages.typeOf(
+                        "{\"jsonrpc\":\"2.0\",\"method\":\"session/update\",\"params\":{\"text\":"
+                                + "\"{\\\"type\\\":\\\"session_meta\\\"}\"}}"));
+        assertNull(SidecarControlMessages.typeOf("{\"type\":\"session_metadata\"}"));
+        assertNull(SidecarControlMessages.typeOf("{\"type\":\"session_meta"));
+        assertNull(SidecarControlMessages.typeOf(""));
+    }
+}
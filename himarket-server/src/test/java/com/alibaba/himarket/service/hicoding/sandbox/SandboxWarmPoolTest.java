@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.hicoding.sandbox;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.alibaba.himarket.config.AcpProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SandboxWarmPoolTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AcpProperties acpProperties = new AcpProperties();
+    private final AtomicInteger acquired = new AtomicInteger();
+    private SandboxProvider provider;
+    private SandboxWarmPool pool;
+
+    @BeforeEach
+    void setUp() {
+        acpProperties.getWarmPool().setSize(2);
+        provider = mock(SandboxProvider.class);
+        when(provider.getType()).thenReturn(SandboxType.E2B);
+        when(provider.supportsWarmPool()).thenReturn(true);
+        when(provider.acquireWarm()).thenAnswer(invocation -> sandbox(acquired.incrementAndGet()));
+        when(provider.healthCheck(any())).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void takeHandsOutWarmSandboxAndRefills() {
+        pool = newPool();
+        pool.maintain();
+        awaitPoolSize(2);
+
+        SandboxInfo taken = pool.take(SandboxType.E2B);
+
+        assertNotNull(taken);
+        await().atMost(Duration.ofSeconds(2)).until(() -> acquired.get() == 3);
+        awaitPoolSize(2);
+        assertEquals(1, counter("sandbox.warm.pool.requests", "hit"));
+        verify(provider, never()).release(any());
+    }
+
+    @Test
+    void takeFromEmptyPoolIsMissAndTriggersRefill() {
+        pool = newPool();
+
+        assertNull(pool.take(SandboxType.E2B));
+
+        assertEquals(1, counter("sandbox.warm.pool.requests", "miss"));
+        awaitPoolSize(2);
+    }
+
+    @Test
+    void unsupportedTypeHasNoPool() {
+        pool = newPool();
+
+        assertNull(pool.take(SandboxType.REMOTE));
+        verify(provider, never()).acquireWarm();
+    }
+
+    @Test
+    void expiredSandboxesAreEvictedAndReplaced() throws InterruptedException {
+        acpProperties.getWarmPool().setMaxIdleSeconds(1);
+        pool = newPool();
+        pool.maintain();
+        awaitPoolSize(2);
+
+        Thread.sleep(1100);
+        pool.maintain();
+
+        verify(provider, times(2)).release(any());
+        await().atMost(Duration.ofSeconds(2)).until(() -> acquired.get() == 4);
+        awaitPoolSize(2);
+    }
+
+    @Test
+    void staleHealthCheckIsMissUntilRechecked() throws InterruptedException {
+        acpProperties.getWarmPool().setSize(1);
+        acpProperties.getWarmPool().setHealthCheckMaxAgeSeconds(1);
+        pool = newPool();
+        pool.maintain();
+        awaitPoolSize(1);
+
+        Thread.sleep(1100);
+
+        assertNull(pool.take(SandboxType.E2B));
+        assertEquals(1, poolSize());
+        pool.maintain();
+        verify(provider, timeout(2000).times(2)).healthCheck(any());
+        await().atMost(Duration.ofSeconds(2)).until(() -> pool.take(SandboxType.E2B) != null);
+        verify(provider, never()).release(any());
+    }
+
+    @Test
+    void failedRecheckEvictsSandbox() throws InterruptedException {
+        acpProperties.getWarmPool().setSize(1);
+        acpProperties.getWarmPool().setHealthCheckMaxAgeSeconds(1);
+        pool = newPool();
+        pool.maintain();
+        awaitPoolSize(1);
+        when(provider.healthCheck(any())).thenReturn(false);
+
+        Thread.sleep(600);
+        pool.maintain();
+
+        verify(provider, timeout(2000)).release(sandbox(1));
+        assertNull(pool.take(SandboxType.E2B));
+    }
+
+    @Test
+    void failedAcquisitionIsCountedAndRetriedOnNextMaintenance() {
+        when(provider.acquireWarm())
+                .thenThrow(new IllegalStateException("quota exceeded"))
+                .thenAnswer(invocation -> sandbox(acquired.incrementAndGet()));
+        acpProperties.getWarmPool().setSize(1);
+        pool = newPool();
+
+        pool.maintain();
+        await().atMost(Duration.ofSeconds(2))
+                .until(
+                        () ->
+                                meterRegistry
+                                                .counter(
+                                                        "sandbox.warm.pool.refill.failures",
+                                                        "type",
+                                                        "e2b")
+                                                .count()
+                                        == 1);
+        pool.maintain();
+
+        awaitPoolSize(1);
+    }
+
+    @Test
+    void sharedSandboxIsPooledOnceAndNotConsumed() {
+        SandboxInfo shared = sandbox(0);
+        when(provider.sharesWarmSandbox()).thenReturn(true);
+        when(provider.acquireWarm()).thenReturn(shared);
+        pool = newPool();
+        pool.maintain();
+        awaitPoolSize(1);
+
+        assertSame(shared, pool.take(SandboxType.E2B));
+        assertSame(shared, pool.take(SandboxType.E2B));
+
+        assertEquals(1, poolSize());
+        verify(provider, times(1)).acquireWarm();
+
+        // 共用沙箱不归预热池释放
+        pool.shutdown();
+        verify(provider, never()).release(any());
+    }
+
+    @Test
+    void shutdownReleasesIdleSandboxes() {
+        pool = newPool();
+        pool.maintain();
+        awaitPoolSize(2);
+
+        pool.shutdown();
+
+        verify(provider, times(2)).release(any());
+        assertNull(pool.take(SandboxType.E2B));
+    }
+
+    private SandboxWarmPool newPool() {
+        return new SandboxWarmPool(
+                new SandboxProviderRegistry(List.of(provider)), acpProperties, meterRegistry);
+    }
+
+    private void awaitPoolSize(int size) {
+        await().atMost(Duration.ofSeconds(2)).until(() -> poolSize() == size);
+    }
+
+    private double poolSize() {
+        return meterRegistry.get("sandbox.warm.pool.size").tag("type", "e2b").gauge().value();
+    }
+
+    private double counter(String name, String result) {
+        return meterRegistry.get(name).tag("type", "e2b").tag("result", result).counter().count();
+    }
+
+    private static SandboxInfo sandbox(int id) {
+        return new SandboxInfo(
+                SandboxType.E2B, "sandbox-" + id, "10.0.0." + id, 8080, null, false, Map.of());
+    }
+}
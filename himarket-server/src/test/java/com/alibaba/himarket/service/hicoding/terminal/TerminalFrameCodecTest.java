@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.hicoding.terminal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TerminalFrameCodecTest {
+
+    private TerminalBackend backend;
+
+    @BeforeEach
+    void setUp() {
+        backend = mock(TerminalBackend.class);
+    }
+
+    @Test
+    void outputFrameCarriesTheRequestedSlice() {
+        byte[] data = "xx中文yy".getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer frame = TerminalFrameCodec.encodeOutput(data, 2, 6);
+
+        assertEquals(TerminalFrameCodec.OUTPUT, frame.get());
+        byte[] payload = new byte[frame.remaining()];
+        frame.get(payload);
+        assertEquals("中文", new String(payload, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void exitFrameRoundTrips() {
+        for (int code : new int[] {0, 1, 130, -1, Integer.MAX_VALUE}) {
+            ByteBuffer frame = TerminalFrameCodec.encodeExit(code);
+
+            assertEquals(5, frame.remaining());
+            assertEquals(TerminalFrameCodec.EXIT, frame.get());
+            assertEquals(code, frame.getInt());
+        }
+    }
+
+    @Test
+    void inputFrameIsDecodedAsUtf8() throws IOException {
+        byte[] text = "ls 中文\r".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame =
+                ByteBuffer.allocate(text.length + 1).put(TerminalFrameCodec.INPUT).put(text).flip();
+
+        assertTrue(TerminalFrameCodec.dispatch(frame, backend));
+        verify(backend).write("ls 中文\r");
+    }
+
+    @Test
+    void emptyInputFrameIsAcceptedWithoutWriting() throws IOException {
+        ByteBuffer frame = ByteBuffer.wrap(new byte[] {TerminalFrameCodec.INPUT});
+
+        assertTrue(TerminalFrameCodec.dispatch(frame, backend));
+        verify(backend, never()).write(anyString());
+    }
+
+    @Test
+    void resizeFrameIsDecodedAsUnsignedShorts() throws IOException {
+        // 40000 超过 Short.MAX_VALUE，需按无符号解析
+        ByteBuffer frame =
+                ByteBuffer.allocate(5)
+                        .put(TerminalFrameCodec.RESIZE)
+                        .putShort((short) 40000)
+                        .putShort((short) 24)
+                        .flip();
+
+        assertTrue(TerminalFrameCodec.dispatch(frame, backend));
+        verify(backend).resize(40000, 24);
+    }
+
+    @Test
+    void malformedFramesAreRejected() throws IOException {
+        ByteBuffer empty = ByteBuffer.allocate(0);
+        ByteBuffer shortResize =
+                ByteBuffer.allocate(3).put(TerminalFrameCodec.RESIZE).putShort((short) 80).flip();
+        ByteBuffer zeroRows =
+                ByteBuffer.allocate(5)
+                        .put(TerminalFrameCodec.RESIZE)
+                        .putShort((short) 80)
+                        .putShort((short) 0)
+                        .flip();
+        ByteBuffer unknown = ByteBuffer.wrap(new byte[] {0x7f, 1, 2});
+
+        assertFalse(TerminalFrameCodec.dispatch(empty, backend));
+        assertFalse(TerminalFrameCodec.dispatch(shortResize, backend));
+        assertFalse(TerminalFrameCodec.dispatch(zeroRows, backend));
+        assertFalse(TerminalFrameCodec.dispatch(unknown, backend));
+        verifyNoInteractions(backend);
+    }
+}
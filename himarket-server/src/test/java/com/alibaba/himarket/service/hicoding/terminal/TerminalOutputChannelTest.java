@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.hicoding.terminal;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.alibaba.himarket.config.AcpProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+class TerminalOutputChannelTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<WebSocketMessage<?>> messages = new CopyOnWriteArrayList<>();
+
+    private WebSocketSession session;
+    private AcpProperties.TerminalConfig config;
+    private TerminalOutputChannel.Metrics metrics;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("t1");
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(
+                        invocation -> {
+                            messages.add(invocation.getArgument(0));
+                            return null;
+                        })
+                .when(session)
+                .sendMessage(any());
+
+        config = new AcpProperties.TerminalConfig();
+        // 合并窗口放大，保证测试中的多次 append 落在同一次 flush 内
+        config.setFlushIntervalMs(200);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        metrics =
+                new TerminalOutputChannel.Metrics(
+                        new AtomicLong(),
+                        DistributionSummary.builder("frame").register(registry),
+                        Timer.builder("latency").register(registry),
+                        Counter.builder("overflows").register(registry));
+    }
+
+    @Test
+    void chunksAreSplitAcrossFramesAtMaxFrameBytes() {
+        config.setMaxFrameBytes(4);
+        TerminalOutputChannel channel = binaryChannel();
+
+        // 第二块跨越两帧，第三块从上一块的中间位置接续，依赖 headOffset 记录读取位置
+        channel.append(bytes("ab"));
+        channel.append(bytes("cdefg"));
+        channel.append(bytes("hij"));
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> messages.size() == 3);
+        assertEquals(List.of("abcd", "efgh", "ij"), outputs());
+        assertEquals(0, metrics.queuedBytes().get());
+        assertEquals(3, metrics.frameBytes().count());
+        assertEquals(10, metrics.frameBytes().totalAmount());
+    }
+
+    @Test
+    void singleChunkLargerThanFrameIsSplit() {
+        config.setMaxFrameBytes(4);
+        TerminalOutputChannel channel = binaryChannel();
+
+        channel.append(bytes("0123456789"));
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> messages.size() == 3);
+        assertEquals(List.of("0123", "4567", "89"), outputs());
+        assertEquals(0, metrics.queuedBytes().get());
+    }
+
+    @Test
+    void smallChunksAreCoalescedIntoOneFrame() {
+        TerminalOutputChannel channel = binaryChannel();
+
+        channel.append(bytes("中"));
+        channel.append(bytes("文"));
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> !messages.isEmpty());
+        assertEquals(List.of("中文"), outputs());
+        assertEquals(0, metrics.queuedBytes().get());
+    }
+
+    @Test
+    void exitIsSentAfterPendingOutputDrains() {
+        config.setMaxFrameBytes(4);
+        TerminalOutputChannel channel = binaryChannel();
+
+        channel.append(bytes("abcdef"));
+        channel.exit(3);
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> messages.size() == 3);
+        assertEquals(List.of("abcd", "ef"), outputs());
+        ByteBuffer last = payload(messages.get(2));
+        assertEquals(TerminalFrameCodec.EXIT, last.get());
+        assertEquals(3, last.getInt());
+
+        // 退出帧发送后通道关闭，之后的输出和重复退出都被忽略
+        channel.append(bytes("late"));
+        channel.exit(4);
+        await().during(300, TimeUnit.MILLISECONDS)
+                .atMost(1, TimeUnit.SECONDS)
+                .until(() -> messages.size() == 3);
+    }
+
+    @Test
+    void exitWithoutPendingOutputIsSentImmediately() {
+        TerminalOutputChannel channel = binaryChannel();
+
+        channel.exit(0);
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> messages.size() == 1);
+        ByteBuffer frame = payload(messages.get(0));
+        assertEquals(TerminalFrameCodec.EXIT, frame.get());
+        assertEquals(0, frame.getInt());
+    }
+
+    @Test
+    void textProtocolSendsBase64OutputThenExit() throws Exception {
+        TerminalOutputChannel channel =
+                new TerminalOutputChannel(session, false, objectMapper, config, metrics);
+
+        channel.append(bytes("中文"));
+        channel.exit(1);
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> messages.size() == 2);
+        JsonNode output = objectMapper.readTree((String) messages.get(0).getPayload());
+        assertEquals("output", output.get("type").asText());
+        assertEquals(
+                "中文",
+                new String(
+                        Base64.getDecoder().decode(output.get("data").asText()),
+                        StandardCharsets.UTF_8));
+        JsonNode exit = objectMapper.readTree((String) messages.get(1).getPayload());
+        assertEquals("exit", exit.get("type").asText());
+        assertEquals(1, exit.get("code").asInt());
+    }
+
+    @Test
+    void overflowClosesSessionAndDiscardsPendingOutput() throws Exception {
+        config.setMaxPendingBytes(8);
+        TerminalOutputChannel channel = binaryChannel();
+
+        channel.append(bytes("12345"));
+        channel.append(bytes("6789"));
+
+        verify(session, timeout(2000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1, metrics.overflows().count());
+        assertEquals(0, metrics.queuedBytes().get());
+
+        // 溢出后通道已关闭，已排队的 flush 和之后的退出都不再发送
+        channel.append(bytes("x"));
+        channel.exit(0);
+        await().during(300, TimeUnit.MILLISECONDS)
+                .atMost(1, TimeUnit.SECONDS)
+                .until(messages::isEmpty);
+        assertEquals(1, metrics.overflows().count());
+    }
+
+    @Test
+    void closeDiscardsPendingOutput() {
+        TerminalOutputChannel channel = binaryChannel();
+
+        channel.append(bytes("abc"));
+        channel.close();
+
+        assertEquals(0, metrics.queuedBytes().get());
+        await().during(300, TimeUnit.MILLISECONDS)
+                .atMost(1, TimeUnit.SECONDS)
+                .until(messages::isEmpty);
+    }
+
+    private TerminalOutputChannel binaryChannel() {
+        return new TerminalOutputChannel(session, true, objectMapper, config, metrics);
+    }
+
+    private List<String> outputs() {
+        return messages.stream()
+                .map(TerminalOutputChannelTest::payload)
+                .filter(frame -> frame.get(0) == TerminalFrameCodec.OUTPUT)
+                .map(frame -> StandardCharsets.UTF_8.decode(frame.position(1)).toString())
+                .toList();
+    }
+
+    private static ByteBuffer payload(WebSocketMessage<?> message) {
+        return ((BinaryMessage) message).getPayload().duplicate();
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
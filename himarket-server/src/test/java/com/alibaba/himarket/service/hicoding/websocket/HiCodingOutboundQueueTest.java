@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.hicoding.websocket;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.alibaba.himarket.config.AcpProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+class HiCodingOutboundQueueTest {
+
+    private WebSocketSession session;
+    private AcpProperties.OutboundConfig config;
+    private HiCodingOutboundQueue.Metrics metrics;
+    private final List<String> frames = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(
+                        invocation -> {
+                            frames.add(invocation.<TextMessage>getArgument(0).getPayload());
+                            return null;
+                        })
+                .when(session)
+                .sendMessage(any(TextMessage.class));
+
+        config = new AcpProperties.OutboundConfig();
+        config.setFlushIntervalMs(50);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        metrics =
+                new HiCodingOutboundQueue.Metrics(
+                        new AtomicLong(),
+                        DistributionSummary.builder("messages").register(registry),
+                        Timer.builder("latency").register(registry),
+                        Counter.builder("dropped").register(registry),
+                        Counter.builder("overflows").register(registry));
+    }
+
+    @Test
+    void utf8LengthCountsEncodedBytes() {
+        for (String s : List.of("", "abc", "é", "中文", "a😀b", "\uD800x")) {
+            assertEquals(
+                    s.getBytes(StandardCharsets.UTF_8).length,
+                    HiCodingOutboundQueue.utf8Length(s),
+                    s);
+        }
+    }
+
+    @Test
+    void framesAreLimitedByEncodedBytes() {
+        // "中文" 占 6 字节：按字符数 "中文\na" 只有 4，按字节为 8，超过单帧上限
+        config.setMaxFrameBytes(7);
+        HiCodingOutboundQueue queue = new HiCodingOutboundQueue(session, config, metrics);
+
+        queue.enqueue("中文");
+        queue.enqueue("a");
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> frames.size() == 2);
+        assertEquals(List.of("中文", "a"), frames);
+        assertEquals(0, metrics.queuedBytes().get());
+    }
+
+    @Test
+    void smallMessagesAreCoalescedIntoOneFrame() {
+        HiCodingOutboundQueue queue = new HiCodingOutboundQueue(session, config, metrics);
+
+        queue.enqueue("中");
+        queue.enqueue("文");
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> !frames.isEmpty());
+        assertEquals(List.of("中\n文"), frames);
+        assertEquals(0, metrics.queuedBytes().get());
+    }
+
+    @Test
+    void pendingLimitIsMeasuredInEncodedBytes() throws Exception {
+        // 4 个字符、12 字节
+        config.setMaxPendingBytes(10);
+        HiCodingOutboundQueue queue = new HiCodingOutboundQueue(session, config, metrics);
+
+        queue.enqueue("中文中文");
+
+        verify(session, timeout(2000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1, metrics.overflows().count());
+        assertEquals(0, metrics.queuedBytes().get());
+        assertTrue(frames.isEmpty());
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+import com.alibaba.himarket.config.ObservabilityConfig;
+import com.alibaba.himarket.dto.params.sls.GenericSlsQueryRequest;
+import com.alibaba.himarket.service.gateway.factory.DBCollectorPresetSqlRegistry;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+class DBCollectorServiceImplTest {
+
+    /** 整点时刻（epoch 秒） */
+    private static final long BASE = 1_699_999_200L;
+
+    private static final long HOUR = 3600;
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private DBCollectorPresetSqlRegistry presetRegistry;
+    private DBCollectorServiceImpl service;
+    private final List<Map<String, Object>> state = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        presetRegistry = new DBCollectorPresetSqlRegistry();
+        service =
+                new DBCollectorServiceImpl(
+                        jdbcTemplate, presetRegistry, new ObservabilityConfig(null, null));
+        when(jdbcTemplate.queryForList(anyString(), any(SqlParameterSource.class)))
+                .thenReturn(List.of());
+        when(jdbcTemplate.queryForList(
+                        startsWith("SELECT level_name"), any(SqlParameterSource.class)))
+                .thenReturn(state);
+    }
+
+    @Test
+    void unalignedRangeUsesRawHeadAndTailAroundWholeBuckets() {
+        coverage("1h", BASE, BASE + 5 * HOUR);
+        coverage("1m", BASE, BASE + 5 * HOUR);
+
+        Query query = query("pv", BASE + 90, BASE + 2 * HOUR + 150, 60);
+
+        assertSegment(query, 0, null, BASE + 90, BASE + 120);
+        assertSegment(query, 1, "access_log_rollup_1m", BASE + 120, BASE + HOUR);
+        assertSegment(query, 2, "access_log_rollup_1h", BASE + HOUR, BASE + 2 * HOUR);
+        assertSegment(query, 3, "access_log_rollup_1m", BASE + 2 * HOUR, BASE + 2 * HOUR + 120);
+        assertSegment(query, 4, null, BASE + 2 * HOUR + 120, BASE + 2 * HOUR + 150);
+        assertFalse(query.params.hasValue("seg5_from"));
+        // 仅最后一段包含右端点
+        assertTrue(query.sql.contains("l.start_time < :seg0_to"));
+        assertTrue(query.sql.contains("l.start_time <= :seg4_to"));
+    }
+
+    @Test
+    void alignedRangeSkipsEmptyRawSegments() {
+        coverage("1h", BASE, BASE + 5 * HOUR);
+
+        Query query = query("pv", BASE, BASE + 2 * HOUR, 60);
+
+        assertSegment(query, 0, "access_log_rollup_1h", BASE, BASE + 2 * HOUR);
+        // 右端点本身仍需查原始行
+        assertSegment(query, 1, null, BASE + 2 * HOUR, BASE + 2 * HOUR);
+        assertTrue(query.sql.contains("l.start_time <= :seg1_to"));
+        assertFalse(query.params.hasValue("seg2_from"));
+    }
+
+    @Test
+    void rangeBeyondCoverageFallsBackToRawRows() {
+        coverage("1h", BASE, BASE + 2 * HOUR);
+
+        Query query = query("pv", BASE, BASE + 3 * HOUR + 30, 60);
+
+        assertSegment(query, 0, "access_log_rollup_1h", BASE, BASE + 2 * HOUR);
+        assertSegment(query, 1, null, BASE + 2 * HOUR, BASE + 3 * HOUR + 30);
+    }
+
+    @Test
+    void lineScenarioOnlyUsesLevelsDividingTheInterval() {
+        coverage("1h", BASE, BASE + 5 * HOUR);
+        coverage("1m", BASE, BASE + 5 * HOUR);
+
+        Query query = query("qps_stream", BASE, BASE + 2 * HOUR, 60);
+
+        assertFalse(query.sql.contains("access_log_rollup_1h"));
+        assertSegment(query, 0, "access_log_rollup_1m", BASE, BASE + 2 * HOUR);
+    }
+
+    @Test
+    void emptyOrUncoveredRangeUsesPresetSql() {
+        coverage("1h", BASE, BASE + 5 * HOUR);
+        coverage("1m", BASE, BASE + 5 * HOUR);
+
+        assertRawPreset(query("pv", BASE + 90, BASE + 90, 60));
+        assertRawPreset(query("pv", BASE + 150, BASE + 90, 60));
+        assertRawPreset(query("pv", BASE + 6 * HOUR, BASE + 7 * HOUR, 60));
+    }
+
+    @Test
+    void filtersApplyToTruncatedRawDimensions() {
+        coverage("1h", BASE, BASE + 5 * HOUR);
+
+        GenericSlsQueryRequest request = request("pv", BASE, BASE + HOUR + 30, 60);
+        request.setApi(new String[] {"chat"});
+        Query query = execute(request);
+
+        assertTrue(
+                query.sql.contains("l.start_time <= :seg1_to) r WHERE 1=1 AND (api = :api_0)"),
+                query.sql);
+        assertTrue(query.sql.contains("LEFT(l.api, 255) AS api"));
+        assertTrue(query.sql.contains("bucket_time < :seg0_to AND (api = :api_0)"));
+        assertEquals("chat", query.params.getValue("api_0"));
+    }
+
+    private void coverage(String level, long from, long to) {
+        state.add(
+                Map.of(
+                        "level_name",
+                        level,
+                        "from_time",
+                        Timestamp.from(Instant.ofEpochSecond(from)),
+                        "to_time",
+                        Timestamp.from(Instant.ofEpochSecond(to))));
+    }
+
+    private Query query(String scenario, long from, long to, int interval) {
+        return execute(request(scenario, from, to, interval));
+    }
+
+    private GenericSlsQueryRequest request(String scenario, long from, long to, int interval) {
+        GenericSlsQueryRequest request = new GenericSlsQueryRequest();
+        request.setScenario(scenario);
+        request.setSql(presetRegistry.getPreset(scenario).getSqlTemplate());
+        request.setFromTime((int) from);
+        request.setToTime((int) to);
+        request.setInterval(interval);
+        return request;
+    }
+
+    private Query execute(GenericSlsQueryRequest request) {
+        clearInvocations(jdbcTemplate);
+        assertTrue(service.executeQuery(request).getSuccess());
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<SqlParameterSource> params =
+                ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate, atLeastOnce()).queryForList(sql.capture(), params.capture());
+        return new Query(sql.getValue(), (MapSqlParameterSource) params.getValue());
+    }
+
+    private void assertSegment(Query query, int index, String table, long from, long to) {
+        String seg = "seg" + index;
+        assertEquals(
+                Timestamp.from(Instant.ofEpochSecond(from)), query.params.getValue(seg + "_from"));
+        assertEquals(Timestamp.from(Instant.ofEpochSecond(to)), query.params.getValue(seg + "_to"));
+        String source = table == null ? "l.start_time >= :" : "bucket_time >= :";
+        assertTrue(query.sql.contains(source + seg + "_from"), query.sql);
+        if (table != null) {
+            assertTrue(
+                    query.sql.contains("FROM " + table + " WHERE bucket_time >= :" + seg + "_from"),
+                    query.sql);
+        }
+    }
+
+    private void assertRawPreset(Query query) {
+        assertFalse(query.sql.contains("access_log_rollup"), query.sql);
+        assertFalse(query.params.hasValue("seg0_from"));
+    }
+
+    private record Query(String sql, MapSqlParameterSource params) {}
+}
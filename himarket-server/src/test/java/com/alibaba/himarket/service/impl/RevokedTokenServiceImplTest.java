@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.alibaba.himarket.entity.RevokedToken;
+import com.alibaba.himarket.repository.RevokedTokenRepository;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class RevokedTokenServiceImplTest {
+
+    private RevokedTokenRepository repository;
+    private RevokedTokenServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(RevokedTokenRepository.class);
+        service = new RevokedTokenServiceImpl(repository);
+    }
+
+    @Test
+    void initialLoadServesRevokedTokensFromIndex() {
+        when(repository.findByExpiresAtAfter(any())).thenReturn(List.of(revoked("token-a")));
+
+        service.loadRevokedTokens();
+
+        assertTrue(service.isTokenRevoked("token-a"));
+        verify(repository, never()).existsByTokenHash(anyString());
+    }
+
+    @Test
+    void missAfterLoadDoesNotQueryDatabase() {
+        when(repository.findByExpiresAtAfter(any())).thenReturn(List.of(revoked("token-a")));
+
+        service.loadRevokedTokens();
+
+        assertFalse(service.isTokenRevoked("token-b"));
+        verify(repository, never()).existsByTokenHash(anyString());
+    }
+
+    @Test
+    void missBeforeLoadFallsBackToDatabase() {
+        when(repository.existsByTokenHash(DigestUtil.sha256Hex("token-a"))).thenReturn(true);
+
+        assertTrue(service.isTokenRevoked("token-a"));
+        assertFalse(service.isTokenRevoked("token-b"));
+        verify(repository, times(2)).existsByTokenHash(anyString());
+    }
+
+    @Test
+    void refreshPicksUpTokensRevokedOnOtherReplicas() {
+        when(repository.findByExpiresAtAfter(any())).thenReturn(List.of());
+        service.loadRevokedTokens();
+        LocalDateTime loadedAt = LocalDateTime.now();
+        assertFalse(service.isTokenRevoked("token-a"));
+
+        when(repository.findByCreateAtGreaterThanEqual(any()))
+                .thenReturn(List.of(revoked("token-a")));
+        service.refreshRevokedTokens();
+
+        assertTrue(service.isTokenRevoked("token-a"));
+        ArgumentCaptor<LocalDateTime> watermark = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repository).findByCreateAtGreaterThanEqual(watermark.capture());
+        // Watermark overlaps the previous sync by one minute
+        assertTrue(watermark.getValue().isBefore(loadedAt.minusSeconds(59)));
+    }
+
+    @Test
+    void refreshBeforeLoadIsSkipped() {
+        service.refreshRevokedTokens();
+
+        verify(repository, never()).findByCreateAtGreaterThanEqual(any());
+    }
+
+    @Test
+    void failedRefreshKeepsIndex() {
+        when(repository.findByExpiresAtAfter(any())).thenReturn(List.of(revoked("token-a")));
+        service.loadRevokedTokens();
+        when(repository.findByCreateAtGreaterThanEqual(any()))
+                .thenThrow(new IllegalStateException("db down"));
+
+        service.refreshRevokedTokens();
+
+        assertTrue(service.isTokenRevoked("token-a"));
+        assertFalse(service.isTokenRevoked("token-b"));
+        verify(repository, never()).existsByTokenHash(anyString());
+    }
+
+    private static RevokedToken revoked(String token) {
+        return RevokedToken.builder()
+                .tokenHash(DigestUtil.sha256Hex(token))
+                .expiresAt(LocalDateTime.now().plusHours(1))
+                .build();
+    }
+}
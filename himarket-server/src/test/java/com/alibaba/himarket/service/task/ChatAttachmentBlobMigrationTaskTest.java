@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.task;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.alibaba.himarket.config.BlobStoreConfig;
+import com.alibaba.himarket.repository.ChatAttachmentRepository;
+import com.alibaba.himarket.service.blob.BlobStore;
+import com.alibaba.himarket.service.blob.LocalBlobStore;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+class ChatAttachmentBlobMigrationTaskTest {
+
+    private static final PageRequest PAGE =
+            PageRequest.of(0, ChatAttachmentBlobMigrationTask.BATCH_SIZE);
+
+    @TempDir Path rootDir;
+
+    private BlobStoreConfig config;
+    private BlobStore blobStore;
+    private ChatAttachmentRepository repository;
+    private ChatAttachmentBlobMigrationTask task;
+
+    /** Attachment data still in the database, by ID; a null value fails the read */
+    private final Map<Long, byte[]> rows = new HashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        config = new BlobStoreConfig();
+        config.setType(BlobStoreConfig.StoreType.LOCAL);
+        config.setMigrateExisting(true);
+        config.getLocal().setRootDir(rootDir.toString());
+        blobStore = new LocalBlobStore(config);
+
+        ObjectProvider<BlobStore> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(blobStore);
+
+        repository = mock(ChatAttachmentRepository.class);
+        when(repository.findIdsToMigrate(anyLong(), any())).thenReturn(List.of());
+        when(repository.moveDataToBlob(anyLong(), anyString())).thenReturn(1);
+
+        NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        when(jdbcTemplate.query(
+                        anyString(), any(SqlParameterSource.class), any(ResultSetExtractor.class)))
+                .thenAnswer(
+                        invocation -> {
+                            Long id =
+                                    (Long)
+                                            invocation
+                                                    .<SqlParameterSource>getArgument(1)
+                                                    .getValue("id");
+                            ResultSet rs = mock(ResultSet.class);
+                            when(rs.next()).thenReturn(rows.containsKey(id));
+                            when(rs.getBinaryStream("data")).thenReturn(stream(rows.get(id)));
+                            return invocation.<ResultSetExtractor<?>>getArgument(2).extractData(rs);
+                        });
+
+        task = new ChatAttachmentBlobMigrationTask(config, provider, repository, jdbcTemplate);
+    }
+
+    @Test
+    void movesEachRowIntoTheBlobStoreAndClearsItsData() throws IOException {
+        byte[] content = "same bytes".getBytes(StandardCharsets.UTF_8);
+        rows.put(1L, content);
+        rows.put(2L, content);
+        when(repository.findIdsToMigrate(0L, PAGE)).thenReturn(List.of(1L, 2L));
+
+        task.migrateExistingAttachments();
+
+        String key = blobStore.put(new ByteArrayInputStream(content));
+        verify(repository).moveDataToBlob(1L, key);
+        verify(repository).moveDataToBlob(2L, key);
+        try (InputStream in = blobStore.open(key)) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void pagesFromTheLastIdAndSkipsFailedRows() {
+        rows.put(1L, new byte[] {1});
+        rows.put(2L, null);
+        rows.put(3L, new byte[] {3});
+        rows.put(5L, new byte[] {5});
+        when(repository.findIdsToMigrate(0L, PAGE)).thenReturn(List.of(1L, 2L, 3L));
+        when(repository.findIdsToMigrate(3L, PAGE)).thenReturn(List.of(5L));
+
+        task.migrateExistingAttachments();
+
+        verify(repository).findIdsToMigrate(0L, PAGE);
+        verify(repository).findIdsToMigrate(3L, PAGE);
+        verify(repository).findIdsToMigrate(5L, PAGE);
+        verify(repository).moveDataToBlob(eq(1L), anyString());
+        verify(repository, never()).moveDataToBlob(eq(2L), anyString());
+        verify(repository).moveDataToBlob(eq(3L), anyString());
+        verify(repository).moveDataToBlob(eq(5L), anyString());
+    }
+
+    @Test
+    void skipsRowsMigratedSinceTheIdsWerePaged() {
+        // ID 4 no longer matches when its data is read
+        when(repository.findIdsToMigrate(0L, PAGE)).thenReturn(List.of(4L));
+
+        task.migrateExistingAttachments();
+
+        verify(repository, never()).moveDataToBlob(anyLong(), anyString());
+    }
+
+    @Test
+    void doesNothingUnlessMigrationIsEnabled() {
+        config.setMigrateExisting(false);
+
+        task.migrateExistingAttachments();
+
+        verifyNoInteractions(repository);
+    }
+
+    private static InputStream stream(byte[] data) {
+        if (data != null) {
+            return new ByteArrayInputStream(data);
+        }
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("read failed");
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                throw new IOException("read failed");
+            }
+        };
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.himarket.service.task;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import cn.hutool.extra.spring.SpringUtil;
+import com.alibaba.himarket.config.DownloadCountSyncConfig;
+import com.alibaba.himarket.core.event.ProductCatalogChangedEvent;
+import com.alibaba.himarket.entity.Product;
+import com.alibaba.himarket.repository.ProductRepository;
+import com.alibaba.himarket.service.NacosService;
+import com.alibaba.himarket.support.enums.ProductType;
+import com.alibaba.himarket.support.product.ProductFeature;
+import com.alibaba.himarket.support.product.SkillConfig;
+import com.alibaba.himarket.support.product.WorkerConfig;
+import com.alibaba.himarket.utils.JsonUtil;
+import com.alibaba.nacos.api.ai.model.agentspecs.AgentSpecSummary;
+import com.alibaba.nacos.api.ai.model.skills.SkillSummary;
+import com.alibaba.nacos.api.model.Page;
+import com.alibaba.nacos.maintainer.client.ai.AgentSpecMaintainerService;
+import com.alibaba.nacos.maintainer.client.ai.AiMaintainerService;
+import com.alibaba.nacos.maintainer.client.ai.SkillMaintainerService;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class DownloadCountSyncTaskTest {
+
+    private static final int PAGE_SIZE = 100;
+
+    private ProductRepository productRepository;
+    private NacosService nacosService;
+    private DownloadCountSyncConfig config;
+    private SkillMaintainerService skills;
+    private AgentSpecMaintainerService agentSpecs;
+    private ApplicationContext applicationContext;
+    private ExecutorService executor;
+    private DownloadCountSyncTask task;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        productRepository = mock(ProductRepository.class);
+        nacosService = mock(NacosService.class);
+        config = new DownloadCountSyncConfig();
+        skills = mock(SkillMaintainerService.class);
+        agentSpecs = mock(AgentSpecMaintainerService.class);
+        AiMaintainerService aiService = mock(AiMaintainerService.class);
+        when(aiService.skill()).thenReturn(skills);
+        when(aiService.agentSpec()).thenReturn(agentSpecs);
+        when(nacosService.getAiMaintainerService("nacos-1")).thenReturn(aiService);
+        when(productRepository.findAllByType(any())).thenReturn(List.of());
+        when(skills.listSkills(anyString(), any(), any(), anyInt(), anyInt()))
+                .thenReturn(skillPage(List.of()));
+        when(agentSpecs.listAgentSpecAdminItems(anyString(), any(), any(), anyInt(), anyInt()))
+                .thenReturn(new Page<>());
+
+        applicationContext = mock(ApplicationContext.class);
+        new SpringUtil().setApplicationContext(applicationContext);
+
+        executor = Executors.newFixedThreadPool(4);
+        task =
+                new DownloadCountSyncTask(
+                        productRepository, nacosService, config, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(task, "taskExecutor", executor);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldWriteOnlyChangedCountersInOneBatch() throws Exception {
+        when(productRepository.findAllByType(ProductType.AGENT_SKILL))
+                .thenReturn(
+                        List.of(
+                                skill(1L, "unchanged", 5L),
+                                skill(2L, "changed", 1L),
+                                skill(3L, "gone", 1L),
+                                skillWithoutNacos(4L)));
+        when(skills.listSkills(eq("public"), any(), any(), eq(1), eq(PAGE_SIZE)))
+                .thenReturn(skillPage(List.of(summary("unchanged", 5L), summary("changed", 7L))));
+        when(productRepository.updateDownloadCounts(anyString(), anyString())).thenReturn(1);
+
+        task.syncDownloadCounts();
+
+        ArgumentCaptor<String> counts = ArgumentCaptor.forClass(String.class);
+        verify(productRepository)
+                .updateDownloadCounts(counts.capture(), eq("$.skillConfig.downloadCount"));
+        JsonNode written = JsonUtil.readTree(counts.getValue());
+        assertEquals(1, written.size());
+        assertEquals(2L, written.get(0).get("id").asLong());
+        assertEquals(7L, written.get(0).get("downloadCount").asLong());
+        verify(productRepository, never()).save(any());
+        verify(applicationContext).publishEvent(any(ProductCatalogChangedEvent.class));
+    }
+
+    @Test
+    void shouldNotWriteOrPublishWhenNothingChanged() throws Exception {
+        when(productRepository.findAllByType(ProductType.AGENT_SKILL))
+                .thenReturn(List.of(skill(1L, "same", 5L)));
+        when(skills.listSkills(eq("public"), any(), any(), eq(1), eq(PAGE_SIZE)))
+                .thenReturn(skillPage(List.of(summary("same", 5L))));
+
+        task.syncDownloadCounts();
+
+        verify(productRepository, never()).updateDownloadCounts(anyString(), anyString());
+        verifyNoInteractions(applicationContext);
+    }
+
+    @Test
+    void shouldMergePageWavesInPageOrderSoTheFirstOccurrenceWins() throws Exception {
+        config.setFetchParallelism(3);
+        when(productRepository.findAllByType(ProductType.AGENT_SKILL))
+                .thenReturn(List.of(skill(1L, "dup", 0L), skill(2L, "late", 0L)));
+        when(productRepository.updateDownloadCounts(anyString(), anyString())).thenReturn(2);
+
+        when(skills.listSkills(eq("public"), any(), any(), eq(1), eq(PAGE_SIZE)))
+                .thenReturn(skillPage(filler(1, PAGE_SIZE)));
+        // Page 2 answers last, its count must still win over page 3
+        when(skills.listSkills(eq("public"), any(), any(), eq(2), eq(PAGE_SIZE)))
+                .thenAnswer(
+                        invocation -> {
+                            Thread.sleep(200);
+                            List<SkillSummary> items = filler(2, PAGE_SIZE - 1);
+                            items.add(summary("dup", 10L));
+                            return skillPage(items);
+                        });
+        when(skills.listSkills(eq("public"), any(), any(), eq(3), eq(PAGE_SIZE)))
+                .thenAnswer(
+                        invocation -> {
+                            List<SkillSummary> items = filler(3, PAGE_SIZE - 2);
+                            items.add(summary("dup", 20L));
+                            items.add(summary("late", 30L));
+                            return skillPage(items);
+                        });
+        // Page 4 is not full, so page 5 of the next wave is never requested
+        when(skills.listSkills(eq("public"), any(), any(), eq(4), eq(PAGE_SIZE)))
+                .thenReturn(skillPage(filler(4, 3)));
+
+        task.syncDownloadCounts();
+
+        ArgumentCaptor<String> counts = ArgumentCaptor.forClass(String.class);
+        verify(productRepository).updateDownloadCounts(counts.capture(), anyString());
+        Map<Long, Long> written = countsById(counts.getValue());
+        assertEquals(Map.of(1L, 10L, 2L, 30L), written);
+        verify(skills, never()).listSkills(anyString(), any(), any(), eq(5), anyInt());
+    }
+
+    @Test
+    void shouldKeepSyncingOtherGroupsWhenANacosFetchFails() throws Exception {
+        Product broken = skill(1L, "a", 0L);
+        broken.getFeature().getSkillConfig().setNacosId("nacos-down");
+        when(nacosService.getAiMaintainerService("nacos-down"))
+                .thenThrow(new IllegalStateException("unreachable"));
+        when(productRepository.findAllByType(ProductType.AGENT_SKILL))
+                .thenReturn(List.of(broken, skill(2L, "b", 0L)));
+        when(skills.listSkills(eq("public"), any(), any(), eq(1), eq(PAGE_SIZE)))
+                .thenReturn(skillPage(List.of(summary("a", 3L), summary("b", 4L))));
+        when(productRepository.updateDownloadCounts(anyString(), anyString())).thenReturn(1);
+
+        task.syncDownloadCounts();
+
+        ArgumentCaptor<String> counts = ArgumentCaptor.forClass(String.class);
+        verify(productRepository).updateDownloadCounts(counts.capture(), anyString());
+        assertEquals(Map.of(2L, 4L), countsById(counts.getValue()));
+    }
+
+    @Test
+    void shouldNotPublishWhenTheBatchWriteFails() throws Exception {
+        when(productRepository.findAllByType(ProductType.AGENT_SKILL))
+                .thenReturn(List.of(skill(1L, "a", 0L)));
+        when(skills.listSkills(eq("public"), any(), any(), eq(1), eq(PAGE_SIZE)))
+                .thenReturn(skillPage(List.of(summary("a", 3L))));
+        when(productRepository.updateDownloadCounts(anyString(), anyString()))
+                .thenThrow(new IllegalStateException("JSON_TABLE not supported"));
+
+        task.syncDownloadCounts();
+
+        verifyNoInteractions(applicationContext);
+    }
+
+    @Test
+    void shouldSaveEachChangedProductWhenBatchingIsDisabled() throws Exception {
+        config.setBatchEnabled(false);
+        Product failing = worker(1L, "w1", 0L);
+        Product saved = worker(2L, "w2", 0L);
+        when(productRepository.findAllByType(ProductType.WORKER))
+                .thenReturn(List.of(failing, saved));
+        Page<AgentSpecSummary> page = new Page<>();
+        page.setPageItems(List.of(agentSpec("w1", 5L), agentSpec("w2", 6L)));
+        when(agentSpecs.listAgentSpecAdminItems(eq("public"), any(), any(), eq(1), eq(PAGE_SIZE)))
+                .thenReturn(page);
+        when(productRepository.save(failing)).thenThrow(new IllegalStateException("locked"));
+
+        task.syncDownloadCounts();
+
+        verify(productRepository).save(saved);
+        assertEquals(6L, saved.getFeature().getWorkerConfig().getDownloadCount());
+        verify(productRepository, never()).updateDownloadCounts(anyString(), anyString());
+        verify(applicationContext).publishEvent(any(ProductCatalogChangedEvent.class));
+    }
+
+    private static Product skill(Long id, String skillName, Long count) {
+        return Product.builder()
+                .id(id)
+                .productId("product-" + id)
+                .type(ProductType.AGENT_SKILL)
+                .feature(
+                        ProductFeature.builder()
+                                .skillConfig(
+                                        SkillConfig.builder()
+                                                .nacosId("nacos-1")
+                                                .namespace("public")
+                                                .skillName(skillName)
+                                                .downloadCount(count)
+                                                .build())
+                                .build())
+                .build();
+    }
+
+    private static Product skillWithoutNacos(Long id) {
+        Product product = skill(id, "local", 0L);
+        product.getFeature().getSkillConfig().setNacosId(null);
+        return product;
+    }
+
+    private static Product worker(Long id, String specName, long count) {
+        return Product.builder()
+                .id(id)
+                .productId("product-" + id)
+                .type(ProductType.WORKER)
+                .feature(
+                        ProductFeature.builder()
+                                .workerConfig(
+                                        WorkerConfig.builder()
+                                                .nacosId("nacos-1")
+                                                .namespace("public")
+                                                .agentSpecName(specName)
+                                                .downloadCount(count)
+                                                .build())
+                                .build())
+                .build();
+    }
+
+    private static SkillSummary summary(String name, Long count) {
+        SkillSummary summary = new SkillSummary();
+        summary.setName(name);
+        summary.setDownloadCount(count);
+        return summary;
+    }
+
+    private static AgentSpecSummary agentSpec(String name, Long count) {
+        AgentSpecSummary summary = new AgentSpecSummary();
+        summary.setName(name);
+        summary.setDownloadCount(count);
+        return summary;
+    }
+
+    private static List<SkillSummary> filler(int page, int size) {
+        List<SkillSummary> items = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            items.add(summary("page" + page + "-" + i, 1L));
+        }
+        return items;
+    }
+
+    private static Page<SkillSummary> skillPage(List<SkillSummary> items) {
+        Page<SkillSummary> page = new Page<>();
+        page.setPageItems(items);
+        return page;
+    }
+
+    private static Map<Long, Long> countsById(String json) {
+        Map<Long, Long> counts = new HashMap<>();
+        JsonUtil.readTree(json)
+                .forEach(
+                        node ->
+                                counts.put(
+                                        node.get("id").asLong(),
+                                        node.get("downloadCount").asLong()));
+        return counts;
+    }
+}
@@ -13,6 +13,7 @@ function buildTerminalWsUrl(runtime?: string): string {
   const token = localStorage.getItem('access_token');
   if (token) params.set('token', token);
   if (runtime) params.set('runtime', runtime);
+  params.set('protocol', 'binary');
   const qs = params.toString();
   return qs ? `${base}?${qs}` : base;
 }
@@ -112,7 +112,15 @@ export function useCodingWebSocket({
     };
 
     ws.onmessage = (e) => {
-      onMessageRef.current(e.data);
+      // The server may coalesce several JSON-RPC messages into one frame, one per line
+      const data: string = e.data;
+      if (data.indexOf('\n') < 0) {
+        onMessageRef.current(data);
+        return;
+      }
+      for (const line of data.split('\n')) {
+        if (line.trim()) onMessageRef.current(line);
+      }
     };
 
     ws.onerror = (e) => {
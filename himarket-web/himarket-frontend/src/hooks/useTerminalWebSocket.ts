@@ -2,6 +2,30 @@ import { useCallback, useEffect, useRef, useState } from 'react';
 
 import { calcReconnectDelay } from './useCodingWebSocket';
 
+// Binary frame protocol (negotiated via ?protocol=binary): 1-byte type header + payload.
+const FRAME_OUTPUT = 0x01;
+const FRAME_EXIT = 0x02;
+const FRAME_INPUT = 0x01;
+const FRAME_RESIZE = 0x02;
+
+const textEncoder = new TextEncoder();
+
+function encodeInput(data: string): Uint8Array {
+  const payload = textEncoder.encode(data);
+  const frame = new Uint8Array(payload.length + 1);
+  frame[0] = FRAME_INPUT;
+  frame.set(payload, 1);
+  return frame;
+}
+
+function encodeResize(cols: number, rows: number): ArrayBuffer {
+  const view = new DataView(new ArrayBuffer(5));
+  view.setUint8(0, FRAME_RESIZE);
+  view.setUint16(1, cols);
+  view.setUint16(3, rows);
+  return view.buffer;
+}
+
 export type TerminalWsStatus = 'disconnected' | 'connecting' | 'connected' | 'reconnecting';
 
 interface UseTerminalWebSocketOptions {
@@ -84,6 +108,7 @@ export function useTerminalWebSocket({
     setStatus('connecting');
     console.warn('[TerminalWebSocket] Connecting to:', urlRef.current);
     const ws = new WebSocket(urlRef.current);
+    ws.binaryType = 'arraybuffer';
     wsRef.current = ws;
 
     ws.onopen = () => {
@@ -96,11 +121,22 @@ export function useTerminalWebSocket({
       // Auto-resend last resize info after reconnection
       if (lastResizeRef.current && ws.readyState === WebSocket.OPEN) {
         const { cols, rows } = lastResizeRef.current;
-        ws.send(JSON.stringify({ cols, rows, type: 'resize' }));
+        ws.send(encodeResize(cols, rows));
       }
     };
 
     ws.onmessage = (e) => {
+      if (e.data instanceof ArrayBuffer) {
+        const frame = new Uint8Array(e.data);
+        if (frame.length === 0) return;
+        if (frame[0] === FRAME_OUTPUT) {
+          onOutputRef.current(frame.subarray(1));
+        } else if (frame[0] === FRAME_EXIT && frame.length >= 5) {
+          onExitRef.current?.(new DataView(e.data).getInt32(1));
+        }
+        return;
+      }
+      // JSON text frames (legacy protocol)
       try {
         const msg = JSON.parse(e.data);
         if (msg.type === 'output' && msg.data) {
@@ -167,7 +203,7 @@ export function useTerminalWebSocket({
 
   const sendInput = useCallback((data: string) => {
     if (wsRef.current?.readyState === WebSocket.OPEN) {
-      wsRef.current.send(JSON.stringify({ data, type: 'input' }));
+      wsRef.current.send(encodeInput(data));
     }
   }, []);
 
@@ -175,7 +211,7 @@ export function useTerminalWebSocket({
     // Save last resize dimensions for auto-resend after reconnection
     lastResizeRef.current = { cols, rows };
     if (wsRef.current?.readyState === WebSocket.OPEN) {
-      wsRef.current.send(JSON.stringify({ cols, rows, type: 'resize' }));
+      wsRef.current.send(encodeResize(cols, rows));
     }
   }, []);
 